@@ -0,0 +1,410 @@
+import java.util.*;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Workloads measured by the JMH benchmarks of the {@code jmh} module (see README.TXT).
+ * JMH only accepts benchmarks in a named package, from which the classes of this project
+ * cannot be referenced, so the benchmarks obtain every workload from the factory methods of
+ * this class by reflection, as an {@link IntToLongFunction}: the factory method performs the
+ * setup, which is not measured, and every call to the function performs the given number
+ * of operations and returns a value derived from their results, for JMH to consume.
+ * Scenarios are random but seeded, so every run measures the same work.
+ * @author DP classes
+ * @version 2025
+ */
+public class BenchmarkWorkloads
+{
+    /** Side of the square grid used by the benchmarks. */
+    public static final int GRID_SIZE = 1000;
+
+    /** Seed of the random scenarios. */
+    private static final long SEED = 2025L;
+
+    /** Number of different inputs the micro-benchmarks cycle through (a power of two). */
+    private static final int INPUTS = 1024;
+
+    static {
+        Location.ensureCacheExtent(GRID_SIZE, GRID_SIZE);
+    }
+
+    /**
+     * {@link Location#nextLocation(Location)} and {@link Location#distance(Location)}, with
+     * objects or with packed coordinates, between random points of the grid.
+     * @param operation {@code nextLocation}, {@code nextLocationPacked}, {@code distance} or {@code distancePacked}.
+     * @return The workload.
+     */
+    public static IntToLongFunction location(String operation)
+    {
+        Random random = new Random(SEED);
+        Location[] from = new Location[INPUTS];
+        Location[] to = new Location[INPUTS];
+        long[] packedFrom = new long[INPUTS];
+        long[] packedTo = new long[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            from[i] = Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE));
+            to[i] = Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE));
+            packedFrom[i] = from[i].pack();
+            packedTo[i] = to[i].pack();
+        }
+
+        switch (operation) {
+            case "nextLocation":
+                return ops -> {
+                    long result = 0;
+                    for (int k = 0; k < ops; k++) {
+                        result += from[k & (INPUTS - 1)].nextLocation(to[k & (INPUTS - 1)]).getX();
+                    }
+                    return result;
+                };
+            case "nextLocationPacked":
+                return ops -> {
+                    long result = 0;
+                    for (int k = 0; k < ops; k++) {
+                        result += Location.nextLocation(packedFrom[k & (INPUTS - 1)], packedTo[k & (INPUTS - 1)]);
+                    }
+                    return result;
+                };
+            case "distance":
+                return ops -> {
+                    long result = 0;
+                    for (int k = 0; k < ops; k++) {
+                        result += from[k & (INPUTS - 1)].distance(to[k & (INPUTS - 1)]);
+                    }
+                    return result;
+                };
+            case "distancePacked":
+                return ops -> {
+                    long result = 0;
+                    for (int k = 0; k < ops; k++) {
+                        result += Location.distance(packedFrom[k & (INPUTS - 1)], packedTo[k & (INPUTS - 1)]);
+                    }
+                    return result;
+                };
+            default:
+                throw new IllegalArgumentException("Unknown operation in location (BenchmarkWorkloads): " + operation);
+        }
+    }
+
+    /**
+     * {@link EVCompany#getChargingStation(Location)} or {@link EVCompany#getChargingStation(String)}
+     * over a network of the given size, half of the queries hitting a station.
+     * @param key {@code location} or {@code id}.
+     * @param numStations The number of stations of the network.
+     * @return The workload.
+     */
+    public static IntToLongFunction stationLookup(String key, int numStations)
+    {
+        EVCompany company = new EVCompany("Benchmark");
+        createStations(company, numStations, 1);
+
+        Random random = new Random(SEED);
+        Location[] locations = new Location[INPUTS];
+        String[] ids = new String[INPUTS];
+        List<ChargingStation> network = company.getCityStations();
+        for (int i = 0; i < INPUTS; i++) {
+            boolean hit = random.nextBoolean();
+            ChargingStation station = network.get(random.nextInt(network.size()));
+            locations[i] = hit ? station.getLocation() : Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE));
+            ids[i] = hit ? station.getId() : "MISS" + i;
+        }
+
+        switch (key) {
+            case "location":
+                return ops -> {
+                    long result = 0;
+                    for (int k = 0; k < ops; k++) {
+                        if (company.getChargingStation(locations[k & (INPUTS - 1)]) != null) result++;
+                    }
+                    return result;
+                };
+            case "id":
+                return ops -> {
+                    long result = 0;
+                    for (int k = 0; k < ops; k++) {
+                        if (company.getChargingStation(ids[k & (INPUTS - 1)]) != null) result++;
+                    }
+                    return result;
+                };
+            default:
+                throw new IllegalArgumentException("Unknown key in stationLookup (BenchmarkWorkloads): " + key);
+        }
+    }
+
+    /**
+     * {@link ElectricVehicle#calculateRechargingPosition()} for vehicles spread over the grid,
+     * whose batteries reach a tenth of it.
+     * @param numStations The number of stations of the network.
+     * @return The workload.
+     */
+    public static IntToLongFunction rechargingPosition(int numStations)
+    {
+        EVCompany company = new EVCompany("Benchmark");
+        createStations(company, numStations, 1);
+
+        Random random = new Random(SEED);
+        ElectricVehicle[] vehicles = new ElectricVehicle[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            Location start = Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE));
+            Location target = Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE));
+            vehicles[i] = new ElectricVehicle("EV" + i, i + "BENCH", company, start, target,
+                                              GRID_SIZE / 10 * ElectricVehicle.CONSUMPTION_PER_STEP);
+        }
+
+        return ops -> {
+            long result = 0;
+            for (int k = 0; k < ops; k++) {
+                ElectricVehicle ev = vehicles[k & (INPUTS - 1)];
+                ev.calculateRechargingPosition();
+                if (ev.getRechargingLocation() != null) result++;
+            }
+            return result;
+        };
+    }
+
+    /**
+     * {@link ChargingStation#getFreeCharger()} on a station where every other charger is busy,
+     * so the search has to skip occupied chargers.
+     * @param numChargers The number of chargers of the station.
+     * @return The workload.
+     */
+    public static IntToLongFunction freeCharger(int numChargers)
+    {
+        ChargingStation station = new ChargingStation("Benchmark", "BS0", Location.of(0, 0));
+        for (int i = 0; i < numChargers; i++) {
+            station.addCharger(new Charger("BS0_" + i, (i + 1) * 20, (i + 1) * 0.20f));
+        }
+        for (Charger charger : station.getChargers()) {
+            if (charger.getChargingSpeed() % 40 == 0) {
+                charger.tryReserve();
+            }
+        }
+
+        return ops -> {
+            long result = 0;
+            for (int k = 0; k < ops; k++) {
+                result += station.getFreeCharger().getChargingSpeed();
+            }
+            return result;
+        };
+    }
+
+    /**
+     * Reservation and release of the chargers of a station with four chargers. The function
+     * can be called from several threads at once, which then compete for the chargers.
+     * @return The workload; its result is the number of successful reservations.
+     */
+    public static IntToLongFunction chargerContention()
+    {
+        ChargingStation station = new ChargingStation("Benchmark", "BS00", Location.of(0, 0));
+        for (int i = 0; i < 4; i++) {
+            station.addCharger(new Charger("BS00_00" + i, (i + 1) * 20, (i + 1) * 0.20f));
+        }
+
+        return ops -> {
+            long reserved = 0;
+            for (int k = 0; k < ops; k++) {
+                Charger charger = station.tryAcquireCharger();
+                if (charger != null) {
+                    charger.release();
+                    reserved++;
+                }
+            }
+            return reserved;
+        };
+    }
+
+    /**
+     * Moves a fleet one step towards its targets, either through the canonical {@link Location}s
+     * of the grid, as the simulation does, or creating a new {@link Location} per move. The
+     * difference in allocation is what the shared instances save.
+     * @param canonical Whether the moves use the canonical instances.
+     * @param numVehicles The size of the fleet.
+     * @return The workload; every operation moves the whole fleet once.
+     */
+    public static IntToLongFunction locationMoves(boolean canonical, int numVehicles)
+    {
+        List<ElectricVehicle> fleet = createLongTrips(new EVCompany("Benchmark"), numVehicles);
+        Location[] starts = new Location[numVehicles];
+        for (int i = 0; i < numVehicles; i++) {
+            starts[i] = fleet.get(i).getLocation();
+        }
+
+        return ops -> {
+            long result = 0;
+            for (int k = 0; k < ops; k++) {
+                for (int i = 0; i < numVehicles; i++) {
+                    ElectricVehicle ev = fleet.get(i);
+                    Location target = ev.getTargetLocation();
+                    Location next = ev.getLocation().nextLocation(target);
+                    // Al llegar vuelve a empezar, para que el recorrido no se acabe
+                    if (next.equals(target)) {
+                        next = starts[i];
+                    }
+                    ev.setLocation(canonical ? next : new Location(next.getX(), next.getY()));
+                    result += next.getX();
+                }
+            }
+            return result;
+        };
+    }
+
+    /**
+     * A whole simulation from step 0 with one of the engines of {@link EVDemo}. The scenario
+     * is built by this method; the function simulates as many steps as it is given, so it is
+     * meant to be called once per scenario. With {@link SimulationMode#VIRTUAL_THREADS} the
+     * function is also {@link AutoCloseable}, and must be closed to stop the threads.
+     * @param mode The engine: any {@link SimulationMode} but {@link SimulationMode#TILED}.
+     * @param longTrips {@code false} for vehicles whose batteries only reach a quarter of the
+     *                  grid, so they recharge; {@code true} for vehicles that cross the grid
+     *                  without recharging, the case the event-driven engine is meant for.
+     * @param numVehicles The size of the fleet.
+     * @param numStations The number of stations.
+     * @param numChargers The number of chargers of every station.
+     * @return The workload.
+     */
+    public static IntToLongFunction simulation(String mode, boolean longTrips, int numVehicles, int numStations, int numChargers)
+    {
+        EVCompany company = new EVCompany("Benchmark");
+        company.setLog(SimulationLog.off());
+        createStations(company, numStations, numChargers);
+        List<ElectricVehicle> fleet = longTrips ? createLongTrips(company, numVehicles) : createRechargingFleet(company, numVehicles);
+
+        switch (SimulationMode.valueOf(mode)) {
+            case SEQUENTIAL:
+                return steps -> {
+                    for (int step = 0; step < steps; step++) {
+                        for (ElectricVehicle ev : fleet) {
+                            ev.act(step);
+                        }
+                    }
+                    return arrived(fleet);
+                };
+            case COLUMNAR:
+                FleetEngine columns = new FleetEngine(company, fleet);
+                return steps -> {
+                    for (int step = 0; step < steps; step++) {
+                        columns.step(step);
+                    }
+                    columns.exportState();
+                    return arrived(fleet);
+                };
+            case PARALLEL:
+                ParallelStepper parallel = new ParallelStepper(fleet);
+                return steps -> {
+                    for (int step = 0; step < steps; step++) {
+                        parallel.step(step);
+                    }
+                    return arrived(fleet);
+                };
+            case EVENT_DRIVEN:
+                EventDrivenEngine events = new EventDrivenEngine(company, fleet);
+                return steps -> {
+                    events.advanceTo(steps);
+                    return arrived(fleet);
+                };
+            case VIRTUAL_THREADS:
+                return new VirtualThreadWorkload(fleet);
+            default:
+                throw new IllegalArgumentException("Unsupported mode in simulation (BenchmarkWorkloads): " + mode);
+        }
+    }
+
+    /**
+     * Simulation workload of {@link SimulationMode#VIRTUAL_THREADS}, which owns the threads
+     * of its {@link VirtualThreadStepper}.
+     */
+    private static class VirtualThreadWorkload implements IntToLongFunction, AutoCloseable
+    {
+        private final List<ElectricVehicle> fleet;
+        private final VirtualThreadStepper stepper;
+
+        VirtualThreadWorkload(List<ElectricVehicle> fleet)
+        {
+            this.fleet = fleet;
+            this.stepper = new VirtualThreadStepper(fleet);
+        }
+
+        @Override
+        public long applyAsLong(int steps)
+        {
+            for (int step = 0; step < steps; step++) {
+                stepper.step(step);
+            }
+            return arrived(fleet);
+        }
+
+        @Override
+        public void close()
+        {
+            stepper.close();
+        }
+    }
+
+    /**
+     * @return The number of vehicles of a fleet that have reached their targets.
+     */
+    private static long arrived(List<ElectricVehicle> fleet)
+    {
+        long arrived = 0;
+        for (ElectricVehicle ev : fleet) {
+            if (ev.getArrivingStep() >= 0) arrived++;
+        }
+        return arrived;
+    }
+
+    /**
+     * Creates vehicles whose batteries only reach a quarter of the grid, so they need to recharge.
+     * @return The vehicles, in fleet order and with their routes calculated.
+     */
+    private static List<ElectricVehicle> createRechargingFleet(EVCompany company, int numVehicles)
+    {
+        Random random = new Random(SEED);
+        List<ElectricVehicle> fleet = new ArrayList<>(numVehicles);
+        for (int i = 0; i < numVehicles; i++) {
+            Location start = Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE));
+            Location target = Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE));
+            ElectricVehicle ev = new ElectricVehicle("EV" + i, i + "BENCH", company, start, target,
+                                                     GRID_SIZE / 4 * ElectricVehicle.CONSUMPTION_PER_STEP);
+            fleet.add(ev);
+            company.addElectricVehicle(ev);
+        }
+        company.calculateRoutes(fleet);
+        return fleet;
+    }
+
+    /**
+     * Creates vehicles that keep moving for a long time: they start far from their targets
+     * and carry enough battery to get there without recharging.
+     * @return The vehicles, in fleet order and with their routes calculated.
+     */
+    private static List<ElectricVehicle> createLongTrips(EVCompany company, int numVehicles)
+    {
+        Random random = new Random(SEED);
+        List<ElectricVehicle> fleet = new ArrayList<>(numVehicles);
+        for (int i = 0; i < numVehicles; i++) {
+            Location start = Location.of(random.nextInt(GRID_SIZE / 4), random.nextInt(GRID_SIZE / 4));
+            Location target = Location.of(GRID_SIZE - 1 - random.nextInt(GRID_SIZE / 4), GRID_SIZE - 1 - random.nextInt(GRID_SIZE / 4));
+            ElectricVehicle ev = new ElectricVehicle("EV" + i, i + "BENCH", company, start, target, 10 * GRID_SIZE);
+            fleet.add(ev);
+            company.addElectricVehicle(ev);
+        }
+        company.calculateRoutes(fleet);
+        return fleet;
+    }
+
+    /**
+     * Adds randomly placed stations to a company.
+     */
+    private static void createStations(EVCompany company, int numStations, int numChargers)
+    {
+        Random random = new Random(SEED + 1);
+        for (int s = 0; s < numStations; s++) {
+            ChargingStation station = new ChargingStation("Benchmark", "BS" + s,
+                                                          Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)));
+            for (int i = 0; i < numChargers; i++) {
+                station.addCharger(new Charger("BS" + s + "_" + i, (i + 1) * 20, (i + 1) * 0.20f));
+            }
+            company.addChargingStation(station);
+        }
+    }
+}
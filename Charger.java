@@ -1,8 +1,27 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 /**
  * Model a charger unit within a {@link ChargingStation}.
  * It tracks its charging capabilities, fee, and the electric vehicles it has recharged.
+ * Occupancy and collected amount are updated without locks, so a charger can be shared by
+ * vehicles acting on different threads: {@link #tryReserve(ElectricVehicle)} hands the charger
+ * to a single vehicle, and only that vehicle may then recharge with it and
+ * {@link #release(ElectricVehicle) release} it. A charger taken with {@link #tryReserve()} is
+ * held by nobody in particular and is only freed by {@link #release()}.
+ * {@link #recharge(ElectricVehicle, int)} keeps the behaviour of the original class on a free
+ * charger, which it occupies just for the recharge, and also recharges (and releases) a charger
+ * reserved for the same vehicle; unlike the original class, it throws
+ * {@link IllegalStateException} on a charger reserved by anyone else. The recharge history is a {@link RechargeLog}
+ * of primitive records that refer to the vehicles by their number in the {@link VehicleRegistry}
+ * of the fleet being simulated; vehicles outside that fleet are kept in a small list of the charger.
+ * Money is accounted in fixed point (see {@link Money}): the fee, the cost of every recharge and
+ * the amount collected are exact, and the {@code float} getters are views of them.
  * * @author David J. Barnes and Michael Kölling
  * @author DP classes 
  * @version 2024.10.07 prueba
@@ -13,9 +32,22 @@ public class Charger
     private final String id;
     private final int chargingSpeed; 
     private final float chargingFee;
-    private final List<ElectricVehicle> evsRecharged;
-    private float amountCollected;
-    private boolean free;   
+    private final long fee;             // Tarifa en unidades de Money
+    private final RechargeLog rechargeLog;
+    // Registro de la flota de los vehículos del historial (el del primer vehículo recargado)
+    private volatile VehicleRegistry registry;
+    // Vehículos recargados que no están en ese registro (el historial los guarda como ~posición),
+    // creados sólo si hacen falta; protegidos por el cerrojo de rechargeLog
+    private List<ElectricVehicle> otherVehicles;
+    private Map<ElectricVehicle, Integer> otherPositions;
+    // Cantidad recaudada en unidades de Money
+    private final AtomicLong amountCollected;
+    // Titular de la reserva: el vehículo, el propio cargador (reserva sin vehículo) o null si está libre
+    private final AtomicReference<Object> holder;
+    
+    // Estación a la que pertenece y posición dentro de su orden de velocidad
+    private ChargingStation station;
+    private int slot;
 
     /**
      * Constructor for objects of class Charger.
@@ -28,9 +60,10 @@ public class Charger
         this.id = id;
         this.chargingSpeed = chargingSpeed;
         this.chargingFee = chargingFee;
-        this.evsRecharged = new ArrayList<>();
-        this.amountCollected = 0.0f;
-        this.free = true;
+        this.fee = Money.ofEuros(chargingFee);
+        this.rechargeLog = new RechargeLog();
+        this.amountCollected = new AtomicLong();
+        this.holder = new AtomicReference<>();
     }
 
     /**
@@ -56,12 +89,135 @@ public class Charger
         return this.chargingFee;
     }
     
+    /**
+     * @return The exact fee per kWh, in units of {@link Money}.
+     */
+    public long getChargingFeeUnits(){
+        
+        return this.fee;
+    }
+    
     /**
      * @return La disponibilidad del cargador ("true" si está disponible y "false" en caso contrario)
      */
     public boolean isFree(){
         
-        return this.free;
+        return this.holder.get() == null;
+    }
+    
+    /**
+     * @param vehicle A vehicle.
+     * @return Whether the charger is reserved for that vehicle.
+     */
+    public boolean isReservedFor(ElectricVehicle vehicle){
+        
+        return vehicle != null && this.holder.get() == vehicle;
+    }
+    
+    /**
+     * @return The vehicle the charger is reserved for, or null if it is free or reserved for nobody.
+     */
+    ElectricVehicle getHolder(){
+        
+        Object token = this.holder.get();
+        return token instanceof ElectricVehicle ? (ElectricVehicle) token : null;
+    }
+    
+    /**
+     * Atomically takes the charger for a vehicle if it is free.
+     * Only one of several concurrent callers can succeed until the charger is released, and
+     * only that vehicle can then recharge with it and release it.
+     * @param vehicle The vehicle that will use the charger.
+     * @return {@code true} if the charger is now reserved for the vehicle, {@code false} if it was busy.
+     */
+    public boolean tryReserve(ElectricVehicle vehicle){
+        
+        if (vehicle == null) throw new IllegalArgumentException("null vehicle in tryReserve (Charger)");
+        
+        return reserve(vehicle);
+    }
+    
+    /**
+     * Atomically takes the charger if it is free, without reserving it for any vehicle: it
+     * stays busy until {@link #release()} is called, and no vehicle can recharge with it.
+     * @return {@code true} if the caller now holds the charger, {@code false} if it was busy.
+     */
+    public boolean tryReserve(){
+        
+        return reserve(this);
+    }
+    
+    /**
+     * Frees a charger reserved for a vehicle so that it can be reserved again.
+     * @param vehicle The vehicle the charger is reserved for.
+     * @throws IllegalStateException If the charger is not reserved for that vehicle.
+     */
+    public void release(ElectricVehicle vehicle){
+        
+        if (vehicle == null) throw new IllegalArgumentException("null vehicle in release (Charger)");
+        
+        release((Object) vehicle);
+    }
+    
+    /**
+     * Frees a charger taken with {@link #tryReserve()} so that it can be reserved again.
+     * @throws IllegalStateException If the charger is free or reserved for a vehicle.
+     */
+    public void release(){
+        
+        release((Object) this);
+    }
+    
+    /**
+     * Takes the charger for a holder if it is free.
+     */
+    private boolean reserve(Object token){
+        
+        if (!this.holder.compareAndSet(null, token)) {
+            return false;
+        }
+        notifyStation();
+        return true;
+    }
+    
+    /**
+     * Frees the charger if it is held by a holder; nobody else can free it.
+     */
+    private void release(Object token){
+        
+        if (!this.holder.compareAndSet(token, null)) {
+            throw new IllegalStateException("Charger " + this.id + " not held by the caller in release (Charger)");
+        }
+        notifyStation();
+    }
+    
+    /**
+     * @return The {@link ChargingStation} this charger belongs to, or null if it has not been added to one.
+     */
+    public ChargingStation getStation(){
+        
+        return this.station;
+    }
+    
+    /**
+     * Records the station that owns this charger and its position in the station's speed order.
+     * @param station The owning station.
+     * @param slot The position of the charger in the speed order.
+     */
+    void attachTo(ChargingStation station, int slot){
+        
+        this.station = station;
+        this.slot = slot;
+    }
+    
+    /**
+     * Keeps the free-charger bitset of the owning station in sync with this charger.
+     */
+    private void notifyStation(){
+        
+        if (this.station != null) {
+            this.station.refreshChargerState(this.slot);
+        }
     }
     
     /**
@@ -78,7 +234,14 @@ public class Charger
      * @return La cantidad total de dinero recolectada.
      */
     public float getTotalAmountCollected() {
-        return this.amountCollected;
+        return Money.toFloat(this.amountCollected.get());
+    }
+    
+    /**
+     * @return The exact amount of money collected, in units of {@link Money}.
+     */
+    public long getAmountCollectedUnits() {
+        return this.amountCollected.get();
     }
     
     /**
@@ -88,12 +251,13 @@ public class Charger
     @Override
     public String toString()
     {
-        return String.format("(Charger: %s, %dkwh, %.1f€, %d, %.1f€)",
-        this.id,
-        this.chargingSpeed,
-        this.chargingFee,
-        this.getNumerEVRecharged(),
-        this.amountCollected);
+        StringBuilder text = new StringBuilder(64);
+        text.append("(Charger: ").append(this.id).append(", ")
+            .append(this.chargingSpeed).append("kwh, ");
+        Money.appendEuros(text, this.fee, 1);
+        text.append("€, ").append(this.getNumerEVRecharged()).append(", ");
+        Money.appendEuros(text, this.amountCollected.get(), 1);
+        return text.append("€)").toString();
     }
     
     
@@ -103,14 +267,41 @@ public class Charger
      */
     public String getCompleteInfo()
     {
-        String info = this.toString();
+        StringBuilder info = new StringBuilder();
+        try {
+            appendCompleteInfo(info);
+        }
+        catch (IOException e) {
+            // Un StringBuilder nunca lanza IOException
+            throw new UncheckedIOException(e);
+        }
+        return info.toString();
+    }
+    
+    /**
+     * Streaming variant of {@link #getCompleteInfo()}: writes the same text to an
+     * {@link Appendable} (a buffered file, {@code System.out}...) without building it first,
+     * so its cost grows linearly with the number of recharged vehicles.
+     * @param out Where the text is written.
+     * @throws IOException If {@code out} cannot be written.
+     */
+    public void appendCompleteInfo(Appendable out) throws IOException
+    {
+        out.append(this.toString());
         
-        for(ElectricVehicle ev : this.evsRecharged){
-            info += "\n";
-            info += ev.getInitialFinalInfo();
-            
+        // Una copia de los vehículos del historial evita tomar su cerrojo en cada registro
+        int[] recharged;
+        VehicleRegistry fleet;
+        ElectricVehicle[] others;
+        synchronized (this.rechargeLog) {
+            recharged = this.rechargeLog.copyVehicles(this.rechargeLog.size());
+            fleet = this.registry;
+            others = this.otherVehicles == null ? null : this.otherVehicles.toArray(new ElectricVehicle[0]);
+        }
+        for(int vehicle : recharged){
+            out.append('\n');
+            (vehicle >= 0 ? fleet.get(vehicle) : others[~vehicle]).appendInitialFinalInfo(out);
         }
-        return info;
     }
     
     /**
@@ -121,40 +312,239 @@ public class Charger
         
         if (vehicle == null) throw new IllegalArgumentException("null vehicle in addEvRecharged (Charger)");
         
-        evsRecharged.add(vehicle);
+        rechargeLog.append(recordOf(vehicle), -1, 0, 0L);
+        if (this.station != null) {
+            this.station.recordRecharges(1, 0, 0L);
+        }
 
     }
     
+    /**
+     * @return The total kWh delivered by this charger, added up from its history.
+     */
+    long getKwhDelivered(){
+        
+        long total = 0;
+        RechargeLog log = this.rechargeLog;
+        for (int i = 0, n = log.size(); i < n; i++) {
+            total += log.getKwh(i);
+        }
+        return total;
+    }
+    
     /**
      * @return The total number of {@link ElectricVehicle}s that have been recharged by this charger.
      */
     public int getNumerEVRecharged(){
-        return this.evsRecharged.size();
+        return this.rechargeLog.size();
     }
     
     /**
      * Simulates the charging process for an {@link ElectricVehicle}.
      * Increases the amount collected and registers the vehicle as recharged.
+     * A free charger is occupied only while the recharge lasts, as in the original class; a
+     * charger reserved for the vehicle ({@link #tryReserve(ElectricVehicle)} or
+     * {@link ChargingStation#tryAcquireCharger(ElectricVehicle)}) is released when it returns.
      * @param vehicle The vehicle to recharge.
      * @param kwsRecharging The amount of kWh to be recharged.
      * @return The cost of the recharge operation.
+     * @throws IllegalStateException If the charger is reserved by another caller.
      */
     public float recharge(ElectricVehicle vehicle,int kwsRecharging){
-        //Marco el cargador como ocupado
-        this.free = false;
         
-        //caluclo el coste de la recarga
-        float costCharge = kwsRecharging * this.getChargingFee();
+        return recharge(vehicle, kwsRecharging, -1);
+    }
+    
+    /**
+     * Simulates the charging process for an {@link ElectricVehicle}, recording the step
+     * of the recharge in the history (see {@link #recharge(ElectricVehicle, int)}).
+     * @param vehicle The vehicle to recharge.
+     * @param kwsRecharging The amount of kWh to be recharged.
+     * @param step The current step of the simulation.
+     * @return The cost of the recharge operation.
+     * @throws IllegalStateException If the charger is reserved by another caller.
+     * @throws ArithmeticException If the cost does not fit in a {@code long}. Nothing is recorded,
+     * and a charger reserved for the vehicle before the call stays reserved.
+     */
+    public float recharge(ElectricVehicle vehicle,int kwsRecharging, int step){
         
-        //Aumento la cantidad recuadada
-        this.amountCollected += costCharge;
+        if (vehicle == null) throw new IllegalArgumentException("null vehicle in recharge (Charger)");
         
-        this.addEvRecharged(vehicle);
+        boolean reservedHere = reserve(vehicle);
+        if (!reservedHere && this.holder.get() != vehicle) {
+            throw new IllegalStateException("Charger " + this.id + " reserved by another caller in recharge (Charger)");
+        }
+        long cost;
+        try {
+            cost = rechargeUnits(vehicle, kwsRecharging, step);
+        }
+        catch (ArithmeticException e) {
+            if (reservedHere) {
+                release(vehicle);
+            }
+            throw e;
+        }
+        release(vehicle);
+        return Money.toFloat(cost);
+    }
+    
+    /**
+     * Records a recharge with a charger reserved for the vehicle and returns its exact cost.
+     * The charger stays reserved: the caller releases it with {@link #release(ElectricVehicle)}
+     * once it has finished with it.
+     * @param vehicle The vehicle to recharge.
+     * @param kwsRecharging The amount of kWh to be recharged.
+     * @param step The current step of the simulation.
+     * @return The cost of the recharge operation, in units of {@link Money}.
+     * @throws IllegalStateException If the charger is not reserved for the vehicle.
+     * @throws ArithmeticException If the cost does not fit in a {@code long}. Nothing is recorded.
+     */
+    long rechargeUnits(ElectricVehicle vehicle,int kwsRecharging, int step){
         
-        //Marco como libre
-        this.free = true;
+        if (vehicle == null) throw new IllegalArgumentException("null vehicle in recharge (Charger)");
+        // Sólo el vehículo para el que está reservado puede usar el cargador
+        if (this.holder.get() != vehicle) {
+            throw new IllegalStateException("Charger " + this.id + " not reserved for " + vehicle.getPlate() + " in recharge (Charger)");
+        }
+        int vehicleIndex = recordOf(vehicle);
+        
+        //caluclo el coste de la recarga (antes de cambiar nada, por si no cabe en un long)
+        long costCharge = Money.cost(kwsRecharging, this.fee);
+        
+        //Aumento la cantidad recuadada
+        this.amountCollected.addAndGet(costCharge);
+        
+        this.rechargeLog.append(vehicleIndex, step, kwsRecharging, costCharge);
+        if (this.station != null) {
+            this.station.recordRecharges(1, kwsRecharging, costCharge);
+        }
         
         return costCharge;
         
     }    
-}
\ No newline at end of file
+
+    /**
+     * @return The recharges performed so far, oldest first. New recharges are only ever
+     * appended, so the first {@link #getNumerEVRecharged()} records never change.
+     */
+    RechargeLog getRechargeHistory(){
+        
+        return rechargeLog;
+    }
+    
+    /**
+     * Retrieves the vehicle of a recharge of the history.
+     * @param record The position of the recharge in {@link #getRechargeHistory()}.
+     * @return The recharged vehicle.
+     */
+    ElectricVehicle getRechargedVehicle(int record){
+        
+        return vehicleOf(this.rechargeLog.getVehicle(record));
+    }
+    
+    /**
+     * Overwrites the money collected and the recharge history, e.g. when a simulation is
+     * restored from a {@link SimulationCheckpoint}.
+     * @param amountCollected The total amount collected, in units of {@link Money}.
+     * @param history The recharges, oldest first, referring to the vehicles by their position in {@code vehicles}.
+     * @param vehicles The recharged vehicles.
+     */
+    void restoreState(long amountCollected, RechargeLog history, List<ElectricVehicle> vehicles){
+        
+        RechargeLog restored = new RechargeLog();
+        synchronized (this.rechargeLog) {
+            this.registry = null;
+            this.otherVehicles = null;
+            this.otherPositions = null;
+        }
+        for (int h = 0; h < history.size(); h++) {
+            restored.append(recordOf(vehicles.get(history.getVehicle(h))), history.getStep(h), history.getKwh(h), history.getCostUnits(h));
+        }
+        replaceState(amountCollected, restored);
+    }
+    
+    /**
+     * Overwrites the money collected and the recharge history with a history that already
+     * refers to the vehicles by their number in a registry, e.g. the fleet numbers a
+     * {@link TileWorker} gives to the vehicles of its tile (see {@link VehicleRegistry#number}).
+     * @param amountCollected The total amount collected, in units of {@link Money}.
+     * @param history The recharges, oldest first, referring to the vehicles by their number in {@code registry}.
+     * @param registry The registry that numbers the recharged vehicles.
+     */
+    void restoreState(long amountCollected, RechargeLog history, VehicleRegistry registry){
+        
+        if (registry == null) throw new IllegalArgumentException("null registry in restoreState (Charger)");
+        
+        synchronized (this.rechargeLog) {
+            this.registry = registry;
+            this.otherVehicles = null;
+            this.otherPositions = null;
+        }
+        replaceState(amountCollected, history);
+    }
+    
+    /**
+     * Replaces the history and the money collected, and passes the difference on to the station.
+     */
+    private void replaceState(long amountCollected, RechargeLog history){
+        
+        int previousCount = this.rechargeLog.size();
+        long previousKwh = getKwhDelivered();
+        long previousAmount = this.amountCollected.get();
+        
+        this.rechargeLog.copyFrom(history);
+        this.amountCollected.set(amountCollected);
+        
+        if (this.station != null) {
+            this.station.recordRecharges(history.size() - previousCount, getKwhDelivered() - previousKwh,
+                                         amountCollected - previousAmount);
+        }
+    }
+    
+    /**
+     * Returns how the history refers to a vehicle: its number in the registry of the fleet
+     * of the first recharged vehicle or, for vehicles outside that fleet, {@code ~position}
+     * in the list of other vehicles of this charger.
+     * @param vehicle The recharged vehicle.
+     * @return The value recorded in the history.
+     */
+    private int recordOf(ElectricVehicle vehicle){
+        
+        VehicleRegistry fleet = vehicle.getRegistry();
+        if (fleet != null && this.registry == fleet) {
+            return vehicle.getRegistryIndex();
+        }
+        synchronized (this.rechargeLog) {
+            if (this.registry == null && fleet != null) {
+                this.registry = fleet;
+            }
+            if (fleet != null && this.registry == fleet) {
+                return vehicle.getRegistryIndex();
+            }
+            if (this.otherVehicles == null) {
+                this.otherVehicles = new ArrayList<>();
+                this.otherPositions = new IdentityHashMap<>();
+            }
+            Integer position = this.otherPositions.get(vehicle);
+            if (position == null) {
+                position = this.otherVehicles.size();
+                this.otherVehicles.add(vehicle);
+                this.otherPositions.put(vehicle, position);
+            }
+            return ~position;
+        }
+    }
+    
+    /**
+     * Resolves a vehicle recorded in the history (see {@link #recordOf(ElectricVehicle)}).
+     */
+    private ElectricVehicle vehicleOf(int record){
+        
+        if (record >= 0) {
+            return this.registry.get(record);
+        }
+        synchronized (this.rechargeLog) {
+            return this.otherVehicles.get(~record);
+        }
+    }
+}
@@ -0,0 +1,367 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test implementation of the {@link Charger} class.
+ * Checks the atomic reservation of chargers and the accounting of recharges
+ * when several threads compete for the chargers of one {@link ChargingStation}.
+ * @author DP classes
+ * @version 2025
+ */
+public class ChargerTest
+{
+    private static final int THREADS = 8;
+    private static final int ATTEMPTS_PER_THREAD = 20_000;
+
+    private EVCompany company;
+    private ChargingStation station;
+    private ElectricVehicle vehicle;
+
+    /**
+     * Default constructor for test class ChargerTest.
+     */
+    public ChargerTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        company = new EVCompany("Test");
+        station = new ChargingStation("Cáceres", "CC00", Location.of(5, 5));
+        for (int i = 0; i < 4; i++) {
+            station.addCharger(new Charger("CC00_00" + i, (i + 1) * 20, 1.0f));
+        }
+        company.addChargingStation(station);
+        vehicle = new ElectricVehicle("EV0", "0CCC", company, Location.of(1, 1), Location.of(9, 9), 50);
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+    }
+
+    /**
+     * Test that a charger can only be reserved once until it is released.
+     */
+    @Test
+    public void testReserveAndRelease()
+    {
+        Charger charger = new Charger("C1", 20, 0.5f);
+
+        assertTrue(charger.tryReserve());
+        assertFalse(charger.isFree());
+        assertFalse(charger.tryReserve());
+
+        charger.release();
+        assertTrue(charger.isFree());
+        assertTrue(charger.tryReserve());
+    }
+
+    /**
+     * Test that {@code tryAcquireCharger} follows the speed order and returns null when every charger is busy.
+     */
+    @Test
+    public void testTryAcquireChargerOrder()
+    {
+        Charger first = station.tryAcquireCharger();
+        assertEquals(80, first.getChargingSpeed());
+        assertEquals(60, station.tryAcquireCharger().getChargingSpeed());
+        assertEquals(40, station.tryAcquireCharger().getChargingSpeed());
+        assertEquals(20, station.tryAcquireCharger().getChargingSpeed());
+        assertNull(station.tryAcquireCharger());
+
+        first.release();
+        assertSame(first, station.tryAcquireCharger());
+    }
+
+    /**
+     * Test that only the vehicle a charger is reserved for can recharge with it and release
+     * it, that a reservation without a vehicle is only freed by {@link Charger#release()},
+     * and that a free charger recharges as in the original class, occupied just meanwhile.
+     */
+    @Test
+    public void testOnlyTheHolderRechargesAndReleases()
+    {
+        ElectricVehicle other = new ElectricVehicle("EV1", "1CCC", company, Location.of(2, 2), Location.of(9, 9), 50);
+        Charger charger = station.tryAcquireCharger(vehicle);
+        assertTrue(charger.isReservedFor(vehicle));
+        charger.recharge(vehicle, 10);
+        assertTrue(charger.isFree());
+        charger.recharge(vehicle, 10);
+        assertTrue(charger.isFree());
+        assertEquals(2, charger.getNumerEVRecharged());
+
+        // Reservado para otro vehículo: nadie más puede usarlo ni liberarlo
+        assertTrue(charger.tryReserve(other));
+        assertFalse(charger.tryReserve(vehicle));
+        assertRejected(() -> charger.recharge(vehicle, 10));
+        assertRejected(() -> charger.rechargeUnits(vehicle, 10, 0));
+        assertRejected(() -> charger.release(vehicle));
+        assertRejected(() -> charger.release());
+        assertTrue(charger.isReservedFor(other));
+        assertEquals(2, charger.getNumerEVRecharged());
+        charger.rechargeUnits(other, 10, 0);
+        assertTrue(charger.isReservedFor(other));
+        charger.release(other);
+        assertTrue(charger.isFree());
+        assertRejected(() -> charger.release(other));
+
+        // Reservado sin vehículo: ningún vehículo puede usarlo
+        assertTrue(charger.tryReserve());
+        assertRejected(() -> charger.recharge(vehicle, 10));
+        assertRejected(() -> charger.release(vehicle));
+        charger.release();
+        assertTrue(charger.isFree());
+
+        assertEquals(3, charger.getNumerEVRecharged());
+        assertEquals(30 * charger.getChargingFeeUnits(), charger.getAmountCollectedUnits());
+        assertEquals(3, company.getTotalRecharges());
+    }
+
+    /**
+     * Test that recharge costs and totals are exact in fixed point: adding 0.1 euros a
+     * million times in {@code float} drifts by thousands of euros, but the totals of the
+     * charger, the station and the company must be exactly 100,000 euros.
+     */
+    @Test
+    public void testExactMoneyAccounting()
+    {
+        ChargingStation other = new ChargingStation("Cáceres", "CC01", Location.of(6, 6));
+        Charger charger = new Charger("CC01_000", 20, 0.1f);
+        other.addCharger(charger);
+        company.addChargingStation(other);
+
+        for (int i = 0; i < 1_000_000; i++) {
+            assertTrue(charger.tryReserve(vehicle));
+            charger.recharge(vehicle, 1);
+        }
+        long expected = 100_000 * Money.UNITS_PER_EURO;
+        assertEquals(1_000, charger.getChargingFeeUnits());
+        assertEquals(expected, charger.getAmountCollectedUnits());
+        assertEquals(expected, other.getRevenueUnits());
+        assertEquals(expected, company.getTotalRevenueUnits());
+        assertEquals(100_000.0, company.getTotalRevenue(), 0.0);
+
+        StringBuilder text = new StringBuilder();
+        Money.appendExactEuros(text, Money.cost(25, Money.ofEuros(0.6f)));
+        assertEquals("15.0", text.toString());
+    }
+
+    /**
+     * Test that only the vehicles added to the fleet are numbered, and that
+     * {@link EVCompany#reset()} starts a new registry.
+     */
+    @Test
+    public void testRegistryScopedToFleet()
+    {
+        assertEquals(0, company.getVehicleRegistry().size());
+        assertNull(vehicle.getRegistry());
+
+        company.addElectricVehicle(vehicle);
+        company.addElectricVehicle(vehicle);
+        VehicleRegistry fleet = company.getVehicleRegistry();
+        assertEquals(1, fleet.size());
+        assertSame(fleet, vehicle.getRegistry());
+        assertSame(vehicle, fleet.get(vehicle.getRegistryIndex()));
+
+        company.reset();
+        assertNotSame(fleet, company.getVehicleRegistry());
+        assertEquals(0, company.getVehicleRegistry().size());
+    }
+
+    /**
+     * Test that a charger can recharge vehicles of the fleet, vehicles never added to it,
+     * vehicles of another company and vehicles of a fleet added after a reset, and that
+     * its complete information lists all of them in order.
+     */
+    @Test
+    public void testRechargeVehiclesOfSeveralFleets()
+    {
+        Charger charger = station.getChargers().iterator().next();
+        company.addElectricVehicle(vehicle);
+        ElectricVehicle loose = new ElectricVehicle("EV1", "1CCC", company, Location.of(2, 2), Location.of(9, 9), 50);
+        EVCompany otherCompany = new EVCompany("Other");
+        ElectricVehicle foreign = new ElectricVehicle("EV2", "2CCC", otherCompany, Location.of(3, 3), Location.of(9, 9), 50);
+        otherCompany.addElectricVehicle(foreign);
+
+        List<ElectricVehicle> recharged = new ArrayList<>(List.of(vehicle, loose, foreign, vehicle, loose));
+        for (ElectricVehicle ev : recharged) {
+            assertTrue(charger.tryReserve(ev));
+            charger.recharge(ev, 10);
+        }
+        company.reset();
+        ElectricVehicle later = new ElectricVehicle("EV3", "3CCC", company, Location.of(4, 4), Location.of(9, 9), 50);
+        company.addElectricVehicle(later);
+        assertTrue(charger.tryReserve(later));
+        charger.recharge(later, 10);
+        recharged.add(later);
+
+        StringBuilder expected = new StringBuilder(charger.toString());
+        for (int i = 0; i < recharged.size(); i++) {
+            assertSame(recharged.get(i), charger.getRechargedVehicle(i));
+            expected.append('\n').append(recharged.get(i).getInitialFinalInfo());
+        }
+        assertEquals(expected.toString(), charger.getCompleteInfo());
+    }
+
+    /**
+     * Test that recharges costing more than {@code Integer.MAX_VALUE} units are recorded
+     * exactly, and that a cost that does not fit in a {@code long} changes nothing.
+     */
+    @Test
+    public void testLargeRecharges()
+    {
+        ChargingStation other = new ChargingStation("Cáceres", "CC01", Location.of(6, 6));
+        Charger charger = new Charger("CC01_000", 20, 1000.0f);
+        Charger huge = new Charger("CC01_001", 10, 1.0e12f);
+        other.addCharger(charger);
+        other.addCharger(huge);
+        company.addChargingStation(other);
+
+        assertTrue(charger.tryReserve(vehicle));
+        charger.recharge(vehicle, 1_000_000);
+        long expected = 1_000_000_000L * Money.UNITS_PER_EURO;
+        assertEquals(expected, charger.getRechargeHistory().getCostUnits(0));
+        assertEquals(expected, charger.getAmountCollectedUnits());
+        assertEquals(expected, company.getTotalRevenueUnits());
+        assertTrue(charger.isFree());
+
+        assertTrue(huge.tryReserve(vehicle));
+        try {
+            huge.recharge(vehicle, Integer.MAX_VALUE);
+            fail("The cost does not fit in a long");
+        }
+        catch (ArithmeticException e) {
+            // esperado
+        }
+        assertTrue(huge.isReservedFor(vehicle));
+        assertEquals(0, huge.getNumerEVRecharged());
+        assertEquals(0, huge.getAmountCollectedUnits());
+        assertEquals(expected, company.getTotalRevenueUnits());
+        huge.release(vehicle);
+
+        // Sin reserva previa, el cargador no se queda ocupado tras el fallo
+        try {
+            huge.recharge(vehicle, Integer.MAX_VALUE);
+            fail("The cost does not fit in a long");
+        }
+        catch (ArithmeticException e) {
+            // esperado
+        }
+        assertTrue(huge.isFree());
+    }
+
+    /**
+     * Stress test: many threads, each with its own vehicle, acquire, use and release the
+     * chargers of one station, and try to release chargers they do not hold. A charger must
+     * never be held by two threads at once (it counts as held from its reservation until just
+     * before its release, recharge included), no thread may free another one's charger, and
+     * no recharge may be lost from the collected amounts or from the recharge history.
+     */
+    @Test
+    public void testConcurrentRechargesUnderContention() throws Exception
+    {
+        Map<Charger, AtomicInteger> holders = new ConcurrentHashMap<>();
+        for (Charger c : station.getChargers()) {
+            holders.put(c, new AtomicInteger());
+        }
+        List<Charger> chargers = new ArrayList<>(station.getChargers());
+        AtomicInteger overlaps = new AtomicInteger();
+        AtomicInteger steals = new AtomicInteger();
+        AtomicInteger recharges = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            ElectricVehicle mine = new ElectricVehicle("EV" + (10 + t), t + "TTT", company, Location.of(1, 1), Location.of(9, 9), 50);
+            company.addElectricVehicle(mine);
+            Charger someone = chargers.get(t % chargers.size());
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    // Un intruso no puede liberar ni usar un cargador que no tiene
+                    if (!someone.isReservedFor(mine)) {
+                        try {
+                            someone.release(mine);
+                            steals.incrementAndGet();
+                        }
+                        catch (IllegalStateException e) {
+                            // esperado
+                        }
+                    }
+
+                    Charger charger = station.tryAcquireCharger(mine);
+                    if (charger == null) continue;
+
+                    if (holders.get(charger).incrementAndGet() != 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    charger.rechargeUnits(mine, 1, i);
+                    if (!charger.isReservedFor(mine)) {
+                        overlaps.incrementAndGet();
+                    }
+                    holders.get(charger).decrementAndGet();
+                    charger.release(mine);
+                    recharges.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(0, overlaps.get());
+        assertEquals(0, steals.get());
+
+        int recharged = 0;
+        float collected = 0.0f;
+        for (Charger c : station.getChargers()) {
+            assertTrue(c.isFree());
+            recharged += c.getNumerEVRecharged();
+            collected += c.getTotalAmountCollected();
+        }
+        // El bitset de cargadores libres debe haber quedado coherente tras la contención
+        assertEquals(80, station.getFreeCharger().getChargingSpeed());
+        assertEquals(recharges.get(), recharged);
+        assertEquals(recharges.get(), station.getNumerEVRecharged());
+        // 1 kWh a 1.0 por recarga: las sumas son enteras y exactas en float
+        assertEquals((float) recharges.get(), collected, 0.0f);
+        // Los totales incrementales de la estación y de la compañía no pierden recargas
+        assertEquals(recharges.get(), station.getKwhDelivered());
+        assertEquals(recharges.get(), company.getTotalRecharges());
+        assertEquals(recharges.get(), company.getTotalRevenue(), 0.0);
+    }
+
+    /**
+     * Asserts that an operation on a charger is rejected because the caller does not hold it.
+     */
+    private static void assertRejected(Runnable operation)
+    {
+        try {
+            operation.run();
+            fail("The caller does not hold the charger");
+        }
+        catch (IllegalStateException e) {
+            // esperado
+        }
+    }
+}
@@ -3,10 +3,22 @@ import java.util.Collections;
 import java.util.ArrayList;
 import java.util.stream.Collectors;
 import java.util.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Models an Electric Vehicle Charging Station.
  * A charging station contains multiple {@link Charger} units.
+ * Besides the sorted set of chargers, the station keeps a bitset over their speed order
+ * with one bit per free charger, so the fastest free one is found by looking for the
+ * lowest set bit instead of walking the whole set.
+ * The number of recharges, the kWh delivered and the revenue of the station are running
+ * totals updated on every recharge of its chargers (and forwarded to the {@link EVCompany}
+ * that owns it), so reading them costs the same whatever the size of the histories and is
+ * safe while the simulation runs on other threads. The revenue is added up in units of
+ * {@link Money}, so it is exact whatever the order of the recharges.
  * @author DP classes 
  * @version 2024.10.07
  */
@@ -17,6 +29,23 @@ public class ChargingStation
     private Location location;
     
     private SortedSet<Charger> chargers;
+    
+    // Cargadores en el orden del comparador y bitset (una palabra por cada 64) de los que están libres
+    private Charger[] orderedChargers;
+    private AtomicLongArray freeChargers;
+    
+    // Sesiones de carga (EVCompany.isChargingSessionMode): cola FIFO y estadísticas
+    private Deque<ElectricVehicle> waitingQueue;
+    private int maxQueueLength;
+    private long sessionsStarted;
+    private long totalWaitSteps;
+    private long busyChargerSteps;
+    
+    // Totales de las recargas de sus cargadores, actualizados en cada recarga
+    private final LongAdder rechargeCount;
+    private final LongAdder kwhDelivered;
+    private final LongAdder revenue;    // En unidades de Money
+    private volatile EVCompany company;
 
     /**
      * Constructor for objects of class ChargingStation.
@@ -31,6 +60,12 @@ public class ChargingStation
        this.city = city;
        this.location = location;
        this.chargers = new TreeSet<>(new ComparatorChargersChargingSpeed());
+       this.orderedChargers = new Charger[0];
+       this.freeChargers = new AtomicLongArray(0);
+       this.waitingQueue = new ArrayDeque<>();
+       this.rechargeCount = new LongAdder();
+       this.kwhDelivered = new LongAdder();
+       this.revenue = new LongAdder();
     }
 
     /**
@@ -41,6 +76,14 @@ public class ChargingStation
         return id;
     }
     
+    /**
+     * @return The city where the charging station is located.
+     */
+    public String getCity()
+    {
+        return city;
+    }
+    
     /**
      * @return The {@link Location} of the charging station.
      */
@@ -65,17 +108,267 @@ public class ChargingStation
      */
     public Charger getFreeCharger()
     {
-        for(Charger c : chargers){
+        for (int slot = nextFreeSlot(0); slot != -1; slot = nextFreeSlot(slot + 1)) {
+            
+            if (orderedChargers[slot].isFree()){
+                
+                return orderedChargers[slot];
+            }
+        }
+        
+        return null;
+    }
+       
+    
+    /**
+     * Reserves the first free {@link Charger} of the station for a vehicle, in the same
+     * preference order as {@link #getFreeCharger()}. The reservation is atomic: concurrent
+     * callers never get the same charger, which stays busy until the vehicle releases it
+     * with {@link Charger#release(ElectricVehicle)}.
+     * @param vehicle The vehicle that will use the charger.
+     * @return The reserved {@link Charger}, or {@code null} if all of them are busy.
+     */
+    public Charger tryAcquireCharger(ElectricVehicle vehicle)
+    {
+        if (vehicle == null) throw new IllegalArgumentException("null vehicle in tryAcquireCharger (ChargingStation)");
+        
+        return acquire(vehicle);
+    }
+    
+    /**
+     * Reserves the first free {@link Charger} of the station without reserving it for any
+     * vehicle (see {@link Charger#tryReserve()}); it stays busy until {@link Charger#release()}.
+     * @return The reserved {@link Charger}, or {@code null} if all of them are busy.
+     */
+    public Charger tryAcquireCharger()
+    {
+        return acquire(null);
+    }
+    
+    /**
+     * Reserves the first free charger for a vehicle, or for nobody if it is null.
+     */
+    private Charger acquire(ElectricVehicle vehicle)
+    {
+        for (int slot = nextFreeSlot(0); slot != -1; slot = nextFreeSlot(slot + 1)) {
             
-            if (c.isFree()){
+            Charger charger = orderedChargers[slot];
+            if (vehicle == null ? charger.tryReserve() : charger.tryReserve(vehicle)){
                 
-                return c;
+                return charger;
             }
         }
         
         return null;
     }
+    
+    /**
+     * Finds the first charger marked as free in the bitset, starting at a given position
+     * of the speed order. The bitset is only a hint: a concurrent reservation may still win
+     * the charger, which is why callers check it again.
+     * @param from The first position to look at.
+     * @return The position of the next free charger, or -1 if there is none.
+     */
+    private int nextFreeSlot(int from)
+    {
+        AtomicLongArray bits = this.freeChargers;
+        
+        for (int word = from >>> 6; word < bits.length(); word++) {
+            
+            long free = bits.get(word);
+            if (word == from >>> 6) {
+                free &= -1L << (from & 63);
+            }
+            if (free != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(free);
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Brings the free bit of a charger of this station in line with its real state.
+     * Called by the {@link Charger} every time it is occupied or released. The state is
+     * re-read after writing the bit, so a concurrent change that raced with this update
+     * can never leave a free charger hidden from the bitset.
+     * @param slot The position of the charger in the speed order.
+     */
+    void refreshChargerState(int slot)
+    {
+        long bit = 1L << (slot & 63);
+        Charger charger = orderedChargers[slot];
+        boolean free;
+        
+        do {
+            free = charger.isFree();
+            if (free) {
+                freeChargers.accumulateAndGet(slot >>> 6, bit, (current, mask) -> current | mask);
+            } else {
+                freeChargers.accumulateAndGet(slot >>> 6, ~bit, (current, mask) -> current & mask);
+            }
+        } while (charger.isFree() != free);
+    }
        
+    /**
+     * Adds a vehicle that found no free {@link Charger} to the end of the station's queue.
+     * @param vehicle The waiting vehicle.
+     */
+    void enqueue(ElectricVehicle vehicle)
+    {
+        waitingQueue.addLast(vehicle);
+        maxQueueLength = Math.max(maxQueueLength, waitingQueue.size());
+    }
+    
+    /**
+     * Records the start of a charging session.
+     * @param waitSteps The steps the vehicle spent in the queue before starting it.
+     */
+    void recordSessionStart(int waitSteps)
+    {
+        sessionsStarted++;
+        totalWaitSteps += waitSteps;
+    }
+    
+    /**
+     * Called when a charging session ends and its {@link Charger} is released: records the
+     * time the charger was busy and hands free chargers to the vehicles at the head of the queue.
+     * @param charger The charger that has just been released.
+     * @param busySteps The steps the session kept the charger busy.
+     * @param step The current step of the simulation.
+     */
+    void chargingSessionFinished(Charger charger, int busySteps, int step)
+    {
+        busyChargerSteps += busySteps;
+        
+        while (!waitingQueue.isEmpty()) {
+            
+            ElectricVehicle next = waitingQueue.peekFirst();
+            Charger free = tryAcquireCharger(next);
+            if (free == null) {
+                return;
+            }
+            waitingQueue.pollFirst();
+            recordSessionStart(step - next.getWaitingSince());
+            next.beginChargingSession(free, step);
+        }
+    }
+    
+    /**
+     * @return A copy of the queue of vehicles waiting for a charger, head first.
+     */
+    List<ElectricVehicle> getWaitingVehicles()
+    {
+        return new ArrayList<>(waitingQueue);
+    }
+    
+    /**
+     * @return The total number of steps that started sessions waited in the queue.
+     */
+    long getTotalWaitSteps()
+    {
+        return totalWaitSteps;
+    }
+    
+    /**
+     * @return The total number of steps finished sessions kept the chargers busy.
+     */
+    long getBusyChargerSteps()
+    {
+        return busyChargerSteps;
+    }
+    
+    /**
+     * Overwrites the queue and the session statistics, e.g. when a simulation is restored
+     * from a {@link SimulationCheckpoint}.
+     * @param queue The waiting vehicles, head first.
+     * @param maxQueueLength The longest the queue has been.
+     * @param sessionsStarted The number of sessions started.
+     * @param totalWaitSteps The total steps started sessions waited.
+     * @param busyChargerSteps The total steps finished sessions kept the chargers busy.
+     */
+    void restoreSessionState(List<ElectricVehicle> queue, int maxQueueLength, long sessionsStarted,
+                             long totalWaitSteps, long busyChargerSteps)
+    {
+        this.waitingQueue.clear();
+        this.waitingQueue.addAll(queue);
+        this.maxQueueLength = maxQueueLength;
+        this.sessionsStarted = sessionsStarted;
+        this.totalWaitSteps = totalWaitSteps;
+        this.busyChargerSteps = busyChargerSteps;
+    }
+    
+    /**
+     * @return The number of vehicles currently waiting for a charger.
+     */
+    public int getQueueLength()
+    {
+        return waitingQueue.size();
+    }
+    
+    /**
+     * @return The longest the queue has been.
+     */
+    public int getMaxQueueLength()
+    {
+        return maxQueueLength;
+    }
+    
+    /**
+     * @return The number of charging sessions started at this station.
+     */
+    public long getSessionsStarted()
+    {
+        return sessionsStarted;
+    }
+    
+    /**
+     * @return The average number of steps a session waited in the queue before starting.
+     */
+    public double getAverageWaitSteps()
+    {
+        return sessionsStarted == 0 ? 0.0 : (double) totalWaitSteps / sessionsStarted;
+    }
+    
+    /**
+     * Fraction of the available charger time that sessions kept the chargers busy: finished
+     * sessions count whole, and sessions still in progress count the steps they have
+     * occupied their charger so far.
+     * @param elapsedSteps The number of simulated steps.
+     * @return The utilization of the station's chargers, between 0 and 1.
+     */
+    public double getChargerUtilization(int elapsedSteps)
+    {
+        long available = (long) orderedChargers.length * elapsedSteps;
+        long busy = busyChargerSteps;
+        
+        for (Charger charger : orderedChargers) {
+            
+            // Sesión en curso: el vehículo ocupa el cargador desde que empezó
+            ElectricVehicle vehicle = charger.getHolder();
+            if (vehicle != null && vehicle.getSelectedCharger() == charger) {
+                busy += Math.max(0, elapsedSteps - vehicle.getSessionStartStep());
+            }
+        }
+        
+        return available == 0 ? 0.0 : (double) busy / available;
+    }
+    
+    /**
+     * Returns a summary of the charging sessions of the station: current and maximum
+     * queue length, average wait, sessions started and charger utilization.
+     * @param elapsedSteps The number of simulated steps.
+     * @return A string representation of the station's session statistics.
+     */
+    public String getSessionInfo(int elapsedSteps)
+    {
+        return String.format("(ChargingStation: %s, queue: %d, max queue: %d, sessions: %d, avg wait: %.1f, utilization: %.1f%%)",
+        this.id,
+        this.getQueueLength(),
+        this.maxQueueLength,
+        this.sessionsStarted,
+        this.getAverageWaitSteps(),
+        this.getChargerUtilization(elapsedSteps) * 100);
+    }
     
     /**
      * Set the current location of the charging station.
@@ -97,12 +390,31 @@ public class ChargingStation
      */
     public String getCompleteInfo()
     {
-        String info = this.toString();
+        StringBuilder info = new StringBuilder();
+        try {
+            appendCompleteInfo(info);
+        }
+        catch (IOException e) {
+            // Un StringBuilder nunca lanza IOException
+            throw new UncheckedIOException(e);
+        }
+        return info.toString();
+    }
+    
+    /**
+     * Streaming variant of {@link #getCompleteInfo()} (and of the final information of the
+     * station): writes the same text to an {@link Appendable} (a buffered file,
+     * {@code System.out}...) without building the whole report in memory.
+     * @param out Where the text is written.
+     * @throws IOException If {@code out} cannot be written.
+     */
+    public void appendCompleteInfo(Appendable out) throws IOException
+    {
+        out.append(this.toString());
         for(Charger charger : this.chargers){
-            info += "\n";
-            info += charger.getCompleteInfo();
+            out.append('\n');
+            charger.appendCompleteInfo(out);
         }
-        return info;
     }
     
 
@@ -131,31 +443,109 @@ public class ChargingStation
     }
     
     /**
-     * Calculates the total number of {@link ElectricVehicle}s recharged across all {@link Charger}s at this station.
+     * Returns the total number of {@link ElectricVehicle}s recharged across all {@link Charger}s at this station.
      * @return The total number of unique recharges.
      */
     public int getNumerEVRecharged(){
-        int total = 0;
-        //suma el total de recargas de cada cargador individual
-        for(Charger charger : this.chargers){
-            total += charger.getNumerEVRecharged();
+        
+        return (int) this.rechargeCount.sum();
+    }
+    
+    /**
+     * @return The total kWh delivered by the chargers of this station.
+     */
+    public long getKwhDelivered(){
+        
+        return this.kwhDelivered.sum();
+    }
+    
+    /**
+     * @return The money collected by the chargers of this station, i.e. the sum of their
+     * {@link Charger#getTotalAmountCollected()}.
+     */
+    public double getRevenue(){
+        
+        return Money.toDouble(this.revenue.sum());
+    }
+    
+    /**
+     * @return The exact money collected by the chargers of this station, in units of {@link Money}.
+     */
+    public long getRevenueUnits(){
+        
+        return this.revenue.sum();
+    }
+    
+    /**
+     * @return The company whose totals include this station, or null if it has not been
+     * added to any.
+     */
+    public EVCompany getCompany(){
+        
+        return this.company;
+    }
+    
+    /**
+     * Links the station to the company whose totals include its recharges. A station added
+     * to several companies only reports to the first one.
+     * @param company The company, or null to stop reporting.
+     */
+    void attachTo(EVCompany company){
+        
+        this.company = company;
+    }
+    
+    /**
+     * Adds recharges of one of the chargers to the totals of the station and of its company.
+     * @param count The number of recharges.
+     * @param kwh The kWh delivered.
+     * @param amount The money collected, in units of {@link Money}.
+     */
+    void recordRecharges(long count, long kwh, long amount){
+        
+        this.rechargeCount.add(count);
+        this.kwhDelivered.add(kwh);
+        this.revenue.add(amount);
+        
+        EVCompany owner = this.company;
+        if (owner != null) {
+            owner.recordRecharges(this, count, kwh, amount);
         }
-        return total;
     }
     
     /**
      * Adds a new {@link Charger} to the station.
-     * @param charger The new charger unit.
+     * Chargers are meant to be added while setting up the station, not while vehicles are using it.
+     * @param charger The new charger unit. It must not belong to another station.
      */
     public void addCharger(Charger charger)
     {
 
         if (charger == null)throw new IllegalArgumentException("null Charger in addCharger (ChargingStation)");
+        if (charger.getStation() != null && charger.getStation() != this) {
+            throw new IllegalArgumentException("El cargador ya pertenece a otra estación.");
+        }
         
         boolean added = chargers.add(charger);
         if (!added) {
         throw new IllegalArgumentException("El cargador ya existe (comparador lo considera duplicado).");
         }
 
+        // Se renumeran los cargadores según el orden de velocidad y se reconstruye el bitset
+        Charger[] ordered = chargers.toArray(new Charger[0]);
+        AtomicLongArray bits = new AtomicLongArray((ordered.length + 63) >>> 6);
+        for (int slot = 0; slot < ordered.length; slot++) {
+            ordered[slot].attachTo(this, slot);
+            if (ordered[slot].isFree()) {
+                bits.set(slot >>> 6, bits.get(slot >>> 6) | (1L << (slot & 63)));
+            }
+        }
+        this.freeChargers = bits;
+        this.orderedChargers = ordered;
+        
+        // Un cargador que ya ha recargado aporta su historia a los totales
+        if (charger.getNumerEVRecharged() > 0) {
+            recordRecharges(charger.getNumerEVRecharged(), charger.getKwhDelivered(), charger.getAmountCollectedUnits());
+        }
     }
 }
@@ -0,0 +1,328 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Uniform grid spatial index over the {@link ChargingStation}s of an {@link EVCompany}.
+ * Stations are identified by their insertion index (the position they occupy in
+ * {@link EVCompany#getCityStations()}), and the grid answers "nearest station within
+ * a given radius" queries using the Chebyshev distance of {@link Location#distance(Location)}.
+ * Cells are kept in an open-addressing table, so sparse maps over large grids only pay
+ * for the cells that actually contain stations. Queries only read the grid, so they can
+ * run on several threads as long as no station is added meanwhile.
+ * @author DP classes
+ * @version 2025
+ */
+public class ChargingStationGrid
+{
+    /** Default side length (in grid units) of every cell. */
+    public static final int DEFAULT_CELL_SIZE = 8;
+
+    /** Number of queries below which a batch is no longer split among threads. */
+    private static final int PARTITION_SIZE = 4096;
+
+    private static final long EMPTY = -1L;
+    private static final int INITIAL_TABLE_SIZE = 16;
+
+    private final int cellSize;
+
+    // Coordenadas de cada estación, indexadas por orden de inserción
+    private int[] xs;
+    private int[] ys;
+    private int size;
+
+    // Tabla hash de celdas: clave (celda x, celda y) -> índices de las estaciones
+    private long[] keys;
+    private int[][] buckets;
+    private int[] bucketSizes;
+    private int usedCells;
+
+    private int maxCellX;
+    private int maxCellY;
+
+    /**
+     * Constructor for objects of class ChargingStationGrid using the default cell size.
+     */
+    public ChargingStationGrid()
+    {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Constructor for objects of class ChargingStationGrid.
+     * @param cellSize The side length of every cell. Must be positive.
+     * @throws IllegalArgumentException If cellSize is not positive.
+     */
+    public ChargingStationGrid(int cellSize)
+    {
+        if (cellSize <= 0) throw new IllegalArgumentException("Non-positive cell size in ChargingStationGrid: " + cellSize);
+
+        this.cellSize = cellSize;
+        clear();
+    }
+
+    /**
+     * Removes every station from the index.
+     */
+    public void clear()
+    {
+        this.xs = new int[INITIAL_TABLE_SIZE];
+        this.ys = new int[INITIAL_TABLE_SIZE];
+        this.size = 0;
+        this.keys = new long[INITIAL_TABLE_SIZE];
+        Arrays.fill(this.keys, EMPTY);
+        this.buckets = new int[INITIAL_TABLE_SIZE][];
+        this.bucketSizes = new int[INITIAL_TABLE_SIZE];
+        this.usedCells = 0;
+        this.maxCellX = -1;
+        this.maxCellY = -1;
+    }
+
+    /**
+     * @return The number of indexed stations.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Indexes a new station located at (x, y).
+     * @param x The x coordinate of the station. Must be non-negative.
+     * @param y The y coordinate of the station. Must be non-negative.
+     * @return The insertion index assigned to the station.
+     */
+    public int add(int x, int y)
+    {
+        if (x < 0 || y < 0) throw new IllegalArgumentException("Negative coordinate in add (ChargingStationGrid): " + x + "-" + y);
+
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+        }
+        int index = size++;
+        xs[index] = x;
+        ys[index] = y;
+
+        int cellX = x / cellSize;
+        int cellY = y / cellSize;
+        maxCellX = Math.max(maxCellX, cellX);
+        maxCellY = Math.max(maxCellY, cellY);
+
+        if ((usedCells + 1) * 4 > keys.length * 3) {
+            grow();
+        }
+        int slot = slotFor(key(cellX, cellY));
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key(cellX, cellY);
+            buckets[slot] = new int[2];
+            usedCells++;
+        }
+        else if (bucketSizes[slot] == buckets[slot].length) {
+            buckets[slot] = Arrays.copyOf(buckets[slot], bucketSizes[slot] * 2);
+        }
+        buckets[slot][bucketSizes[slot]++] = index;
+
+        return index;
+    }
+
+    /**
+     * Finds the nearest indexed station to (x, y) whose Chebyshev distance is at most {@code radius}.
+     * Among stations at the same distance, the one inserted first wins, which is the same
+     * choice a linear scan with a strict "closer than" test makes.
+     * @param x The x coordinate of the query point.
+     * @param y The y coordinate of the query point.
+     * @param radius The maximum accepted distance.
+     * @return The insertion index of the nearest station, or -1 if none is within reach.
+     */
+    public int nearest(int x, int y, int radius)
+    {
+        if (radius < 0 || size == 0) return -1;
+
+        int cellX = x / cellSize;
+        int cellY = y / cellSize;
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+
+        for (int ring = 0; ; ring++) {
+            int minX = cellX - ring;
+            int maxX = cellX + ring;
+            int minY = cellY - ring;
+            int maxY = cellY + ring;
+
+            for (int cx = Math.max(minX, 0); cx <= Math.min(maxX, maxCellX); cx++) {
+                // Los bordes superior e inferior del anillo se recorren enteros,
+                // los laterales sólo en sus extremos
+                boolean edge = (cx == minX || cx == maxX);
+                int step = edge ? 1 : Math.max(maxY - minY, 1);
+                for (int cy = minY; cy <= maxY; cy += step) {
+                    if (cy < 0 || cy > maxCellY) continue;
+
+                    int slot = slotFor(key(cx, cy));
+                    if (keys[slot] == EMPTY) continue;
+
+                    int[] bucket = buckets[slot];
+                    for (int i = 0; i < bucketSizes[slot]; i++) {
+                        int index = bucket[i];
+                        int distance = Math.max(Math.abs(xs[index] - x), Math.abs(ys[index] - y));
+                        if (distance <= radius && (distance < bestDistance || (distance == bestDistance && index < best))) {
+                            best = index;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+
+            // Cualquier estación fuera de los anillos ya visitados está, como mínimo, a esta distancia
+            long unvisitedDistance = (long) ring * cellSize + 1;
+            if (best != -1 && bestDistance < unvisitedDistance) return best;
+            if (unvisitedDistance > radius) return best;
+            if (minX <= 0 && minY <= 0 && maxX >= maxCellX && maxY >= maxCellY) return best;
+        }
+    }
+
+    /**
+     * Answers many {@link #nearest(int, int, int)} queries at once, with the same results.
+     * The query points are sorted, so consecutive searches visit neighbouring cells, and
+     * merged, so each distinct point is searched only once: with the largest radius asked
+     * from it, since the nearest station within that radius is also the answer for every
+     * smaller radius that still reaches it. The searches run in parallel.
+     * @param locations The query points, packed with {@link Location#pack(int, int)}.
+     * @param radii The maximum accepted distance of each query.
+     * @param pool The pool that executes the searches.
+     * @return The insertion index of the nearest station of each query, or -1 where none is within reach.
+     */
+    public int[] nearest(long[] locations, int[] radii, ForkJoinPool pool)
+    {
+        if (locations == null || radii == null || pool == null) throw new IllegalArgumentException("null argument in nearest (ChargingStationGrid)");
+        if (locations.length != radii.length) throw new IllegalArgumentException("Different number of locations and radii in nearest (ChargingStationGrid)");
+
+        int n = locations.length;
+        long[] points = locations.clone();
+        Arrays.parallelSort(points);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || points[i] != points[distinct - 1]) {
+                points[distinct++] = points[i];
+            }
+        }
+        int numPoints = distinct;
+
+        // Punto de cada consulta y mayor radio pedido desde cada punto
+        int[] pointOf = new int[n];
+        pool.invoke(new Partition(0, n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                pointOf[i] = Arrays.binarySearch(points, 0, numPoints, locations[i]);
+            }
+        }));
+        int[] maxRadius = new int[numPoints];
+        Arrays.fill(maxRadius, -1);
+        for (int i = 0; i < n; i++) {
+            maxRadius[pointOf[i]] = Math.max(maxRadius[pointOf[i]], radii[i]);
+        }
+
+        int[] best = new int[numPoints];
+        int[] bestDistance = new int[numPoints];
+        pool.invoke(new Partition(0, numPoints, (from, to) -> {
+            for (int p = from; p < to; p++) {
+                int x = Location.unpackX(points[p]);
+                int y = Location.unpackY(points[p]);
+                int index = nearest(x, y, maxRadius[p]);
+                best[p] = index;
+                bestDistance[p] = index == -1 ? Integer.MAX_VALUE : Math.max(Math.abs(xs[index] - x), Math.abs(ys[index] - y));
+            }
+        }));
+
+        int[] result = new int[n];
+        pool.invoke(new Partition(0, n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int p = pointOf[i];
+                result[i] = bestDistance[p] <= radii[i] ? best[p] : -1;
+            }
+        }));
+        return result;
+    }
+
+    /**
+     * Builds the table key of a cell.
+     */
+    private static long key(int cellX, int cellY)
+    {
+        return ((long) cellX << 32) | (cellY & 0xffffffffL);
+    }
+
+    /**
+     * Finds the slot holding the given key, or the empty slot where it would be inserted.
+     */
+    private int slotFor(long key)
+    {
+        int mask = keys.length - 1;
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Doubles the cell table and re-inserts the existing cells.
+     */
+    private void grow()
+    {
+        long[] oldKeys = keys;
+        int[][] oldBuckets = buckets;
+        int[] oldSizes = bucketSizes;
+
+        keys = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        buckets = new int[keys.length][];
+        bucketSizes = new int[keys.length];
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slotFor(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                buckets[slot] = oldBuckets[i];
+                bucketSizes[slot] = oldSizes[i];
+            }
+        }
+    }
+
+    /**
+     * Work on a contiguous range of a batch of queries.
+     */
+    private interface RangeTask
+    {
+        void run(int from, int to);
+    }
+
+    /**
+     * Splits a range of a batch of queries among the threads of a {@link ForkJoinPool}.
+     */
+    private static class Partition extends RecursiveAction
+    {
+        private final int from;
+        private final int to;
+        private final RangeTask task;
+
+        Partition(int from, int to, RangeTask task)
+        {
+            this.from = from;
+            this.to = to;
+            this.task = task;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= PARTITION_SIZE) {
+                task.run(from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new Partition(from, middle, task), new Partition(middle, to, task));
+        }
+    }
+}
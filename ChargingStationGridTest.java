@@ -0,0 +1,214 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test implementation of the {@link ChargingStationGrid} class.
+ * Checks that the grid finds the same station as a linear scan over every station, which
+ * keeps the first one found among those at the smallest distance: ties must go to the
+ * station inserted first, whatever cell the search visits first.
+ * @author DP classes
+ * @version 2025
+ */
+public class ChargingStationGridTest
+{
+    private static final long SEED = 2025L;
+
+    private Random random;
+    private ForkJoinPool pool;
+
+    /**
+     * Default constructor for test class ChargingStationGridTest.
+     */
+    public ChargingStationGridTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        random = new Random(SEED);
+        pool = new ForkJoinPool(4);
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * Test that an empty grid, or a negative radius, finds nothing, and that a station
+     * exactly at the radius is within reach.
+     */
+    @Test
+    public void testEmptyGridAndRadius()
+    {
+        ChargingStationGrid grid = new ChargingStationGrid(4);
+        assertEquals(-1, grid.nearest(3, 3, 100));
+
+        grid.add(10, 3);
+        assertEquals(-1, grid.nearest(3, 3, -1));
+        assertEquals(-1, grid.nearest(3, 3, 6));
+        assertEquals(0, grid.nearest(3, 3, 7));
+        assertEquals(0, grid.nearest(10, 3, 0));
+    }
+
+    /**
+     * Test that, among stations at the same distance, the one inserted first wins even when
+     * it lies in a cell the search reaches after the others.
+     */
+    @Test
+    public void testTiesGoToFirstInserted()
+    {
+        // La búsqueda visita antes la celda de la estación del oeste que la del este
+        ChargingStationGrid grid = new ChargingStationGrid(4);
+        int east = grid.add(14, 10);
+        grid.add(6, 10);
+        grid.add(10, 6);
+        assertEquals(east, grid.nearest(10, 10, 4));
+        assertEquals(-1, grid.nearest(10, 10, 3));
+
+        ChargingStationGrid reversed = new ChargingStationGrid(4);
+        reversed.add(10, 6);
+        reversed.add(6, 10);
+        reversed.add(14, 10);
+        assertEquals(0, reversed.nearest(10, 10, 4));
+
+        // Dos estaciones en la misma posición: gana la primera
+        int first = grid.add(30, 30);
+        grid.add(30, 30);
+        assertEquals(first, grid.nearest(31, 29, 5));
+
+        // Una estación más cercana, aunque se añada después, gana a las empatadas
+        int closer = grid.add(9, 9);
+        assertEquals(closer, grid.nearest(10, 10, 4));
+    }
+
+    /**
+     * Test that the grid finds the same station as a linear scan for random stations and
+     * queries, with several cell sizes. The grids are small and crowded, so many queries
+     * have several stations at the same distance; some queries fall outside the grid.
+     */
+    @Test
+    public void testNearestMatchesLinearScan()
+    {
+        for (int trial = 0; trial < 200; trial++) {
+            int size = 1 + random.nextInt(trial % 2 == 0 ? 40 : 2000);
+            int n = random.nextInt(300);
+            ChargingStationGrid grid = new ChargingStationGrid(1 + random.nextInt(20));
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = random.nextInt(size);
+                ys[i] = random.nextInt(size);
+                assertEquals(i, grid.add(xs[i], ys[i]));
+            }
+
+            for (int q = 0; q < 200; q++) {
+                int x = random.nextInt(size + 50);
+                int y = random.nextInt(size + 50);
+                int radius = random.nextInt(size + 10);
+                assertEquals("Trial " + trial + ", query " + q, linearNearest(xs, ys, x, y, radius), grid.nearest(x, y, radius));
+            }
+        }
+    }
+
+    /**
+     * Test that a batch of queries gives the same answers as the queries one by one, also
+     * when several queries start at the same point with different radii.
+     */
+    @Test
+    public void testBatchMatchesSingleQueries()
+    {
+        int size = 60;
+        ChargingStationGrid grid = new ChargingStationGrid();
+        int[] xs = new int[80];
+        int[] ys = new int[80];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextInt(size);
+            ys[i] = random.nextInt(size);
+            grid.add(xs[i], ys[i]);
+        }
+
+        // Pocos puntos distintos: muchas consultas comparten punto
+        int queries = 20_000;
+        long[] locations = new long[queries];
+        int[] radii = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            locations[i] = Location.pack(random.nextInt(size), random.nextInt(size));
+            radii[i] = random.nextInt(size / 4);
+        }
+
+        int[] batch = grid.nearest(locations, radii, pool);
+        for (int i = 0; i < queries; i++) {
+            int x = Location.unpackX(locations[i]);
+            int y = Location.unpackY(locations[i]);
+            assertEquals("Query " + i, grid.nearest(x, y, radii[i]), batch[i]);
+            assertEquals("Query " + i, linearNearest(xs, ys, x, y, radii[i]), batch[i]);
+        }
+    }
+
+    /**
+     * Test that {@link EVCompany#getNearestReachableStation(Location, int)} returns the
+     * station a linear scan over {@link EVCompany#getCityStations()} finds, with and
+     * without its cache of queries.
+     */
+    @Test
+    public void testCompanyMatchesLinearScan()
+    {
+        int size = 30;
+        EVCompany company = new EVCompany("Test");
+        List<ChargingStation> stations = new ArrayList<>();
+        for (int s = 0; s < 50; s++) {
+            ChargingStation station = new ChargingStation("Cáceres", "CC" + s, Location.of(random.nextInt(size), random.nextInt(size)));
+            stations.add(station);
+            company.addChargingStation(station);
+        }
+        int[] xs = new int[stations.size()];
+        int[] ys = new int[stations.size()];
+        for (int s = 0; s < xs.length; s++) {
+            xs[s] = stations.get(s).getLocation().getX();
+            ys[s] = stations.get(s).getLocation().getY();
+        }
+
+        for (int pass = 0; pass < 2; pass++) {
+            for (int q = 0; q < 2_000; q++) {
+                Location location = Location.of(random.nextInt(size), random.nextInt(size));
+                int radius = random.nextInt(size / 2);
+                int expected = linearNearest(xs, ys, location.getX(), location.getY(), radius);
+                assertSame(expected == -1 ? null : stations.get(expected), company.getNearestReachableStation(location, radius));
+            }
+            company.setRouteCache(null);
+        }
+    }
+
+    /**
+     * Nearest station within a radius by a linear scan: the first one found at the smallest distance.
+     */
+    private static int linearNearest(int[] xs, int[] ys, int x, int y, int radius)
+    {
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < xs.length; i++) {
+            int distance = Math.max(Math.abs(xs[i] - x), Math.abs(ys[i] - y));
+            if (distance <= radius && distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,130 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * Test implementation of the session statistics of the {@link ChargingStation} class.
+ * Three vehicles reach a station with a single charger in the same step, in
+ * charging-session mode, so the numbers can be worked out by hand: every vehicle arrives at
+ * step 9 with 50 kWh to recharge at 10 kWh per step, so every session lasts 5 steps and the
+ * sessions run from 9 to 14, from 14 to 19 and from 19 to 24, after waiting 0, 5 and 10 steps.
+ * @author DP classes
+ * @version 2025
+ */
+public class ChargingStationTest
+{
+    private EVCompany company;
+    private ChargingStation station;
+    private List<ElectricVehicle> fleet;
+
+    /**
+     * Default constructor for test class ChargingStationTest.
+     */
+    public ChargingStationTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        company = new EVCompany("Test");
+        company.setChargingSessionMode(true);
+        company.setLog(SimulationLog.off());
+        station = new ChargingStation("Cáceres", "CC00", Location.of(10, 5));
+        station.addCharger(new Charger("CC00_000", 10, 1.0f));
+        company.addChargingStation(station);
+
+        // 100 kWh y 5 kWh por paso: el destino (28,5) queda fuera de alcance, la estación no
+        fleet = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ElectricVehicle ev = new ElectricVehicle("EV" + i, i + "CCC", company, Location.of(0, 5), Location.of(28, 5), 100);
+            fleet.add(ev);
+            company.addElectricVehicle(ev);
+        }
+        company.calculateRoutes(fleet);
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+    }
+
+    /**
+     * Test the statistics while the first session is in progress and the other two
+     * vehicles wait in the queue.
+     */
+    @Test
+    public void testFirstSessionInProgress()
+    {
+        simulate(12);
+        assertEquals(2, station.getQueueLength());
+        assertEquals(2, station.getMaxQueueLength());
+        assertEquals(1, station.getSessionsStarted());
+        assertEquals(0.0, station.getAverageWaitSteps(), 0.0);
+        // Steps 9, 10 and 11 of 12
+        assertEquals(3.0 / 12, station.getChargerUtilization(12), 1e-12);
+        assertEquals(0, station.getNumerEVRecharged());
+    }
+
+    /**
+     * Test that a session still in progress when the run stops counts the steps it has
+     * occupied its charger: at step 22 the sessions from 9 to 14 and from 14 to 19 have
+     * finished and the third one has been charging for 3 steps.
+     */
+    @Test
+    public void testSessionInProgressAtTheEnd()
+    {
+        simulate(22);
+        assertEquals(0, station.getQueueLength());
+        assertEquals(2, station.getMaxQueueLength());
+        assertEquals(3, station.getSessionsStarted());
+        assertEquals(5.0, station.getAverageWaitSteps(), 0.0);
+        assertEquals(10, station.getBusyChargerSteps());
+        assertEquals(13.0 / 22, station.getChargerUtilization(22), 1e-12);
+        assertEquals(2, station.getNumerEVRecharged());
+        assertEquals("(ChargingStation: CC00, queue: 0, max queue: 2, sessions: 3, avg wait: 5.0, utilization: 59.1%)",
+                     station.getSessionInfo(22));
+    }
+
+    /**
+     * Test the statistics once every session has finished.
+     */
+    @Test
+    public void testEverySessionFinished()
+    {
+        simulate(30);
+        assertEquals(3, station.getSessionsStarted());
+        assertEquals(5.0, station.getAverageWaitSteps(), 0.0);
+        assertEquals(15, station.getBusyChargerSteps());
+        assertEquals(0.5, station.getChargerUtilization(30), 1e-12);
+        assertEquals(0.0, station.getChargerUtilization(0), 0.0);
+        assertEquals(3, station.getNumerEVRecharged());
+        assertTrue(station.getFreeCharger() != null);
+        for (ElectricVehicle ev : fleet) {
+            assertEquals(1, ev.getChargesCount());
+        }
+    }
+
+    /**
+     * Simulates the first steps sequentially.
+     */
+    private void simulate(int steps)
+    {
+        for (int step = 0; step < steps; step++) {
+            for (ElectricVehicle ev : fleet) {
+                ev.act(step);
+            }
+        }
+    }
+}
@@ -16,9 +16,11 @@ public class ComparatorChargingStationId implements Comparator<ChargingStation>
      * @param st2 The second charging station to be compared.
      * @return A negative integer, zero, or a positive integer as the first
      * station's ID is less than, equal to, or greater than the second.
+     * Stations without ID go first.
      */
     public int compare(ChargingStation st1, ChargingStation st2){  
-        //TODO: Complete this code
-        return 0;
+        if (st1.getId() == null || st2.getId() == null)
+            return st1.getId() == null ? (st2.getId() == null ? 0 : -1) : 1;
+        return st1.getId().compareTo(st2.getId());
     } 
 }
\ No newline at end of file
@@ -12,7 +12,9 @@ public enum DemoType
     /** Medium scenario: 5 vehicles, 4 stations, 4 chargers per station. */
     MEDIUM ("MEDIUM DEMO", 5, 4, 4),
     /** Advanced scenario: 8 vehicles, 4 stations, 4 chargers per station. */
-    ADVANCED ("ADVANCED DEMO", 8, 4, 4);
+    ADVANCED ("ADVANCED DEMO", 8, 4, 4),
+    /** Parametric scenario: 1000 vehicles, 40 stations, 4 chargers per station, built by a {@link ScenarioGenerator}. */
+    PARAMETRIC ("PARAMETRIC DEMO", 1000, 40, 4);
     
     /** Descriptive name of the scenario. */
     private String name;
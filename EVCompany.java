@@ -1,8 +1,16 @@
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Models the operation of an Electric Vehicle (EV) Company. 
  * It manages a fleet of {@link ElectricVehicle}s and a network of {@link ChargingStation}s.
+ * The stations report every recharge to the company, which keeps running totals of the
+ * whole network that can be polled from any thread during a run.
+ * Nearest-station queries are answered from a {@link RouteCache}, which is cleared whenever
+ * the network changes; the routes of a whole fleet can also be planned at once with
+ * {@link #calculateRoutes(List)}, which answers its queries in a single parallel batch.
  * @author DP classes
  * @version 2024.10.07
  */
@@ -10,7 +18,22 @@ public class EVCompany
 {
     private final String name;
     private Set<ElectricVehicle> subscribedVehicles;
+    private VehicleRegistry vehicleRegistry;
+    private boolean vehiclesCreated;
     private List<ChargingStation> stations;
+    private Set<ChargingStation> registeredStations;
+    private StationIndex stationIndex;    // Compartido con otras compañías si está congelado
+    private boolean chargingSessionMode;
+    private SimulationLog log;
+    
+    // Totales de la red, actualizados por las estaciones en cada recarga
+    private final LongAdder rechargeCount;
+    private final LongAdder kwhDelivered;
+    private final LongAdder revenue;    // En unidades de Money
+    private final List<StationLeaderboard> leaderboards;
+    private volatile RouteCache routeCache;
+    private RouteCache sharedRouteCache;
+    private int consumptionPerStep;
 
     /**
      * Constructor for objects of class EVCompany.
@@ -20,7 +43,17 @@ public class EVCompany
     {
         this.name = name;
         this.subscribedVehicles = new HashSet<>();
+        this.vehicleRegistry = new VehicleRegistry();
         this.stations = new ArrayList<>();
+        this.registeredStations = new HashSet<>();
+        this.stationIndex = new StationIndex();
+        this.log = SimulationLog.console();
+        this.rechargeCount = new LongAdder();
+        this.kwhDelivered = new LongAdder();
+        this.revenue = new LongAdder();
+        this.leaderboards = new CopyOnWriteArrayList<>();
+        this.routeCache = new RouteCache(RouteCache.DEFAULT_CAPACITY);
+        this.consumptionPerStep = ElectricVehicle.CONSUMPTION_PER_STEP;
     }
 
      /**
@@ -40,28 +73,181 @@ public class EVCompany
     }
 
     /**
-     * Adds an {@link ElectricVehicle} to the company's fleet.
+     * @return Whether recharges are time-based sessions with waiting queues
+     * instead of instantaneous operations.
+     */
+    public boolean isChargingSessionMode()
+    {
+        return chargingSessionMode;
+    }
+    
+    /**
+     * Selects how the vehicles of this company recharge. In charging-session mode a recharge
+     * keeps its {@link Charger} busy for {@code ceil(kWh / chargingSpeed)} steps, and vehicles
+     * that find no free charger wait in the station's queue instead of ending their simulation.
+     * @param chargingSessionMode {@code true} to use charging sessions.
+     */
+    public void setChargingSessionMode(boolean chargingSessionMode)
+    {
+        this.chargingSessionMode = chargingSessionMode;
+    }
+    
+    /**
+     * @return The kWh every vehicle of this company consumes per movement step.
+     */
+    public int getConsumptionPerStep()
+    {
+        return consumptionPerStep;
+    }
+    
+    /**
+     * Changes the kWh every vehicle of this company consumes per movement step.
+     * Vehicles read it when they are created, so it must be set before creating any.
+     * @param consumptionPerStep The consumption per step. Must be positive.
+     * @throws IllegalStateException If vehicles have already been created for this company.
+     */
+    public synchronized void setConsumptionPerStep(int consumptionPerStep)
+    {
+        if (consumptionPerStep <= 0) throw new IllegalArgumentException("Non-positive consumption in setConsumptionPerStep (EVCompany)");
+        if (vehiclesCreated) throw new IllegalStateException("Consumption set after creating vehicles in setConsumptionPerStep (EVCompany)");
+        
+        this.consumptionPerStep = consumptionPerStep;
+    }
+    
+    /**
+     * @return The log that records the events of this company's vehicles.
+     */
+    public SimulationLog getLog()
+    {
+        return log;
+    }
+    
+    /**
+     * Replaces the log that records the events of this company's vehicles.
+     * By default it is {@link SimulationLog#console()}.
+     * @param log The new log. Must not be null; use {@link SimulationLog#off()} to record nothing.
+     */
+    public void setLog(SimulationLog log)
+    {
+        if (log == null) throw new IllegalArgumentException("null log in setLog (EVCompany)");
+        
+        this.log = log;
+    }
+    
+    /**
+     * Gives a vehicle being created for this company the consumption per step of the company,
+     * which cannot change from then on. Called by the {@link ElectricVehicle} constructor.
+     * @return The kWh the new vehicle consumes per movement step.
+     */
+    synchronized int consumptionForNewVehicle()
+    {
+        vehiclesCreated = true;
+        return consumptionPerStep;
+    }
+    
+    /**
+     * @return The registry that numbers the vehicles of the current fleet, in the order they
+     * were added. {@link #reset()} starts a new one.
+     */
+    VehicleRegistry getVehicleRegistry()
+    {
+        return vehicleRegistry;
+    }
+    
+    /**
+     * Adds an {@link ElectricVehicle} to the company's fleet and numbers it in the registry
+     * of the fleet (see {@link VehicleRegistry}).
      * @param vehicle The electric vehicle to add.
      */
     public void addElectricVehicle(ElectricVehicle vehicle)
     {       
-        if(vehicle != null){
-            this.subscribedVehicles.add(vehicle);
+        if(vehicle != null && this.subscribedVehicles.add(vehicle)){
+            vehicle.register(this.vehicleRegistry, this.vehicleRegistry.add(vehicle));
         }
     }
 
     
     /**
-     * Adds a {@link ChargingStation} to the company's network.
+     * Adds a {@link ChargingStation} to the company's network and to its lookup indexes.
+     * The station is indexed by its ID and its current {@link Location}; relocating it
+     * afterwards is not reflected in {@link #getChargingStation(Location)} nor in
+     * {@link #getNearestReachableStation(Location, int)}.
      * @param station The charging station to add.
      */
     public void addChargingStation(ChargingStation station)
     {       
-       if (station != null && !this.stations.contains(station)){
+       if (station != null && this.registeredStations.add(station)){
+           if (stationIndex.isFrozen()) {
+               this.stationIndex = stationIndex.copy();
+               unshareRouteCache();
+           }
            this.stations.add(station);
+           
+           // Si hay varias estaciones con el mismo ID o posición, se devuelve la primera añadida
+           this.stationIndex.add(station.getId(), station.getLocation());
+           invalidateRoutes();
+           registerStation(station);
         }
     }
     
+    /**
+     * Adds the whole charging network of the company at once, with an index of the network
+     * and a cache of nearest-station queries that are shared with other companies, which saves
+     * building them again for every company, e.g. in every run of a {@link ParameterSweep}.
+     * The shared index and cache are only read, or only filled with the answers the index
+     * gives, so they stay valid for every company sharing them; if the network of this company
+     * changes afterwards, it goes on with its own copy of the index and an empty cache.
+     * @param network The stations, with the IDs and locations of the index and in its order.
+     * @param index The index of the network. Must be frozen.
+     * @param cache The cache of nearest-station queries shared by the companies using the
+     * index, or null to query the index directly.
+     * @throws IllegalStateException If the company already has stations.
+     */
+    void addSharedChargingNetwork(List<ChargingStation> network, StationIndex index, RouteCache cache)
+    {
+        if (index == null || !index.isFrozen()) throw new IllegalArgumentException("Index not frozen in addSharedChargingNetwork (EVCompany)");
+        if (!index.matches(network)) throw new IllegalArgumentException("Network not matching its index in addSharedChargingNetwork (EVCompany)");
+        if (!stations.isEmpty()) throw new IllegalStateException("Company with stations in addSharedChargingNetwork (EVCompany)");
+
+        for (ChargingStation station : network) {
+            if (!registeredStations.add(station)) throw new IllegalArgumentException("Repeated station in addSharedChargingNetwork (EVCompany): " + station.getId());
+        }
+        this.stations.addAll(network);
+        this.stationIndex = index;
+        this.routeCache = cache;
+        this.sharedRouteCache = cache;
+        for (ChargingStation station : network) {
+            registerStation(station);
+        }
+    }
+    
+    /**
+     * Attaches a new station of the network to the company and to its rankings.
+     */
+    private void registerStation(ChargingStation station)
+    {
+        if (station.getCompany() == null) {
+            station.attachTo(this);
+            addTotals(station.getNumerEVRecharged(), station.getKwhDelivered(), station.getRevenueUnits());
+        }
+        for (StationLeaderboard leaderboard : leaderboards) {
+            leaderboard.stationAdded(station);
+        }
+    }
+    
+    /**
+     * Replaces the cache shared with other companies, if it is still in use, with an empty one
+     * of the same capacity before the network changes.
+     */
+    private void unshareRouteCache()
+    {
+        RouteCache cache = routeCache;
+        if (cache != null && cache == sharedRouteCache) {
+            this.routeCache = new RouteCache(cache.getCapacity());
+        }
+        this.sharedRouteCache = null;
+    }
+    
     
     /**
      * Retrieves a {@link ChargingStation} by its unique ID.
@@ -70,16 +256,9 @@ public class EVCompany
      */
     public ChargingStation getChargingStation(String id)
     {
-        if (id == null) return null;
+        int index = stationIndex.indexOf(id);
         
-        for (ChargingStation s : stations) {
-            
-            if (id.equals(s.getId())) {
-                
-                return s;
-            }
-        }
-        return null;
+        return index == -1 ? null : stations.get(index);
     }
 
     /**
@@ -88,17 +267,161 @@ public class EVCompany
      * @return The {@link ChargingStation} at the matching location, or {@code null} if not found.
      */
     public ChargingStation getChargingStation(Location location)
+    {
+        int index = stationIndex.indexOf(location);
+        
+        return index == -1 ? null : stations.get(index);
+    }
+    
+    /**
+     * Retrieves the nearest {@link ChargingStation} that can be reached from a {@link Location}
+     * travelling at most {@code radius} steps. Ties are resolved in favour of the station
+     * that was added first, exactly as a scan over {@link #getCityStations()} would do.
+     * @param location The {@link Location} the search starts from.
+     * @param radius The maximum distance (in steps) to the station.
+     * @return The nearest reachable {@link ChargingStation}, or {@code null} if there is none.
+     */
+    public ChargingStation getNearestReachableStation(Location location, int radius)
     {
         if (location == null) return null;
+
+        return getNearestReachableStation(location.pack(), radius);
+    }
+    
+    /**
+     * Primitive variant of {@link #getNearestReachableStation(Location, int)} for the
+     * simulation hot path.
+     * @param location The location the search starts from, packed with {@link Location#pack(int, int)}.
+     * @param radius The maximum distance (in steps) to the station.
+     * @return The nearest reachable {@link ChargingStation}, or {@code null} if there is none.
+     */
+    public ChargingStation getNearestReachableStation(long location, int radius)
+    {
+        int index = getNearestReachableStationIndex(location, radius);
+        
+        return index == -1 ? null : stations.get(index);
+    }
+    
+    /**
+     * Index-based variant of {@link #getNearestReachableStation(long, int)}.
+     * @param location The packed location the search starts from.
+     * @param radius The maximum distance (in steps) to the station.
+     * @return The position of the nearest reachable station in {@link #getCityStations()}, or -1.
+     */
+    int getNearestReachableStationIndex(long location, int radius)
+    {
+        RouteCache cache = routeCache;
+        if (cache == null || radius < 0) {
+            return stationIndex.nearest(Location.unpackX(location), Location.unpackY(location), radius);
+        }
         
-        for (ChargingStation s : stations) {
-            
-            if (s.getLocation().equals(location)) {
-                
-                return s;
+        int index = cache.get(location, radius);
+        if (index == RouteCache.MISS) {
+            index = stationIndex.nearest(Location.unpackX(location), Location.unpackY(location), radius);
+            cache.put(location, radius, index);
+        }
+        return index;
+    }
+    
+    /**
+     * Batched variant of {@link #getNearestReachableStation(long, int)}: answers many queries
+     * at once, on the threads of the common {@link ForkJoinPool}, with the same results
+     * (see {@link ChargingStationGrid#nearest(long[], int[], ForkJoinPool)}). The answers are
+     * not stored in the {@link RouteCache}. No station may be added while the queries run.
+     * @param locations The packed locations the searches start from.
+     * @param radii The maximum distance (in steps) of each search.
+     * @return The nearest reachable {@link ChargingStation} of each query, or {@code null} where there is none.
+     */
+    public ChargingStation[] getNearestReachableStations(long[] locations, int[] radii)
+    {
+        int[] indexes = getNearestReachableStationIndexes(locations, radii);
+        ChargingStation[] result = new ChargingStation[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            result[i] = indexes[i] == -1 ? null : stations.get(indexes[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Index-based variant of {@link #getNearestReachableStations(long[], int[])}.
+     * @param locations The packed locations the searches start from.
+     * @param radii The maximum distance (in steps) of each search.
+     * @return The position of each nearest reachable station in {@link #getCityStations()}, or -1.
+     */
+    int[] getNearestReachableStationIndexes(long[] locations, int[] radii)
+    {
+        if (locations == null || radii == null) throw new IllegalArgumentException("null argument in getNearestReachableStations (EVCompany)");
+
+        return stationIndex.nearest(locations, radii, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Plans the routes of many vehicles of the company at once, with the same result as
+     * calling {@link ElectricVehicle#calculateRoute()} on each of them: the vehicles that
+     * cannot reach their target directly look for their recharging station together, with
+     * {@link #getNearestReachableStations(long[], int[])}, instead of one after another.
+     * @param vehicles The vehicles, all of them from this company.
+     */
+    public void calculateRoutes(List<ElectricVehicle> vehicles)
+    {
+        if (vehicles == null) throw new IllegalArgumentException("null vehicles in calculateRoutes (EVCompany)");
+        for (ElectricVehicle ev : vehicles) {
+            if (ev == null || ev.getCompany() != this) throw new IllegalArgumentException("Vehicle of another company in calculateRoutes (EVCompany): " + ev);
+        }
+
+        // Primero las rutas directas; el resto se queda para la búsqueda conjunta
+        List<ElectricVehicle> pending = new ArrayList<>();
+        for (ElectricVehicle ev : vehicles) {
+            if (!ev.planDirectRoute()) {
+                pending.add(ev);
             }
         }
-        return null;
+        if (pending.isEmpty()) return;
+
+        long[] locations = new long[pending.size()];
+        int[] radii = new int[pending.size()];
+        for (int i = 0; i < locations.length; i++) {
+            locations[i] = pending.get(i).getPackedLocation();
+            radii[i] = pending.get(i).getRechargingRadius();
+        }
+
+        int[] indexes = getNearestReachableStationIndexes(locations, radii);
+        for (int i = 0; i < indexes.length; i++) {
+            pending.get(i).planRechargingStop(indexes[i] == -1 ? null : stations.get(indexes[i]));
+        }
+    }
+
+    /**
+     * @return The cache of nearest-station queries, with its hit and miss counters, or null
+     * if queries are not cached.
+     */
+    public RouteCache getRouteCache()
+    {
+        return routeCache;
+    }
+    
+    /**
+     * Replaces the cache of nearest-station queries. By default every company has a cache of
+     * {@link RouteCache#DEFAULT_CAPACITY} entries.
+     * @param cache The new cache, or null to stop caching. It must not be shared with another company.
+     */
+    public void setRouteCache(RouteCache cache)
+    {
+        if (cache != null) {
+            cache.clear();
+        }
+        this.routeCache = cache;
+    }
+    
+    /**
+     * Forgets the cached routes after a change of the charging network.
+     */
+    private void invalidateRoutes()
+    {
+        RouteCache cache = routeCache;
+        if (cache != null) {
+            cache.clear();
+        }
     }
     
     /**
@@ -117,13 +440,100 @@ public class EVCompany
         return stations.size();
     }
     
+    /**
+     * @return The total number of recharges performed at the company's stations.
+     */
+    public long getTotalRecharges()
+    {
+        return rechargeCount.sum();
+    }
+    
+    /**
+     * @return The total kWh delivered by the company's stations.
+     */
+    public long getTotalKwhDelivered()
+    {
+        return kwhDelivered.sum();
+    }
+    
+    /**
+     * @return The money collected by the company's stations.
+     */
+    public double getTotalRevenue()
+    {
+        return Money.toDouble(revenue.sum());
+    }
+    
+    /**
+     * @return The exact money collected by the company's stations, in units of {@link Money}.
+     */
+    public long getTotalRevenueUnits()
+    {
+        return revenue.sum();
+    }
+    
+    /**
+     * Starts keeping a ranking of the stations with the most recharges, updated on every
+     * recharge from now on. It stops being updated when the company is {@link #reset()}.
+     * @param k The number of stations of the ranking.
+     * @return The ranking.
+     */
+    public StationLeaderboard trackTopStations(int k)
+    {
+        StationLeaderboard leaderboard = new StationLeaderboard(stations, k);
+        leaderboards.add(leaderboard);
+        return leaderboard;
+    }
+    
+    /**
+     * Adds recharges of one of the company's stations to the totals of the network and to
+     * the rankings of stations.
+     * @param station The station.
+     * @param count The number of recharges.
+     * @param kwh The kWh delivered.
+     * @param amount The money collected, in units of {@link Money}.
+     */
+    void recordRecharges(ChargingStation station, long count, long kwh, long amount)
+    {
+        addTotals(count, kwh, amount);
+        for (StationLeaderboard leaderboard : leaderboards) {
+            leaderboard.rechargesAdded(station, count);
+        }
+    }
+    
+    /**
+     * Adds recharges to the totals of the network.
+     */
+    private void addTotals(long count, long kwh, long amount)
+    {
+        rechargeCount.add(count);
+        kwhDelivered.add(kwh);
+        revenue.add(amount);
+    }
+    
     /**
      * Clears all managed vehicles and stations, resetting the company to an empty state.
+     * The fleet starts a new {@link VehicleRegistry}; the old one stays reachable only from
+     * the chargers that recharged its vehicles.
      */
     public void reset(){
         
+        for (ChargingStation station : stations) {
+            if (station.getCompany() == this) {
+                station.attachTo(null);
+            }
+        }
+        leaderboards.clear();
+        rechargeCount.reset();
+        kwhDelivered.reset();
+        revenue.reset();
         subscribedVehicles.clear();
+        vehicleRegistry = new VehicleRegistry();
         stations.clear();
+        registeredStations.clear();
+        unshareRouteCache();
+        stationIndex = new StationIndex();
+        invalidateRoutes();
     }
     
 }
\ No newline at end of file
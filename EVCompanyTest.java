@@ -0,0 +1,364 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * Test implementation of the route planning of the {@link EVCompany} class.
+ * Checks that {@link EVCompany#calculateRoutes(List)}, which looks for the recharging
+ * stations of many vehicles at once, plans the same routes as
+ * {@link ElectricVehicle#calculateRoute()} on every vehicle, one after another: the same
+ * stations (ties included), the same vehicles without any station within reach, and the
+ * same simulation afterwards. It also checks the lookups of stations by ID and location, and
+ * that the cached answers of nearest-station queries follow the changes of the network.
+ * @author DP classes
+ * @version 2025
+ */
+public class EVCompanyTest
+{
+    private static final int VEHICLES = 5_000;
+    private static final int GRID_SIZE = 300;
+    private static final int STEPS = 60;
+    private static final long SEED = 2025L;
+
+    private EVCompany batchCompany;
+    private EVCompany singleCompany;
+    private List<ElectricVehicle> batchFleet;
+    private List<ElectricVehicle> singleFleet;
+
+    /**
+     * Default constructor for test class EVCompanyTest.
+     */
+    public EVCompanyTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        batchCompany = new EVCompany("Batch");
+        singleCompany = new EVCompany("Single");
+        batchFleet = new ArrayList<>();
+        singleFleet = new ArrayList<>();
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+    }
+
+    /**
+     * Test that both ways of planning give the same routes on a network with few stations,
+     * where many vehicles have no station within reach.
+     */
+    @Test
+    public void testSparseNetwork()
+    {
+        createScenario(25, 1);
+        assertSameRoutes();
+    }
+
+    /**
+     * Test that both ways of planning give the same routes on a crowded network with
+     * stations sharing positions, where many vehicles have several stations at the same distance.
+     */
+    @Test
+    public void testCrowdedNetworkWithTies()
+    {
+        createScenario(400, 20);
+        assertSameRoutes();
+    }
+
+    /**
+     * Test the same equivalence without the cache of nearest-station queries, and that
+     * planning again, e.g. after the vehicles have moved, still gives the same routes.
+     */
+    @Test
+    public void testWithoutCacheAndReplanning()
+    {
+        createScenario(150, 5);
+        batchCompany.setRouteCache(null);
+        singleCompany.setRouteCache(null);
+        assertSameRoutes();
+
+        for (int step = STEPS; step < 2 * STEPS; step++) {
+            for (int i = 0; i < VEHICLES; i++) {
+                batchFleet.get(i).act(step);
+                singleFleet.get(i).act(step);
+            }
+        }
+        batchCompany.calculateRoutes(batchFleet);
+        for (ElectricVehicle ev : singleFleet) {
+            ev.calculateRoute();
+        }
+        for (int i = 0; i < VEHICLES; i++) {
+            assertSameRoute(i);
+        }
+    }
+
+    /**
+     * Test that planning a batch rejects vehicles of another company, and accepts an empty batch.
+     */
+    @Test
+    public void testRejectsVehiclesOfAnotherCompany()
+    {
+        createScenario(10, 1);
+        batchCompany.calculateRoutes(Collections.emptyList());
+        try {
+            batchCompany.calculateRoutes(null);
+            fail("A null batch must be rejected");
+        }
+        catch (IllegalArgumentException e) {
+            // Esperado
+        }
+        try {
+            batchCompany.calculateRoutes(Arrays.asList(batchFleet.get(0), singleFleet.get(0)));
+            fail("A vehicle of another company must be rejected");
+        }
+        catch (IllegalArgumentException e) {
+            // Esperado
+        }
+    }
+
+    /**
+     * Test that, among stations with the same ID or location, the lookups return the one
+     * added first, also after adding the same station twice.
+     */
+    @Test
+    public void testFirstStationAddedWins()
+    {
+        ChargingStation first = new ChargingStation("Cáceres", "CC0", Location.of(10, 10));
+        ChargingStation sameId = new ChargingStation("Cáceres", "CC0", Location.of(20, 20));
+        ChargingStation sameLocation = new ChargingStation("Cáceres", "CC1", Location.of(10, 10));
+        ChargingStation withoutId = new ChargingStation("Cáceres", null, Location.of(30, 30));
+        batchCompany.addChargingStation(first);
+        batchCompany.addChargingStation(sameId);
+        batchCompany.addChargingStation(sameLocation);
+        batchCompany.addChargingStation(withoutId);
+        batchCompany.addChargingStation(first);
+        assertEquals(4, batchCompany.getNumberOfStations());
+
+        assertSame(first, batchCompany.getChargingStation("CC0"));
+        assertSame(sameLocation, batchCompany.getChargingStation("CC1"));
+        assertSame(first, batchCompany.getChargingStation(Location.of(10, 10)));
+        assertSame(sameId, batchCompany.getChargingStation(Location.of(20, 20)));
+        assertSame(withoutId, batchCompany.getChargingStation(Location.of(30, 30)));
+        assertSame(first, batchCompany.getNearestReachableStation(Location.of(10, 10), 0));
+        assertNull(batchCompany.getChargingStation((String) null));
+        assertNull(batchCompany.getChargingStation((Location) null));
+        assertNull(batchCompany.getChargingStation("CC2"));
+        assertNull(batchCompany.getChargingStation(Location.of(11, 10)));
+    }
+
+    /**
+     * Test that the lookups keep the location a station had when it was added, and that
+     * a station relocated before being added is indexed at its new location.
+     */
+    @Test
+    public void testIndexesStaleAfterRelocation()
+    {
+        ChargingStation station = new ChargingStation("Cáceres", "CC0", Location.of(10, 10));
+        batchCompany.addChargingStation(station);
+        station.setLocation(Location.of(40, 40));
+
+        assertSame(station, batchCompany.getChargingStation("CC0"));
+        assertSame(station, batchCompany.getChargingStation(Location.of(10, 10)));
+        assertNull(batchCompany.getChargingStation(Location.of(40, 40)));
+        assertSame(station, batchCompany.getNearestReachableStation(Location.of(12, 12), 2));
+        assertNull(batchCompany.getNearestReachableStation(Location.of(40, 40), 5));
+
+        ChargingStation moved = new ChargingStation("Cáceres", "CC1", Location.of(10, 10));
+        moved.setLocation(Location.of(50, 50));
+        singleCompany.addChargingStation(moved);
+        assertSame(moved, singleCompany.getChargingStation(Location.of(50, 50)));
+        assertNull(singleCompany.getChargingStation(Location.of(10, 10)));
+
+        // Al volver a añadirla tras reset se indexa en su nueva posición
+        batchCompany.reset();
+        batchCompany.addChargingStation(station);
+        assertSame(station, batchCompany.getChargingStation(Location.of(40, 40)));
+        assertNull(batchCompany.getChargingStation(Location.of(10, 10)));
+        assertSame(station, batchCompany.getNearestReachableStation(Location.of(40, 40), 0));
+    }
+
+    /**
+     * Test that adding a station after some cached queries clears the cache, so the new
+     * station is found, and that resetting the company clears it too.
+     */
+    @Test
+    public void testCacheClearedWhenNetworkChanges()
+    {
+        RouteCache cache = batchCompany.getRouteCache();
+        batchCompany.addChargingStation(new ChargingStation("Cáceres", "CC0", Location.of(10, 10)));
+        Location from = Location.of(30, 30);
+        assertEquals("CC0", batchCompany.getNearestReachableStation(from, 20).getId());
+        assertEquals("CC0", batchCompany.getNearestReachableStation(from, 20).getId());
+        assertNull(batchCompany.getNearestReachableStation(from, 5));
+        assertNull(batchCompany.getNearestReachableStation(from, 5));
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        ChargingStation closer = new ChargingStation("Cáceres", "CC1", Location.of(33, 33));
+        batchCompany.addChargingStation(closer);
+        assertSame(closer, batchCompany.getNearestReachableStation(from, 20));
+        assertSame(closer, batchCompany.getNearestReachableStation(from, 5));
+        assertEquals(2, cache.getHits());
+        assertEquals(4, cache.getMisses());
+        assertSame(closer, batchCompany.getNearestReachableStation(from, 5));
+        assertEquals(3, cache.getHits());
+
+        batchCompany.reset();
+        assertSame(cache, batchCompany.getRouteCache());
+        assertNull(batchCompany.getNearestReachableStation(from, 20));
+        assertEquals(5, cache.getMisses());
+        ChargingStation again = new ChargingStation("Cáceres", "CC2", Location.of(40, 40));
+        batchCompany.addChargingStation(again);
+        assertSame(again, batchCompany.getNearestReachableStation(from, 20));
+        assertEquals(6, cache.getMisses());
+    }
+
+    /**
+     * Test that companies sharing the index and the cache of a network answer from them, and
+     * that a company whose network changes stops sharing them without affecting the others.
+     */
+    @Test
+    public void testSharedNetworkCopiedOnChange()
+    {
+        List<ChargingStation> template = Arrays.asList(new ChargingStation("Cáceres", "CC0", Location.of(10, 10)),
+                                                       new ChargingStation("Cáceres", "CC1", Location.of(50, 50)));
+        StationIndex index = StationIndex.of(template).freeze();
+        RouteCache cache = new RouteCache(64);
+        EVCompany[] companies = {batchCompany, singleCompany};
+        for (EVCompany company : companies) {
+            company.addSharedChargingNetwork(Arrays.asList(new ChargingStation("Cáceres", "CC0", Location.of(10, 10)),
+                                                           new ChargingStation("Cáceres", "CC1", Location.of(50, 50))),
+                                             index, cache);
+            assertEquals("CC1", company.getNearestReachableStation(Location.of(45, 45), 10).getId());
+            assertEquals("CC0", company.getChargingStation(Location.of(10, 10)).getId());
+            assertSame(company.getCityStations().get(1), company.getChargingStation("CC1"));
+            assertSame(company, company.getCityStations().get(0).getCompany());
+        }
+        assertSame(cache, singleCompany.getRouteCache());
+        assertEquals(1, cache.getHits());
+
+        ChargingStation added = new ChargingStation("Cáceres", "CC2", Location.of(44, 44));
+        singleCompany.addChargingStation(added);
+        assertNotSame(cache, singleCompany.getRouteCache());
+        assertSame(added, singleCompany.getNearestReachableStation(Location.of(45, 45), 10));
+        assertSame(added, singleCompany.getChargingStation("CC2"));
+        assertEquals("CC1", batchCompany.getNearestReachableStation(Location.of(45, 45), 10).getId());
+        assertNull(batchCompany.getChargingStation("CC2"));
+        assertEquals(2, index.size());
+        assertEquals(2, cache.getHits());
+
+        batchCompany.reset();
+        assertNotSame(cache, batchCompany.getRouteCache());
+        assertNull(batchCompany.getNearestReachableStation(Location.of(45, 45), 10));
+
+        try {
+            singleCompany.addSharedChargingNetwork(template, index, cache);
+            fail("A company with stations cannot take a shared network");
+        }
+        catch (IllegalStateException e) {
+            // Esperado
+        }
+        try {
+            batchCompany.addSharedChargingNetwork(template.subList(0, 1), index, cache);
+            fail("A network must match its index");
+        }
+        catch (IllegalArgumentException e) {
+            // Esperado
+        }
+    }
+
+    /**
+     * Plans the routes of one fleet in a batch and of the other vehicle by vehicle, checks
+     * that they are the same and then that both fleets simulate the same way.
+     */
+    private void assertSameRoutes()
+    {
+        batchCompany.calculateRoutes(batchFleet);
+        for (ElectricVehicle ev : singleFleet) {
+            ev.calculateRoute();
+        }
+
+        int finished = 0;
+        int recharging = 0;
+        for (int i = 0; i < VEHICLES; i++) {
+            assertSameRoute(i);
+            if (singleFleet.get(i).hasFinishedSimulation()) {
+                finished++;
+            }
+            else if (singleFleet.get(i).getTargetChargingStation() != null) {
+                recharging++;
+            }
+        }
+        // El escenario ha de cubrir los tres casos: ruta directa, recarga y sin estación alcanzable
+        assertTrue(finished > 0 && recharging > 0 && finished + recharging < VEHICLES);
+
+        for (int step = 0; step < STEPS; step++) {
+            for (int i = 0; i < VEHICLES; i++) {
+                batchFleet.get(i).act(step);
+                singleFleet.get(i).act(step);
+            }
+        }
+        for (int i = 0; i < VEHICLES; i++) {
+            assertEquals("Vehicle " + i, singleFleet.get(i).getInitialFinalInfo(), batchFleet.get(i).getInitialFinalInfo());
+        }
+    }
+
+    /**
+     * Asserts that a vehicle has the same route in both fleets.
+     */
+    private void assertSameRoute(int i)
+    {
+        ElectricVehicle single = singleFleet.get(i);
+        ElectricVehicle batch = batchFleet.get(i);
+        String message = "Vehicle " + i;
+        assertEquals(message, single.getStringRoute(), batch.getStringRoute());
+        assertEquals(message, single.getPackedDestination(), batch.getPackedDestination());
+        assertEquals(message, single.hasFinishedSimulation(), batch.hasFinishedSimulation());
+        ChargingStation station = single.getTargetChargingStation();
+        ChargingStation batchStation = batch.getTargetChargingStation();
+        assertEquals(message, station == null ? null : station.getId(), batchStation == null ? null : batchStation.getId());
+    }
+
+    /**
+     * Creates the same random network and fleet in both companies.
+     * @param stations The number of stations.
+     * @param gridStep The distance between the possible positions of the stations; a large
+     * one puts several stations in the same place.
+     */
+    private void createScenario(int stations, int gridStep)
+    {
+        for (EVCompany company : new EVCompany[] {batchCompany, singleCompany}) {
+            company.setLog(SimulationLog.off());
+            List<ElectricVehicle> fleet = company == batchCompany ? batchFleet : singleFleet;
+            Random random = new Random(SEED);
+            for (int s = 0; s < stations; s++) {
+                Location location = Location.of(random.nextInt(GRID_SIZE / gridStep) * gridStep, random.nextInt(GRID_SIZE / gridStep) * gridStep);
+                ChargingStation station = new ChargingStation("Cáceres", "CC" + s, location);
+                station.addCharger(new Charger(station.getId() + "_0", 20 + 10 * random.nextInt(5), 0.2f));
+                company.addChargingStation(station);
+            }
+            for (int i = 0; i < VEHICLES; i++) {
+                ElectricVehicle ev = new ElectricVehicle(String.format("EV%06d", i), "EV" + i, company,
+                                                         Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)),
+                                                         Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)),
+                                                         15 * (1 + random.nextInt(12)));
+                fleet.add(ev);
+                company.addElectricVehicle(ev);
+            }
+        }
+    }
+}
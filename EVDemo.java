@@ -1,4 +1,14 @@
 import java.util.*;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 /**
  * Provides a simple demonstration and simulation environment for the 
  * Electric Vehicle (EV) and Charging Station model.
@@ -9,6 +19,8 @@ import java.util.*;
  * <li>Demo SIMPLE (demo=DemoType.SIMPLE): Two vehicles are created.</li>
  * <li>Demo MEDIUM (demo=DemoType.MEDIUM): Five vehicles are created.</li>
  * <li>Demo ADVANCED(demo=DemoType.ADVANCED): Eight vehicles are created.</li>
+ * <li>Demo PARAMETRIC(demo=DemoType.PARAMETRIC): The scenario is generated by a {@link ScenarioGenerator}
+ * (in {@link SimulationMode#TILED} mode, by every worker process for its own tile).</li>
  * </ul>
  * * @author DP Clasess
  * @version 2025
@@ -21,6 +33,15 @@ public class EVDemo
     /** The maximum Y coordinate for the grid (number of columns). */
     public static final int MAXY = 20; 
     
+    /** Side of the grid of the {@link DemoType#PARAMETRIC} scenario. */
+    public static final int PARAMETRIC_GRID_SIZE = 100;
+    
+    /** Seed of the {@link DemoType#PARAMETRIC} scenario. */
+    public static final long PARAMETRIC_SEED = 2025L;
+    
+    /** Spatial distribution of the {@link DemoType#PARAMETRIC} scenario. */
+    public static final SpatialDistribution PARAMETRIC_DISTRIBUTION = SpatialDistribution.HOTSPOTS;
+    
     /** The maximum number of turns. */
     public static final int MAXSTEPS = 50; 
     
@@ -40,6 +61,74 @@ public class EVDemo
     /** Constant for selecting the demo scenario, using the {@link DemoType} enumeration. */
     private static final DemoType DEMO=DemoType.ADVANCED;
     
+    /** Constant for selecting how the steps are executed, using the {@link SimulationMode} enumeration. */
+    private static final SimulationMode MODE=SimulationMode.SEQUENTIAL;
+    
+    /** 
+     * Whether recharges are time-based sessions with waiting queues at the stations
+     * (see {@link EVCompany#setChargingSessionMode(boolean)}). Not available in {@link SimulationMode#COLUMNAR}
+     * and {@link SimulationMode#EVENT_DRIVEN} modes.
+     */
+    private static final boolean CHARGING_SESSIONS=false;
+    
+    /** 
+     * Events written while the simulation runs, using the {@link LogLevel} enumeration.
+     * {@link LogLevel#INFO} prints the recharges; {@link LogLevel#DEBUG} also prints arrivals,
+     * empty batteries and stations without free chargers.
+     */
+    private static final LogLevel LOG_LEVEL=LogLevel.INFO;
+    
+    /** 
+     * File where the state of every vehicle after every step is recorded with a {@link TraceWriter},
+     * or null to record nothing. {@link TraceReader} converts it back to text.
+     */
+    private static final String TRACE_FILE=null;
+    
+    /** 
+     * File where a {@link SimulationCheckpoint} of the whole simulation is saved every
+     * {@code CHECKPOINT_INTERVAL} steps, or null to save none. {@link #resume(String)} continues
+     * the simulation from it.
+     */
+    private static final String CHECKPOINT_FILE=null;
+    
+    /** Number of steps between two checkpoints. */
+    private static final int CHECKPOINT_INTERVAL=10;
+    
+    /** 
+     * File where the final information of every vehicle and station (with the complete
+     * recharge history of its chargers) is written after the run, or null to write none.
+     */
+    private static final String REPORT_FILE=null;
+    
+    /** Number of tiles along x in {@link SimulationMode#TILED} mode (one worker process per tile). */
+    private static final int TILE_COLUMNS=2;
+    
+    /** Number of tiles along y in {@link SimulationMode#TILED} mode. */
+    private static final int TILE_ROWS=2;
+    
+    /** The scenario of this demo. */
+    private final DemoType demo;
+    
+    /** The way this demo executes its steps. */
+    private final SimulationMode mode;
+    
+    /** The columnar engine used when {@code mode} is {@link SimulationMode#COLUMNAR}. */
+    private FleetEngine fleetEngine;
+    
+    /** The multi-core stepper used when {@code mode} is {@link SimulationMode#PARALLEL}. */
+    private ParallelStepper parallelStepper;
+    
+    /** The discrete-event engine used when {@code mode} is {@link SimulationMode#EVENT_DRIVEN}. */
+    private EventDrivenEngine eventEngine;
+    
+    /** The thread-per-vehicle stepper used when {@code mode} is {@link SimulationMode#VIRTUAL_THREADS}. */
+    private VirtualThreadStepper virtualThreadStepper;
+    
+    /** The worker processes used when {@code mode} is {@link SimulationMode#TILED}. */
+    private TiledSimulation tiledSimulation;
+    
+    /** The first step that has not been simulated yet (0 unless restored from a checkpoint). */
+    private int nextStep;
         
     /**
      * Constructor for objects of class EVDemo.
@@ -48,6 +137,30 @@ public class EVDemo
      */
     public EVDemo()
     {
+        this(MODE);
+    }
+    
+    /**
+     * Constructor for objects of class EVDemo using a specific {@link SimulationMode}.
+     * @param mode The way the steps are executed. Must not be null.
+     */
+    public EVDemo(SimulationMode mode)
+    {
+        this(DEMO, mode);
+    }
+    
+    /**
+     * Constructor for objects of class EVDemo using a specific scenario and {@link SimulationMode}.
+     * @param demo The scenario to create. Must not be null.
+     * @param mode The way the steps are executed. Must not be null.
+     */
+    public EVDemo(DemoType demo, SimulationMode mode)
+    {
+        if (demo == null) throw new IllegalArgumentException("null demo in EVDemo");
+        if (mode == null) throw new IllegalArgumentException("null mode in EVDemo");
+        
+        this.demo = demo;
+        this.mode = mode;
         this.vehicles = new ArrayList<>();
         this.stations = new ArrayList<>();
         this.company = new EVCompany ("Compañía EVCharging Cáceres");
@@ -63,20 +176,241 @@ public class EVDemo
     {        
         //Ejecutamos un número de pasos la simulación.
         //En cada paso, cada persona de reparto realiza su acción
-        for(int step = 0; step < MAXSTEPS; step++) {
-            step(step);
+        if (TRACE_FILE != null) {
+            runWithTrace(Paths.get(TRACE_FILE));
+        }
+        else if (CHECKPOINT_FILE != null) {
+            runWithCheckpoints(Paths.get(CHECKPOINT_FILE));
         }
+        else {
+            advanceRange(nextStep, MAXSTEPS);
+        }
+        
+        exportState();
+        
+        // Los eventos se escriben en segundo plano: deben aparecer antes del resumen final
+        company.getLog().flush();
         
         showFinalInfo();
+        
+        if (REPORT_FILE != null) {
+            writeReport(Paths.get(REPORT_FILE));
+        }
 
     }
+    
+    /**
+     * Writes the final information of the vehicles and the complete information of the
+     * stations to a file. Every object streams its text into the buffered writer, so the
+     * report is never held in memory as a whole. In {@link SimulationMode#TILED} mode the
+     * workers stream it (see {@link TiledSimulation#writeReport(Appendable)}).
+     * @param report The report file to create.
+     */
+    private void writeReport(Path report)
+    {
+        try (BufferedWriter out = Files.newBufferedWriter(report)) {
+            if (tiledSimulation != null) {
+                tiledSimulation.writeReport(out);
+                return;
+            }
+            for (ElectricVehicle ev : vehicles) {
+                ev.appendInitialFinalInfo(out);
+                out.newLine();
+            }
+            for (ChargingStation station : stations) {
+                station.appendCompleteInfo(out);
+                out.newLine();
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the report " + report, e);
+        }
+    }
+
+    /**
+     * Runs every step of the demo recording the state of the vehicles after each one.
+     * @param trace The trace file to create.
+     */
+    private void runWithTrace(Path trace)
+    {
+        if (tiledSimulation != null) throw new IllegalStateException("Traces are not available in TILED mode (EVDemo)");
+        
+        try (TraceWriter writer = new TraceWriter(trace, vehicles)) {
+            for(int step = nextStep; step < MAXSTEPS; step++) {
+                advance(step);
+                exportState();
+                writer.recordStep(step);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the trace " + trace, e);
+        }
+    }
+
+    /**
+     * Runs the remaining steps of the demo saving a checkpoint every {@code CHECKPOINT_INTERVAL} steps.
+     * The state is captured between two steps and written by a background thread while the
+     * simulation goes on; a checkpoint only waits for the previous one to be written.
+     * @param checkpoint The checkpoint file, replaced by every new checkpoint.
+     */
+    private void runWithCheckpoints(Path checkpoint)
+    {
+        // Un checkpoint es una foto de toda la simulación, que en modo TILED no está en este proceso
+        if (tiledSimulation != null) throw new IllegalStateException("Checkpoints are not available in TILED mode (EVDemo)");
+        
+        ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "EVDemo checkpoint writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Future<?> pending = null;
+        try {
+            int step = nextStep;
+            while (step < MAXSTEPS) {
+                int end = Math.min(MAXSTEPS, (step / CHECKPOINT_INTERVAL + 1) * CHECKPOINT_INTERVAL);
+                advanceRange(step, end);
+                step = end;
+                if (step == MAXSTEPS) break;
+                
+                exportState();
+                waitFor(pending, checkpoint);
+                SimulationCheckpoint state = SimulationCheckpoint.capture(company, vehicles, step);
+                pending = writer.submit(() -> {
+                    state.write(checkpoint);
+                    return null;
+                });
+            }
+            waitFor(pending, checkpoint);
+        }
+        finally {
+            writer.shutdown();
+        }
+    }
+    
+    /**
+     * Waits until a checkpoint has been written.
+     * @param pending The write, or null if there is none.
+     * @param checkpoint The checkpoint file, for the error message.
+     */
+    private static void waitFor(Future<?> pending, Path checkpoint)
+    {
+        if (pending == null) return;
+        
+        try {
+            pending.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing the checkpoint " + checkpoint, e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException("Cannot write the checkpoint " + checkpoint, (IOException) e.getCause());
+            }
+            throw new IllegalStateException("Cannot write the checkpoint " + checkpoint, e.getCause());
+        }
+    }
+    
+    /**
+     * Replaces the simulation of this demo with the one saved in a checkpoint and runs its
+     * remaining steps, which gives the same results the original run would have given.
+     * @param checkpointFile The checkpoint file, written by a run with {@code CHECKPOINT_FILE} set.
+     */
+    public void resume(String checkpointFile)
+    {
+        if (checkpointFile == null) throw new IllegalArgumentException("null checkpoint file in resume (EVDemo)");
+        
+        SimulationCheckpoint checkpoint;
+        try {
+            checkpoint = SimulationCheckpoint.read(Paths.get(checkpointFile));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the checkpoint " + checkpointFile, e);
+        }
+        
+        this.company = checkpoint.restore();
+        configureLog();
+        this.vehicles = new ArrayList<>(checkpoint.getRestoredVehicles());
+        this.stations = new ArrayList<>(company.getCityStations());
+        this.stations.sort((s1,s2) -> s1.getId().compareTo(s2.getId()));
+        this.nextStep = checkpoint.getNextStep();
+        createEngines();
+        
+        run();
+    }
 
     /**
      * Run the demo for one step by requesting all vehicles to act.
+     * In {@link SimulationMode#COLUMNAR} mode the vehicles are updated after the step; in
+     * {@link SimulationMode#TILED} mode the state stays in the worker processes.
+     * In {@link SimulationMode#EVENT_DRIVEN} mode the steps must be requested in order;
+     * any skipped earlier step is simulated as well.
      * @param step The current step number of the simulation.
      */
     public void step(int step)
     {
+        advance(step);
+        
+        exportState();
+        
+        company.getLog().flush();
+    }
+    
+    /**
+     * Executes the steps from {@code from} up to (not including) {@code to} with the engine
+     * selected by {@code mode}.
+     * @param from The first step to execute.
+     * @param to The first step that is not executed.
+     */
+    private void advanceRange(int from, int to)
+    {
+        if (eventEngine != null) {
+            // Sólo se despierta a cada vehículo en los pasos en los que le ocurre algo
+            eventEngine.advanceTo(to);
+            return;
+        }
+        
+        for(int step = from; step < to; step++) {
+            advance(step);
+        }
+    }
+    
+    /**
+     * Executes one step with the engine selected by {@code mode}.
+     * @param step The current step number of the simulation.
+     */
+    private void advance(int step)
+    {
+        if (fleetEngine != null) {
+            fleetEngine.step(step);
+            return;
+        }
+        
+        if (parallelStepper != null) {
+            parallelStepper.step(step);
+            return;
+        }
+        
+        if (virtualThreadStepper != null) {
+            virtualThreadStepper.step(step);
+            return;
+        }
+        
+        if (tiledSimulation != null) {
+            try {
+                tiledSimulation.step(step);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Lost a tile worker in step " + step, e);
+            }
+            return;
+        }
+        
+        if (eventEngine != null) {
+            eventEngine.advanceTo(step + 1);
+            return;
+        }
+        
         for(ElectricVehicle ev : this.vehicles){
             ev.act(step);
         }
@@ -93,13 +427,87 @@ public class EVDemo
         stations.clear();
                 
         this.company = new EVCompany("Compañía EVCharging Cáceres");
+        this.company.setChargingSessionMode(CHARGING_SESSIONS);
+        configureLog();
+        this.nextStep = 0;
 
-        createElectricVehicles();
-        createStations(); 
-        createChargers();
+        if (demo == DemoType.PARAMETRIC) {
+            // En modo TILED cada trabajador genera su parte del escenario: aquí no se crea nada
+            if (mode != SimulationMode.TILED) {
+                createParametricScenario();
+            }
+        }
+        else {
+            createElectricVehicles();
+            createStations(); 
+            createChargers();
+        }
         configureRoutes();
+        createEngines();
+        
         showInitialInfo();
     }
+    
+    /**
+     * Gives the company the log selected by {@code LOG_LEVEL}.
+     */
+    private void configureLog()
+    {
+        if (LOG_LEVEL != LogLevel.INFO) {
+            this.company.setLog(LOG_LEVEL == LogLevel.OFF ? SimulationLog.off() : new SimulationLog(LOG_LEVEL));
+        }
+    }
+    
+    /**
+     * Creates the engine selected by {@code mode} for the current vehicles, starting at {@code nextStep}.
+     */
+    private void createEngines()
+    {
+        this.fleetEngine = (mode == SimulationMode.COLUMNAR) ? new FleetEngine(company, vehicles) : null;
+        this.parallelStepper = (mode == SimulationMode.PARALLEL) ? new ParallelStepper(vehicles) : null;
+        this.eventEngine = (mode == SimulationMode.EVENT_DRIVEN) ? new EventDrivenEngine(company, vehicles, nextStep) : null;
+        
+        // Los hilos de los vehículos anteriores quedan aparcados en la barrera: se terminan
+        if (virtualThreadStepper != null) {
+            virtualThreadStepper.close();
+        }
+        this.virtualThreadStepper = (mode == SimulationMode.VIRTUAL_THREADS) ? new VirtualThreadStepper(vehicles, nextStep) : null;
+        
+        // Los procesos de los tiles anteriores se paran antes de lanzar los nuevos
+        if (tiledSimulation != null) {
+            tiledSimulation.close();
+            this.tiledSimulation = null;
+        }
+        if (mode == SimulationMode.TILED) {
+            try {
+                if (demo == DemoType.PARAMETRIC && vehicles.isEmpty()) {
+                    TilePartition partition = new TilePartition(PARAMETRIC_GRID_SIZE, PARAMETRIC_GRID_SIZE, TILE_COLUMNS, TILE_ROWS);
+                    this.tiledSimulation = new TiledSimulation(company, parametricGenerator(), demo.getNumVehiclesToCreate(),
+                                                               demo.getNumStationsToCreate(), demo.getNumChargersToCreate(),
+                                                               partition, Collections.emptyList());
+                }
+                else {
+                    TilePartition partition = TilePartition.covering(company, vehicles, TILE_COLUMNS, TILE_ROWS);
+                    this.tiledSimulation = new TiledSimulation(company, vehicles, partition, nextStep, Collections.emptyList());
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Cannot start the tile workers", e);
+            }
+        }
+    }
+    
+    /**
+     * Brings the state of the simulation back into this demo's objects after some steps.
+     * In {@link SimulationMode#COLUMNAR} mode the vehicles are updated. In {@link SimulationMode#TILED}
+     * mode the state is never brought back: the final information is streamed from the workers.
+     */
+    private void exportState()
+    {
+        if (fleetEngine != null) {
+            fleetEngine.exportState();
+        }
+    }
 
     
     /**
@@ -108,13 +516,13 @@ public class EVDemo
      * The vehicles list is sorted by plate using {@link ComparatorEVPlate}.
      */
     private void createElectricVehicles() {
-        Location [] locations = {new Location(10,13), new Location(8,4), new Location(8,4), new Location(15,10), 
-                                new Location(1,1), new Location(2,2), new Location(11,13), new Location(14,16)};
-        Location [] targetLocations = {new Location(1,1), new Location(19,19), new Location(12,17), new Location(4,4), 
-                                        new Location(1,10), new Location(5,5), new Location(8,7), new Location(19,19)};
+        Location [] locations = {Location.of(10,13), Location.of(8,4), Location.of(8,4), Location.of(15,10), 
+                                Location.of(1,1), Location.of(2,2), Location.of(11,13), Location.of(14,16)};
+        Location [] targetLocations = {Location.of(1,1), Location.of(19,19), Location.of(12,17), Location.of(4,4), 
+                                        Location.of(1,10), Location.of(5,5), Location.of(8,7), Location.of(19,19)};
                                         
         //createLocations(locations,targetLocations);
-        for (int i=0;i < DEMO.getNumVehiclesToCreate();i++){
+        for (int i=0;i < demo.getNumVehiclesToCreate();i++){
             
         String plate = "EV" + i;          // Matrícula
         String name = i + "CCC";          // Nombre
@@ -135,9 +543,9 @@ public class EVDemo
      * The stations list is sorted by ID using {@link ComparatorChargingStationId}.
      */
     private void createStations() {  
-        Location [] locations = {new Location(10,5), new Location(10,11), new Location(14,16), new Location(8,4)};
+        Location [] locations = {Location.of(10,5), Location.of(10,11), Location.of(14,16), Location.of(8,4)};
                                 
-        for (int i=0;i<DEMO.getNumStationsToCreate();i++){
+        for (int i=0;i<demo.getNumStationsToCreate();i++){
             ChargingStation station = new ChargingStation("Cáceres","CC0" + i,locations[i]);
             this.stations.add(station);
             this.company.addChargingStation(station);
@@ -146,6 +554,34 @@ public class EVDemo
         this.stations.sort((s1,s2) -> s1.getId().compareTo(s2.getId()));
     }
 
+    /**
+     * Creates the stations (with their chargers) and the vehicles of the {@link DemoType#PARAMETRIC}
+     * scenario with a {@link ScenarioGenerator}, streaming them into the company and the demo lists.
+     * Plates and identifiers are zero-padded, so both lists come out already sorted.
+     */
+    private void createParametricScenario() {
+        Location.ensureCacheExtent(PARAMETRIC_GRID_SIZE, PARAMETRIC_GRID_SIZE);
+        
+        ScenarioGenerator generator = parametricGenerator();
+        generator.generateStations(demo.getNumStationsToCreate(), demo.getNumChargersToCreate(), station -> {
+            this.stations.add(station);
+            this.company.addChargingStation(station);
+        });
+        generator.generateVehicles(company, demo.getNumVehiclesToCreate(), ev -> {
+            this.vehicles.add(ev);
+            this.company.addElectricVehicle(ev);
+        });
+    }
+
+    /**
+     * @return The generator of the {@link DemoType#PARAMETRIC} scenario.
+     */
+    private static ScenarioGenerator parametricGenerator() {
+        ScenarioGenerator generator = new ScenarioGenerator(PARAMETRIC_SEED, PARAMETRIC_GRID_SIZE, PARAMETRIC_GRID_SIZE);
+        generator.setDistribution(PARAMETRIC_DISTRIBUTION, 8);
+        return generator;
+    }
+
     /**
      * Creates a fixed number of {@link Charger} units for each {@link ChargingStation}
      * and orders the chargers within each station.
@@ -154,7 +590,7 @@ public class EVDemo
         // TODO: Complete the code here
         
         for (ChargingStation station : stations){
-            for (int i=0;i<DEMO.getNumChargersToCreate();i++){
+            for (int i=0;i<demo.getNumChargersToCreate();i++){
                 // Creates chargers with varying speed and fee based on index 'i'.
                 station.addCharger(new Charger(station.getId() + "_00" + i,((i+1)*20),((i+1)*0.20f)));
                 // TODO: Complete the code here
@@ -167,11 +603,11 @@ public class EVDemo
      /**
       * Instructs each {@link ElectricVehicle} to calculate its initial route.
       * This determines if an intermediate recharging stop is necessary.
+      * The stations of the whole fleet are searched in a single batch
+      * (see {@link EVCompany#calculateRoutes(List)}).
       */
      private void configureRoutes() {
-         for(ElectricVehicle ev : this.vehicles){
-             ev.calculateRoute();
-         }
+         company.calculateRoutes(this.vehicles);
      }
 
     /**
@@ -220,6 +656,25 @@ public class EVDemo
        
         // TODO: Complete the code here
 
+        if (company.isChargingSessionMode()) {
+            System.out.println("(-------------------)");
+            System.out.println("( Charging sessions )");
+            System.out.println("(-------------------)");
+            
+            if (tiledSimulation != null) {
+                try {
+                    tiledSimulation.writeSessionInfo(System.out, MAXSTEPS);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException("Cannot read the sessions of the tile workers", e);
+                }
+            }
+            else {
+                for (ChargingStation station : stations) {
+                    System.out.println(station.getSessionInfo(MAXSTEPS));
+                }
+            }
+        }
     }
     
     
@@ -1,4 +1,5 @@
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 /**
  * Model the common elements of an Electric Vehicle (EV) that operates 
  * within the simulation, moving towards a target and potentially recharging.
@@ -8,14 +9,32 @@ import java.util.List;
  */
 public class ElectricVehicle 
 {
-    private static final int CONSUMPTION_PER_STEP = 5;
+    /** kWh consumed by every movement step, unless the company sets another value (see {@link EVCompany#setConsumptionPerStep(int)}). */
+    static final int CONSUMPTION_PER_STEP = 5;
 
     private final String plate;             // Matrícula (7 caracteres)
     private final String name;              // Identificativo (ej. "Mercedes EQE")
     private final EVCompany company;       // Empresa a la que está suscrito
+    private VehicleRegistry registry;       // Registro de la flota en la que está (null si en ninguna)
+    private int registryIndex;              // Posición en ese registro
+    private final int consumption;          // kWh por paso de movimiento (el de su empresa)
     
-    private Location location;              // Posición actual
-    private Location targetLocation;  // Destino FINAL
+    /** Valor empaquetado que indica que no hay destino calculado (ninguna Location válida lo produce). */
+    static final long NO_LOCATION = -1L;
+
+    // Resultados de moveQuietly: lo que le queda por hacer al vehículo en el paso
+    /** The vehicle moved (or stayed still) and has nothing left to do in the step. */
+    static final int MOVED = 0;
+    /** The vehicle reached its {@link ChargingStation} and must call {@link #chargeAtStation(int)}. */
+    static final int AT_STATION = 1;
+    /** The vehicle reached its target; its arrival is still to be logged. */
+    static final int ARRIVED = 2;
+    /** The vehicle ran out of battery; the event is still to be logged. */
+    static final int BATTERY_DEAD = 3;
+
+    // Las posiciones se guardan empaquetadas con Location.pack para no manejar objetos en act()
+    private long location;                  // Posición actual
+    private long targetLocation;            // Destino FINAL
     
     private int idleCount;                  // Pasos parado en el destino
     private final int batteryCapacity;      // Capacidad máxima kWh
@@ -23,12 +42,12 @@ public class ElectricVehicle
     
     private int kwsCharged;                 // Total kWh cargados en su historia
     private int chargesCount;               // Total de recargas en su historia
-    private float chargesCost;             // Coste total de recargas
+    private long chargesCost;              // Coste total de recargas (unidades de Money)
     /**
      * El destino INMEDIATO al que se dirige el vehículo.
      * Puede ser el 'targetLocation' o la 'Location' de una ChargingStation.
      */
-    private Location currentDestination;
+    private long currentDestination;
     
     /**
      * La estación de carga específica a la que nos dirigimos (si aplica).
@@ -38,6 +57,13 @@ public class ElectricVehicle
     
     
     private Charger selectedCharger = null;
+    
+    // Modo de sesiones de carga (EVCompany.isChargingSessionMode): el cargador queda
+    // ocupado varios pasos y, si no hay ninguno libre, el vehículo espera en la cola de la estación
+    private boolean waitingForCharger;      // En la cola de targetChargingStation
+    private int waitingSince;               // Paso en el que entró en la cola
+    private int sessionStartStep;           // Paso en el que empezó la sesión actual
+    private int sessionEndStep;             // Paso en el que termina la sesión y se libera el cargador
     /**
      * Bandera para saber si el vehículo ha terminado su simulación.
      * Se activa al llegar al 'targetLocation' o si se queda sin batería
@@ -68,22 +94,27 @@ public class ElectricVehicle
         this.plate = plate;
         this.name = name;
         this.company = company;
-        this.location = initialLocation;
-        this.targetLocation = targetLocation;
+        this.location = initialLocation.pack();
+        this.targetLocation = targetLocation.pack();
         this.batteryCapacity = batteryCapacity;
+        this.consumption = company.consumptionForNewVehicle();
 
         // Valores iniciales
         this.batteryLevel = batteryCapacity; // Asumimos que empieza lleno
         this.idleCount = 0;
         this.kwsCharged = 0;
         this.chargesCount = 0;
-        this.chargesCost = 0.0f;
+        this.chargesCost = 0L;
         
         // La ruta se calculará en el primer 'act()'
-        this.currentDestination = null; 
+        this.currentDestination = NO_LOCATION; 
         this.targetChargingStation = null;
         this.hasFinishedSimulation = false;
         this.arrivingStep = -1;
+        
+        // Se numera al añadirlo a la flota de la empresa (EVCompany.addElectricVehicle)
+        this.registry = null;
+        this.registryIndex = -1;
     }
         
         /**
@@ -93,7 +124,7 @@ public class ElectricVehicle
     public Location getLocation()
     {
         
-        return location;
+        return Location.unpack(location);
     }
 
     /**
@@ -104,7 +135,7 @@ public class ElectricVehicle
     public void setLocation(Location location)
     {
         if (location != null) {
-            this.location = location;
+            this.location = location.pack();
         } else {
             throw new NullPointerException("La location no puede ser nula");
         }
@@ -116,7 +147,7 @@ public class ElectricVehicle
      */
     public Location getTargetLocation()
     {
-        return targetLocation;
+        return Location.unpack(targetLocation);
     }
 
     /**
@@ -153,7 +184,7 @@ public class ElectricVehicle
     {
         if (location == null) throw new IllegalArgumentException ("targetLocation must not be null // setTargetLocation (ElectricVehicle)");
         
-        targetLocation = location;
+        targetLocation = location.pack();
     }
     
     /**
@@ -162,29 +193,65 @@ public class ElectricVehicle
      * {@link ChargingStation} and sets it as the {@code rechargingLocation}.
      */
     public void calculateRoute() {
-        if (hasFinishedSimulation) {
+        if (planDirectRoute()) {
             return;
         }
 
+        calculateRechargingPosition();
+        followRechargingPosition();
+    }
+    
+    /**
+     * First part of {@link #calculateRoute()}: plans the route when no recharge is needed.
+     * @return {@code false} if the vehicle needs the nearest station within
+     * {@link #getRechargingRadius()} steps, to be given with {@link #planRechargingStop(ChargingStation)}.
+     */
+    boolean planDirectRoute() {
+        if (hasFinishedSimulation) {
+            return true;
+        }
+
         int distanceToFinal = distanceToTheTargetLocation();
 
         if (enoughBattery(distanceToFinal)) {
             
             targetChargingStation = null;
             currentDestination = targetLocation;
-            return;
+            return true;
         }
-
-        calculateRechargingPosition();
-
+        return false;
+    }
+    
+    /**
+     * @return The steps the vehicle can travel with its current battery, i.e. the radius
+     * of the search of {@link #calculateRechargingPosition()}.
+     */
+    int getRechargingRadius() {
+        return batteryLevel / consumption;
+    }
+    
+    /**
+     * Last part of {@link #calculateRoute()} for a vehicle whose station has been found by a
+     * batched search (see {@link EVCompany#calculateRoutes(List)}).
+     * @param station The nearest station within {@link #getRechargingRadius()}, or null if there is none.
+     */
+    void planRechargingStop(ChargingStation station) {
+        targetChargingStation = station;
+        followRechargingPosition();
+    }
+    
+    /**
+     * Heads to the chosen station, or ends the simulation if no station is within reach.
+     */
+    private void followRechargingPosition() {
         if (targetChargingStation == null) {
             
             hasFinishedSimulation = true;
-            currentDestination = null;
+            currentDestination = NO_LOCATION;
             return;
         }
 
-        currentDestination = targetChargingStation.getLocation();
+        currentDestination = targetChargingStation.getLocation().pack();
     }
     
     /**
@@ -195,11 +262,11 @@ public class ElectricVehicle
     {
         if (getRechargingLocation() == null) {
             
-            return location.toString() + ", " + targetLocation.toString();
+            return getLocation().toString() + ", " + getTargetLocation().toString();
             
         } else {
             
-            return location.toString() + ", " + getRechargingLocation().toString() + ", " + targetLocation.toString();
+            return getLocation().toString() + ", " + getRechargingLocation().toString() + ", " + getTargetLocation().toString();
         }
     }
     
@@ -210,7 +277,7 @@ public class ElectricVehicle
      */
     public boolean enoughBattery(int distanceToTargetLocation)
     {
-        int kwhNeeded = distanceToTargetLocation * CONSUMPTION_PER_STEP;
+        int kwhNeeded = distanceToTargetLocation * consumption;
         return batteryLevel >= kwhNeeded;
 
     }
@@ -223,35 +290,9 @@ public class ElectricVehicle
      */
     public void calculateRechargingPosition()
     {
-        targetChargingStation = null;
-
-        List<ChargingStation> allStations = company.getCityStations();
-        
-        if (allStations == null || allStations.isEmpty()) {
-            
-            return;
-        }
-
-        ChargingStation bestStation = null;
-        int bestDistance = Integer.MAX_VALUE;
-
-        for (ChargingStation station : allStations) {
-            
-            Location stationLoc = station.getLocation();
-            int distanceToStation = location.distance(stationLoc);
-
-            
-            if (enoughBattery(distanceToStation)) {
-                
-                if (distanceToStation < bestDistance) {
-                    
-                    bestDistance = distanceToStation;
-                    bestStation = station;
-                }
-            }
-        }
-
-        targetChargingStation = bestStation;
+        // El índice espacial de la compañía devuelve la misma estación que recorrer
+        // todas las estaciones buscando la más cercana alcanzable con la batería actual
+        targetChargingStation = company.getNearestReachableStation(location, getRechargingRadius());
     }
     
     
@@ -298,7 +339,7 @@ public class ElectricVehicle
       */
     public int distanceToTheTargetLocation()
     {
-        return this.location.distance(this.targetLocation);
+        return Location.distance(this.location, this.targetLocation);
     }
 
          /**
@@ -315,24 +356,58 @@ public class ElectricVehicle
         int kwhToCharge = this.batteryCapacity - this.batteryLevel;
         
         //Usa el cargador guardado y llama a otro metodo
-        float costOfThisCharge = this.selectedCharger.recharge(this, kwhToCharge);
+        long costOfThisCharge = this.selectedCharger.rechargeUnits(this, kwhToCharge, step);
+        this.selectedCharger.release(this);
         
         //Actualizar los campos de este vehiculo
         this.incrementCharges();
-        this.incrementChargesCost(costOfThisCharge);
+        this.chargesCost += costOfThisCharge;
         this.batteryLevel = this.batteryCapacity;
         
         this.calculateRoute();
         
-        String message = this.plate +  " recharges: " + kwhToCharge + " kwh at charger: "+
-        this.selectedCharger.getId() + " with cost: "+ costOfThisCharge+ " euros";
-        
-        System.out.println( " (step: "+ step + " -ElectricVehicle: "+message);
+        company.getLog().recharge(this, this.selectedCharger, kwhToCharge, costOfThisCharge, step);
         
         //Limpiar el cargador
         this.selectedCharger = null;
     } 
     
+    /**
+     * Builds the log line written after every recharge (see {@link SimulationLog}).
+     * @param plate The plate of the recharged vehicle.
+     * @param kwh The kWh recharged.
+     * @param chargerId The ID of the {@link Charger} used.
+     * @param cost The cost of the recharge, in units of {@link Money}.
+     * @param step The current step of the simulation.
+     * @return The message describing the recharge.
+     */
+    static String rechargeMessage(String plate, int kwh, String chargerId, long cost, int step)
+    {
+        StringBuilder message = new StringBuilder(96);
+        appendRechargeMessage(message, plate, kwh, chargerId, cost, step);
+        return message.toString();
+    }
+    
+    /**
+     * Variant of {@link #rechargeMessage(String, int, String, long, int)} for a cost in euros.
+     */
+    static String rechargeMessage(String plate, int kwh, String chargerId, float cost, int step)
+    {
+        return rechargeMessage(plate, kwh, chargerId, Money.ofEuros(cost), step);
+    }
+    
+    /**
+     * Writes the log line of a recharge (see {@link #rechargeMessage(String, int, String, long, int)}).
+     */
+    static void appendRechargeMessage(StringBuilder text, String plate, int kwh, String chargerId, long cost, int step)
+    {
+        text.append(" (step: ").append(step).append(" -ElectricVehicle: ").append(plate)
+            .append(" recharges: ").append(kwh).append(" kwh at charger: ").append(chargerId)
+            .append(" with cost: ");
+        Money.appendExactEuros(text, cost);
+        text.append(" euros");
+    }
+    
     /**
      * Increments the count of recharges performed by this vehicle.
      */
@@ -347,7 +422,7 @@ public class ElectricVehicle
      */
     public void incrementChargesCost(float cost)
     {
-         chargesCost += cost;
+         chargesCost += Money.ofEuros(cost);
     }   
      
      /**
@@ -357,23 +432,61 @@ public class ElectricVehicle
       */
      public void act(int step){
          
+         if (move(step)) {
+             
+             chargeAtStation(step);
+         }
+     }
+     
+     /**
+      * First half of {@link #act(int)}: everything a vehicle does on its own during a step
+      * (routing, moving, spending battery, arriving). It never touches a {@link Charger},
+      * so different vehicles can run it concurrently; the events it logs, though, are only
+      * in the order of a sequential step if it runs sequentially (see {@link #moveQuietly(int)}).
+      * @param step The current step of the simulation.
+      * @return {@code true} if the vehicle has just reached its {@link ChargingStation} and
+      * must call {@link #chargeAtStation(int)} to finish the step.
+      */
+     boolean move(int step){
+         
+         int outcome = moveQuietly(step);
+         logMovement(outcome, step);
+         return outcome == AT_STATION;
+     }
+     
+     /**
+      * Variant of {@link #move(int)} that logs nothing, for engines that move the vehicles
+      * concurrently: they call {@link #logMovement(int, int)} afterwards, in fleet order, so
+      * the log gets the events in the order of a sequential step.
+      * @param step The current step of the simulation.
+      * @return What is left to do in the step: {@link #MOVED}, {@link #AT_STATION},
+      * {@link #ARRIVED} or {@link #BATTERY_DEAD}.
+      */
+     int moveQuietly(int step){
+         
          if (hasFinishedSimulation) {
              
-            return;
+            return MOVED;
+        }
+        
+        if (selectedCharger != null || waitingForCharger) {
+            
+            // Cargando o esperando cargador: todo el trabajo del paso lo hace chargeAtStation
+            return AT_STATION;
         }
 
-        if (currentDestination == null) {
+        if (currentDestination == NO_LOCATION) {
             
             calculateRoute();
             
-            if (currentDestination == null) {
+            if (currentDestination == NO_LOCATION) {
                 
             hasFinishedSimulation = true;
-            return;
+            return MOVED;
             }
         }
 
-        if (location.equals(targetLocation)) {
+        if (location == targetLocation) {
             
             if (arrivingStep == -1) {
                 
@@ -381,46 +494,153 @@ public class ElectricVehicle
             }
             
             idleCount++;
-            return;
+            return MOVED;
         }
 
-        Location next = location.nextLocation(currentDestination);
-        setLocation(next);
+        location = Location.nextLocation(location, currentDestination);
 
         reduceBatteryLevel();
 
         if (batteryLevel <= 0) {
             
             hasFinishedSimulation = true;
-            return;
+            return BATTERY_DEAD;
         }
 
-        if (location.equals(currentDestination)) {
-
-            if (targetChargingStation != null && location.equals(targetChargingStation.getLocation())) {
-
-                Charger freeCharger = targetChargingStation.getFreeCharger();
+        if (location == currentDestination) {
 
-                if (freeCharger == null) {
-                    
-                    hasFinishedSimulation = true;
-                    return;
-                }
+            if (targetChargingStation != null && location == targetChargingStation.getLocation().pack()) {
 
-                this.selectedCharger = freeCharger;
-                recharge(step);
-                return;
+                return AT_STATION;
             }
 
-            if (location.equals(targetLocation)) {
+            if (location == targetLocation) {
                 
                 hasFinishedSimulation = true;
                 arrivingStep = step;
-                return;
+                return ARRIVED;
             }
 
             calculateRoute();
         }
+        return MOVED;
+    }
+     
+    /**
+     * Logs the event of the outcome of {@link #moveQuietly(int)}, if it has one. The vehicle has
+     * finished its simulation in that case, so its location is still the one it stopped at.
+     * @param outcome The outcome of the movement.
+     * @param step The current step of the simulation.
+     */
+    void logMovement(int outcome, int step){
+        
+        if (outcome == ARRIVED) {
+            company.getLog().arrival(this, location, step);
+        }
+        else if (outcome == BATTERY_DEAD) {
+            company.getLog().batteryDead(this, location, step);
+        }
+    }
+     
+    /**
+     * Second half of {@link #act(int)}: takes the fastest free {@link Charger} of the
+     * station just reached and recharges, or ends the simulation if all of them are busy.
+     * In charging-session mode ({@link EVCompany#isChargingSessionMode()}) the vehicle
+     * instead starts a session that keeps the charger for several steps, or joins the
+     * station's queue, and later calls advance the session.
+     * Must only be called right after {@link #move(int)} returned {@code true}.
+     * @param step The current step of the simulation.
+     */
+    void chargeAtStation(int step){
+        
+        if (selectedCharger != null) {
+            
+            if (step >= sessionEndStep) {
+                finishChargingSession(step);
+            }
+            return;
+        }
+        
+        if (waitingForCharger) {
+            
+            // La estación le asignará un cargador cuando quede uno libre
+            return;
+        }
+        
+        Charger freeCharger = targetChargingStation.tryAcquireCharger(this);
+
+        if (freeCharger == null) {
+            
+            company.getLog().noFreeCharger(this, targetChargingStation, step);
+            
+            if (company.isChargingSessionMode()) {
+                waitingForCharger = true;
+                waitingSince = step;
+                targetChargingStation.enqueue(this);
+                return;
+            }
+            hasFinishedSimulation = true;
+            return;
+        }
+
+        if (company.isChargingSessionMode()) {
+            targetChargingStation.recordSessionStart(0);
+            beginChargingSession(freeCharger, step);
+            return;
+        }
+
+        this.selectedCharger = freeCharger;
+        recharge(step);
+    }
+    
+    /**
+     * Starts a charging session on a {@link Charger} already reserved for this vehicle.
+     * The session keeps the charger for the next {@code ceil(kWh / chargingSpeed)} steps
+     * (at least one) and ends during the last of them.
+     * @param charger The reserved charger.
+     * @param step The current step of the simulation.
+     */
+    void beginChargingSession(Charger charger, int step){
+        
+        int kwhToCharge = this.batteryCapacity - this.batteryLevel;
+        int duration = Math.max(1, (kwhToCharge + charger.getChargingSpeed() - 1) / charger.getChargingSpeed());
+        
+        this.selectedCharger = charger;
+        this.waitingForCharger = false;
+        this.sessionStartStep = step;
+        this.sessionEndStep = step + duration;
+    }
+    
+    /**
+     * Ends the current charging session: the battery is recharged and paid for, the charger
+     * is released and the station hands it to the next vehicle in its queue.
+     * @param step The current step of the simulation.
+     */
+    private void finishChargingSession(int step){
+        
+        ChargingStation station = this.targetChargingStation;
+        Charger charger = this.selectedCharger;
+        int busySteps = step - this.sessionStartStep;
+        
+        recharge(step);
+        
+        station.chargingSessionFinished(charger, busySteps, step);
+    }
+    
+    /**
+     * @return Whether this vehicle is waiting in the queue of a {@link ChargingStation}.
+     */
+    public boolean isWaitingForCharger(){
+        
+        return waitingForCharger;
+    }
+    
+    /**
+     * @return The step in which this vehicle joined its station's queue (meaningful while waiting).
+     */
+    int getWaitingSince(){
+        
+        return waitingSince;
     }
      
     /**
@@ -429,7 +649,7 @@ public class ElectricVehicle
      */
     public void reduceBatteryLevel(){
         
-        batteryLevel -= CONSUMPTION_PER_STEP;
+        batteryLevel -= consumption;
         
         if (batteryLevel < 0) {
             
@@ -444,27 +664,65 @@ public class ElectricVehicle
     @Override
     public String toString(){
         
-        String result = "(ElectricVehicle: ";
-        result += name + ", ";
-        result += plate + ", ";
-        result += batteryCapacity + "kwh, ";
-        result += batteryLevel + "kwh, ";
-        result += chargesCount + ", ";
-        result += String.format("%.1f€", chargesCost) + ", ";
-        result += idleCount + ", ";
-        result += location.toString();
-
-        Location rechargeLoc = getRechargingLocation();
+        StringBuilder result = new StringBuilder(96);
+        try {
+            appendInitialFinalInfo(result);
+        }
+        catch (IOException e) {
+            // Un StringBuilder nunca lanza IOException
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+    
+    /**
+     * Streaming variant of {@link #getInitialFinalInfo()}: writes the same text to an
+     * {@link Appendable} (a buffered file, {@code System.out}...) without building it first.
+     * @param out Where the text is written.
+     * @throws IOException If {@code out} cannot be written.
+     */
+    public void appendInitialFinalInfo(Appendable out) throws IOException {
         
-        if (rechargeLoc != null) {
+        out.append("(ElectricVehicle: ")
+           .append(name).append(", ")
+           .append(plate).append(", ")
+           .append(Integer.toString(batteryCapacity)).append("kwh, ")
+           .append(Integer.toString(batteryLevel)).append("kwh, ")
+           .append(Integer.toString(chargesCount)).append(", ");
+        Money.appendEuros(out, chargesCost, 1);
+        out.append("€, ")
+           .append(Integer.toString(idleCount)).append(", ");
+        appendLocation(out, location);
+        
+        if (targetChargingStation != null) {
             
-        result += ", " + rechargeLoc.toString();
+            out.append(", ");
+            appendLocation(out, targetChargingStation.getLocation().pack());
         }
-
-        result += ", " + targetLocation.toString();
-        result += ")";
-
-        return result;
+        
+        out.append(", ");
+        appendLocation(out, targetLocation);
+        out.append(')');
+    }
+    
+    /**
+     * Writes an amount of money as {@code String.format("%.1f€", ...)} does.
+     */
+    private static String formatEuros(long amount) {
+        
+        StringBuilder text = new StringBuilder(12);
+        Money.appendEuros(text, amount, 1);
+        return text.append('€').toString();
+    }
+    
+    /**
+     * Writes a packed location as {@link Location#toString()} does.
+     */
+    private static void appendLocation(Appendable out, long location) throws IOException {
+        
+        out.append(Integer.toString(Location.unpackX(location)))
+           .append('-')
+           .append(Integer.toString(Location.unpackY(location)));
     }
 
     /**
@@ -479,9 +737,9 @@ public class ElectricVehicle
                       + batteryCapacity + "kwh, "
                       + batteryLevel + "kwh, "
                       + chargesCount + ", "
-                      + String.format("%.1f€", chargesCost) + ", "
+                      + formatEuros(chargesCost) + ", "
                       + idleCount + ", "
-                      + location.toString();
+                      + getLocation().toString();
 
         Location rechargeLoc = getRechargingLocation();
         
@@ -490,7 +748,7 @@ public class ElectricVehicle
             evInfo += ", " + rechargeLoc.toString();
         }
 
-        evInfo += ", " + targetLocation.toString();
+        evInfo += ", " + getTargetLocation().toString();
 
         return "(step: " + step + " - ElectricVehicle: " + evInfo + ")";
     }
@@ -523,4 +781,159 @@ public class ElectricVehicle
     public String getId() {
         return plate;
     }
-}
\ No newline at end of file
+    
+    // Acceso al estado interno para los motores de simulación alternativos (FleetEngine)
+    
+    EVCompany getCompany() {
+        return company;
+    }
+    
+    /**
+     * @return The registry of the fleet this vehicle was last added to, or {@code null} if it
+     * has not been added to any (see {@link EVCompany#addElectricVehicle(ElectricVehicle)}).
+     */
+    VehicleRegistry getRegistry() {
+        return registry;
+    }
+    
+    /**
+     * @return The position of this vehicle in {@link #getRegistry()}, or -1 if it has none.
+     */
+    int getRegistryIndex() {
+        return registryIndex;
+    }
+    
+    /**
+     * Records the position of this vehicle in the registry of the fleet it has been added to.
+     */
+    void register(VehicleRegistry registry, int index) {
+        this.registry = registry;
+        this.registryIndex = index;
+    }
+    
+    long getPackedLocation() {
+        return location;
+    }
+    
+    long getPackedTargetLocation() {
+        return targetLocation;
+    }
+    
+    long getPackedDestination() {
+        return currentDestination;
+    }
+    
+    float getChargesCost() {
+        return Money.toFloat(chargesCost);
+    }
+    
+    long getChargesCostUnits() {
+        return chargesCost;
+    }
+    
+    ChargingStation getTargetChargingStation() {
+        return targetChargingStation;
+    }
+    
+    boolean hasFinishedSimulation() {
+        return hasFinishedSimulation;
+    }
+    
+    /**
+     * Number of steps until something other than plain movement happens to this vehicle:
+     * reaching its immediate destination or running out of battery. Only meaningful while
+     * the vehicle is on its way (not finished, with a destination and away from its target).
+     * @return The number of {@link #act(int)} calls until the next event (at least 1).
+     */
+    int stepsToNextEvent() {
+        int toDestination = Location.distance(location, currentDestination);
+        int toEmptyBattery = (batteryLevel + consumption - 1) / consumption;
+        
+        return Math.max(1, Math.min(toDestination, toEmptyBattery));
+    }
+    
+    /**
+     * Applies {@code moves} uneventful steps at once: the vehicle advances towards its
+     * immediate destination and spends the corresponding battery. The caller guarantees
+     * that {@code moves} is smaller than {@link #stepsToNextEvent()}.
+     * @param moves The number of steps to skip.
+     */
+    void skipMoves(int moves) {
+        location = Location.advance(location, currentDestination, moves);
+        batteryLevel -= moves * consumption;
+    }
+    
+    /**
+     * Accounts for a number of consecutive steps spent idle at the target, exactly as
+     * the same number of {@link #act(int)} calls would.
+     * @param firstStep The first of the idle steps.
+     * @param steps The number of idle steps.
+     */
+    void addIdleSteps(int firstStep, int steps) {
+        if (steps <= 0) return;
+        
+        if (arrivingStep == -1) {
+            arrivingStep = firstStep;
+        }
+        idleCount += steps;
+    }
+    
+    /**
+     * Overwrites the dynamic state of the vehicle, e.g. with the results of a {@link FleetEngine} run.
+     * @param location The packed current location.
+     * @param destination The packed immediate destination, or {@link #NO_LOCATION}.
+     * @param batteryLevel The current battery level.
+     * @param idleCount The steps spent idle at the target.
+     * @param chargesCount The number of recharges performed.
+     * @param chargesCost The total cost of the recharges, in units of {@link Money}.
+     * @param station The station the vehicle is heading to, or null.
+     * @param finished Whether the vehicle has finished its simulation.
+     * @param arrivingStep The step it arrived at its target, or -1.
+     */
+    void restoreState(long location, long destination, int batteryLevel, int idleCount, int chargesCount,
+                      long chargesCost, ChargingStation station, boolean finished, int arrivingStep)
+    {
+        this.location = location;
+        this.currentDestination = destination;
+        this.batteryLevel = batteryLevel;
+        this.idleCount = idleCount;
+        this.chargesCount = chargesCount;
+        this.chargesCost = chargesCost;
+        this.targetChargingStation = station;
+        this.hasFinishedSimulation = finished;
+        this.arrivingStep = arrivingStep;
+    }
+    
+    Charger getSelectedCharger() {
+        return selectedCharger;
+    }
+    
+    int getSessionStartStep() {
+        return sessionStartStep;
+    }
+    
+    int getSessionEndStep() {
+        return sessionEndStep;
+    }
+    
+    /**
+     * Overwrites the charging-session state of the vehicle (see {@link #restoreState}).
+     * @param charger The charger of the current session, or null.
+     * @param waiting Whether the vehicle is waiting in its station's queue.
+     * @param waitingSince The step it joined the queue.
+     * @param sessionStartStep The step the current session started.
+     * @param sessionEndStep The step the current session ends.
+     */
+    void restoreSession(Charger charger, boolean waiting, int waitingSince, int sessionStartStep, int sessionEndStep)
+    {
+        // El cargador de la sesión vuelve a quedar reservado para este vehículo
+        if (charger != null && !charger.isReservedFor(this) && !charger.tryReserve(this)) {
+            throw new IllegalStateException("Charger " + charger.getId() + " already reserved in restoreSession (ElectricVehicle)");
+        }
+        this.selectedCharger = charger;
+        this.waitingForCharger = waiting;
+        this.waitingSince = waitingSince;
+        this.sessionStartStep = sessionStartStep;
+        this.sessionEndStep = sessionEndStep;
+    }
+}
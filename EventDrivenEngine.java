@@ -0,0 +1,200 @@
+import java.util.*;
+
+/**
+ * Discrete-event alternative to calling {@link ElectricVehicle#act(int)} on every vehicle in
+ * every step. Movement along the Chebyshev line is fully predictable, so the engine computes
+ * analytically when the next interesting event of each vehicle happens (reaching its station
+ * or its target, or running out of battery) and only wakes the vehicle at that step.
+ * The uneventful moves in between are applied in one go with {@link ElectricVehicle#skipMoves(int)},
+ * and the idle steps of vehicles waiting at their target are added in bulk when the engine
+ * stops, so idle counts and arriving steps match the tick engine exactly.
+ *
+ * Vehicles that wake in the same step act in fleet order, which keeps the order of the
+ * recharges (and of their messages) identical to {@link SimulationMode#SEQUENTIAL}.
+ * Only instantaneous recharges are supported (not {@link EVCompany#isChargingSessionMode()}).
+ * @author DP classes
+ * @version 2025
+ */
+public class EventDrivenEngine
+{
+    private static final int NOT_SCHEDULED = -1;
+
+    private final ElectricVehicle[] vehicles;
+
+    // Cola de prioridad de eventos: (paso << 32) | índice del vehículo
+    private long[] events;
+    private int numEvents;
+
+    // Primer paso cuyos movimientos aún no se han aplicado a cada vehículo programado
+    private final int[] pendingFrom;
+
+    // Vehículos parados en su destino final y paso desde el que no se les ha contado la espera
+    private final int[] idleVehicles;
+    private final int[] idleSince;
+    private int numIdle;
+
+    // Primer paso aún no simulado
+    private int currentStep;
+
+    /**
+     * Constructor for objects of class EventDrivenEngine. The first simulated step is 0.
+     * @param company The company whose charging network the vehicles use.
+     * @param fleet The vehicles to simulate, in fleet order.
+     */
+    public EventDrivenEngine(EVCompany company, List<ElectricVehicle> fleet)
+    {
+        this(company, fleet, 0);
+    }
+
+    /**
+     * Constructor for objects of class EventDrivenEngine starting at a later step, e.g. to
+     * continue a simulation restored from a {@link SimulationCheckpoint}.
+     * @param company The company whose charging network the vehicles use.
+     * @param fleet The vehicles to simulate, in fleet order, in their state before {@code firstStep}.
+     * @param firstStep The first step to simulate.
+     */
+    public EventDrivenEngine(EVCompany company, List<ElectricVehicle> fleet, int firstStep)
+    {
+        if (company == null || fleet == null) throw new IllegalArgumentException("null company or fleet in EventDrivenEngine");
+        if (company.isChargingSessionMode()) throw new IllegalStateException("EventDrivenEngine only supports instantaneous recharges");
+
+        int n = fleet.size();
+        this.vehicles = fleet.toArray(new ElectricVehicle[0]);
+        this.events = new long[Math.max(n, 16)];
+        this.pendingFrom = new int[n];
+        this.idleVehicles = new int[n];
+        this.idleSince = new int[n];
+        this.currentStep = firstStep;
+
+        for (int i = 0; i < n; i++) {
+            schedule(i, firstStep);
+        }
+    }
+
+    /**
+     * @return The number of vehicles in the engine.
+     */
+    public int size()
+    {
+        return vehicles.length;
+    }
+
+    /**
+     * @return The first step that has not been simulated yet.
+     */
+    public int getCurrentStep()
+    {
+        return currentStep;
+    }
+
+    /**
+     * Simulates every step from the current one up to (not including) {@code endStep}.
+     * When it returns, every vehicle is in the same state the tick engine would leave it in
+     * after step {@code endStep - 1}.
+     * @param endStep The first step that is not simulated. Earlier steps are ignored.
+     */
+    public void advanceTo(int endStep)
+    {
+        if (endStep <= currentStep) return;
+
+        while (numEvents > 0 && (int) (events[0] >>> 32) < endStep) {
+            long event = poll();
+            int step = (int) (event >>> 32);
+            int i = (int) event;
+
+            ElectricVehicle ev = vehicles[i];
+            ev.skipMoves(step - pendingFrom[i]);
+            ev.act(step);
+            schedule(i, step + 1);
+        }
+
+        // Los vehículos que no han despertado avanzan hasta el final del horizonte
+        for (int i = 0; i < vehicles.length; i++) {
+            if (pendingFrom[i] != NOT_SCHEDULED && pendingFrom[i] < endStep) {
+                vehicles[i].skipMoves(endStep - pendingFrom[i]);
+                pendingFrom[i] = endStep;
+            }
+        }
+
+        for (int k = 0; k < numIdle; k++) {
+            int i = idleVehicles[k];
+            vehicles[i].addIdleSteps(idleSince[i], endStep - idleSince[i]);
+            idleSince[i] = endStep;
+        }
+
+        currentStep = endStep;
+    }
+
+    /**
+     * Decides when a vehicle must act next, counting from {@code fromStep}.
+     * @param i The index of the vehicle.
+     * @param fromStep The first step the vehicle has not lived yet.
+     */
+    private void schedule(int i, int fromStep)
+    {
+        ElectricVehicle ev = vehicles[i];
+        pendingFrom[i] = NOT_SCHEDULED;
+
+        if (ev.hasFinishedSimulation()) return;
+
+        if (ev.getPackedDestination() == ElectricVehicle.NO_LOCATION) {
+            // Necesita calcular su ruta: act() lo hará en el siguiente paso
+            pendingFrom[i] = fromStep;
+            offer(fromStep, i);
+            return;
+        }
+
+        if (ev.getPackedLocation() == ev.getPackedTargetLocation()) {
+            // Ya no volverá a moverse: sólo acumula pasos de espera
+            idleVehicles[numIdle++] = i;
+            idleSince[i] = fromStep;
+            return;
+        }
+
+        pendingFrom[i] = fromStep;
+        offer(fromStep + ev.stepsToNextEvent() - 1, i);
+    }
+
+    /**
+     * Adds an event to the heap.
+     */
+    private void offer(int step, int i)
+    {
+        if (numEvents == events.length) {
+            events = Arrays.copyOf(events, numEvents * 2);
+        }
+        long event = ((long) step << 32) | i;
+
+        int k = numEvents++;
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (events[parent] <= event) break;
+            events[k] = events[parent];
+            k = parent;
+        }
+        events[k] = event;
+    }
+
+    /**
+     * Removes and returns the earliest event of the heap (ties are broken by vehicle index).
+     */
+    private long poll()
+    {
+        long first = events[0];
+        long last = events[--numEvents];
+
+        int k = 0;
+        int half = numEvents >>> 1;
+        while (k < half) {
+            int child = 2 * k + 1;
+            if (child + 1 < numEvents && events[child + 1] < events[child]) child++;
+            if (last <= events[child]) break;
+            events[k] = events[child];
+            k = child;
+        }
+        if (numEvents > 0) {
+            events[k] = last;
+        }
+        return first;
+    }
+}
@@ -0,0 +1,208 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.*;
+
+/**
+ * Test implementation of the {@link EventDrivenEngine} class.
+ * Checks that the engine is interchangeable with the tick engine, i.e. calling
+ * {@link ElectricVehicle#act(int)} on every vehicle in every step: it must write, event by
+ * event and at {@link LogLevel#DEBUG}, the same log, and leave the vehicles (idle counts and
+ * arriving steps included) and the stations in the same state.
+ * @author DP classes
+ * @version 2025
+ */
+public class EventDrivenEngineTest
+{
+    private static final int VEHICLES = 3_000;
+    private static final int STATIONS = 60;
+    private static final int GRID_SIZE = 150;
+    private static final int STEPS = 120;
+    private static final long SEED = 42L;
+
+    private EVCompany company;
+    private List<ChargingStation> stations;
+    private List<ElectricVehicle> fleet;
+    private StringWriter logText;
+    private SimulationLog log;
+
+    /**
+     * Default constructor for test class EventDrivenEngineTest.
+     */
+    public EventDrivenEngineTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        createScenario(false);
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+        log.close();
+    }
+
+    /**
+     * Test that a run of the engine over the whole horizon matches the tick engine.
+     */
+    @Test
+    public void testMatchesTickEngine() throws IOException
+    {
+        tickRun(0, STEPS);
+        String expected = result();
+
+        createScenario(false);
+        EventDrivenEngine engine = new EventDrivenEngine(company, fleet);
+        assertEquals(VEHICLES, engine.size());
+        assertEquals(0, engine.getCurrentStep());
+        engine.advanceTo(STEPS);
+        assertEquals(STEPS, engine.getCurrentStep());
+        assertEquals(expected, result());
+    }
+
+    /**
+     * Test that advancing the engine in several stretches, some of them empty or backwards,
+     * gives the same result as advancing it in one go.
+     */
+    @Test
+    public void testAdvanceInStretches() throws IOException
+    {
+        tickRun(0, STEPS);
+        String expected = result();
+
+        createScenario(false);
+        EventDrivenEngine engine = new EventDrivenEngine(company, fleet);
+        int[] ends = {1, 17, 17, 5, 60, 61, 99, STEPS};
+        int reached = 0;
+        for (int end : ends) {
+            engine.advanceTo(end);
+            reached = Math.max(reached, end);
+            assertEquals(reached, engine.getCurrentStep());
+        }
+        assertEquals(STEPS, engine.getCurrentStep());
+        assertEquals(expected, result());
+    }
+
+    /**
+     * Test that the engine can take over a run the tick engine has started, as when a
+     * simulation is resumed from a checkpoint.
+     */
+    @Test
+    public void testContinuesTickRun() throws IOException
+    {
+        tickRun(0, STEPS);
+        String expected = result();
+
+        createScenario(false);
+        tickRun(0, STEPS / 3);
+        EventDrivenEngine engine = new EventDrivenEngine(company, fleet, STEPS / 3);
+        assertEquals(STEPS / 3, engine.getCurrentStep());
+        engine.advanceTo(STEPS);
+        assertEquals(expected, result());
+    }
+
+    /**
+     * Test that the engine rejects a company in charging-session mode, and null arguments.
+     */
+    @Test
+    public void testRejectsChargingSessions()
+    {
+        try {
+            new EventDrivenEngine(null, fleet);
+            fail("A null company must be rejected");
+        }
+        catch (IllegalArgumentException e) {
+            // Esperado
+        }
+
+        createScenario(true);
+        try {
+            new EventDrivenEngine(company, fleet);
+            fail("Charging-session mode must be rejected");
+        }
+        catch (IllegalStateException e) {
+            // Esperado
+        }
+    }
+
+    /**
+     * Creates a random scenario, always the same, with a fresh DEBUG log.
+     */
+    private void createScenario(boolean sessions)
+    {
+        if (log != null) {
+            log.close();
+        }
+        company = new EVCompany("Test");
+        company.setChargingSessionMode(sessions);
+        logText = new StringWriter();
+        log = new SimulationLog(LogLevel.DEBUG, logText, 1024);
+        company.setLog(log);
+
+        Random random = new Random(SEED);
+        stations = new ArrayList<>();
+        for (int s = 0; s < STATIONS; s++) {
+            ChargingStation station = new ChargingStation("Cáceres", "CC" + s, Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)));
+            for (int c = 0, n = 1 + random.nextInt(3); c < n; c++) {
+                station.addCharger(new Charger(station.getId() + "_" + c, (c + 1) * 20, (c + 1) * 0.2f));
+            }
+            stations.add(station);
+            company.addChargingStation(station);
+        }
+        fleet = new ArrayList<>();
+        for (int i = 0; i < VEHICLES; i++) {
+            ElectricVehicle ev = new ElectricVehicle(String.format("EV%06d", i), "EV" + i, company,
+                                                     Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)),
+                                                     Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)),
+                                                     15 * (1 + random.nextInt(8)));
+            fleet.add(ev);
+            company.addElectricVehicle(ev);
+        }
+        company.calculateRoutes(fleet);
+    }
+
+    /**
+     * Simulates some steps of the current scenario with the tick engine.
+     */
+    private void tickRun(int firstStep, int endStep)
+    {
+        for (int step = firstStep; step < endStep; step++) {
+            for (ElectricVehicle ev : fleet) {
+                ev.act(step);
+            }
+        }
+    }
+
+    /**
+     * Closes the log of the current scenario.
+     * @return The log followed by the state of the vehicles and the stations.
+     */
+    private String result() throws IOException
+    {
+        log.close();
+        StringBuilder result = new StringBuilder(logText.toString());
+        for (ElectricVehicle ev : fleet) {
+            result.append(ev).append(' ').append(ev.getIdleCount()).append(' ').append(ev.getArrivingStep()).append('\n');
+        }
+        for (ChargingStation station : stations) {
+            station.appendCompleteInfo(result);
+            result.append('\n');
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,220 @@
+import java.util.*;
+
+/**
+ * Columnar (structure-of-arrays) alternative to stepping {@link ElectricVehicle}s one by one.
+ * The dynamic state of the whole fleet lives in parallel primitive arrays indexed by the
+ * position of each vehicle in the fleet (its plate index), and {@link #step(int)} advances
+ * every vehicle in a single tight loop with the same rules as {@link ElectricVehicle#act(int)},
+ * so both models produce identical results.
+ *
+ * The {@link ElectricVehicle} objects are only used as identities for {@link Charger#recharge}
+ * and as the target of {@link #exportState()}, which copies the columns back so the usual
+ * reporting methods ({@code toString()}, {@code getStepInfo(int)}) can be used.
+ * Only instantaneous recharges are supported (not {@link EVCompany#isChargingSessionMode()}).
+ * @author DP classes
+ * @version 2025
+ */
+public class FleetEngine
+{
+    private static final long NO_LOCATION = ElectricVehicle.NO_LOCATION;
+
+    private final EVCompany company;
+    private final int consumption;
+
+    // Red de estaciones: mismo orden que company.getCityStations()
+    private final ChargingStation[] stations;
+    private final long[] stationLocation;
+
+    // Columnas de la flota, indexadas por la posición del vehículo (su índice de matrícula)
+    private final ElectricVehicle[] vehicles;
+    private final long[] location;
+    private final long[] target;
+    private final long[] destination;
+    private final int[] station;
+    private final int[] batteryLevel;
+    private final int[] batteryCapacity;
+    private final int[] idleCount;
+    private final int[] chargesCount;
+    private final long[] chargesCost;       // Unidades de Money
+    private final int[] arrivingStep;
+    private final boolean[] finished;
+
+    /**
+     * Constructor for objects of class FleetEngine. Copies the current state of the vehicles
+     * into the columns; the vehicles are then stepped in the order of the given list.
+     * @param company The company whose charging network the vehicles use.
+     * @param fleet The vehicles to simulate, in stepping order.
+     */
+    public FleetEngine(EVCompany company, List<ElectricVehicle> fleet)
+    {
+        if (company == null || fleet == null) throw new IllegalArgumentException("null company or fleet in FleetEngine");
+        if (company.isChargingSessionMode()) throw new IllegalStateException("FleetEngine only supports instantaneous recharges");
+
+        this.company = company;
+        this.consumption = company.getConsumptionPerStep();
+
+        List<ChargingStation> network = company.getCityStations();
+        this.stations = network.toArray(new ChargingStation[0]);
+        this.stationLocation = new long[stations.length];
+        Map<ChargingStation, Integer> stationIndex = new IdentityHashMap<>();
+        for (int s = 0; s < stations.length; s++) {
+            stationLocation[s] = stations[s].getLocation().pack();
+            stationIndex.put(stations[s], s);
+        }
+
+        int n = fleet.size();
+        this.vehicles = fleet.toArray(new ElectricVehicle[0]);
+        this.location = new long[n];
+        this.target = new long[n];
+        this.destination = new long[n];
+        this.station = new int[n];
+        this.batteryLevel = new int[n];
+        this.batteryCapacity = new int[n];
+        this.idleCount = new int[n];
+        this.chargesCount = new int[n];
+        this.chargesCost = new long[n];
+        this.arrivingStep = new int[n];
+        this.finished = new boolean[n];
+
+        for (int i = 0; i < n; i++) {
+            ElectricVehicle ev = vehicles[i];
+            location[i] = ev.getPackedLocation();
+            target[i] = ev.getPackedTargetLocation();
+            destination[i] = ev.getPackedDestination();
+            ChargingStation targetStation = ev.getTargetChargingStation();
+            station[i] = targetStation == null ? -1 : stationIndex.getOrDefault(targetStation, -1);
+            batteryLevel[i] = ev.getBatteryLevel();
+            batteryCapacity[i] = ev.getBatteryCapacity();
+            idleCount[i] = ev.getIdleCount();
+            chargesCount[i] = ev.getChargesCount();
+            chargesCost[i] = ev.getChargesCostUnits();
+            arrivingStep[i] = ev.getArrivingStep();
+            finished[i] = ev.hasFinishedSimulation();
+        }
+    }
+
+    /**
+     * @return The number of vehicles in the engine.
+     */
+    public int size()
+    {
+        return vehicles.length;
+    }
+
+    /**
+     * Carries out a single step of the simulation for the whole fleet.
+     * @param step The current step of the simulation.
+     * @see ElectricVehicle#act(int)
+     */
+    public void step(int step)
+    {
+        for (int i = 0; i < vehicles.length; i++) {
+            if (finished[i]) continue;
+
+            if (destination[i] == NO_LOCATION) {
+                calculateRoute(i);
+                if (destination[i] == NO_LOCATION) {
+                    finished[i] = true;
+                    continue;
+                }
+            }
+
+            if (location[i] == target[i]) {
+                if (arrivingStep[i] == -1) {
+                    arrivingStep[i] = step;
+                }
+                idleCount[i]++;
+                continue;
+            }
+
+            location[i] = Location.nextLocation(location[i], destination[i]);
+            batteryLevel[i] = Math.max(batteryLevel[i] - consumption, 0);
+
+            if (batteryLevel[i] <= 0) {
+                finished[i] = true;
+                company.getLog().batteryDead(vehicles[i], location[i], step);
+                continue;
+            }
+
+            if (location[i] == destination[i]) {
+                int s = station[i];
+                if (s != -1 && location[i] == stationLocation[s]) {
+                    recharge(i, stations[s], step);
+                    continue;
+                }
+
+                if (location[i] == target[i]) {
+                    finished[i] = true;
+                    arrivingStep[i] = step;
+                    company.getLog().arrival(vehicles[i], location[i], step);
+                    continue;
+                }
+
+                calculateRoute(i);
+            }
+        }
+    }
+
+    /**
+     * Copies the state of the columns back into the {@link ElectricVehicle} objects.
+     */
+    public void exportState()
+    {
+        for (int i = 0; i < vehicles.length; i++) {
+            vehicles[i].restoreState(location[i], destination[i], batteryLevel[i], idleCount[i], chargesCount[i],
+                                     chargesCost[i], station[i] == -1 ? null : stations[station[i]],
+                                     finished[i], arrivingStep[i]);
+        }
+    }
+
+    /**
+     * Recharges a vehicle at the fastest free charger of a station, or ends its simulation
+     * if every charger is busy.
+     * @see ElectricVehicle#recharge(int)
+     */
+    private void recharge(int i, ChargingStation chargingStation, int step)
+    {
+        Charger charger = chargingStation.tryAcquireCharger(vehicles[i]);
+        if (charger == null) {
+            finished[i] = true;
+            company.getLog().noFreeCharger(vehicles[i], chargingStation, step);
+            return;
+        }
+
+        int kwhToCharge = batteryCapacity[i] - batteryLevel[i];
+        long cost = charger.rechargeUnits(vehicles[i], kwhToCharge, step);
+        charger.release(vehicles[i]);
+
+        chargesCount[i]++;
+        chargesCost[i] += cost;
+        batteryLevel[i] = batteryCapacity[i];
+
+        calculateRoute(i);
+
+        company.getLog().recharge(vehicles[i], charger, kwhToCharge, cost, step);
+    }
+
+    /**
+     * Chooses between going straight to the target or stopping at the nearest reachable station.
+     * @see ElectricVehicle#calculateRoute()
+     */
+    private void calculateRoute(int i)
+    {
+        if (finished[i]) return;
+
+        if (batteryLevel[i] >= Location.distance(location[i], target[i]) * consumption) {
+            station[i] = -1;
+            destination[i] = target[i];
+            return;
+        }
+
+        int s = company.getNearestReachableStationIndex(location[i], batteryLevel[i] / consumption);
+        station[i] = s;
+        if (s == -1) {
+            finished[i] = true;
+            destination[i] = NO_LOCATION;
+            return;
+        }
+        destination[i] = stationLocation[s];
+    }
+}
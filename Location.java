@@ -2,13 +2,24 @@ import java.util.*;
 
 /**
  * Model a location in a two-dimensional grid city using (x, y) coordinates.
+ * Locations are immutable, so the ones inside the bounded grid of the simulation
+ * are shared: {@link #of(int, int)} and {@link #nextLocation(Location)} return a
+ * canonical instance for each cell instead of allocating a new object every time.
+ * 
+ * The static methods working on {@code long} values are the primitive kernels of
+ * this class: a location is packed as {@code (x << 32) | y} (see {@link #pack(int, int)})
+ * so the hot paths of the simulation can move and measure without touching objects.
+ * The object methods are a thin facade over the same arithmetic.
  * @author DP classes 
  * @version 2024.10.07
  */
 public class Location
 {
-    private int x;
-    private int y;
+    /** Canonical instances of the cached grid, indexed as {@code cache[x][y]} and filled on demand. */
+    private static volatile Location[][] cache = new Location[EVDemo.MAXX + 1][EVDemo.MAXY + 1];
+
+    private final int x;
+    private final int y;
 
     /**
      * Model a location in the city.
@@ -31,43 +42,182 @@ public class Location
     }
     
     /**
-     * Generates the next location to visit in a direct line (Manhattan-style diagonal/straight move) 
-     * from this location to the destination.
-     * @param destination The {@link Location} we want to get to.
-     * @return The next {@link Location} one step closer to the destination. Returns the destination
-     * if this location is already the destination.
+     * Returns the canonical {@link Location} for (x, y).
+     * Coordinates inside the cached grid always yield the same instance; coordinates
+     * outside it yield a new, equal, instance.
+     * @param x The x coordinate. Must be non-negative.
+     * @param y The y coordinate. Must be non-negative.
+     * @return The {@link Location} at (x, y).
+     * @throws IllegalArgumentException If a coordinate is negative.
      */
-    public Location nextLocation(Location destination)
+    public static Location of(int x, int y)
     {
-        if(destination == null) throw new IllegalArgumentException("null Location in nextLocation(Location)");
+        Location[][] grid = cache;
         
-        if (this.x == destination.getX() && this.y == destination.getY()){
+        if (x >= 0 && y >= 0 && x < grid.length && y < grid[x].length) {
             
-            return new Location(this.x, this.y);
+            Location location = grid[x][y];
+            
+            if (location == null) {
+                // Si dos hilos la crean a la vez sólo se pierde una instancia: son iguales e inmutables
+                location = new Location(x, y);
+                grid[x][y] = location;
+            }
+            return location;
         }
+        return new Location(x, y);
+    }
+    
+    /**
+     * Packs a pair of coordinates into a single {@code long}.
+     * Packed values of valid locations are never negative.
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @return The packed location.
+     */
+    public static long pack(int x, int y)
+    {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+    
+    /**
+     * @param packed A location packed with {@link #pack(int, int)}.
+     * @return Its x coordinate.
+     */
+    public static int unpackX(long packed)
+    {
+        return (int) (packed >> 32);
+    }
+    
+    /**
+     * @param packed A location packed with {@link #pack(int, int)}.
+     * @return Its y coordinate.
+     */
+    public static int unpackY(long packed)
+    {
+        return (int) packed;
+    }
+    
+    /**
+     * @param packed A location packed with {@link #pack(int, int)}.
+     * @return The canonical {@link Location} for the packed coordinates.
+     */
+    public static Location unpack(long packed)
+    {
+        return Location.of(unpackX(packed), unpackY(packed));
+    }
+    
+    /**
+     * Chebyshev distance between two packed locations.
+     * @param from The packed starting location.
+     * @param to The packed destination.
+     * @return The number of movement steps.
+     * @see #distance(Location)
+     */
+    public static int distance(long from, long to)
+    {
+        return Math.max(Math.abs(unpackX(to) - unpackX(from)), Math.abs(unpackY(to) - unpackY(from)));
+    }
+    
+    /**
+     * Moves a packed location one step towards a packed destination.
+     * @param from The packed current location.
+     * @param to The packed destination.
+     * @return The packed next location; {@code from} itself if it already is the destination.
+     * @see #nextLocation(Location)
+     */
+    public static long nextLocation(long from, long to)
+    {
+        int x = unpackX(from);
+        int y = unpackY(from);
         
-        int a = getX();
-        int b = getY();
+        return pack(x + Integer.signum(unpackX(to) - x), y + Integer.signum(unpackY(to) - y));
+    }
+    
+    /**
+     * Moves a packed location several steps towards a packed destination in one go.
+     * The result is the same as applying {@link #nextLocation(long, long)} {@code steps} times.
+     * @param from The packed current location.
+     * @param to The packed destination.
+     * @param steps The number of steps to move. Must not be negative.
+     * @return The packed location reached.
+     */
+    public static long advance(long from, long to, int steps)
+    {
+        int x = unpackX(from);
+        int y = unpackY(from);
+        int dx = unpackX(to) - x;
+        int dy = unpackY(to) - y;
         
-        if (this.x < destination.getX()){
-            
-            a++;
-        }
-        else if (this.x > destination.getX()){
-            
-            a--;
-        }
+        return pack(x + Integer.signum(dx) * Math.min(steps, Math.abs(dx)),
+                    y + Integer.signum(dy) * Math.min(steps, Math.abs(dy)));
+    }
+    
+    /**
+     * @return This location packed with {@link #pack(int, int)}.
+     */
+    public long pack()
+    {
+        return pack(x, y);
+    }
+    
+    /**
+     * Resizes the grid of canonical locations. By default it covers the grid of
+     * {@link EVDemo} ({@code 0..MAXX} x {@code 0..MAXY}); scenarios over larger maps should
+     * grow it with {@link #ensureCacheExtent(int, int)} instead, since this replaces the grid
+     * of the whole JVM. Instances handed out before remain valid.
+     * @param width The number of cached x coordinates ({@code 0..width-1}).
+     * @param height The number of cached y coordinates ({@code 0..height-1}).
+     * @throws IllegalArgumentException If width or height is negative.
+     */
+    public static synchronized void configureCache(int width, int height)
+    {
+        if (width < 0 || height < 0) throw new IllegalArgumentException("Negative cache extent in configureCache (Location)");
         
-        if (this.y < destination.getY()){
-            
-            b++;
-        }
-        else if (this.y > destination.getY()){
-            
-            b--;
+        cache = new Location[width][height];
+    }
+    
+    /**
+     * Grows the grid of canonical locations so that it covers at least {@code 0..width-1} x
+     * {@code 0..height-1}, keeping its current extent (and its instances) where it is larger.
+     * Unlike {@link #configureCache(int, int)}, it never shrinks the grid another simulation
+     * of the same JVM may be using, so a scenario can call it safely while it is built.
+     * @param width The number of x coordinates to cover.
+     * @param height The number of y coordinates to cover.
+     * @throws IllegalArgumentException If width or height is negative.
+     */
+    public static synchronized void ensureCacheExtent(int width, int height)
+    {
+        if (width < 0 || height < 0) throw new IllegalArgumentException("Negative cache extent in ensureCacheExtent (Location)");
+        
+        Location[][] current = cache;
+        int oldWidth = current.length;
+        int oldHeight = oldWidth == 0 ? 0 : current[0].length;
+        if (width <= oldWidth && height <= oldHeight) return;
+        
+        // Se copian las instancias ya creadas para que sigan siendo las canónicas
+        Location[][] grown = new Location[Math.max(width, oldWidth)][Math.max(height, oldHeight)];
+        for (int x = 0; x < oldWidth; x++) {
+            System.arraycopy(current[x], 0, grown[x], 0, oldHeight);
         }
+        cache = grown;
+    }
+    
+    /**
+     * Generates the next location to visit in a direct line (Manhattan-style diagonal/straight move) 
+     * from this location to the destination.
+     * @param destination The {@link Location} we want to get to.
+     * @return The next {@link Location} one step closer to the destination. Returns this location
+     * if it is already the destination.
+     */
+    public Location nextLocation(Location destination)
+    {
+        if(destination == null) throw new IllegalArgumentException("null Location in nextLocation(Location)");
         
-        return new Location(a, b);
+        long here = pack();
+        long next = nextLocation(here, destination.pack());
+        
+        return next == here ? this : unpack(next);
     }
     
     /**
@@ -78,10 +228,7 @@ public class Location
      */
     public int distance(Location destination)
     {
-         int valorAbsX = Math.abs(destination.getX() - this.x);
-        int valorAbsY = Math.abs(destination.getY() - this.y);
-        
-        return Math.max(valorAbsX,valorAbsY);
+        return distance(pack(), destination.pack());
     }
     
     /**
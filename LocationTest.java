@@ -3,9 +3,12 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Random;
+
 /**
  * Test implementation of the {@link Location} class.
- * Provides unit tests for methods like {@code distance()} and {@code nextLocation()}.
+ * Provides unit tests for methods like {@code distance()} and {@code nextLocation()},
+ * both on objects and on packed locations.
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29
  * @version 2024.10.07 DP classes (adaptado a Java 8+)
@@ -46,7 +49,13 @@ public class LocationTest
     @Test
     public void testDistance()
     {
-        //TODO: Complete this code
+        Location start = new Location(10, 20);
+        assertEquals(0, start.distance(start));
+        assertEquals(1, start.distance(new Location(11, 21)));
+        assertEquals(1, start.distance(new Location(9, 20)));
+        assertEquals(5, start.distance(new Location(15, 22)));
+        assertEquals(7, start.distance(new Location(7, 27)));
+        assertEquals(10, start.distance(new Location(0, 30)));
     }
     
     /**
@@ -56,7 +65,14 @@ public class LocationTest
     @Test
     public void testAdjacentLocations()
     {
-        //TODO: Complete this code
+        Location start = new Location(10, 20);
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                Location destination = new Location(10 + dx, 20 + dy);
+                assertEquals(destination, start.nextLocation(destination));
+            }
+        }
+        assertSame(start, start.nextLocation(new Location(10, 20)));
     }
     
     /**
@@ -66,6 +82,102 @@ public class LocationTest
     @Test
     public void testNonAdjacentLocations()
     {
-        //TODO: Complete this code
+        Location start = new Location(10, 20);
+        assertEquals(new Location(11, 21), start.nextLocation(new Location(15, 25)));
+        assertEquals(new Location(9, 21), start.nextLocation(new Location(0, 30)));
+        assertEquals(new Location(11, 20), start.nextLocation(new Location(18, 20)));
+        assertEquals(new Location(10, 19), start.nextLocation(new Location(10, 2)));
+        assertEquals(new Location(11, 21), start.nextLocation(new Location(13, 21)));
+    }
+    
+    /**
+     * Test that {@code pack} and {@code unpackX}/{@code unpackY} are inverse, that packed
+     * locations are not negative and that {@code unpack} gives the equal location.
+     */
+    @Test
+    public void testPackRoundTrip()
+    {
+        int[] values = {0, 1, 7, 20, 1000, 65_535, 1 << 20, Integer.MAX_VALUE};
+        for (int x : values) {
+            for (int y : values) {
+                long packed = Location.pack(x, y);
+                assertTrue(packed >= 0);
+                assertEquals(x, Location.unpackX(packed));
+                assertEquals(y, Location.unpackY(packed));
+                assertEquals(new Location(x, y), Location.unpack(packed));
+                assertEquals(packed, new Location(x, y).pack());
+            }
+        }
+        assertTrue(Location.pack(1, 0) > Location.pack(0, Integer.MAX_VALUE));
+    }
+    
+    /**
+     * Test that the packed kernels {@code distance} and {@code nextLocation} agree with the
+     * object methods over every pair of locations of a small grid.
+     */
+    @Test
+    public void testPackedKernelsMatchObjects()
+    {
+        for (int x1 = 0; x1 < 6; x1++) {
+            for (int y1 = 0; y1 < 6; y1++) {
+                for (int x2 = 0; x2 < 6; x2++) {
+                    for (int y2 = 0; y2 < 6; y2++) {
+                        Location from = new Location(x1, y1);
+                        Location to = new Location(x2, y2);
+                        assertEquals(from.distance(to), Location.distance(from.pack(), to.pack()));
+                        assertEquals(from.nextLocation(to).pack(), Location.nextLocation(from.pack(), to.pack()));
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Test that {@code advance} is the same as applying {@code nextLocation} repeatedly,
+     * including when it is asked for more steps than the distance.
+     */
+    @Test
+    public void testAdvance()
+    {
+        Random random = new Random(2025L);
+        for (int i = 0; i < 1000; i++) {
+            long from = Location.pack(random.nextInt(50), random.nextInt(50));
+            long to = Location.pack(random.nextInt(50), random.nextInt(50));
+            int steps = random.nextInt(60);
+
+            long expected = from;
+            for (int s = 0; s < steps; s++) {
+                expected = Location.nextLocation(expected, to);
+            }
+            assertEquals(expected, Location.advance(from, to, steps));
+        }
+        long from = Location.pack(3, 4);
+        assertEquals(from, Location.advance(from, Location.pack(9, 9), 0));
+        assertEquals(Location.pack(9, 9), Location.advance(from, Location.pack(9, 9), 100));
+    }
+    
+    /**
+     * Test that {@code of} returns canonical instances inside the cached grid, and that
+     * growing the cache keeps the instances already handed out.
+     */
+    @Test
+    public void testCanonicalInstances()
+    {
+        Location location = Location.of(3, 4);
+        assertSame(location, Location.of(3, 4));
+        assertSame(location, Location.unpack(Location.pack(3, 4)));
+        assertSame(location, Location.of(2, 3).nextLocation(Location.of(9, 9)));
+
+        Location.ensureCacheExtent(EVDemo.MAXX + 1, EVDemo.MAXY + 1);
+        assertSame(location, Location.of(3, 4));
+    }
+    
+    /**
+     * Test that negative coordinates are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCoordinate()
+    {
+        Location.of(-1, 0);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,33 @@
+/**
+ * Enumeration that defines which events a {@link SimulationLog} records.
+ * Every level includes the events of the previous ones.
+ * @author DP classes
+ * @version 2025
+ */
+public enum LogLevel
+{
+    /** Nothing is recorded and logging calls return immediately. */
+    OFF ("OFF"),
+    /** Recharges, the lines printed by the original simulation. */
+    INFO ("INFO"),
+    /** Also arrivals, vehicles running out of battery and stations without free chargers. */
+    DEBUG ("DEBUG");
+
+    /** Descriptive name of the level. */
+    private String name;
+
+    /**
+     * Constructor for the log levels.
+     * @param name Descriptive name.
+     */
+    LogLevel(String name){
+        this.name = name;
+    }
+
+    /**
+     * @return The descriptive name of the level.
+     */
+    public String getName(){
+        return name;
+    }
+}
@@ -0,0 +1,169 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Fixed-point amounts of money. An amount is a {@code long} number of units of
+ * 1/{@value #UNITS_PER_EURO} of a euro, so the cost of a recharge (whole kWh times a fee with
+ * up to four decimals) is exact, and totals added up over millions of recharges, in any order
+ * and from any number of threads, never drift. The {@code float} and {@code double} amounts
+ * returned by {@link Charger}, {@link ChargingStation} and {@link EVCompany} are views of these values.
+ *
+ * The formatting methods write the digits straight into their destination, without creating
+ * strings or {@link java.util.Formatter}s.
+ * @author DP classes
+ * @version 2025
+ */
+public final class Money
+{
+    /** Units of money in a euro. */
+    public static final long UNITS_PER_EURO = 10_000;
+
+    /** Decimal digits of a unit. */
+    private static final int SCALE = 4;
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000};
+
+    // Separador que usa String.format en el idioma por defecto (se fija al cargar la clase)
+    private static final char DECIMAL_SEPARATOR =
+        DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getDecimalSeparator();
+
+    private Money()
+    {
+    }
+
+    /**
+     * @param euros An amount in euros, e.g. the fee of a {@link Charger}.
+     * @return The amount in units, rounded to the nearest one.
+     * @throws IllegalArgumentException If the amount is not a finite number.
+     */
+    public static long ofEuros(double euros)
+    {
+        if (Double.isNaN(euros) || Double.isInfinite(euros)) throw new IllegalArgumentException("Invalid amount in ofEuros (Money): " + euros);
+
+        return Math.round(euros * UNITS_PER_EURO);
+    }
+
+    /**
+     * @param kwh The kWh recharged.
+     * @param fee The fee per kWh, in units.
+     * @return The exact cost of the recharge, in units.
+     * @throws ArithmeticException If the cost does not fit in a {@code long}.
+     */
+    public static long cost(int kwh, long fee)
+    {
+        return Math.multiplyExact((long) kwh, fee);
+    }
+
+    /**
+     * @param amount An amount in units.
+     * @return The nearest {@code double} number of euros.
+     */
+    public static double toDouble(long amount)
+    {
+        return (double) amount / UNITS_PER_EURO;
+    }
+
+    /**
+     * @param amount An amount in units.
+     * @return The nearest {@code float} number of euros.
+     */
+    public static float toFloat(long amount)
+    {
+        return (float) toDouble(amount);
+    }
+
+    /**
+     * Writes an amount in euros rounded half up to a number of decimals, with the decimal
+     * separator of the default locale, as {@code String.format("%.1f", euros)} writes it.
+     * @param out Where the amount is written.
+     * @param amount The amount in units.
+     * @param decimals The number of decimals, from 0 to 4.
+     * @throws IOException If {@code out} cannot be written.
+     */
+    public static void appendEuros(Appendable out, long amount, int decimals) throws IOException
+    {
+        if (decimals < 0 || decimals > SCALE) throw new IllegalArgumentException("Invalid decimals in appendEuros (Money): " + decimals);
+
+        long divisor = POWERS_OF_TEN[SCALE - decimals];
+        long magnitude = Math.abs(amount);
+        long rounded = magnitude / divisor + (magnitude % divisor * 2 >= divisor ? 1 : 0);
+        if (amount < 0) {
+            out.append('-');
+        }
+
+        long scale = POWERS_OF_TEN[decimals];
+        appendDigits(out, rounded / scale, 1);
+        if (decimals > 0) {
+            out.append(DECIMAL_SEPARATOR);
+            appendDigits(out, rounded % scale, decimals);
+        }
+    }
+
+    /**
+     * {@link StringBuilder} variant of {@link #appendEuros(Appendable, long, int)}.
+     * @param text Where the amount is written.
+     * @param amount The amount in units.
+     * @param decimals The number of decimals, from 0 to 4.
+     */
+    public static void appendEuros(StringBuilder text, long amount, int decimals)
+    {
+        try {
+            appendEuros((Appendable) text, amount, decimals);
+        }
+        catch (IOException e) {
+            // Un StringBuilder nunca lanza IOException
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes an amount in euros exactly, with the fewest decimals that represent it (at
+     * least one) and a point as separator: the text {@link Float#toString(float)} gives for
+     * the amounts of a recharge, without the rounding noise of {@code float} arithmetic.
+     * @param text Where the amount is written.
+     * @param amount The amount in units.
+     */
+    public static void appendExactEuros(StringBuilder text, long amount)
+    {
+        long magnitude = Math.abs(amount);
+        long fraction = magnitude % UNITS_PER_EURO;
+        int decimals = SCALE;
+        while (decimals > 1 && fraction % 10 == 0) {
+            fraction /= 10;
+            decimals--;
+        }
+
+        if (amount < 0) {
+            text.append('-');
+        }
+        text.append(magnitude / UNITS_PER_EURO).append('.');
+        try {
+            appendDigits(text, fraction, decimals);
+        }
+        catch (IOException e) {
+            // Un StringBuilder nunca lanza IOException
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a non-negative number with at least {@code minDigits} digits, padded with zeros.
+     */
+    private static void appendDigits(Appendable out, long value, int minDigits) throws IOException
+    {
+        long power = 1;
+        int digits = 1;
+        while (power <= value / 10) {
+            power *= 10;
+            digits++;
+        }
+        for (; digits < minDigits; minDigits--) {
+            out.append('0');
+        }
+        for (; power > 0; power /= 10) {
+            out.append((char) ('0' + value / power % 10));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Executes the steps of a fleet of {@link ElectricVehicle}s on several cores.
+ * Each step runs in two phases:
+ * <ol>
+ * <li>Every vehicle moves, spends battery and re-plans ({@code ElectricVehicle.moveQuietly})
+ * in parallel, partitioned across a {@link ForkJoinPool}.</li>
+ * <li>The vehicles that reached a {@link ChargingStation} take their {@link Charger}
+ * ({@code ElectricVehicle.chargeAtStation}) one by one in fleet order.</li>
+ * </ol>
+ * Since chargers are only touched in the second phase, and in the same order a sequential
+ * step would use, a parallel run produces exactly the same output as a sequential one. The
+ * events of the first phase (arrivals and vehicles out of battery) are logged in the second
+ * one too, interleaved in fleet order with the recharges, so the log does not depend on the
+ * order in which the threads happened to move the vehicles.
+ * @author DP classes
+ * @version 2025
+ */
+public class ParallelStepper
+{
+    /** Number of vehicles below which a partition is no longer split. */
+    private static final int PARTITION_SIZE = 4096;
+
+    private final ForkJoinPool pool;
+    private final ElectricVehicle[] fleet;
+    private final byte[] outcomes;      // Resultado del movimiento de cada vehículo en el paso
+
+    /**
+     * Constructor for objects of class ParallelStepper using the common {@link ForkJoinPool}.
+     * @param fleet The vehicles to simulate, in the order a sequential step would use.
+     */
+    public ParallelStepper(List<ElectricVehicle> fleet)
+    {
+        this(fleet, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for objects of class ParallelStepper.
+     * @param fleet The vehicles to simulate, in the order a sequential step would use.
+     * @param pool The pool that executes the movement phase.
+     */
+    public ParallelStepper(List<ElectricVehicle> fleet, ForkJoinPool pool)
+    {
+        if (fleet == null || pool == null) throw new IllegalArgumentException("null fleet or pool in ParallelStepper");
+
+        this.pool = pool;
+        this.fleet = fleet.toArray(new ElectricVehicle[0]);
+        this.outcomes = new byte[this.fleet.length];
+    }
+
+    /**
+     * Carries out a single step of the simulation for the whole fleet.
+     * @param step The current step of the simulation.
+     */
+    public void step(int step)
+    {
+        pool.invoke(new MovePartition(0, fleet.length, step));
+
+        // Arbitraje de cargadores y eventos del movimiento: secuencial y en el orden de la flota
+        for (int i = 0; i < fleet.length; i++) {
+            int outcome = outcomes[i];
+            if (outcome == ElectricVehicle.MOVED) continue;
+
+            outcomes[i] = ElectricVehicle.MOVED;
+            if (outcome == ElectricVehicle.AT_STATION) {
+                fleet[i].chargeAtStation(step);
+            }
+            else {
+                fleet[i].logMovement(outcome, step);
+            }
+        }
+    }
+
+    /**
+     * Movement phase of a contiguous range of the fleet.
+     */
+    private class MovePartition extends RecursiveAction
+    {
+        private final int from;
+        private final int to;
+        private final int step;
+
+        MovePartition(int from, int to, int step)
+        {
+            this.from = from;
+            this.to = to;
+            this.step = step;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= PARTITION_SIZE) {
+                for (int i = from; i < to; i++) {
+                    outcomes[i] = (byte) fleet[i].moveQuietly(step);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new MovePartition(from, middle, step), new MovePartition(middle, to, step));
+        }
+    }
+}
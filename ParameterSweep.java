@@ -0,0 +1,489 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs many independent simulations of the same city with different parameters and
+ * collects their key performance indicators in one table, for capacity planning.
+ *
+ * The swept parameters are the number of chargers per station, a factor on the charger fees,
+ * a factor on the battery capacities and the consumption per step; every combination is run
+ * once per replica, and every replica is a scenario drawn by a {@link ScenarioGenerator} with
+ * its own seed (Monte Carlo). Each run builds its own {@link EVCompany}, stations, chargers and
+ * vehicles, so runs share no simulation state and execute concurrently on a work-stealing
+ * {@link ForkJoinPool}. What does not change between the runs of a replica (station ids and
+ * locations, charger specifications, plates, names and trips) is generated once and shared,
+ * and so are the {@link StationIndex} of its network and the {@link RouteCache} of its
+ * nearest-station queries, which only depend on the station locations.
+ *
+ * Runs use instantaneous recharges by default, or charging sessions with queues on the
+ * sequential engine, which also measures how busy the chargers were; they log nothing.
+ * {@link SimulationMode#PARALLEL} is not accepted, since runs are already executed in parallel.
+ * @author DP classes
+ * @version 2025
+ */
+public class ParameterSweep
+{
+    /** Number of runs below which a range of runs is no longer split. */
+    private static final int RUNS_PER_TASK = 1;
+
+    private final long seed;
+    private final int gridSize;
+    private final int numStations;
+    private final int numVehicles;
+    private final int steps;
+
+    private SpatialDistribution distribution;
+    private int featureCount;
+    private SimulationMode mode;
+    private boolean chargingSessionMode;
+    private int replicas;
+    private int[] chargersPerStation;
+    private float[] feeScales;
+    private float[] batteryScales;
+    private int[] consumptions;
+
+    /**
+     * Data of a replica shared by all its runs. It is never modified after being built.
+     */
+    private static final class Scenario
+    {
+        private final String[] stationCities;
+        private final String[] stationIds;
+        private final Location[] stationLocations;
+        private final String[][] chargerIds;
+        private final int[][] chargerSpeeds;
+        private final float[][] chargerFees;
+
+        private final String[] plates;
+        private final String[] names;
+        private final Location[] starts;
+        private final Location[] targets;
+        private final int[] batteryCapacities;
+
+        private final StationIndex stationIndex;
+        private final RouteCache routeCache;
+
+        private Scenario(List<ChargingStation> stations, List<ElectricVehicle> vehicles)
+        {
+            int n = stations.size();
+            this.stationCities = new String[n];
+            this.stationIds = new String[n];
+            this.stationLocations = new Location[n];
+            this.chargerIds = new String[n][];
+            this.chargerSpeeds = new int[n][];
+            this.chargerFees = new float[n][];
+            for (int s = 0; s < n; s++) {
+                ChargingStation station = stations.get(s);
+                stationCities[s] = station.getCity();
+                stationIds[s] = station.getId();
+                stationLocations[s] = station.getLocation();
+
+                // Los cargadores se guardan en el orden de creación (sufijo del identificador)
+                List<Charger> chargers = new ArrayList<>(station.getChargers());
+                chargers.sort((c1, c2) -> c1.getId().compareTo(c2.getId()));
+                chargerIds[s] = new String[chargers.size()];
+                chargerSpeeds[s] = new int[chargers.size()];
+                chargerFees[s] = new float[chargers.size()];
+                for (int c = 0; c < chargers.size(); c++) {
+                    chargerIds[s][c] = chargers.get(c).getId();
+                    chargerSpeeds[s][c] = chargers.get(c).getChargingSpeed();
+                    chargerFees[s][c] = chargers.get(c).getChargingFee();
+                }
+            }
+
+            int m = vehicles.size();
+            this.plates = new String[m];
+            this.names = new String[m];
+            this.starts = new Location[m];
+            this.targets = new Location[m];
+            this.batteryCapacities = new int[m];
+            for (int i = 0; i < m; i++) {
+                ElectricVehicle ev = vehicles.get(i);
+                plates[i] = ev.getPlate();
+                names[i] = ev.getName();
+                starts[i] = ev.getLocation();
+                targets[i] = ev.getTargetLocation();
+                batteryCapacities[i] = ev.getBatteryCapacity();
+            }
+
+            // Las respuestas del índice no dependen de los parámetros: la caché sirve a todas las ejecuciones
+            this.stationIndex = StationIndex.of(stations).freeze();
+            this.routeCache = new RouteCache(RouteCache.DEFAULT_CAPACITY);
+        }
+    }
+
+    /**
+     * Constructor for objects of class ParameterSweep. By default every parameter takes a
+     * single value (4 chargers per station, unscaled fees and batteries and the default
+     * consumption), there is one replica and runs use {@link SimulationMode#EVENT_DRIVEN}.
+     * @param seed The seed of the first replica; replica {@code r} uses {@code seed + r}.
+     * @param gridSize The side of the square grid of the city.
+     * @param numStations The number of stations of the city.
+     * @param numVehicles The number of vehicles of every run.
+     * @param steps The number of steps of every run.
+     */
+    public ParameterSweep(long seed, int gridSize, int numStations, int numVehicles, int steps)
+    {
+        if (gridSize <= 0 || numStations < 0 || numVehicles < 0 || steps < 0) {
+            throw new IllegalArgumentException("Invalid size in ParameterSweep");
+        }
+
+        this.seed = seed;
+        this.gridSize = gridSize;
+        this.numStations = numStations;
+        this.numVehicles = numVehicles;
+        this.steps = steps;
+        this.distribution = SpatialDistribution.HOTSPOTS;
+        this.featureCount = 8;
+        this.mode = SimulationMode.EVENT_DRIVEN;
+        this.replicas = 1;
+        this.chargersPerStation = new int[] {4};
+        this.feeScales = new float[] {1.0f};
+        this.batteryScales = new float[] {1.0f};
+        this.consumptions = new int[] {ElectricVehicle.CONSUMPTION_PER_STEP};
+    }
+
+    /**
+     * Sets how the stations and vehicles of every replica are placed on the grid.
+     * @param distribution The spatial distribution. Must not be null.
+     * @param featureCount The number of hotspots or corridors.
+     */
+    public void setDistribution(SpatialDistribution distribution, int featureCount)
+    {
+        if (distribution == null) throw new IllegalArgumentException("null distribution in setDistribution (ParameterSweep)");
+
+        this.distribution = distribution;
+        this.featureCount = featureCount;
+    }
+
+    /**
+     * Sets the engine that runs the steps of every simulation.
+     * @param mode {@link SimulationMode#SEQUENTIAL}, {@link SimulationMode#COLUMNAR} or {@link SimulationMode#EVENT_DRIVEN}.
+     */
+    public void setMode(SimulationMode mode)
+    {
+        if (mode == null) throw new IllegalArgumentException("null mode in setMode (ParameterSweep)");
+        if (mode == SimulationMode.PARALLEL || mode == SimulationMode.VIRTUAL_THREADS || mode == SimulationMode.TILED) {
+            throw new IllegalArgumentException(mode.getName() + " mode in setMode (ParameterSweep): runs are already parallel");
+        }
+
+        this.mode = mode;
+    }
+
+    /**
+     * Selects whether runs recharge in time-based sessions with waiting queues (see
+     * {@link EVCompany#setChargingSessionMode(boolean)}), which only the
+     * {@link SimulationMode#SEQUENTIAL} engine supports. Only then is the busy-time
+     * utilization of the chargers ({@link SweepResult#getChargerUtilization()}) measured.
+     * @param chargingSessionMode {@code true} to use charging sessions.
+     */
+    public void setChargingSessionMode(boolean chargingSessionMode)
+    {
+        this.chargingSessionMode = chargingSessionMode;
+    }
+
+    /**
+     * @param replicas The number of scenarios drawn for every combination of parameters. Must be positive.
+     */
+    public void setReplicas(int replicas)
+    {
+        if (replicas <= 0) throw new IllegalArgumentException("Non-positive replicas in setReplicas (ParameterSweep)");
+
+        this.replicas = replicas;
+    }
+
+    /**
+     * @param counts The numbers of chargers per station to try. Each must be positive.
+     */
+    public void setChargersPerStation(int... counts)
+    {
+        requireValues(counts == null ? 0 : counts.length, "setChargersPerStation");
+        for (int count : counts) {
+            if (count <= 0) throw new IllegalArgumentException("Non-positive count in setChargersPerStation (ParameterSweep)");
+        }
+        this.chargersPerStation = counts.clone();
+    }
+
+    /**
+     * @param scales The factors applied to the fee of every charger to try. Each must not be negative.
+     */
+    public void setFeeScales(float... scales)
+    {
+        requireValues(scales == null ? 0 : scales.length, "setFeeScales");
+        for (float scale : scales) {
+            if (!(scale >= 0)) throw new IllegalArgumentException("Negative scale in setFeeScales (ParameterSweep)");
+        }
+        this.feeScales = scales.clone();
+    }
+
+    /**
+     * @param scales The factors applied to the battery capacity of every vehicle to try. Each must be positive.
+     */
+    public void setBatteryScales(float... scales)
+    {
+        requireValues(scales == null ? 0 : scales.length, "setBatteryScales");
+        for (float scale : scales) {
+            if (!(scale > 0)) throw new IllegalArgumentException("Non-positive scale in setBatteryScales (ParameterSweep)");
+        }
+        this.batteryScales = scales.clone();
+    }
+
+    /**
+     * @param consumptions The kWh consumed per movement step to try. Each must be positive.
+     */
+    public void setConsumptions(int... consumptions)
+    {
+        requireValues(consumptions == null ? 0 : consumptions.length, "setConsumptions");
+        for (int consumption : consumptions) {
+            if (consumption <= 0) throw new IllegalArgumentException("Non-positive consumption in setConsumptions (ParameterSweep)");
+        }
+        this.consumptions = consumptions.clone();
+    }
+
+    /**
+     * @return The number of simulations of the sweep.
+     */
+    public int getNumRuns()
+    {
+        return replicas * chargersPerStation.length * feeScales.length * batteryScales.length * consumptions.length;
+    }
+
+    /**
+     * Runs the sweep on the common {@link ForkJoinPool}.
+     * @return The results, ordered by replica and then by the parameters in the order they were given.
+     */
+    public List<SweepResult> run()
+    {
+        return run(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs the sweep.
+     * @param pool The pool that executes the simulations.
+     * @return The results, ordered by replica and then by the parameters in the order they were given.
+     */
+    public List<SweepResult> run(ForkJoinPool pool)
+    {
+        if (pool == null) throw new IllegalArgumentException("null pool in run (ParameterSweep)");
+        if (chargingSessionMode && mode != SimulationMode.SEQUENTIAL) {
+            throw new IllegalStateException(mode.getName() + " mode in run (ParameterSweep): charging sessions need the sequential engine");
+        }
+
+        int maxChargers = 0;
+        for (int count : chargersPerStation) {
+            maxChargers = Math.max(maxChargers, count);
+        }
+        Scenario[] scenarios = new Scenario[replicas];
+        for (int r = 0; r < replicas; r++) {
+            scenarios[r] = generate(seed + r, maxChargers);
+        }
+
+        SweepResult[] results = new SweepResult[getNumRuns()];
+        pool.invoke(new RunRange(scenarios, results, 0, results.length));
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Writes the results as a table with a header line and one line per run.
+     * @param results The results of a sweep.
+     * @param out Where the table is written.
+     * @throws IOException If {@code out} cannot be written.
+     */
+    public static void printTable(List<SweepResult> results, Appendable out) throws IOException
+    {
+        out.append(String.format("%7s %8s %6s %8s %7s %8s %8s %6s %8s %9s %10s %12s %7s %5s%n",
+                   "replica", "chargers", "fee", "battery", "kwh/st", "vehicles", "arrivals", "dead",
+                   "stranded", "recharges", "kwh", "revenue", "rch/c/s", "util"));
+        for (SweepResult result : results) {
+            out.append(result.toString()).append(System.lineSeparator());
+        }
+    }
+
+    /**
+     * Runs a sample sweep over the city of {@link DemoType#PARAMETRIC} and prints its table.
+     * @param args Not used.
+     */
+    public static void main(String[] args)
+    {
+        ParameterSweep sweep = new ParameterSweep(EVDemo.PARAMETRIC_SEED, EVDemo.PARAMETRIC_GRID_SIZE,
+                                                  DemoType.PARAMETRIC.getNumStationsToCreate(),
+                                                  DemoType.PARAMETRIC.getNumVehiclesToCreate(), EVDemo.MAXSTEPS);
+        sweep.setDistribution(EVDemo.PARAMETRIC_DISTRIBUTION, 8);
+        sweep.setReplicas(4);
+        sweep.setChargersPerStation(1, 2, 4);
+        sweep.setFeeScales(0.8f, 1.0f, 1.2f);
+        sweep.setBatteryScales(0.5f, 1.0f);
+        sweep.setConsumptions(4, 5, 6);
+
+        try {
+            printTable(sweep.run(), System.out);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Generates the shared data of a replica.
+     */
+    private Scenario generate(long replicaSeed, int maxChargers)
+    {
+        ScenarioGenerator generator = new ScenarioGenerator(replicaSeed, gridSize, gridSize);
+        generator.setDistribution(distribution, featureCount);
+
+        List<ChargingStation> stations = new ArrayList<>(numStations);
+        List<ElectricVehicle> vehicles = new ArrayList<>(numVehicles);
+        generator.generateStations(numStations, maxChargers, stations::add);
+        generator.generateVehicles(new EVCompany("Scenario"), numVehicles, vehicles::add);
+
+        return new Scenario(stations, vehicles);
+    }
+
+    /**
+     * Runs the simulation with a given position in the sweep.
+     */
+    private SweepResult runOne(Scenario[] scenarios, int index)
+    {
+        // El índice recorre las réplicas y luego cada parámetro, con el último el más rápido
+        int rest = index;
+        int consumption = consumptions[rest % consumptions.length];
+        rest /= consumptions.length;
+        float batteryScale = batteryScales[rest % batteryScales.length];
+        rest /= batteryScales.length;
+        float feeScale = feeScales[rest % feeScales.length];
+        rest /= feeScales.length;
+        int chargers = chargersPerStation[rest % chargersPerStation.length];
+        int replica = rest / chargersPerStation.length;
+        Scenario scenario = scenarios[replica];
+
+        EVCompany company = new EVCompany("Sweep " + index);
+        company.setLog(SimulationLog.off());
+        company.setConsumptionPerStep(consumption);
+        company.setChargingSessionMode(chargingSessionMode);
+
+        int numChargers = 0;
+        List<ChargingStation> network = new ArrayList<>(scenario.stationIds.length);
+        for (int s = 0; s < scenario.stationIds.length; s++) {
+            ChargingStation station = new ChargingStation(scenario.stationCities[s], scenario.stationIds[s], scenario.stationLocations[s]);
+            for (int c = 0; c < chargers; c++) {
+                station.addCharger(new Charger(scenario.chargerIds[s][c], scenario.chargerSpeeds[s][c], scenario.chargerFees[s][c] * feeScale));
+                numChargers++;
+            }
+            network.add(station);
+        }
+        company.addSharedChargingNetwork(network, scenario.stationIndex, scenario.routeCache);
+
+        List<ElectricVehicle> fleet = new ArrayList<>(scenario.plates.length);
+        for (int i = 0; i < scenario.plates.length; i++) {
+            int capacity = Math.max(consumption, Math.round(scenario.batteryCapacities[i] * batteryScale));
+            ElectricVehicle ev = new ElectricVehicle(scenario.plates[i], scenario.names[i], company,
+                                                     scenario.starts[i], scenario.targets[i], capacity);
+            fleet.add(ev);
+            company.addElectricVehicle(ev);
+        }
+        company.calculateRoutes(fleet);
+
+        simulate(company, fleet);
+
+        int arrivals = 0;
+        int dead = 0;
+        int stranded = 0;
+        for (ElectricVehicle ev : fleet) {
+            if (ev.getArrivingStep() != -1) {
+                arrivals++;
+            }
+            else if (ev.hasFinishedSimulation()) {
+                if (ev.getBatteryLevel() <= 0) {
+                    dead++;
+                }
+                else {
+                    stranded++;
+                }
+            }
+        }
+
+        // Pasos de cargador ocupados por sesiones, terminadas o no, de toda la red
+        double utilization = Double.NaN;
+        if (chargingSessionMode) {
+            double busySteps = 0;
+            for (ChargingStation station : network) {
+                busySteps += station.getChargerUtilization(steps) * station.getChargers().size();
+            }
+            utilization = numChargers == 0 ? 0.0 : busySteps / numChargers;
+        }
+
+        return new SweepResult(replica, chargers, feeScale, batteryScale, consumption, fleet.size(), arrivals, dead, stranded,
+                               company.getTotalRecharges(), company.getTotalKwhDelivered(), company.getTotalRevenue(),
+                               numChargers, steps, utilization);
+    }
+
+    /**
+     * Runs every step of a simulation with the engine selected by {@code mode}.
+     */
+    private void simulate(EVCompany company, List<ElectricVehicle> fleet)
+    {
+        switch (mode) {
+            case COLUMNAR: {
+                FleetEngine engine = new FleetEngine(company, fleet);
+                for (int step = 0; step < steps; step++) {
+                    engine.step(step);
+                }
+                engine.exportState();
+                break;
+            }
+            case EVENT_DRIVEN:
+                new EventDrivenEngine(company, fleet).advanceTo(steps);
+                break;
+            default:
+                for (int step = 0; step < steps; step++) {
+                    for (ElectricVehicle ev : fleet) {
+                        ev.act(step);
+                    }
+                }
+        }
+    }
+
+    /**
+     * Checks that a list of parameter values is not empty.
+     */
+    private static void requireValues(int length, String method)
+    {
+        if (length == 0) throw new IllegalArgumentException("No values in " + method + " (ParameterSweep)");
+    }
+
+    /**
+     * Range of runs of the sweep, split in halves until it is small enough.
+     */
+    private class RunRange extends RecursiveAction
+    {
+        private final Scenario[] scenarios;
+        private final SweepResult[] results;
+        private final int from;
+        private final int to;
+
+        RunRange(Scenario[] scenarios, SweepResult[] results, int from, int to)
+        {
+            this.scenarios = scenarios;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= RUNS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    results[i] = runOne(scenarios, i);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new RunRange(scenarios, results, from, middle), new RunRange(scenarios, results, middle, to));
+        }
+    }
+}
@@ -0,0 +1,234 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test implementation of the {@link ParameterSweep} class.
+ * Checks that the results of a sweep do not depend on how many threads run it, although the
+ * runs of a replica share the index of its network and the cache of its nearest-station
+ * queries, and that a row of the sweep has the same indicators as the same simulation run
+ * on its own.
+ * @author DP classes
+ * @version 2025
+ */
+public class ParameterSweepTest
+{
+    private static final long SEED = 11L;
+    private static final int GRID_SIZE = 150;
+    private static final int STATIONS = 40;
+    private static final int VEHICLES = 1_500;
+    private static final int STEPS = 120;
+
+    private List<ForkJoinPool> pools;
+
+    /**
+     * Default constructor for test class ParameterSweepTest.
+     */
+    public ParameterSweepTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        pools = new ArrayList<>();
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+        for (ForkJoinPool pool : pools) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Test that a sweep gives the same results with one thread and with several, on every engine.
+     */
+    @Test
+    public void testSameResultsForAnyPoolSize()
+    {
+        for (SimulationMode mode : new SimulationMode[] {SimulationMode.SEQUENTIAL, SimulationMode.COLUMNAR, SimulationMode.EVENT_DRIVEN}) {
+            ParameterSweep sweep = createSweep();
+            sweep.setMode(mode);
+            assertSameResultsForAnyPoolSize(mode.getName(), sweep);
+        }
+
+        ParameterSweep sweep = createSweep();
+        sweep.setMode(SimulationMode.SEQUENTIAL);
+        sweep.setChargingSessionMode(true);
+        assertSameResultsForAnyPoolSize("Sessions", sweep);
+    }
+
+    /**
+     * Test that a row of the sweep matches a standalone run of the same scenario, with
+     * instantaneous recharges.
+     */
+    @Test
+    public void testRowMatchesStandaloneRun()
+    {
+        ParameterSweep sweep = createSweep();
+        SweepResult row = findRow(sweep.run(newPool(4)), 1, 4, 1.0f);
+        assertTrue(Double.isNaN(row.getChargerUtilization()));
+        assertMatchesStandaloneRun(row, SimulationMode.EVENT_DRIVEN, false);
+    }
+
+    /**
+     * Test that a row of the sweep matches a standalone run of the same scenario in
+     * charging-session mode, busy-time utilization of the chargers included.
+     */
+    @Test
+    public void testRowMatchesStandaloneRunWithSessions()
+    {
+        ParameterSweep sweep = createSweep();
+        sweep.setMode(SimulationMode.SEQUENTIAL);
+        sweep.setChargingSessionMode(true);
+        SweepResult row = findRow(sweep.run(newPool(4)), 0, 4, 1.0f);
+        assertTrue(row.getChargerUtilization() > 0 && row.getChargerUtilization() <= 1);
+        assertMatchesStandaloneRun(row, SimulationMode.SEQUENTIAL, true);
+    }
+
+    /**
+     * Test that charging sessions are rejected on the engines that do not support them.
+     */
+    @Test
+    public void testSessionsNeedSequentialEngine()
+    {
+        ParameterSweep sweep = createSweep();
+        sweep.setChargingSessionMode(true);
+        try {
+            sweep.run(newPool(1));
+            fail("Charging sessions on the event-driven engine must be rejected");
+        }
+        catch (IllegalStateException e) {
+            // Esperado
+        }
+    }
+
+    /**
+     * @return A sweep of two replicas with several values of every parameter.
+     */
+    private ParameterSweep createSweep()
+    {
+        ParameterSweep sweep = new ParameterSweep(SEED, GRID_SIZE, STATIONS, VEHICLES, STEPS);
+        sweep.setDistribution(SpatialDistribution.HOTSPOTS, 4);
+        sweep.setReplicas(2);
+        sweep.setChargersPerStation(1, 4);
+        sweep.setFeeScales(1.0f, 1.5f);
+        sweep.setBatteryScales(0.5f, 1.0f);
+        return sweep;
+    }
+
+    /**
+     * Asserts that a sweep gives the same results on pools of 1, 2 and 8 threads.
+     */
+    private void assertSameResultsForAnyPoolSize(String message, ParameterSweep sweep)
+    {
+        List<String> expected = rows(sweep.run(newPool(1)));
+        assertEquals(sweep.getNumRuns(), expected.size());
+        assertEquals(message, expected, rows(sweep.run(newPool(2))));
+        assertEquals(message, expected, rows(sweep.run(newPool(8))));
+    }
+
+    /**
+     * Asserts that a row of the sweep, run with unscaled batteries, has the indicators of a
+     * standalone run of the scenario of its replica with the same chargers and fees.
+     */
+    private void assertMatchesStandaloneRun(SweepResult row, SimulationMode mode, boolean sessions)
+    {
+        EVCompany company = new EVCompany("Standalone");
+        company.setLog(SimulationLog.off());
+        company.setChargingSessionMode(sessions);
+        ScenarioGenerator generator = new ScenarioGenerator(SEED + row.getReplica(), GRID_SIZE, GRID_SIZE);
+        generator.setDistribution(SpatialDistribution.HOTSPOTS, 4);
+        generator.generateStations(STATIONS, row.getChargersPerStation(), company::addChargingStation);
+        List<ElectricVehicle> fleet = new ArrayList<>();
+        generator.generateVehicles(company, VEHICLES, ev -> {
+            fleet.add(ev);
+            company.addElectricVehicle(ev);
+        });
+        company.calculateRoutes(fleet);
+
+        if (mode == SimulationMode.EVENT_DRIVEN) {
+            new EventDrivenEngine(company, fleet).advanceTo(STEPS);
+        }
+        else {
+            for (int step = 0; step < STEPS; step++) {
+                for (ElectricVehicle ev : fleet) {
+                    ev.act(step);
+                }
+            }
+        }
+
+        int arrivals = 0;
+        for (ElectricVehicle ev : fleet) {
+            if (ev.getArrivingStep() != -1) {
+                arrivals++;
+            }
+        }
+        assertTrue(row.getRecharges() > 0 && arrivals > 0);
+        assertEquals(VEHICLES, row.getVehicles());
+        assertEquals(arrivals, row.getArrivals());
+        assertEquals(company.getTotalRecharges(), row.getRecharges());
+        assertEquals(company.getTotalKwhDelivered(), row.getKwhDelivered());
+        assertEquals(company.getTotalRevenue(), row.getRevenue(), 0.0);
+        assertEquals((double) company.getTotalRecharges() / (STATIONS * row.getChargersPerStation() * STEPS),
+                     row.getRechargesPerChargerStep(), 1e-12);
+        if (sessions) {
+            double busySteps = 0;
+            for (ChargingStation station : company.getCityStations()) {
+                busySteps += station.getChargerUtilization(STEPS) * station.getChargers().size();
+            }
+            assertEquals(busySteps / (STATIONS * row.getChargersPerStation()), row.getChargerUtilization(), 1e-12);
+        }
+    }
+
+    /**
+     * Finds the row of a replica with some chargers per station and fee, unscaled batteries
+     * and the default consumption.
+     */
+    private static SweepResult findRow(List<SweepResult> results, int replica, int chargers, float feeScale)
+    {
+        for (SweepResult result : results) {
+            if (result.getReplica() == replica && result.getChargersPerStation() == chargers && result.getFeeScale() == feeScale
+                && result.getBatteryScale() == 1.0f && result.getConsumptionPerStep() == ElectricVehicle.CONSUMPTION_PER_STEP) {
+                return result;
+            }
+        }
+        throw new AssertionError("No row for replica " + replica);
+    }
+
+    /**
+     * @return The rows of the table of some results.
+     */
+    private static List<String> rows(List<SweepResult> results)
+    {
+        List<String> rows = new ArrayList<>();
+        for (SweepResult result : results) {
+            rows.add(result.toString());
+        }
+        return rows;
+    }
+
+    /**
+     * @return A new pool with some threads, shut down after the test.
+     */
+    private ForkJoinPool newPool(int threads)
+    {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        pools.add(pool);
+        return pool;
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.Arrays;
+
+/**
+ * Append-only record of the recharges performed by a {@link Charger}.
+ * Every recharge is stored as a fixed-size record (vehicle, step, kWh and cost) in parallel
+ * primitive arrays that grow by doubling, so a recorded session takes 20 bytes instead of a
+ * node of a collection holding a reference. Vehicles are stored as an {@code int} that the
+ * charger resolves (their number in a {@link VehicleRegistry}, see {@link Charger}), and
+ * costs as an exact {@code long} number of units of {@link Money}, like every other amount.
+ *
+ * Appends are serialized by the log's own lock, and records never change once written, so
+ * the first {@link #size()} records can be read while other threads keep appending.
+ * @author DP classes
+ * @version 2025
+ */
+public class RechargeLog
+{
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int[] vehicles;
+    private int[] steps;
+    private int[] kwhs;
+    private long[] costs;
+    private volatile int size;
+
+    /**
+     * Constructor for objects of class RechargeLog. Creates an empty log.
+     */
+    public RechargeLog()
+    {
+        this.vehicles = new int[INITIAL_CAPACITY];
+        this.steps = new int[INITIAL_CAPACITY];
+        this.kwhs = new int[INITIAL_CAPACITY];
+        this.costs = new long[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Appends a recharge at the end of the log.
+     * @param vehicle The number of the recharged vehicle.
+     * @param step The step of the recharge, or -1 if unknown.
+     * @param kwh The kWh recharged.
+     * @param cost The cost of the recharge, in units of {@link Money}.
+     */
+    public synchronized void append(int vehicle, int step, int kwh, long cost)
+    {
+        int n = size;
+        if (n == vehicles.length) {
+            int capacity = n * 2;
+            vehicles = Arrays.copyOf(vehicles, capacity);
+            steps = Arrays.copyOf(steps, capacity);
+            kwhs = Arrays.copyOf(kwhs, capacity);
+            costs = Arrays.copyOf(costs, capacity);
+        }
+        vehicles[n] = vehicle;
+        steps[n] = step;
+        kwhs[n] = kwh;
+        costs[n] = cost;
+        // Publica el registro completo
+        size = n + 1;
+    }
+
+    /**
+     * @return The number of recorded recharges.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param index The position of a record, from 0 (the oldest) to {@code size() - 1}.
+     * @return The number of the recharged vehicle.
+     */
+    public synchronized int getVehicle(int index)
+    {
+        checkIndex(index);
+        return vehicles[index];
+    }
+
+    /**
+     * @param index The position of a record, from 0 (the oldest) to {@code size() - 1}.
+     * @return The step of the recharge, or -1 if unknown.
+     */
+    public synchronized int getStep(int index)
+    {
+        checkIndex(index);
+        return steps[index];
+    }
+
+    /**
+     * @param index The position of a record, from 0 (the oldest) to {@code size() - 1}.
+     * @return The kWh recharged.
+     */
+    public synchronized int getKwh(int index)
+    {
+        checkIndex(index);
+        return kwhs[index];
+    }
+
+    /**
+     * @param index The position of a record, from 0 (the oldest) to {@code size() - 1}.
+     * @return The cost of the recharge, in euros.
+     */
+    public synchronized float getCost(int index)
+    {
+        checkIndex(index);
+        return Money.toFloat(costs[index]);
+    }
+
+    /**
+     * @param index The position of a record, from 0 (the oldest) to {@code size() - 1}.
+     * @return The exact cost of the recharge, in units of {@link Money}.
+     */
+    public synchronized long getCostUnits(int index)
+    {
+        checkIndex(index);
+        return costs[index];
+    }
+
+    /**
+     * Copies the vehicles of the first {@code length} records, so they can be read without
+     * taking the lock once per record.
+     * @param length The number of records to copy; at most {@link #size()}.
+     * @return The numbers of the recharged vehicles, oldest first.
+     */
+    public synchronized int[] copyVehicles(int length)
+    {
+        if (length < 0 || length > size) throw new IllegalArgumentException("Invalid length in copyVehicles (RechargeLog): " + length);
+        return Arrays.copyOf(vehicles, length);
+    }
+
+    /**
+     * Replaces the content of this log with a copy of another one.
+     * @param other The log to copy.
+     */
+    public void copyFrom(RechargeLog other)
+    {
+        if (other == null) throw new IllegalArgumentException("null log in copyFrom (RechargeLog)");
+        if (other == this) return;
+
+        synchronized (other) {
+            int n = other.size;
+            int[] otherVehicles = Arrays.copyOf(other.vehicles, Math.max(n, INITIAL_CAPACITY));
+            int[] otherSteps = Arrays.copyOf(other.steps, otherVehicles.length);
+            int[] otherKwhs = Arrays.copyOf(other.kwhs, otherVehicles.length);
+            long[] otherCosts = Arrays.copyOf(other.costs, otherVehicles.length);
+            synchronized (this) {
+                vehicles = otherVehicles;
+                steps = otherSteps;
+                kwhs = otherKwhs;
+                costs = otherCosts;
+                size = n;
+            }
+        }
+    }
+
+    /**
+     * Checks that a record has been written.
+     */
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Record not in RechargeLog: " + index);
+    }
+}
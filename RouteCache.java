@@ -0,0 +1,210 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the charging stations chosen by {@link ElectricVehicle#calculateRoute()}.
+ * Vehicles that follow the same patterns ask the same question many times: which station is
+ * the nearest one reachable from a location with a given range. The answer only depends on
+ * the location, the range (the reachable radius) and the charging network, so the cache is
+ * keyed by the first two and the {@link EVCompany} clears it whenever the network changes.
+ * Cached answers are therefore always the ones the spatial index would give.
+ *
+ * Entries live in primitive arrays organised as a 4-way set-associative table: a key can
+ * only be stored in the four slots of its set, and when the set is full the least recently
+ * used of them is replaced, so lookups and evictions never scan more than four slots.
+ * Sets are protected by striped locks, so vehicles re-planning on different threads only
+ * contend when they hit the same stripe. Hits and misses are counted for monitoring.
+ * @author DP classes
+ * @version 2025
+ */
+public class RouteCache
+{
+    /** Number of entries of the cache created by default for every company. */
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    /** Returned by {@link #get(long, int)} when the key is not cached. */
+    public static final int MISS = -2;
+
+    private static final int WAYS = 4;
+    private static final int STRIPES = 64;
+    private static final int EMPTY = -1;
+
+    private final int setMask;
+    private final Object[] locks;
+
+    // Entradas: localización empaquetada, radio (EMPTY si el hueco está libre), índice de la estación y último uso
+    private final long[] locations;
+    private final int[] radii;
+    private final int[] stations;
+    private final long[] lastUse;
+    private final long[] clocks;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * Constructor for objects of class RouteCache.
+     * @param capacity The maximum number of entries, rounded up to a power of two (at least {@value #WAYS}).
+     */
+    public RouteCache(int capacity)
+    {
+        if (capacity <= 0) throw new IllegalArgumentException("Non-positive capacity in RouteCache: " + capacity);
+
+        int sets = Math.max(1, Integer.highestOneBit(Math.max(capacity, WAYS) - 1) * 2 / WAYS);
+        this.setMask = sets - 1;
+        this.locks = new Object[Math.min(STRIPES, sets)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        this.clocks = new long[locks.length];
+
+        int entries = sets * WAYS;
+        this.locations = new long[entries];
+        this.radii = new int[entries];
+        this.stations = new int[entries];
+        this.lastUse = new long[entries];
+        Arrays.fill(radii, EMPTY);
+
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * @return The maximum number of entries.
+     */
+    public int getCapacity()
+    {
+        return radii.length;
+    }
+
+    /**
+     * Looks up the station cached for a location and radius.
+     * @param location The packed location.
+     * @param radius The reachable radius.
+     * @return The index of the station in {@link EVCompany#getCityStations()}, -1 if no station
+     * is reachable, or {@link #MISS} if the answer is not cached.
+     */
+    public int get(long location, int radius)
+    {
+        int set = set(location, radius);
+        synchronized (locks[set % locks.length]) {
+            int base = set * WAYS;
+            for (int slot = base; slot < base + WAYS; slot++) {
+                if (radii[slot] == radius && locations[slot] == location) {
+                    lastUse[slot] = ++clocks[set % locks.length];
+                    hits.increment();
+                    return stations[slot];
+                }
+            }
+        }
+        misses.increment();
+        return MISS;
+    }
+
+    /**
+     * Stores the station found for a location and radius, replacing the least recently used
+     * entry of its set if the set is full.
+     * @param location The packed location.
+     * @param radius The reachable radius. Must not be negative.
+     * @param station The index of the station, or -1 if none is reachable.
+     */
+    public void put(long location, int radius, int station)
+    {
+        if (radius < 0) throw new IllegalArgumentException("Negative radius in put (RouteCache): " + radius);
+
+        int set = set(location, radius);
+        synchronized (locks[set % locks.length]) {
+            int base = set * WAYS;
+            int victim = base;
+            for (int slot = base; slot < base + WAYS; slot++) {
+                if (radii[slot] == radius && locations[slot] == location) {
+                    victim = slot;
+                    break;
+                }
+                if (radii[slot] == EMPTY) {
+                    victim = slot;
+                    break;
+                }
+                if (lastUse[slot] < lastUse[victim]) {
+                    victim = slot;
+                }
+            }
+            locations[victim] = location;
+            radii[victim] = radius;
+            stations[victim] = station;
+            lastUse[victim] = ++clocks[set % locks.length];
+        }
+    }
+
+    /**
+     * Removes every entry. The hit and miss counters are kept.
+     */
+    public void clear()
+    {
+        for (int stripe = 0; stripe < locks.length; stripe++) {
+            synchronized (locks[stripe]) {
+                for (int set = stripe; set <= setMask; set += locks.length) {
+                    Arrays.fill(radii, set * WAYS, set * WAYS + WAYS, EMPTY);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The number of lookups answered from the cache.
+     */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups that were not cached.
+     */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * @return The fraction of lookups answered from the cache, between 0 and 1.
+     */
+    public double getHitRate()
+    {
+        long h = hits.sum();
+        long total = h + misses.sum();
+
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /**
+     * Sets the hit and miss counters back to zero.
+     */
+    public void resetStatistics()
+    {
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * @return A summary of the cache: capacity, hits, misses and hit rate.
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("(RouteCache: %d entries, %d hits, %d misses, %.1f%%)",
+        getCapacity(), getHits(), getMisses(), getHitRate() * 100);
+    }
+
+    /**
+     * @return The set of a key, mixing the bits of the location and the radius.
+     */
+    private int set(long location, int radius)
+    {
+        long h = location * 0x9E3779B97F4A7C15L + radius;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 32;
+        return (int) h & setMask;
+    }
+}
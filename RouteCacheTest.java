@@ -0,0 +1,161 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test implementation of the {@link RouteCache} class.
+ * A cache of 4 entries has a single set of 4 ways, so every key competes for the same slots
+ * and the least recently used one is always the entry replaced.
+ * @author DP classes
+ * @version 2025
+ */
+public class RouteCacheTest
+{
+    private static final long A = Location.pack(1, 1);
+    private static final long B = Location.pack(2, 2);
+    private static final long C = Location.pack(3, 3);
+    private static final long D = Location.pack(4, 4);
+    private static final long E = Location.pack(5, 5);
+    private static final long F = Location.pack(6, 6);
+
+    private RouteCache cache;
+
+    /**
+     * Default constructor for test class RouteCacheTest.
+     */
+    public RouteCacheTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        cache = new RouteCache(4);
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+    }
+
+    /**
+     * Test that the capacity is rounded up to a power of two of at least 4 entries, and
+     * the invalid arguments.
+     */
+    @Test
+    public void testCapacity()
+    {
+        assertEquals(4, cache.getCapacity());
+        assertEquals(4, new RouteCache(1).getCapacity());
+        assertEquals(8, new RouteCache(5).getCapacity());
+        assertEquals(16, new RouteCache(16).getCapacity());
+        assertEquals(RouteCache.DEFAULT_CAPACITY, new RouteCache(RouteCache.DEFAULT_CAPACITY).getCapacity());
+        try {
+            new RouteCache(0);
+            fail("A cache without entries must be rejected");
+        }
+        catch (IllegalArgumentException e) {
+            // Esperado
+        }
+        try {
+            cache.put(A, -1, 0);
+            fail("A negative radius must be rejected");
+        }
+        catch (IllegalArgumentException e) {
+            // Esperado
+        }
+    }
+
+    /**
+     * Test that entries are keyed by location and radius, that "no station" is cached too,
+     * and that storing a cached key again replaces its answer without evicting anything.
+     */
+    @Test
+    public void testKeysAndAnswers()
+    {
+        assertEquals(RouteCache.MISS, cache.get(A, 10));
+        cache.put(A, 10, 3);
+        cache.put(A, 20, -1);
+        assertEquals(3, cache.get(A, 10));
+        assertEquals(-1, cache.get(A, 20));
+        assertEquals(RouteCache.MISS, cache.get(A, 30));
+        assertEquals(RouteCache.MISS, cache.get(B, 10));
+
+        cache.put(B, 10, 1);
+        cache.put(C, 10, 2);
+        cache.put(A, 10, 7);
+        assertEquals(7, cache.get(A, 10));
+        assertEquals(-1, cache.get(A, 20));
+        assertEquals(1, cache.get(B, 10));
+        assertEquals(2, cache.get(C, 10));
+    }
+
+    /**
+     * Test that a full set replaces its least recently used entry, where reading an entry
+     * counts as using it.
+     */
+    @Test
+    public void testLeastRecentlyUsedEviction()
+    {
+        cache.put(A, 1, 0);
+        cache.put(B, 1, 1);
+        cache.put(C, 1, 2);
+        cache.put(D, 1, 3);
+        assertEquals(0, cache.get(A, 1));
+
+        // B es ahora la menos usada
+        cache.put(E, 1, 4);
+        assertEquals(RouteCache.MISS, cache.get(B, 1));
+        assertEquals(2, cache.get(C, 1));
+        assertEquals(3, cache.get(D, 1));
+        assertEquals(4, cache.get(E, 1));
+        assertEquals(0, cache.get(A, 1));
+
+        // Orden de uso: C, D, E, A
+        cache.put(F, 1, 5);
+        assertEquals(RouteCache.MISS, cache.get(C, 1));
+        cache.put(B, 1, 1);
+        assertEquals(RouteCache.MISS, cache.get(D, 1));
+        assertEquals(4, cache.get(E, 1));
+        assertEquals(0, cache.get(A, 1));
+        assertEquals(5, cache.get(F, 1));
+        assertEquals(1, cache.get(B, 1));
+    }
+
+    /**
+     * Test the hit and miss counters, and that clearing keeps them.
+     */
+    @Test
+    public void testCounters()
+    {
+        assertEquals(0.0, cache.getHitRate(), 0.0);
+        cache.get(A, 1);
+        cache.put(A, 1, 0);
+        cache.get(A, 1);
+        cache.get(A, 1);
+        cache.get(B, 1);
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 0.0);
+        assertEquals("(RouteCache: 4 entries, 2 hits, 2 misses, 50.0%)", cache.toString());
+
+        cache.clear();
+        assertEquals(RouteCache.MISS, cache.get(A, 1));
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.getMisses());
+
+        cache.resetStatistics();
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+        assertEquals(0.0, cache.getHitRate(), 0.0);
+    }
+}
@@ -0,0 +1,463 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Seeded, reproducible generator of large synthetic scenarios: {@link ChargingStation}s with
+ * their {@link Charger}s and {@link ElectricVehicle}s with their starting and target locations.
+ * Entities are handed one by one to a consumer as soon as they are created (for example
+ * {@link EVCompany#addElectricVehicle(ElectricVehicle)}), so no intermediate lists are built.
+ *
+ * The same seed, grid and configuration always produce the same scenario. The layout of the
+ * distribution (hotspots or corridors), the stations and the vehicles use independent random
+ * streams, so changing the number of vehicles does not move the stations and vice versa.
+ * Plates and identifiers are zero-padded, so sorting them as strings keeps creation order.
+ * @author DP classes
+ * @version 2025
+ */
+public class ScenarioGenerator
+{
+    /** City assigned to the generated stations. */
+    private static final String CITY = "Cáceres";
+
+    /** Attempts at drawing a free location from the distribution before falling back to a uniform draw. */
+    private static final int MAX_DISTRIBUTION_ATTEMPTS = 16;
+
+    /** Share of the stations that are placed uniformly, so that no region is left without coverage. */
+    private static final double UNIFORM_STATION_SHARE = 0.3;
+
+    /** Marks a location that has not been drawn yet. */
+    private static final long NO_POINT = -1L;
+
+    private final long seed;
+    private final int width;
+    private final int height;
+
+    private SpatialDistribution distribution;
+    private int featureCount;
+
+    // Mezclas ponderadas: valores y pesos acumulados
+    private int[] batteryCapacities;
+    private int[] batteryWeights;
+    private int[] chargerSpeeds;
+    private int[] chargerWeights;
+
+    // Disposición de la distribución (centros o corredores), calculada al primer uso
+    private int[] featureX;
+    private int[] featureY;
+    private boolean[] horizontal;
+    private double spread;
+
+    /**
+     * Constructor for objects of class ScenarioGenerator, with a uniform distribution,
+     * batteries reaching a quarter, half or all of the grid and chargers of 20 to 80 kW.
+     * @param seed The seed of the scenario.
+     * @param width The number of columns of the grid (x coordinates 0 to width - 1).
+     * @param height The number of rows of the grid (y coordinates 0 to height - 1).
+     * @throws IllegalArgumentException If the grid is empty.
+     */
+    public ScenarioGenerator(long seed, int width, int height)
+    {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("Empty grid in ScenarioGenerator: " + width + "x" + height);
+
+        this.seed = seed;
+        this.width = width;
+        this.height = height;
+        this.distribution = SpatialDistribution.UNIFORM;
+        this.featureCount = 8;
+
+        int side = Math.max(width, height);
+        setBatteryMix(new int[] {side / 4 * ElectricVehicle.CONSUMPTION_PER_STEP,
+                                 side / 2 * ElectricVehicle.CONSUMPTION_PER_STEP,
+                                 side * ElectricVehicle.CONSUMPTION_PER_STEP},
+                      new int[] {1, 2, 1});
+        setChargerSpeedMix(new int[] {20, 40, 60, 80}, new int[] {1, 1, 1, 1});
+    }
+
+    /**
+     * Sets how vehicles and stations are placed on the grid.
+     * @param distribution The spatial distribution. Must not be null.
+     * @param featureCount The number of hotspots or corridors. Ignored by {@link SpatialDistribution#UNIFORM}.
+     */
+    public void setDistribution(SpatialDistribution distribution, int featureCount)
+    {
+        if (distribution == null) throw new IllegalArgumentException("null distribution in setDistribution (ScenarioGenerator)");
+        if (featureCount <= 0) throw new IllegalArgumentException("Non-positive feature count in setDistribution (ScenarioGenerator): " + featureCount);
+
+        this.distribution = distribution;
+        this.featureCount = featureCount;
+        this.featureX = null;
+    }
+
+    /**
+     * Sets the battery capacities of the vehicles and how often each one appears.
+     * @param capacities The possible battery capacities (kWh). Must be positive.
+     * @param weights The relative frequency of every capacity.
+     */
+    public void setBatteryMix(int[] capacities, int[] weights)
+    {
+        this.batteryCapacities = capacities.clone();
+        this.batteryWeights = cumulativeWeights(capacities, weights, "setBatteryMix");
+    }
+
+    /**
+     * Sets the speeds of the chargers and how often each one appears. The fee of every
+     * charger grows with its speed as in {@link EVDemo}: 0.20 euros per kWh every 20 kW.
+     * @param speeds The possible charging speeds (kW). Must be positive.
+     * @param weights The relative frequency of every speed.
+     */
+    public void setChargerSpeedMix(int[] speeds, int[] weights)
+    {
+        this.chargerSpeeds = speeds.clone();
+        this.chargerWeights = cumulativeWeights(speeds, weights, "setChargerSpeedMix");
+    }
+
+    /**
+     * Writes the seed, the grid and the configuration of this generator, so that another
+     * process can generate exactly the same scenario (see {@link TiledSimulation}).
+     * @param out Where the configuration is written.
+     * @throws IOException If the stream fails.
+     */
+    void writeConfiguration(DataOutputStream out) throws IOException
+    {
+        out.writeLong(seed);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeInt(distribution.ordinal());
+        out.writeInt(featureCount);
+        writeInts(out, batteryCapacities);
+        writeInts(out, batteryWeights);
+        writeInts(out, chargerSpeeds);
+        writeInts(out, chargerWeights);
+    }
+
+    /**
+     * Creates a generator from a configuration written by {@link #writeConfiguration}.
+     * @param in Where the configuration is read from.
+     * @return A generator that produces the same scenario as the one that was written.
+     * @throws IOException If the stream fails.
+     */
+    static ScenarioGenerator readConfiguration(DataInputStream in) throws IOException
+    {
+        ScenarioGenerator generator = new ScenarioGenerator(in.readLong(), in.readInt(), in.readInt());
+        generator.distribution = SpatialDistribution.values()[in.readInt()];
+        generator.featureCount = in.readInt();
+        // Los pesos ya están acumulados: se copian tal cual
+        generator.batteryCapacities = readInts(in);
+        generator.batteryWeights = readInts(in);
+        generator.chargerSpeeds = readInts(in);
+        generator.chargerWeights = readInts(in);
+        return generator;
+    }
+
+    /**
+     * Adds a generated scenario to a company.
+     * @param company The company that receives the stations and the vehicles.
+     * @param numVehicles The number of vehicles.
+     * @param numStations The number of stations.
+     * @param chargersPerStation The number of chargers of every station.
+     */
+    public void populate(EVCompany company, int numVehicles, int numStations, int chargersPerStation)
+    {
+        if (company == null) throw new IllegalArgumentException("null company in populate (ScenarioGenerator)");
+
+        generateStations(numStations, chargersPerStation, company::addChargingStation);
+        generateVehicles(company, numVehicles, company::addElectricVehicle);
+    }
+
+    /**
+     * Generates charging stations at distinct locations, each one with its chargers.
+     * Identifiers are "CC" followed by the zero-padded index of the station.
+     * @param numStations The number of stations. Must not exceed the number of cells of the grid.
+     * @param chargersPerStation The number of chargers of every station.
+     * @param consumer Receives every station, in identifier order.
+     */
+    public void generateStations(int numStations, int chargersPerStation, Consumer<ChargingStation> consumer)
+    {
+        if (numStations < 0 || chargersPerStation < 0) throw new IllegalArgumentException("Negative count in generateStations (ScenarioGenerator)");
+        if ((long) numStations > (long) width * height) throw new IllegalArgumentException("More stations than cells in generateStations (ScenarioGenerator): " + numStations);
+
+        SplittableRandom random = stream(1);
+        long[] used = newLocationSet(numStations);
+        int digits = digits(numStations);
+
+        for (int s = 0; s < numStations; s++) {
+            long location = NO_POINT;
+            boolean uniform = distribution == SpatialDistribution.UNIFORM || random.nextDouble() < UNIFORM_STATION_SHARE;
+            for (int attempt = 0; attempt < MAX_DISTRIBUTION_ATTEMPTS && location == NO_POINT; attempt++) {
+                long candidate = uniform ? uniformPoint(random) : stationPoint(random);
+                if (addLocation(used, candidate)) location = candidate;
+            }
+            while (location == NO_POINT) {
+                long candidate = uniformPoint(random);
+                if (addLocation(used, candidate)) location = candidate;
+            }
+
+            String id = "CC" + pad(s, digits);
+            ChargingStation station = new ChargingStation(CITY, id, Location.of(Location.unpackX(location), Location.unpackY(location)));
+            for (int c = 0; c < chargersPerStation; c++) {
+                int speed = pick(chargerSpeeds, chargerWeights, random);
+                station.addCharger(new Charger(id + "_" + pad(c, 3), speed, fee(speed)));
+            }
+            consumer.accept(station);
+        }
+    }
+
+    /**
+     * Generates vehicles with their starting and target locations. Plates are "EV" followed
+     * by the zero-padded index of the vehicle. Routes are not calculated.
+     * @param company The company the vehicles belong to.
+     * @param numVehicles The number of vehicles.
+     * @param consumer Receives every vehicle, in plate order.
+     */
+    public void generateVehicles(EVCompany company, int numVehicles, Consumer<ElectricVehicle> consumer)
+    {
+        if (company == null) throw new IllegalArgumentException("null company in generateVehicles (ScenarioGenerator)");
+        if (numVehicles < 0) throw new IllegalArgumentException("Negative count in generateVehicles (ScenarioGenerator)");
+
+        SplittableRandom random = stream(2);
+        int digits = digits(numVehicles);
+
+        for (int i = 0; i < numVehicles; i++) {
+            long start;
+            long target;
+            switch (distribution) {
+                case HOTSPOTS: {
+                    int from = random.nextInt(featureCount);
+                    int to = featureCount == 1 ? from : (from + 1 + random.nextInt(featureCount - 1)) % featureCount;
+                    start = aroundHotspot(from, random);
+                    target = aroundHotspot(to, random);
+                    break;
+                }
+                case CORRIDORS: {
+                    // Viaje de un extremo a otro del corredor, en cualquiera de los dos sentidos
+                    int corridor = random.nextInt(featureCount);
+                    boolean forward = random.nextBoolean();
+                    start = alongCorridor(corridor, forward ? 0.0 : 0.8, forward ? 0.2 : 1.0, random);
+                    target = alongCorridor(corridor, forward ? 0.8 : 0.0, forward ? 1.0 : 0.2, random);
+                    break;
+                }
+                default:
+                    start = uniformPoint(random);
+                    target = uniformPoint(random);
+            }
+
+            String index = pad(i, digits);
+            ElectricVehicle ev = new ElectricVehicle("EV" + index, index + "CCC", company,
+                                                     Location.of(Location.unpackX(start), Location.unpackY(start)),
+                                                     Location.of(Location.unpackX(target), Location.unpackY(target)),
+                                                     pick(batteryCapacities, batteryWeights, random));
+            consumer.accept(ev);
+        }
+    }
+
+    /**
+     * Draws the location of a non-uniform station: around a hotspot or along a corridor.
+     */
+    private long stationPoint(SplittableRandom random)
+    {
+        int feature = random.nextInt(features());
+        if (distribution == SpatialDistribution.HOTSPOTS) {
+            return aroundHotspot(feature, random);
+        }
+        return alongCorridor(feature, 0.0, 1.0, random);
+    }
+
+    /**
+     * Draws a location anywhere on the grid.
+     */
+    private long uniformPoint(SplittableRandom random)
+    {
+        return Location.pack(random.nextInt(width), random.nextInt(height));
+    }
+
+    /**
+     * Draws a location normally distributed around a hotspot.
+     */
+    private long aroundHotspot(int hotspot, SplittableRandom random)
+    {
+        layout();
+        int x = clamp((int) Math.round(featureX[hotspot] + random.nextGaussian() * spread), width);
+        int y = clamp((int) Math.round(featureY[hotspot] + random.nextGaussian() * spread), height);
+        return Location.pack(x, y);
+    }
+
+    /**
+     * Draws a location on a corridor, between two fractions of its length and slightly off its axis.
+     */
+    private long alongCorridor(int corridor, double fromFraction, double toFraction, SplittableRandom random)
+    {
+        layout();
+        int length = horizontal[corridor] ? width : height;
+        int along = clamp((int) (length * (fromFraction + random.nextDouble() * (toFraction - fromFraction))), length);
+        int across = (int) Math.round(random.nextGaussian() * spread);
+
+        if (horizontal[corridor]) {
+            return Location.pack(along, clamp(featureY[corridor] + across, height));
+        }
+        return Location.pack(clamp(featureX[corridor] + across, width), along);
+    }
+
+    /**
+     * Places the hotspots or corridors of the distribution, the first time they are needed.
+     */
+    private void layout()
+    {
+        if (featureX != null) return;
+
+        SplittableRandom random = stream(0);
+        int n = features();
+        featureX = new int[n];
+        featureY = new int[n];
+        horizontal = new boolean[n];
+        for (int f = 0; f < n; f++) {
+            featureX[f] = random.nextInt(width);
+            featureY[f] = random.nextInt(height);
+            horizontal[f] = (f % 2 == 0);
+        }
+
+        // Los focos se extienden más que el ancho de los corredores
+        int side = Math.min(width, height);
+        spread = distribution == SpatialDistribution.HOTSPOTS ? Math.max(1.0, side / 16.0) : Math.max(1.0, side / 100.0);
+    }
+
+    /**
+     * @return The number of hotspots or corridors of the current distribution.
+     */
+    private int features()
+    {
+        return distribution == SpatialDistribution.UNIFORM ? 1 : featureCount;
+    }
+
+    /**
+     * Creates the random stream with the given number, derived from the seed.
+     */
+    private SplittableRandom stream(int number)
+    {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + number);
+    }
+
+    /**
+     * @return The fee of a charger: 0.20 euros per kWh every 20 kW, as in {@link EVDemo}.
+     */
+    private static float fee(int speed)
+    {
+        return speed % 20 == 0 ? (speed / 20) * 0.20f : speed * 0.01f;
+    }
+
+    /**
+     * Picks a value of a weighted mix.
+     */
+    private static int pick(int[] values, int[] cumulativeWeights, SplittableRandom random)
+    {
+        int r = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (cumulativeWeights[i] <= r) {
+            i++;
+        }
+        return values[i];
+    }
+
+    /**
+     * Validates a weighted mix and returns its cumulative weights.
+     */
+    private static int[] cumulativeWeights(int[] values, int[] weights, String method)
+    {
+        if (values == null || weights == null) throw new IllegalArgumentException("null mix in " + method + " (ScenarioGenerator)");
+        if (values.length == 0 || values.length != weights.length) throw new IllegalArgumentException("Mismatched mix in " + method + " (ScenarioGenerator)");
+
+        int[] cumulative = new int[weights.length];
+        int total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (values[i] <= 0 || weights[i] < 0) throw new IllegalArgumentException("Invalid mix entry in " + method + " (ScenarioGenerator): " + values[i] + "/" + weights[i]);
+            total += weights[i];
+            cumulative[i] = total;
+        }
+        if (total == 0) throw new IllegalArgumentException("Zero total weight in " + method + " (ScenarioGenerator)");
+        return cumulative;
+    }
+
+    /**
+     * Writes an array of integers preceded by its length.
+     */
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException
+    {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Reads an array written with {@link #writeInts}.
+     */
+    private static int[] readInts(DataInputStream in) throws IOException
+    {
+        int[] values = new int[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    /**
+     * Creates an empty set of packed locations, an open-addressing table that stays at least
+     * half empty with up to {@code capacity} locations.
+     */
+    private static long[] newLocationSet(int capacity)
+    {
+        long[] set = new long[Integer.highestOneBit(Math.max(8, capacity * 2) - 1) * 2];
+        Arrays.fill(set, NO_POINT);
+        return set;
+    }
+
+    /**
+     * Adds a packed location to a set created by {@link #newLocationSet(int)}.
+     * @return Whether the location was not in the set yet.
+     */
+    private static boolean addLocation(long[] set, long location)
+    {
+        int mask = set.length - 1;
+        long hash = location * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (set[slot] != NO_POINT) {
+            if (set[slot] == location) return false;
+            slot = (slot + 1) & mask;
+        }
+        set[slot] = location;
+        return true;
+    }
+
+    /**
+     * Keeps a coordinate inside [0, limit - 1].
+     */
+    private static int clamp(int value, int limit)
+    {
+        return Math.max(0, Math.min(limit - 1, value));
+    }
+
+    /**
+     * @return The number of digits needed to write every index below {@code count}.
+     */
+    private static int digits(int count)
+    {
+        return String.valueOf(Math.max(count - 1, 0)).length();
+    }
+
+    /**
+     * Writes a non-negative number with leading zeros up to the given width.
+     */
+    private static String pad(int value, int digits)
+    {
+        String text = Integer.toString(value);
+        if (text.length() >= digits) return text;
+
+        StringBuilder padded = new StringBuilder(digits);
+        for (int i = text.length(); i < digits; i++) {
+            padded.append('0');
+        }
+        return padded.append(text).toString();
+    }
+}
@@ -0,0 +1,221 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * Test implementation of the {@link ScenarioGenerator} class.
+ * Checks that a seed always gives the same scenario, that the stations do not depend on the
+ * vehicles generated (nor the vehicles on the stations), and that every distribution keeps
+ * the stations, at distinct locations, and the trips of the vehicles inside the grid.
+ * @author DP classes
+ * @version 2025
+ */
+public class ScenarioGeneratorTest
+{
+    private static final long SEED = 99L;
+    private static final int WIDTH = 97;
+    private static final int HEIGHT = 41;
+    private static final int STATIONS = 300;
+    private static final int CHARGERS = 3;
+    private static final int VEHICLES = 2_000;
+
+    private EVCompany company;
+
+    /**
+     * Default constructor for test class ScenarioGeneratorTest.
+     */
+    public ScenarioGeneratorTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        company = new EVCompany("Test");
+        company.setLog(SimulationLog.off());
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+    }
+
+    /**
+     * Test that the same seed and configuration give the same scenario, and another seed a different one.
+     */
+    @Test
+    public void testSameSeedSameScenario()
+    {
+        for (SpatialDistribution distribution : SpatialDistribution.values()) {
+            String message = distribution.getName();
+            List<String> stations = stations(createGenerator(SEED, distribution), STATIONS);
+            List<String> vehicles = vehicles(createGenerator(SEED, distribution), VEHICLES);
+            assertEquals(message, STATIONS, stations.size());
+            assertEquals(message, VEHICLES, vehicles.size());
+            assertEquals(message, stations, stations(createGenerator(SEED, distribution), STATIONS));
+            assertEquals(message, vehicles, vehicles(createGenerator(SEED, distribution), VEHICLES));
+            assertNotEquals(message, stations, stations(createGenerator(SEED + 1, distribution), STATIONS));
+            assertNotEquals(message, vehicles, vehicles(createGenerator(SEED + 1, distribution), VEHICLES));
+        }
+    }
+
+    /**
+     * Test that the stations are placed in the same way whatever the number of vehicles
+     * and whether the vehicles are generated before or after them, and that the vehicles
+     * do not depend on the stations either.
+     */
+    @Test
+    public void testStationsIndependentOfVehicles()
+    {
+        for (SpatialDistribution distribution : SpatialDistribution.values()) {
+            String message = distribution.getName();
+            EVCompany few = new EVCompany("Few");
+            few.setLog(SimulationLog.off());
+            createGenerator(SEED, distribution).populate(few, 10, STATIONS, CHARGERS);
+
+            ScenarioGenerator generator = createGenerator(SEED, distribution);
+            List<String> vehicles = vehicles(generator, VEHICLES);
+            assertEquals(message, stations(few.getCityStations()), stations(generator, STATIONS));
+
+            // Generados tras las estaciones, los primeros vehículos sólo difieren en el relleno de la matrícula y el nombre
+            ScenarioGenerator afterStations = createGenerator(SEED, distribution);
+            stations(afterStations, STATIONS);
+            List<String> firstVehicles = vehicles(afterStations, 10);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(message, trip(firstVehicles.get(i)), trip(vehicles.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Test that every distribution keeps stations and vehicles inside a grid that is not
+     * square, with the stations at distinct locations, also when they fill the whole grid.
+     */
+    @Test
+    public void testEveryDistributionInsideTheGrid()
+    {
+        for (SpatialDistribution distribution : SpatialDistribution.values()) {
+            String message = distribution.getName();
+            ScenarioGenerator generator = createGenerator(SEED, distribution);
+            Set<Location> used = new HashSet<>();
+            generator.generateStations(STATIONS, CHARGERS, station -> {
+                assertInside(message, station.getLocation());
+                assertTrue(message, used.add(station.getLocation()));
+                assertEquals(CHARGERS, station.getChargers().size());
+            });
+            assertEquals(message, STATIONS, used.size());
+            generator.generateVehicles(company, VEHICLES, ev -> {
+                assertInside(message, ev.getLocation());
+                assertInside(message, ev.getTargetLocation());
+            });
+
+            // Tantas estaciones como celdas: la última sólo cabe en la celda que queda libre
+            used.clear();
+            createGenerator(SEED, distribution).generateStations(WIDTH * HEIGHT, 0, station -> {
+                assertInside(message, station.getLocation());
+                assertTrue(message, used.add(station.getLocation()));
+            });
+            assertEquals(message, WIDTH * HEIGHT, used.size());
+        }
+    }
+
+    /**
+     * Test that a generator rejects more stations than cells and negative counts.
+     */
+    @Test
+    public void testRejectsInvalidCounts()
+    {
+        ScenarioGenerator generator = createGenerator(SEED, SpatialDistribution.UNIFORM);
+        try {
+            generator.generateStations(WIDTH * HEIGHT + 1, 1, station -> {});
+            fail("More stations than cells must be rejected");
+        }
+        catch (IllegalArgumentException e) {
+            // Esperado
+        }
+        try {
+            generator.generateVehicles(company, -1, ev -> {});
+            fail("A negative number of vehicles must be rejected");
+        }
+        catch (IllegalArgumentException e) {
+            // Esperado
+        }
+    }
+
+    /**
+     * @return A generator with some distribution and mixes of batteries and chargers.
+     */
+    private static ScenarioGenerator createGenerator(long seed, SpatialDistribution distribution)
+    {
+        ScenarioGenerator generator = new ScenarioGenerator(seed, WIDTH, HEIGHT);
+        generator.setDistribution(distribution, 5);
+        generator.setBatteryMix(new int[] {100, 250, 600}, new int[] {2, 3, 1});
+        generator.setChargerSpeedMix(new int[] {20, 50, 150}, new int[] {3, 2, 1});
+        return generator;
+    }
+
+    /**
+     * @return A description of every generated station with its chargers.
+     */
+    private static List<String> stations(ScenarioGenerator generator, int numStations)
+    {
+        List<ChargingStation> stations = new ArrayList<>();
+        generator.generateStations(numStations, CHARGERS, stations::add);
+        return stations(stations);
+    }
+
+    /**
+     * @return A description of every station with its chargers.
+     */
+    private static List<String> stations(List<ChargingStation> stations)
+    {
+        List<String> result = new ArrayList<>();
+        for (ChargingStation station : stations) {
+            StringBuilder text = new StringBuilder(station.getId()).append(' ').append(station.getLocation());
+            for (Charger charger : station.getChargers()) {
+                text.append(' ').append(charger.getId()).append('/').append(charger.getChargingSpeed()).append('/').append(charger.getChargingFee());
+            }
+            result.add(text.toString());
+        }
+        return result;
+    }
+
+    /**
+     * @return A description of every generated vehicle.
+     */
+    private List<String> vehicles(ScenarioGenerator generator, int numVehicles)
+    {
+        List<String> result = new ArrayList<>();
+        generator.generateVehicles(company, numVehicles, ev -> result.add(ev.getPlate() + " " + ev.getName() + " " + ev.getLocation()
+                                                                         + " " + ev.getTargetLocation() + " " + ev.getBatteryCapacity()));
+        return result;
+    }
+
+    /**
+     * @return The description of a vehicle without its plate and name.
+     */
+    private static String trip(String vehicle)
+    {
+        return vehicle.substring(vehicle.indexOf(' ', vehicle.indexOf(' ') + 1) + 1);
+    }
+
+    /**
+     * Asserts that a location is inside the grid.
+     */
+    private static void assertInside(String message, Location location)
+    {
+        assertTrue(message + ": " + location, location.getX() >= 0 && location.getX() < WIDTH);
+        assertTrue(message + ": " + location, location.getY() >= 0 && location.getY() < HEIGHT);
+    }
+}
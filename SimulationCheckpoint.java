@@ -0,0 +1,558 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Snapshot of the complete state of a simulation: the {@link EVCompany} with its stations,
+ * chargers (collected amounts, recharge histories, occupancy, queues and session statistics)
+ * and fleet (location, destination, battery, counters, target station and charging session
+ * of every vehicle), together with the next step to simulate.
+ *
+ * Taking a checkpoint is split in two parts so the simulation does not stop while it is
+ * written. {@link #capture} runs between two steps and only copies primitives into arrays;
+ * recharge histories are not copied at all, because they are append-only: the capture keeps
+ * their current length and {@link #write(Path)}, which may run on another thread while the
+ * simulation goes on, encodes just that prefix. The file is written next to its destination
+ * and moved into place, so a crash while writing leaves the previous checkpoint intact.
+ *
+ * {@link #read(Path)} loads a checkpoint and {@link #restore()} rebuilds new objects from it.
+ * Stations keep their order in the company and vehicles their fleet order, so the restored
+ * simulation continues exactly as the original one would have.
+ * @author DP classes
+ * @version 2025
+ */
+public class SimulationCheckpoint
+{
+    /** First four bytes of every checkpoint file ("EVCP"). */
+    public static final int MAGIC = 0x45564350;
+    /** Version of the format written by this class. */
+    public static final int VERSION = 4;
+
+    private static final long NO_LOCATION = ElectricVehicle.NO_LOCATION;
+
+    private final int nextStep;
+    private final String companyName;
+    private final boolean sessionMode;
+    private int consumptionPerStep;
+
+    // Estaciones, en el orden de la compañía
+    private final String[] stationIds;
+    private final String[] stationCities;
+    private final long[] stationLocations;
+    private final int[] queueMaxLengths;
+    private final long[] sessionsStarted;
+    private final long[] totalWaitSteps;
+    private final long[] busyChargerSteps;
+    private final int[][] queues;
+
+    // Cargadores de cada estación, en el orden de getChargers()
+    private final String[][] chargerIds;
+    private final int[][] chargerSpeeds;
+    private final float[][] chargerFees;
+    private final long[][] chargerAmounts;     // Unidades de Money
+    private final boolean[][] chargerFree;
+    private final int[][] historyLengths;
+    private final Charger[][] liveChargers;     // Sólo en capturas: historiales por escribir
+    private RechargeLog[][] histories;          // Sólo en lecturas: vehículos por índice en la flota
+
+    // Flota, en el orden de la lista dada
+    private final ElectricVehicle[] liveVehicles;
+    private final String[] plates;
+    private final String[] names;
+    private final int[] batteryCapacities;
+    private final long[] targets;
+    private final long[] locations;
+    private final long[] destinations;
+    private final int[] batteryLevels;
+    private final int[] idleCounts;
+    private final int[] chargesCounts;
+    private final long[] chargesCosts;         // Unidades de Money
+    private final int[] targetStations;
+    private final boolean[] finished;
+    private final int[] arrivingSteps;
+    private final int[] sessionStations;
+    private final int[] sessionChargers;
+    private final boolean[] waiting;
+    private final int[] waitingSince;
+    private final int[] sessionStarts;
+    private final int[] sessionEnds;
+
+    private EVCompany restoredCompany;
+    private List<ElectricVehicle> restoredVehicles;
+
+    /**
+     * Creates an empty checkpoint with room for the given numbers of stations and vehicles.
+     */
+    private SimulationCheckpoint(int nextStep, String companyName, boolean sessionMode, int numStations,
+                                 int numVehicles, boolean captured)
+    {
+        this.nextStep = nextStep;
+        this.companyName = companyName;
+        this.sessionMode = sessionMode;
+
+        this.stationIds = new String[numStations];
+        this.stationCities = new String[numStations];
+        this.stationLocations = new long[numStations];
+        this.queueMaxLengths = new int[numStations];
+        this.sessionsStarted = new long[numStations];
+        this.totalWaitSteps = new long[numStations];
+        this.busyChargerSteps = new long[numStations];
+        this.queues = new int[numStations][];
+        this.chargerIds = new String[numStations][];
+        this.chargerSpeeds = new int[numStations][];
+        this.chargerFees = new float[numStations][];
+        this.chargerAmounts = new long[numStations][];
+        this.chargerFree = new boolean[numStations][];
+        this.historyLengths = new int[numStations][];
+        this.liveChargers = captured ? new Charger[numStations][] : null;
+        this.histories = captured ? null : new RechargeLog[numStations][];
+
+        this.liveVehicles = captured ? new ElectricVehicle[numVehicles] : null;
+        this.plates = new String[numVehicles];
+        this.names = new String[numVehicles];
+        this.batteryCapacities = new int[numVehicles];
+        this.targets = new long[numVehicles];
+        this.locations = new long[numVehicles];
+        this.destinations = new long[numVehicles];
+        this.batteryLevels = new int[numVehicles];
+        this.idleCounts = new int[numVehicles];
+        this.chargesCounts = new int[numVehicles];
+        this.chargesCosts = new long[numVehicles];
+        this.targetStations = new int[numVehicles];
+        this.finished = new boolean[numVehicles];
+        this.arrivingSteps = new int[numVehicles];
+        this.sessionStations = new int[numVehicles];
+        this.sessionChargers = new int[numVehicles];
+        this.waiting = new boolean[numVehicles];
+        this.waitingSince = new int[numVehicles];
+        this.sessionStarts = new int[numVehicles];
+        this.sessionEnds = new int[numVehicles];
+    }
+
+    /**
+     * Copies the state of a simulation between two steps. It must be called from the thread
+     * that runs the simulation; the result can then be written from any thread.
+     * @param company The company, with its stations.
+     * @param fleet The vehicles, in the order the simulation steps them. Every vehicle that
+     * appears in a recharge history or a queue must be part of it.
+     * @param nextStep The next step to simulate.
+     * @return The checkpoint.
+     */
+    public static SimulationCheckpoint capture(EVCompany company, List<ElectricVehicle> fleet, int nextStep)
+    {
+        if (company == null || fleet == null) throw new IllegalArgumentException("null company or fleet in capture (SimulationCheckpoint)");
+
+        List<ChargingStation> network = company.getCityStations();
+        SimulationCheckpoint checkpoint = new SimulationCheckpoint(nextStep, company.getName(), company.isChargingSessionMode(),
+                                                                   network.size(), fleet.size(), true);
+        checkpoint.consumptionPerStep = company.getConsumptionPerStep();
+
+        Map<ElectricVehicle, Integer> vehicleIndex = indexOf(fleet);
+        Map<ChargingStation, Integer> stationIndex = new IdentityHashMap<>();
+        Map<Charger, Integer> chargerIndex = new IdentityHashMap<>();
+
+        for (int s = 0; s < network.size(); s++) {
+            ChargingStation station = network.get(s);
+            stationIndex.put(station, s);
+            checkpoint.stationIds[s] = station.getId();
+            checkpoint.stationCities[s] = station.getCity();
+            checkpoint.stationLocations[s] = station.getLocation().pack();
+            checkpoint.queueMaxLengths[s] = station.getMaxQueueLength();
+            checkpoint.sessionsStarted[s] = station.getSessionsStarted();
+            checkpoint.totalWaitSteps[s] = station.getTotalWaitSteps();
+            checkpoint.busyChargerSteps[s] = station.getBusyChargerSteps();
+
+            List<ElectricVehicle> queue = station.getWaitingVehicles();
+            checkpoint.queues[s] = new int[queue.size()];
+            for (int q = 0; q < queue.size(); q++) {
+                checkpoint.queues[s][q] = index(vehicleIndex, queue.get(q));
+            }
+
+            int numChargers = station.getChargers().size();
+            checkpoint.chargerIds[s] = new String[numChargers];
+            checkpoint.chargerSpeeds[s] = new int[numChargers];
+            checkpoint.chargerFees[s] = new float[numChargers];
+            checkpoint.chargerAmounts[s] = new long[numChargers];
+            checkpoint.chargerFree[s] = new boolean[numChargers];
+            checkpoint.historyLengths[s] = new int[numChargers];
+            checkpoint.liveChargers[s] = new Charger[numChargers];
+            int c = 0;
+            for (Charger charger : station.getChargers()) {
+                chargerIndex.put(charger, c);
+                checkpoint.chargerIds[s][c] = charger.getId();
+                checkpoint.chargerSpeeds[s][c] = charger.getChargingSpeed();
+                checkpoint.chargerFees[s][c] = charger.getChargingFee();
+                checkpoint.chargerAmounts[s][c] = charger.getAmountCollectedUnits();
+                checkpoint.chargerFree[s][c] = charger.isFree();
+                checkpoint.historyLengths[s][c] = charger.getNumerEVRecharged();
+                checkpoint.liveChargers[s][c] = charger;
+                c++;
+            }
+        }
+
+        for (int i = 0; i < fleet.size(); i++) {
+            ElectricVehicle ev = fleet.get(i);
+            checkpoint.liveVehicles[i] = ev;
+            checkpoint.plates[i] = ev.getPlate();
+            checkpoint.names[i] = ev.getName();
+            checkpoint.batteryCapacities[i] = ev.getBatteryCapacity();
+            checkpoint.targets[i] = ev.getPackedTargetLocation();
+            checkpoint.locations[i] = ev.getPackedLocation();
+            checkpoint.destinations[i] = ev.getPackedDestination();
+            checkpoint.batteryLevels[i] = ev.getBatteryLevel();
+            checkpoint.idleCounts[i] = ev.getIdleCount();
+            checkpoint.chargesCounts[i] = ev.getChargesCount();
+            checkpoint.chargesCosts[i] = ev.getChargesCostUnits();
+            checkpoint.targetStations[i] = stationIndex.getOrDefault(ev.getTargetChargingStation(), -1);
+            checkpoint.finished[i] = ev.hasFinishedSimulation();
+            checkpoint.arrivingSteps[i] = ev.getArrivingStep();
+
+            Charger charger = ev.getSelectedCharger();
+            checkpoint.sessionStations[i] = charger == null ? -1 : stationIndex.getOrDefault(charger.getStation(), -1);
+            checkpoint.sessionChargers[i] = charger == null ? -1 : chargerIndex.getOrDefault(charger, -1);
+            checkpoint.waiting[i] = ev.isWaitingForCharger();
+            checkpoint.waitingSince[i] = ev.getWaitingSince();
+            checkpoint.sessionStarts[i] = ev.getSessionStartStep();
+            checkpoint.sessionEnds[i] = ev.getSessionEndStep();
+        }
+        return checkpoint;
+    }
+
+    /**
+     * @return The next step to simulate after restoring this checkpoint.
+     */
+    public int getNextStep()
+    {
+        return nextStep;
+    }
+
+    /**
+     * Writes the checkpoint to a file. Captured checkpoints may be written while the
+     * simulation keeps running.
+     * @param file The checkpoint file; it is replaced only once completely written.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path file) throws IOException
+    {
+        Path absolute = file.toAbsolutePath();
+        Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(nextStep);
+            writeString(out, companyName);
+            out.writeBoolean(sessionMode);
+            out.writeInt(consumptionPerStep);
+
+            Map<ElectricVehicle, Integer> vehicleIndex = liveVehicles == null ? null : indexOf(Arrays.asList(liveVehicles));
+
+            out.writeInt(stationIds.length);
+            for (int s = 0; s < stationIds.length; s++) {
+                writeString(out, stationIds[s]);
+                writeString(out, stationCities[s]);
+                out.writeLong(stationLocations[s]);
+                out.writeInt(queueMaxLengths[s]);
+                out.writeLong(sessionsStarted[s]);
+                out.writeLong(totalWaitSteps[s]);
+                out.writeLong(busyChargerSteps[s]);
+                writeInts(out, queues[s], queues[s].length);
+
+                out.writeInt(chargerIds[s].length);
+                for (int c = 0; c < chargerIds[s].length; c++) {
+                    writeString(out, chargerIds[s][c]);
+                    out.writeInt(chargerSpeeds[s][c]);
+                    out.writeFloat(chargerFees[s][c]);
+                    out.writeLong(chargerAmounts[s][c]);
+                    out.writeBoolean(chargerFree[s][c]);
+
+                    int length = historyLengths[s][c];
+                    out.writeInt(length);
+                    // Sólo el prefijo que existía al capturar: lo añadido después no cambia
+                    RechargeLog history = liveChargers != null ? liveChargers[s][c].getRechargeHistory() : histories[s][c];
+                    for (int h = 0; h < length; h++) {
+                        out.writeInt(liveChargers != null ? index(vehicleIndex, liveChargers[s][c].getRechargedVehicle(h)) : history.getVehicle(h));
+                        out.writeInt(history.getStep(h));
+                        out.writeInt(history.getKwh(h));
+                        out.writeLong(history.getCostUnits(h));
+                    }
+                }
+            }
+
+            out.writeInt(plates.length);
+            for (int i = 0; i < plates.length; i++) {
+                writeString(out, plates[i]);
+                writeString(out, names[i]);
+                out.writeInt(batteryCapacities[i]);
+                out.writeLong(targets[i]);
+                out.writeLong(locations[i]);
+                out.writeLong(destinations[i]);
+                out.writeInt(batteryLevels[i]);
+                out.writeInt(idleCounts[i]);
+                out.writeInt(chargesCounts[i]);
+                out.writeLong(chargesCosts[i]);
+                out.writeInt(targetStations[i]);
+                out.writeBoolean(finished[i]);
+                out.writeInt(arrivingSteps[i]);
+                out.writeInt(sessionStations[i]);
+                out.writeInt(sessionChargers[i]);
+                out.writeBoolean(waiting[i]);
+                out.writeInt(waitingSince[i]);
+                out.writeInt(sessionStarts[i]);
+                out.writeInt(sessionEnds[i]);
+            }
+        }
+        Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a checkpoint file.
+     * @param file The checkpoint file.
+     * @return The checkpoint, ready to be restored.
+     * @throws IOException If the file cannot be read or is not a checkpoint.
+     */
+    public static SimulationCheckpoint read(Path file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a checkpoint file: " + file);
+            if (in.readInt() != VERSION) throw new IOException("Unsupported checkpoint version: " + file);
+            int nextStep = in.readInt();
+            String companyName = readString(in);
+            boolean sessionMode = in.readBoolean();
+            int consumptionPerStep = in.readInt();
+
+            int numStations = in.readInt();
+            String[] ids = new String[numStations];
+            String[] cities = new String[numStations];
+            long[] stationLocations = new long[numStations];
+            int[] maxQueues = new int[numStations];
+            long[] started = new long[numStations];
+            long[] waited = new long[numStations];
+            long[] busy = new long[numStations];
+            int[][] queues = new int[numStations][];
+            String[][] chargerIds = new String[numStations][];
+            int[][] speeds = new int[numStations][];
+            float[][] fees = new float[numStations][];
+            long[][] amounts = new long[numStations][];
+            boolean[][] free = new boolean[numStations][];
+            RechargeLog[][] histories = new RechargeLog[numStations][];
+            for (int s = 0; s < numStations; s++) {
+                ids[s] = readString(in);
+                cities[s] = readString(in);
+                stationLocations[s] = in.readLong();
+                maxQueues[s] = in.readInt();
+                started[s] = in.readLong();
+                waited[s] = in.readLong();
+                busy[s] = in.readLong();
+                queues[s] = readInts(in);
+
+                int numChargers = in.readInt();
+                chargerIds[s] = new String[numChargers];
+                speeds[s] = new int[numChargers];
+                fees[s] = new float[numChargers];
+                amounts[s] = new long[numChargers];
+                free[s] = new boolean[numChargers];
+                histories[s] = new RechargeLog[numChargers];
+                for (int c = 0; c < numChargers; c++) {
+                    chargerIds[s][c] = readString(in);
+                    speeds[s][c] = in.readInt();
+                    fees[s][c] = in.readFloat();
+                    amounts[s][c] = in.readLong();
+                    free[s][c] = in.readBoolean();
+                    histories[s][c] = new RechargeLog();
+                    int length = in.readInt();
+                    for (int h = 0; h < length; h++) {
+                        histories[s][c].append(in.readInt(), in.readInt(), in.readInt(), in.readLong());
+                    }
+                }
+            }
+
+            int numVehicles = in.readInt();
+            SimulationCheckpoint checkpoint = new SimulationCheckpoint(nextStep, companyName, sessionMode, numStations, numVehicles, false);
+            checkpoint.consumptionPerStep = consumptionPerStep;
+            for (int s = 0; s < numStations; s++) {
+                checkpoint.stationIds[s] = ids[s];
+                checkpoint.stationCities[s] = cities[s];
+                checkpoint.stationLocations[s] = stationLocations[s];
+                checkpoint.queueMaxLengths[s] = maxQueues[s];
+                checkpoint.sessionsStarted[s] = started[s];
+                checkpoint.totalWaitSteps[s] = waited[s];
+                checkpoint.busyChargerSteps[s] = busy[s];
+                checkpoint.queues[s] = queues[s];
+                checkpoint.chargerIds[s] = chargerIds[s];
+                checkpoint.chargerSpeeds[s] = speeds[s];
+                checkpoint.chargerFees[s] = fees[s];
+                checkpoint.chargerAmounts[s] = amounts[s];
+                checkpoint.chargerFree[s] = free[s];
+                checkpoint.historyLengths[s] = new int[histories[s].length];
+                for (int c = 0; c < histories[s].length; c++) {
+                    checkpoint.historyLengths[s][c] = histories[s][c].size();
+                }
+            }
+            checkpoint.histories = histories;
+
+            for (int i = 0; i < numVehicles; i++) {
+                checkpoint.plates[i] = readString(in);
+                checkpoint.names[i] = readString(in);
+                checkpoint.batteryCapacities[i] = in.readInt();
+                checkpoint.targets[i] = in.readLong();
+                checkpoint.locations[i] = in.readLong();
+                checkpoint.destinations[i] = in.readLong();
+                checkpoint.batteryLevels[i] = in.readInt();
+                checkpoint.idleCounts[i] = in.readInt();
+                checkpoint.chargesCounts[i] = in.readInt();
+                checkpoint.chargesCosts[i] = in.readLong();
+                checkpoint.targetStations[i] = in.readInt();
+                checkpoint.finished[i] = in.readBoolean();
+                checkpoint.arrivingSteps[i] = in.readInt();
+                checkpoint.sessionStations[i] = in.readInt();
+                checkpoint.sessionChargers[i] = in.readInt();
+                checkpoint.waiting[i] = in.readBoolean();
+                checkpoint.waitingSince[i] = in.readInt();
+                checkpoint.sessionStarts[i] = in.readInt();
+                checkpoint.sessionEnds[i] = in.readInt();
+            }
+            return checkpoint;
+        }
+    }
+
+    /**
+     * Rebuilds the simulation stored in a checkpoint read with {@link #read(Path)}: a new
+     * company with new stations, chargers and vehicles in their original state.
+     * @return The restored company. Its vehicles, in fleet order, are returned by {@link #getRestoredVehicles()}.
+     * @throws IllegalStateException If the checkpoint was captured instead of read.
+     */
+    public EVCompany restore()
+    {
+        if (histories == null) throw new IllegalStateException("Only checkpoints read from a file can be restored");
+
+        EVCompany company = new EVCompany(companyName);
+        company.setChargingSessionMode(sessionMode);
+        company.setConsumptionPerStep(consumptionPerStep);
+
+        ChargingStation[] stations = new ChargingStation[stationIds.length];
+        Charger[][] chargers = new Charger[stationIds.length][];
+        for (int s = 0; s < stations.length; s++) {
+            stations[s] = new ChargingStation(stationCities[s], stationIds[s], unpack(stationLocations[s]));
+            chargers[s] = new Charger[chargerIds[s].length];
+            for (int c = 0; c < chargers[s].length; c++) {
+                chargers[s][c] = new Charger(chargerIds[s][c], chargerSpeeds[s][c], chargerFees[s][c]);
+                stations[s].addCharger(chargers[s][c]);
+            }
+            company.addChargingStation(stations[s]);
+        }
+
+        List<ElectricVehicle> vehicles = new ArrayList<>(plates.length);
+        for (int i = 0; i < plates.length; i++) {
+            ElectricVehicle ev = new ElectricVehicle(plates[i], names[i], company, unpack(locations[i]), unpack(targets[i]), batteryCapacities[i]);
+            ev.restoreState(locations[i], destinations[i], batteryLevels[i], idleCounts[i], chargesCounts[i], chargesCosts[i],
+                            targetStations[i] == -1 ? null : stations[targetStations[i]], finished[i], arrivingSteps[i]);
+            ev.restoreSession(sessionStations[i] == -1 ? null : chargers[sessionStations[i]][sessionChargers[i]],
+                              waiting[i], waitingSince[i], sessionStarts[i], sessionEnds[i]);
+            vehicles.add(ev);
+            company.addElectricVehicle(ev);
+        }
+
+        for (int s = 0; s < stations.length; s++) {
+            for (int c = 0; c < chargers[s].length; c++) {
+                chargers[s][c].restoreState(chargerAmounts[s][c], histories[s][c], vehicles);
+                // Los cargadores en sesión ya están reservados para su vehículo
+                if (!chargerFree[s][c] && chargers[s][c].isFree()) {
+                    chargers[s][c].tryReserve();
+                }
+            }
+
+            List<ElectricVehicle> queue = new ArrayList<>(queues[s].length);
+            for (int index : queues[s]) {
+                queue.add(vehicles.get(index));
+            }
+            stations[s].restoreSessionState(queue, queueMaxLengths[s], sessionsStarted[s], totalWaitSteps[s], busyChargerSteps[s]);
+        }
+
+        this.restoredCompany = company;
+        this.restoredVehicles = vehicles;
+        return company;
+    }
+
+    /**
+     * @return The vehicles created by the last {@link #restore()}, in fleet order, or null
+     * if the checkpoint has not been restored.
+     */
+    public List<ElectricVehicle> getRestoredVehicles()
+    {
+        return restoredVehicles == null ? null : Collections.unmodifiableList(restoredVehicles);
+    }
+
+    /**
+     * Maps every vehicle to its position in the fleet.
+     */
+    private static Map<ElectricVehicle, Integer> indexOf(List<ElectricVehicle> fleet)
+    {
+        Map<ElectricVehicle, Integer> index = new IdentityHashMap<>(fleet.size() * 2);
+        for (int i = 0; i < fleet.size(); i++) {
+            index.put(fleet.get(i), i);
+        }
+        return index;
+    }
+
+    /**
+     * @return The position of a vehicle in the fleet.
+     * @throws IllegalArgumentException If the vehicle is not part of the fleet.
+     */
+    private static int index(Map<ElectricVehicle, Integer> vehicleIndex, ElectricVehicle vehicle)
+    {
+        Integer index = vehicleIndex.get(vehicle);
+        if (index == null) throw new IllegalArgumentException("Vehicle not in the checkpointed fleet: " + vehicle.getPlate());
+        return index;
+    }
+
+    /**
+     * @return The location of a packed position, or null for {@link ElectricVehicle#NO_LOCATION}.
+     */
+    private static Location unpack(long location)
+    {
+        return location == NO_LOCATION ? null : Location.unpack(location);
+    }
+
+    /**
+     * Writes a nullable string.
+     */
+    private static void writeString(DataOutputStream out, String text) throws IOException
+    {
+        out.writeBoolean(text != null);
+        if (text != null) {
+            out.writeUTF(text);
+        }
+    }
+
+    /**
+     * Reads a string written with {@link #writeString}.
+     */
+    private static String readString(DataInputStream in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Writes the first {@code length} values of an array, preceded by the length.
+     */
+    private static void writeInts(DataOutputStream out, int[] values, int length) throws IOException
+    {
+        out.writeInt(length);
+        for (int i = 0; i < length; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    /**
+     * Reads an array written with {@link #writeInts}.
+     */
+    private static int[] readInts(DataInputStream in) throws IOException
+    {
+        int[] values = new int[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+}
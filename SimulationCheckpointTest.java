@@ -0,0 +1,305 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test implementation of the {@link SimulationCheckpoint} class.
+ * Checks that a simulation captured in the middle of a run, written, read back and restored
+ * continues exactly as the uninterrupted run would have: every execution mode must write the
+ * same {@link LogLevel#DEBUG} log and leave the vehicles and the stations (recharge histories,
+ * queues and session statistics included) in the same state as a sequential run.
+ * @author DP classes
+ * @version 2025
+ */
+public class SimulationCheckpointTest
+{
+    private static final int VEHICLES = 2_000;
+    private static final int STATIONS = 20;
+    private static final int GRID_SIZE = 60;
+    private static final int STEPS = 80;
+    private static final int SPLIT = 37;
+    private static final long SEED = 42L;
+
+    private ForkJoinPool pool;
+    private Path file;
+
+    /**
+     * Default constructor for test class SimulationCheckpointTest.
+     */
+    public SimulationCheckpointTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        pool = new ForkJoinPool(4);
+        file = Files.createTempFile("SimulationCheckpointTest", ".ckpt");
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown() throws IOException
+    {
+        pool.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Test resuming a sequential run, with and without charging sessions.
+     */
+    @Test
+    public void testResumeSequential() throws IOException
+    {
+        assertResumes(SimulationMode.SEQUENTIAL, SimulationMode.SEQUENTIAL, false);
+        assertResumes(SimulationMode.SEQUENTIAL, SimulationMode.SEQUENTIAL, true);
+    }
+
+    /**
+     * Test resuming a parallel run, with and without charging sessions.
+     */
+    @Test
+    public void testResumeParallel() throws IOException
+    {
+        assertResumes(SimulationMode.PARALLEL, SimulationMode.PARALLEL, false);
+        assertResumes(SimulationMode.PARALLEL, SimulationMode.PARALLEL, true);
+    }
+
+    /**
+     * Test resuming a run with a virtual thread per vehicle, with and without charging sessions.
+     */
+    @Test
+    public void testResumeVirtualThreads() throws IOException
+    {
+        assertResumes(SimulationMode.VIRTUAL_THREADS, SimulationMode.VIRTUAL_THREADS, false);
+        assertResumes(SimulationMode.VIRTUAL_THREADS, SimulationMode.VIRTUAL_THREADS, true);
+    }
+
+    /**
+     * Test resuming a run of the columnar and of the event-driven engines, which only
+     * support instantaneous recharges.
+     */
+    @Test
+    public void testResumeColumnarAndEventDriven() throws IOException
+    {
+        assertResumes(SimulationMode.COLUMNAR, SimulationMode.COLUMNAR, false);
+        assertResumes(SimulationMode.EVENT_DRIVEN, SimulationMode.EVENT_DRIVEN, false);
+    }
+
+    /**
+     * Test resuming in a tiled simulation, with and without charging sessions. A tiled run
+     * cannot be captured, so the first part of the run is sequential.
+     */
+    @Test
+    public void testResumeTiled() throws IOException
+    {
+        assertResumes(SimulationMode.SEQUENTIAL, SimulationMode.TILED, false);
+        assertResumes(SimulationMode.SEQUENTIAL, SimulationMode.TILED, true);
+    }
+
+    /**
+     * Test that the checkpoint keeps the next step, and that only a checkpoint read from a
+     * file can be restored.
+     */
+    @Test
+    public void testNextStepAndRestore() throws IOException
+    {
+        Scenario scenario = new Scenario(false);
+        SimulationCheckpoint captured = SimulationCheckpoint.capture(scenario.company, scenario.fleet, 5);
+        assertEquals(5, captured.getNextStep());
+        assertNull(captured.getRestoredVehicles());
+        try {
+            captured.restore();
+            fail("A captured checkpoint cannot be restored");
+        }
+        catch (IllegalStateException e) {
+            // Esperado
+        }
+
+        captured.write(file);
+        SimulationCheckpoint read = SimulationCheckpoint.read(file);
+        assertEquals(5, read.getNextStep());
+        EVCompany company = read.restore();
+        assertEquals(VEHICLES, read.getRestoredVehicles().size());
+        assertEquals(STATIONS, company.getCityStations().size());
+        scenario.log.close();
+    }
+
+    /**
+     * Asserts that a run interrupted by a checkpoint gives the same result as an uninterrupted
+     * sequential run.
+     * @param before The mode of the run before the checkpoint.
+     * @param after The mode of the restored run.
+     */
+    private void assertResumes(SimulationMode before, SimulationMode after, boolean sessions) throws IOException
+    {
+        Scenario uninterrupted = new Scenario(sessions);
+        StringBuilder report = new StringBuilder();
+        uninterrupted.simulate(SimulationMode.SEQUENTIAL, 0, STEPS, report);
+        String expected = uninterrupted.result(report);
+
+        Scenario interrupted = new Scenario(sessions);
+        interrupted.simulate(before, 0, SPLIT, null);
+        SimulationCheckpoint.capture(interrupted.company, interrupted.fleet, SPLIT).write(file);
+
+        SimulationCheckpoint checkpoint = SimulationCheckpoint.read(file);
+        assertEquals(SPLIT, checkpoint.getNextStep());
+        interrupted.restore(checkpoint);
+        report = new StringBuilder();
+        interrupted.simulate(after, SPLIT, STEPS, report);
+        assertEquals(before + " to " + after + (sessions ? " with sessions" : ""), expected, interrupted.result(report));
+    }
+
+    /**
+     * A random scenario, always the same, whose log is kept in memory.
+     */
+    private class Scenario
+    {
+        private final boolean sessions;
+        private final StringWriter logText;
+        private final SimulationLog log;
+        private EVCompany company;
+        private List<ElectricVehicle> fleet;
+
+        /**
+         * Creates the stations and the vehicles, with their routes.
+         */
+        Scenario(boolean sessions)
+        {
+            this.sessions = sessions;
+            this.logText = new StringWriter();
+            this.log = new SimulationLog(LogLevel.DEBUG, logText, 1024);
+            company = new EVCompany("Test");
+            company.setChargingSessionMode(sessions);
+            company.setLog(log);
+
+            Random random = new Random(SEED);
+            for (int s = 0; s < STATIONS; s++) {
+                ChargingStation station = new ChargingStation("Cáceres", "CC" + s, Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)));
+                for (int c = 0, n = 1 + random.nextInt(3); c < n; c++) {
+                    station.addCharger(new Charger(station.getId() + "_" + c, (c + 1) * 20, (c + 1) * 0.2f));
+                }
+                company.addChargingStation(station);
+            }
+            fleet = new ArrayList<>();
+            for (int i = 0; i < VEHICLES; i++) {
+                ElectricVehicle ev = new ElectricVehicle(String.format("EV%06d", i), "EV" + i, company,
+                                                         Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)),
+                                                         Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)),
+                                                         15 * (1 + random.nextInt(8)));
+                fleet.add(ev);
+                company.addElectricVehicle(ev);
+            }
+            company.calculateRoutes(fleet);
+        }
+
+        /**
+         * Replaces the simulation with the one restored from a checkpoint, which keeps
+         * writing to the same log.
+         */
+        void restore(SimulationCheckpoint checkpoint)
+        {
+            company = checkpoint.restore();
+            company.setLog(log);
+            fleet = new ArrayList<>(checkpoint.getRestoredVehicles());
+        }
+
+        /**
+         * Simulates some steps in an execution mode.
+         * @param report If not null, receives the final information of the vehicles and the
+         * stations, as {@link TiledSimulation#writeReport(Appendable)} writes it, followed by
+         * the session statistics of the stations in charging-session mode.
+         */
+        void simulate(SimulationMode mode, int firstStep, int endStep, StringBuilder report) throws IOException
+        {
+            switch (mode) {
+                case COLUMNAR:
+                    FleetEngine columnar = new FleetEngine(company, fleet);
+                    for (int step = firstStep; step < endStep; step++) {
+                        columnar.step(step);
+                    }
+                    columnar.exportState();
+                    break;
+                case PARALLEL:
+                    ParallelStepper parallel = new ParallelStepper(fleet, pool);
+                    for (int step = firstStep; step < endStep; step++) {
+                        parallel.step(step);
+                    }
+                    break;
+                case EVENT_DRIVEN:
+                    new EventDrivenEngine(company, fleet, firstStep).advanceTo(endStep);
+                    break;
+                case VIRTUAL_THREADS:
+                    try (VirtualThreadStepper virtual = new VirtualThreadStepper(fleet, firstStep)) {
+                        for (int step = firstStep; step < endStep; step++) {
+                            virtual.step(step);
+                        }
+                    }
+                    break;
+                case TILED:
+                    // Los trabajadores escriben sus eventos detrás de los ya registrados
+                    log.flush();
+                    try (TiledSimulation tiled = new TiledSimulation(company, fleet, TilePartition.covering(company, fleet, 2, 2),
+                                                                     firstStep, List.of("-Xmx256m"))) {
+                        tiled.setLogOutput(logText);
+                        for (int step = firstStep; step < endStep; step++) {
+                            tiled.step(step);
+                        }
+                        if (report != null) {
+                            tiled.writeReport(report);
+                            if (sessions) {
+                                tiled.writeSessionInfo(report, endStep);
+                            }
+                        }
+                    }
+                    return;
+                default:
+                    for (int step = firstStep; step < endStep; step++) {
+                        for (ElectricVehicle ev : fleet) {
+                            ev.act(step);
+                        }
+                    }
+            }
+
+            if (report == null) return;
+            for (ElectricVehicle ev : fleet) {
+                ev.appendInitialFinalInfo(report);
+                report.append(System.lineSeparator());
+            }
+            for (ChargingStation station : company.getCityStations()) {
+                station.appendCompleteInfo(report);
+                report.append(System.lineSeparator());
+            }
+            if (sessions) {
+                for (ChargingStation station : company.getCityStations()) {
+                    report.append(station.getSessionInfo(endStep)).append(System.lineSeparator());
+                }
+            }
+        }
+
+        /**
+         * Closes the log.
+         * @return The log of the whole run followed by a report.
+         */
+        String result(StringBuilder report)
+        {
+            log.close();
+            return logText + report.toString();
+        }
+    }
+}
@@ -0,0 +1,469 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous, batched log of the events of a simulation: recharges, arrivals, vehicles
+ * running out of battery and stations without a free charger.
+ * Producers copy the fields of every event into the next slot of a preallocated ring buffer
+ * (primitive fields plus references to the vehicle, charger and station involved), so
+ * recording an event allocates nothing and never formats text. A background daemon thread
+ * drains the buffer in order, formats the events lazily and writes them in batches to the
+ * output. Several threads may record events at the same time; each event claims its slot
+ * with an atomic counter.
+ *
+ * With {@link LogLevel#OFF} no buffer or thread is ever created and every recording method
+ * returns after a single comparison. When the buffer is full, producers wait for the writer.
+ * Output is only guaranteed to be complete after {@link #flush()} or {@link #close()}.
+ * @author DP classes
+ * @version 2025
+ */
+public class SimulationLog
+{
+    /** Default number of events the ring buffer can hold. */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final int RECHARGE = 0;
+    private static final int ARRIVAL = 1;
+    private static final int BATTERY_DEAD = 2;
+    private static final int NO_FREE_CHARGER = 3;
+
+    /** Maximum number of characters formatted before they are handed to the output. */
+    private static final int BATCH_CHARS = 1 << 16;
+    private static final long IDLE_PARK_NANOS = 200_000L;
+    private static final long WAIT_PARK_NANOS = 10_000L;
+
+    private static final SimulationLog OFF = new SimulationLog(LogLevel.OFF, null, 0);
+    private static volatile SimulationLog console;
+
+    private final LogLevel level;
+    private final int threshold;
+    private final Writer out;           // null: System.out, resuelto en cada escritura
+
+    // Buffer circular: una columna por campo de los eventos
+    private final int mask;
+    private final int[] types;
+    private final int[] steps;
+    private final int[] amounts;
+    private final long[] costs;
+    private final long[] locations;
+    private final ElectricVehicle[] vehicles;
+    private final Charger[] chargers;
+    private final ChargingStation[] stations;
+    private final AtomicLongArray published;
+
+    private final AtomicLong claimed;
+    private volatile long consumed;     // Siguiente evento que leerá el escritor
+    private volatile long written;      // Eventos anteriores ya escritos y volcados a la salida
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private volatile Thread writer;
+
+    /**
+     * Constructor for objects of class SimulationLog that write to {@code System.out}.
+     * @param level The events to record.
+     */
+    public SimulationLog(LogLevel level)
+    {
+        this(level, null, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor for objects of class SimulationLog.
+     * @param level The events to record. Must not be null.
+     * @param out Where the events are written, or null for {@code System.out}.
+     * @param capacity The number of events the ring buffer can hold; rounded up to a power of two.
+     */
+    public SimulationLog(LogLevel level, Writer out, int capacity)
+    {
+        if (level == null) throw new IllegalArgumentException("null level in SimulationLog");
+        if (level != LogLevel.OFF && capacity <= 0) throw new IllegalArgumentException("Non-positive capacity in SimulationLog: " + capacity);
+
+        this.level = level;
+        this.threshold = level.ordinal();
+        this.out = out;
+        this.claimed = new AtomicLong();
+
+        int size = level == LogLevel.OFF ? 0 : Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.mask = size - 1;
+        this.types = new int[size];
+        this.steps = new int[size];
+        this.amounts = new int[size];
+        this.costs = new long[size];
+        this.locations = new long[size];
+        this.vehicles = new ElectricVehicle[size];
+        this.chargers = new Charger[size];
+        this.stations = new ChargingStation[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1L);
+        }
+    }
+
+    /**
+     * @return A shared log that records nothing.
+     */
+    public static SimulationLog off()
+    {
+        return OFF;
+    }
+
+    /**
+     * @return The log shared by every {@link EVCompany} by default: recharges
+     * ({@link LogLevel#INFO}) written to {@code System.out}.
+     */
+    public static SimulationLog console()
+    {
+        SimulationLog log = console;
+        if (log == null) {
+            synchronized (SimulationLog.class) {
+                log = console;
+                if (log == null) {
+                    log = new SimulationLog(LogLevel.INFO);
+                    console = log;
+                }
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Creates a log that writes to a file (UTF-8), replacing its previous content.
+     * @param file The file to write.
+     * @param level The events to record.
+     * @return The new log; it must be closed to release the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static SimulationLog toFile(Path file, LogLevel level) throws IOException
+    {
+        return new SimulationLog(level, Files.newBufferedWriter(file, StandardCharsets.UTF_8), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @return The events this log records.
+     */
+    public LogLevel getLevel()
+    {
+        return level;
+    }
+
+    /**
+     * @param level A log level.
+     * @return Whether events of that level are recorded.
+     */
+    public boolean isEnabled(LogLevel level)
+    {
+        return level.ordinal() <= threshold && level != LogLevel.OFF;
+    }
+
+    /**
+     * Records a recharge ({@link LogLevel#INFO}). It is written as
+     * {@link ElectricVehicle#rechargeMessage(String, int, String, long, int)}.
+     * @param vehicle The recharged vehicle.
+     * @param charger The charger used.
+     * @param kwh The kWh recharged.
+     * @param cost The cost of the recharge, in euros.
+     * @param step The current step of the simulation.
+     */
+    public void recharge(ElectricVehicle vehicle, Charger charger, int kwh, float cost, int step)
+    {
+        recharge(vehicle, charger, kwh, Money.ofEuros(cost), step);
+    }
+
+    /**
+     * Records a recharge whose exact cost is known (see {@link #recharge(ElectricVehicle, Charger, int, float, int)}).
+     * @param vehicle The recharged vehicle.
+     * @param charger The charger used.
+     * @param kwh The kWh recharged.
+     * @param cost The cost of the recharge, in units of {@link Money}.
+     * @param step The current step of the simulation.
+     */
+    public void recharge(ElectricVehicle vehicle, Charger charger, int kwh, long cost, int step)
+    {
+        if (threshold < 1 || closed) return;
+
+        long sequence = claim();
+        int slot = (int) sequence & mask;
+        types[slot] = RECHARGE;
+        steps[slot] = step;
+        amounts[slot] = kwh;
+        costs[slot] = cost;
+        vehicles[slot] = vehicle;
+        chargers[slot] = charger;
+        published.set(slot, sequence);
+    }
+
+    /**
+     * Records the arrival of a vehicle at its target ({@link LogLevel#DEBUG}).
+     * @param vehicle The vehicle.
+     * @param location The packed location of the target.
+     * @param step The current step of the simulation.
+     */
+    public void arrival(ElectricVehicle vehicle, long location, int step)
+    {
+        locationEvent(ARRIVAL, vehicle, location, step);
+    }
+
+    /**
+     * Records a vehicle that runs out of battery ({@link LogLevel#DEBUG}).
+     * @param vehicle The vehicle.
+     * @param location The packed location where it stopped.
+     * @param step The current step of the simulation.
+     */
+    public void batteryDead(ElectricVehicle vehicle, long location, int step)
+    {
+        locationEvent(BATTERY_DEAD, vehicle, location, step);
+    }
+
+    /**
+     * Records a vehicle that finds every charger of a station busy ({@link LogLevel#DEBUG}).
+     * @param vehicle The vehicle.
+     * @param station The station.
+     * @param step The current step of the simulation.
+     */
+    public void noFreeCharger(ElectricVehicle vehicle, ChargingStation station, int step)
+    {
+        if (threshold < 2 || closed) return;
+
+        long sequence = claim();
+        int slot = (int) sequence & mask;
+        types[slot] = NO_FREE_CHARGER;
+        steps[slot] = step;
+        vehicles[slot] = vehicle;
+        stations[slot] = station;
+        published.set(slot, sequence);
+    }
+
+    /**
+     * Waits until every event recorded so far has been written to the output.
+     * @throws UncheckedIOException If the output failed.
+     */
+    public void flush()
+    {
+        long target = claimed.get();
+        if (target == 0) return;
+
+        Thread thread = startWriter();
+        while (written < target) {
+            checkFailure();
+            LockSupport.unpark(thread);
+            LockSupport.parkNanos(this, WAIT_PARK_NANOS);
+        }
+        checkFailure();
+    }
+
+    /**
+     * Writes every pending event, stops the writer thread and closes the output (unless it
+     * is {@code System.out}). Events recorded afterwards are ignored.
+     * @throws UncheckedIOException If the output failed.
+     */
+    public void close()
+    {
+        if (level == LogLevel.OFF || closed) return;
+
+        flush();
+        closed = true;
+
+        Thread thread = writer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (out != null) {
+            try {
+                out.close();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Cannot close the simulation log", e);
+            }
+        }
+    }
+
+    /**
+     * Records an event that only involves a vehicle and a location.
+     */
+    private void locationEvent(int type, ElectricVehicle vehicle, long location, int step)
+    {
+        if (threshold < 2 || closed) return;
+
+        long sequence = claim();
+        int slot = (int) sequence & mask;
+        types[slot] = type;
+        steps[slot] = step;
+        locations[slot] = location;
+        vehicles[slot] = vehicle;
+        published.set(slot, sequence);
+    }
+
+    /**
+     * Claims the sequence number of a new event, waiting while its slot is still in use.
+     */
+    private long claim()
+    {
+        long sequence = claimed.getAndIncrement();
+
+        if (sequence - consumed > mask) {
+            Thread thread = startWriter();
+            while (sequence - consumed > mask) {
+                checkFailure();
+                LockSupport.unpark(thread);
+                LockSupport.parkNanos(this, WAIT_PARK_NANOS);
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Starts the writer thread the first time it is needed.
+     */
+    private Thread startWriter()
+    {
+        Thread thread = writer;
+        if (thread == null) {
+            synchronized (this) {
+                thread = writer;
+                if (thread == null) {
+                    thread = new Thread(this::drain, "SimulationLog writer");
+                    thread.setDaemon(true);
+                    thread.start();
+                    writer = thread;
+                }
+            }
+        }
+        return thread;
+    }
+
+    /**
+     * Body of the writer thread: formats the published events in order and writes them in batches.
+     */
+    private void drain()
+    {
+        StringBuilder batch = new StringBuilder(BATCH_CHARS + 256);
+        String newLine = System.lineSeparator();
+
+        try {
+            while (true) {
+                long next = consumed;
+                while (batch.length() < BATCH_CHARS && published.get((int) next & mask) == next) {
+                    format((int) next & mask, batch);
+                    batch.append(newLine);
+                    next++;
+                }
+
+                if (batch.length() > 0) {
+                    // Los huecos ya formateados pueden reutilizarse antes de escribir el lote
+                    consumed = next;
+                    write(batch);
+                    batch.setLength(0);
+                    continue;
+                }
+
+                flushOutput();
+                written = next;
+                if (closed && claimed.get() == next) return;
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Appends the text of an event and releases the references it held.
+     */
+    private void format(int slot, StringBuilder text)
+    {
+        ElectricVehicle vehicle = vehicles[slot];
+        int step = steps[slot];
+
+        switch (types[slot]) {
+            case RECHARGE:
+                ElectricVehicle.appendRechargeMessage(text, vehicle.getPlate(), amounts[slot], chargers[slot].getId(), costs[slot], step);
+                chargers[slot] = null;
+                break;
+            case ARRIVAL:
+                appendLocationMessage(text, vehicle.getPlate(), true, locations[slot], step);
+                break;
+            case BATTERY_DEAD:
+                appendLocationMessage(text, vehicle.getPlate(), false, locations[slot], step);
+                break;
+            default:
+                appendNoFreeChargerMessage(text, vehicle.getPlate(), stations[slot].getId(), step);
+                stations[slot] = null;
+        }
+        vehicles[slot] = null;
+    }
+
+    /**
+     * Appends the text of an arrival or of a vehicle running out of battery.
+     * @param text Where the text is appended.
+     * @param plate The plate of the vehicle.
+     * @param arrival {@code true} for an arrival, {@code false} for a vehicle out of battery.
+     * @param location The packed location of the event.
+     * @param step The step of the event.
+     */
+    static void appendLocationMessage(StringBuilder text, String plate, boolean arrival, long location, int step)
+    {
+        text.append(" (step: ").append(step).append(" -ElectricVehicle: ").append(plate)
+            .append(arrival ? " arrives at: " : " runs out of battery at: ")
+            .append(Location.unpackX(location)).append('-').append(Location.unpackY(location));
+    }
+
+    /**
+     * Appends the text of a vehicle that finds every charger of its station busy.
+     * @param text Where the text is appended.
+     * @param plate The plate of the vehicle.
+     * @param stationId The ID of the station.
+     * @param step The step of the event.
+     */
+    static void appendNoFreeChargerMessage(StringBuilder text, String plate, String stationId, int step)
+    {
+        text.append(" (step: ").append(step).append(" -ElectricVehicle: ").append(plate)
+            .append(" finds no free charger at: ").append(stationId);
+    }
+
+    /**
+     * Hands a batch of formatted events to the output.
+     */
+    private void write(CharSequence batch) throws IOException
+    {
+        if (out == null) {
+            System.out.append(batch);
+        }
+        else {
+            out.append(batch);
+        }
+    }
+
+    /**
+     * Flushes the output.
+     */
+    private void flushOutput() throws IOException
+    {
+        if (out == null) {
+            System.out.flush();
+        }
+        else {
+            out.flush();
+        }
+    }
+
+    /**
+     * Rethrows a failure of the writer thread in the calling thread.
+     */
+    private void checkFailure()
+    {
+        IOException e = failure;
+        if (e != null) throw new UncheckedIOException("Cannot write the simulation log", e);
+    }
+}
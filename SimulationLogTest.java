@@ -0,0 +1,127 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Test implementation of the {@link SimulationLog} class.
+ * Checks the text of the events, the log levels and that no event is lost or
+ * reordered when several threads fill a small ring buffer at the same time.
+ * @author DP classes
+ * @version 2025
+ */
+public class SimulationLogTest
+{
+    private static final int THREADS = 4;
+    private static final int EVENTS_PER_THREAD = 20_000;
+
+    private EVCompany company;
+    private ChargingStation station;
+    private Charger charger;
+
+    /**
+     * Default constructor for test class SimulationLogTest.
+     */
+    public SimulationLogTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        company = new EVCompany("Test");
+        station = new ChargingStation("Cáceres", "CC00", Location.of(5, 5));
+        charger = new Charger("CC00_000", 20, 0.20f);
+        station.addCharger(charger);
+        company.addChargingStation(station);
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+    }
+
+    /**
+     * Test that every event is written with its text and that {@link LogLevel#INFO}
+     * only keeps the recharges.
+     */
+    @Test
+    public void testEventTextAndLevels()
+    {
+        ElectricVehicle ev = new ElectricVehicle("EV0", "0CCC", company, Location.of(1, 1), Location.of(9, 9), 50);
+
+        StringWriter debugText = new StringWriter();
+        SimulationLog debug = new SimulationLog(LogLevel.DEBUG, debugText, 8);
+        StringWriter infoText = new StringWriter();
+        SimulationLog info = new SimulationLog(LogLevel.INFO, infoText, 8);
+
+        for (SimulationLog log : new SimulationLog[] {debug, info, SimulationLog.off()}) {
+            log.recharge(ev, charger, 30, 6.0f, 3);
+            log.noFreeCharger(ev, station, 4);
+            log.batteryDead(ev, Location.pack(2, 3), 5);
+            log.arrival(ev, Location.pack(9, 9), 6);
+            log.close();
+        }
+
+        String n = System.lineSeparator();
+        String recharge = ElectricVehicle.rechargeMessage("EV0", 30, "CC00_000", 6.0f, 3) + n;
+        assertEquals(recharge, infoText.toString());
+        assertEquals(recharge
+                     + " (step: 4 -ElectricVehicle: EV0 finds no free charger at: CC00" + n
+                     + " (step: 5 -ElectricVehicle: EV0 runs out of battery at: 2-3" + n
+                     + " (step: 6 -ElectricVehicle: EV0 arrives at: 9-9" + n,
+                     debugText.toString());
+    }
+
+    /**
+     * Test that concurrent producers wrapping around a small buffer lose no events and
+     * keep the order of the events of every thread.
+     */
+    @Test
+    public void testConcurrentProducers() throws Exception
+    {
+        ElectricVehicle[] vehicles = new ElectricVehicle[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            vehicles[t] = new ElectricVehicle("EV" + t, t + "CCC", company, Location.of(1, 1), Location.of(9, 9), 50);
+        }
+        StringWriter text = new StringWriter();
+        SimulationLog log = new SimulationLog(LogLevel.INFO, text, 64);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            ElectricVehicle ev = vehicles[t];
+            results.add(executor.submit(() -> {
+                for (int step = 0; step < EVENTS_PER_THREAD; step++) {
+                    log.recharge(ev, charger, 1, 0.20f, step);
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+        log.close();
+
+        int[] nextStep = new int[THREADS];
+        String[] lines = text.toString().split(System.lineSeparator());
+        assertEquals(THREADS * EVENTS_PER_THREAD, lines.length);
+        for (String line : lines) {
+            int step = Integer.parseInt(line.substring(" (step: ".length(), line.indexOf(" -ElectricVehicle")));
+            int t = Integer.parseInt(line.substring(line.indexOf("EV", line.indexOf("-ElectricVehicle")) + 2, line.indexOf(" recharges")));
+            assertEquals(nextStep[t]++, step);
+        }
+    }
+}
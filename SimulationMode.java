@@ -0,0 +1,39 @@
+/**
+ * Enumeration that defines how {@link EVDemo} advances the simulation on every step.
+ * All the modes produce the same results; they only differ in how the work is organised.
+ * @author DP classes
+ * @version 2025
+ */
+public enum SimulationMode
+{
+    /** Every {@link ElectricVehicle} acts on its own, one after another. */
+    SEQUENTIAL ("SEQUENTIAL"),
+    /** The fleet is copied into a {@link FleetEngine} and stepped column by column. */
+    COLUMNAR ("COLUMNAR"),
+    /** Vehicles move on all cores and take their chargers in fleet order ({@link ParallelStepper}). */
+    PARALLEL ("PARALLEL"),
+    /** Vehicles are only woken at the steps where something happens to them ({@link EventDrivenEngine}). */
+    EVENT_DRIVEN ("EVENT_DRIVEN"),
+    /** Every vehicle acts on its own virtual thread, synchronized on a step barrier ({@link VirtualThreadStepper}). */
+    VIRTUAL_THREADS ("VIRTUAL_THREADS"),
+    /** The grid is split into tiles, each simulated by its own worker process ({@link TiledSimulation}). */
+    TILED ("TILED");
+    
+    /** Descriptive name of the mode. */
+    private String name;
+    
+    /**
+     * Constructor for the simulation modes.
+     * @param name Descriptive name.
+     */
+    SimulationMode(String name){
+        this.name = name;
+    }
+    
+    /**
+     * @return The descriptive name of the mode.
+     */
+    public String getName(){
+        return name;
+    }
+}
@@ -0,0 +1,185 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test that the execution modes of a simulation are interchangeable: a run with a
+ * {@link ParallelStepper} or a {@link VirtualThreadStepper} must write, event by event and at
+ * {@link LogLevel#DEBUG}, the same log as a sequential run, and leave the vehicles and the
+ * stations in the same state.
+ * The fleet is larger than a partition of {@link ParallelStepper} and the pool has several
+ * threads, so the vehicles really move concurrently even on a single core. Every run is
+ * written to a temporary file, and the files are compared line by line.
+ * @author DP classes
+ * @version 2025
+ */
+public class SimulationModeTest
+{
+    private static final int VEHICLES = 12_000;
+    private static final int STATIONS = 150;
+    private static final int GRID_SIZE = 300;
+    private static final int STEPS = 120;
+    private static final long SEED = 42L;
+
+    private ForkJoinPool pool;
+    private List<Path> files;
+
+    /**
+     * Default constructor for test class SimulationModeTest.
+     */
+    public SimulationModeTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        pool = new ForkJoinPool(4);
+        files = new ArrayList<>();
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown() throws IOException
+    {
+        pool.shutdown();
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Test that a parallel run logs the same events, in the same order, as a sequential one.
+     */
+    @Test
+    public void testParallelMatchesSequential() throws IOException
+    {
+        assertSameLines(run(SimulationMode.SEQUENTIAL, false), run(SimulationMode.PARALLEL, false));
+    }
+
+    /**
+     * Test that a run with a virtual thread per vehicle logs the same events, in the same
+     * order, as a sequential one.
+     */
+    @Test
+    public void testVirtualThreadsMatchSequential() throws IOException
+    {
+        assertSameLines(run(SimulationMode.SEQUENTIAL, false), run(SimulationMode.VIRTUAL_THREADS, false));
+    }
+
+    /**
+     * Test the same equivalences in charging-session mode, where vehicles wait in the
+     * queues of the stations.
+     */
+    @Test
+    public void testModesMatchWithChargingSessions() throws IOException
+    {
+        Path sequential = run(SimulationMode.SEQUENTIAL, true);
+        assertSameLines(sequential, run(SimulationMode.PARALLEL, true));
+        assertSameLines(sequential, run(SimulationMode.VIRTUAL_THREADS, true));
+    }
+
+    /**
+     * Simulates a random scenario, always the same, in an execution mode.
+     * @return A file with the DEBUG log of the run followed by the final state of vehicles and stations.
+     */
+    private Path run(SimulationMode mode, boolean sessions) throws IOException
+    {
+        Path file = Files.createTempFile("SimulationModeTest", ".log");
+        files.add(file);
+        EVCompany company = new EVCompany("Test");
+        company.setChargingSessionMode(sessions);
+        SimulationLog log = new SimulationLog(LogLevel.DEBUG, Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1024);
+        company.setLog(log);
+
+        Random random = new Random(SEED);
+        List<ChargingStation> stations = new ArrayList<>();
+        for (int s = 0; s < STATIONS; s++) {
+            ChargingStation station = new ChargingStation("Cáceres", "CC" + s, Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)));
+            for (int c = 0, n = 1 + random.nextInt(3); c < n; c++) {
+                station.addCharger(new Charger(station.getId() + "_" + c, (c + 1) * 20, (c + 1) * 0.2f));
+            }
+            stations.add(station);
+            company.addChargingStation(station);
+        }
+        List<ElectricVehicle> fleet = new ArrayList<>();
+        for (int i = 0; i < VEHICLES; i++) {
+            ElectricVehicle ev = new ElectricVehicle(String.format("EV%06d", i), "EV" + i, company,
+                                                     Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)),
+                                                     Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)),
+                                                     15 * (1 + random.nextInt(8)));
+            fleet.add(ev);
+            company.addElectricVehicle(ev);
+        }
+        company.calculateRoutes(fleet);
+
+        switch (mode) {
+            case PARALLEL:
+                ParallelStepper parallel = new ParallelStepper(fleet, pool);
+                for (int step = 0; step < STEPS; step++) {
+                    parallel.step(step);
+                }
+                break;
+            case VIRTUAL_THREADS:
+                try (VirtualThreadStepper virtual = new VirtualThreadStepper(fleet)) {
+                    for (int step = 0; step < STEPS; step++) {
+                        virtual.step(step);
+                    }
+                }
+                break;
+            default:
+                for (int step = 0; step < STEPS; step++) {
+                    for (ElectricVehicle ev : fleet) {
+                        ev.act(step);
+                    }
+                }
+        }
+        log.close();
+
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+            for (ElectricVehicle ev : fleet) {
+                out.append(ev.toString()).append(' ').append(String.valueOf(ev.getArrivingStep())).append('\n');
+            }
+            for (ChargingStation station : stations) {
+                station.appendCompleteInfo(out);
+                out.append('\n');
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Asserts that two files have the same lines, reporting the first one that differs.
+     */
+    private void assertSameLines(Path expected, Path actual) throws IOException
+    {
+        try (BufferedReader expectedLines = Files.newBufferedReader(expected, StandardCharsets.UTF_8);
+             BufferedReader actualLines = Files.newBufferedReader(actual, StandardCharsets.UTF_8)) {
+            int number = 1;
+            String line;
+            do {
+                line = expectedLines.readLine();
+                assertEquals("Line " + number, line, actualLines.readLine());
+                number++;
+            } while (line != null);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * Enumeration that defines how a {@link ScenarioGenerator} places vehicles and
+ * charging stations on the grid.
+ * @author DP classes
+ * @version 2025
+ */
+public enum SpatialDistribution
+{
+    /** Every location of the grid is equally likely. */
+    UNIFORM ("UNIFORM"),
+    /** Locations cluster around a few hotspots; vehicles travel from one hotspot to another. */
+    HOTSPOTS ("HOTSPOTS"),
+    /** Locations lie along a few straight corridors; vehicles commute from one end of a corridor to the other. */
+    CORRIDORS ("CORRIDORS");
+
+    /** Descriptive name of the distribution. */
+    private String name;
+
+    /**
+     * Constructor for the spatial distributions.
+     * @param name Descriptive name.
+     */
+    SpatialDistribution(String name){
+        this.name = name;
+    }
+
+    /**
+     * @return The descriptive name of the distribution.
+     */
+    public String getName(){
+        return name;
+    }
+}
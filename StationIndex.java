@@ -0,0 +1,177 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Lookup indexes of the charging network of an {@link EVCompany}: by ID, by {@link Location}
+ * and by proximity, through a {@link ChargingStationGrid}. Stations are identified by their
+ * insertion index, the position they occupy in {@link EVCompany#getCityStations()}, so the
+ * index only depends on the IDs and locations of the stations and on their order. When
+ * several stations share an ID or a location, the one added first is returned.
+ *
+ * A frozen index cannot change any more, and can then be shared read-only by several
+ * companies whose networks have the same IDs and locations in the same order, such as the
+ * runs of a {@link ParameterSweep} over the same scenario; queries only read the index, so
+ * they can run on several threads at once.
+ * @author DP classes
+ * @version 2025
+ */
+public class StationIndex
+{
+    private final List<String> ids;
+    private final List<Location> locations;
+    private final Map<String, Integer> byId;
+    private final Map<Location, Integer> byLocation;
+    private final ChargingStationGrid grid;
+    private boolean frozen;
+
+    /**
+     * Constructor for objects of class StationIndex, initially empty.
+     */
+    public StationIndex()
+    {
+        this.ids = new ArrayList<>();
+        this.locations = new ArrayList<>();
+        this.byId = new HashMap<>();
+        this.byLocation = new HashMap<>();
+        this.grid = new ChargingStationGrid();
+    }
+
+    /**
+     * Creates an index of the current IDs and locations of some stations, in their order.
+     * @param stations The stations.
+     * @return The index, not frozen.
+     */
+    public static StationIndex of(List<ChargingStation> stations)
+    {
+        if (stations == null) throw new IllegalArgumentException("null stations in of (StationIndex)");
+
+        StationIndex index = new StationIndex();
+        for (ChargingStation station : stations) {
+            index.add(station.getId(), station.getLocation());
+        }
+        return index;
+    }
+
+    /**
+     * Indexes a new station.
+     * @param id The ID of the station, or null if it has none.
+     * @param location The location of the station. Must not be null.
+     * @return The insertion index assigned to the station.
+     * @throws IllegalStateException If the index is frozen.
+     */
+    public int add(String id, Location location)
+    {
+        if (location == null) throw new IllegalArgumentException("null location in add (StationIndex)");
+        if (frozen) throw new IllegalStateException("Frozen index in add (StationIndex)");
+
+        int index = ids.size();
+        ids.add(id);
+        locations.add(location);
+        if (id != null) {
+            byId.putIfAbsent(id, index);
+        }
+        byLocation.putIfAbsent(location, index);
+        grid.add(location.getX(), location.getY());
+        return index;
+    }
+
+    /**
+     * Forbids any further change, so the index can be shared.
+     * @return This index.
+     */
+    public StationIndex freeze()
+    {
+        this.frozen = true;
+        return this;
+    }
+
+    /**
+     * @return Whether the index can no longer change.
+     */
+    public boolean isFrozen()
+    {
+        return frozen;
+    }
+
+    /**
+     * @return A new index, not frozen, with the same stations in the same order.
+     */
+    public StationIndex copy()
+    {
+        StationIndex copy = new StationIndex();
+        for (int i = 0; i < ids.size(); i++) {
+            copy.add(ids.get(i), locations.get(i));
+        }
+        return copy;
+    }
+
+    /**
+     * @return The number of indexed stations.
+     */
+    public int size()
+    {
+        return ids.size();
+    }
+
+    /**
+     * @return Whether the stations have, in order, the IDs and locations of this index.
+     */
+    public boolean matches(List<ChargingStation> stations)
+    {
+        if (stations == null || stations.size() != ids.size()) return false;
+
+        for (int i = 0; i < ids.size(); i++) {
+            ChargingStation station = stations.get(i);
+            if (station == null || !Objects.equals(station.getId(), ids.get(i)) || !locations.get(i).equals(station.getLocation())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param id The ID of a station.
+     * @return The insertion index of the first station added with that ID, or -1 if there is none.
+     */
+    public int indexOf(String id)
+    {
+        Integer index = id == null ? null : byId.get(id);
+
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param location The location of a station.
+     * @return The insertion index of the first station added at that location, or -1 if there is none.
+     */
+    public int indexOf(Location location)
+    {
+        Integer index = location == null ? null : byLocation.get(location);
+
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Finds the nearest station within reach (see {@link ChargingStationGrid#nearest(int, int, int)}).
+     * @param x The x coordinate of the query point.
+     * @param y The y coordinate of the query point.
+     * @param radius The maximum accepted distance.
+     * @return The insertion index of the nearest station, or -1 if none is within reach.
+     */
+    public int nearest(int x, int y, int radius)
+    {
+        return grid.nearest(x, y, radius);
+    }
+
+    /**
+     * Answers many nearest-station queries at once (see {@link ChargingStationGrid#nearest(long[], int[], ForkJoinPool)}).
+     * @param locations The query points, packed with {@link Location#pack(int, int)}.
+     * @param radii The maximum accepted distance of each query.
+     * @param pool The pool that executes the searches.
+     * @return The insertion index of the nearest station of each query, or -1 where none is within reach.
+     */
+    public int[] nearest(long[] locations, int[] radii, ForkJoinPool pool)
+    {
+        return grid.nearest(locations, radii, pool);
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.*;
+
+/**
+ * Ranking of the {@link ChargingStation}s of an {@link EVCompany} with the most recharges,
+ * kept up to date while the simulation runs. It is created with
+ * {@link EVCompany#trackTopStations(int)} and the company updates it on every recharge.
+ *
+ * Stations follow the order of {@link ComparatorChargingStationNumberRecharged}: more
+ * recharges first and, on ties, {@link ComparatorChargingStationId}; stations that are still
+ * tied keep the order in which they were added to the company. Only the {@code capacity}
+ * best stations are kept, in a tree ordered that way. While the number of recharges of a
+ * station grows, a station outside the ranking can only enter it by overtaking the last
+ * one, so every update costs O(log capacity) and {@link #getTop(int)} returns the first K
+ * stations in O(K) without sorting the network. The count of a station only decreases when
+ * the history of one of its chargers is replaced, e.g. when a simulation is restored from a
+ * {@link SimulationCheckpoint}; if that station was in the ranking, the whole network is
+ * ranked again.
+ * @author DP classes
+ * @version 2025
+ */
+public class StationLeaderboard
+{
+    private final int capacity;
+    private final Comparator<ChargingStation> chain;
+
+    // Entrada de cada estación conocida: número de recargas visto y orden de alta
+    private final Map<ChargingStation, Entry> entries;
+    private final TreeSet<Entry> top;
+
+    /**
+     * Recharges seen for a station and its position in the order the stations were added.
+     */
+    private static final class Entry
+    {
+        private final ChargingStation station;
+        private final int order;
+        private long recharges;
+
+        private Entry(ChargingStation station, int order, long recharges)
+        {
+            this.station = station;
+            this.order = order;
+            this.recharges = recharges;
+        }
+    }
+
+    /**
+     * Constructor for objects of class StationLeaderboard. Use {@link EVCompany#trackTopStations(int)},
+     * which also keeps it up to date.
+     * @param stations The stations already in the network, in the order they were added.
+     * @param capacity The maximum number of stations returned by {@link #getTop(int)}.
+     */
+    StationLeaderboard(List<ChargingStation> stations, int capacity)
+    {
+        if (capacity <= 0) throw new IllegalArgumentException("Invalid capacity in StationLeaderboard: " + capacity);
+
+        this.capacity = capacity;
+        this.chain = new ComparatorChargingStationId();
+        this.entries = new IdentityHashMap<>();
+        this.top = new TreeSet<>(this::compare);
+        for (ChargingStation station : stations) {
+            stationAdded(station);
+        }
+    }
+
+    /**
+     * @return The maximum number of stations of the ranking.
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Returns the stations with the most recharges, best first.
+     * @param k The number of stations wanted, at most {@link #getCapacity()}.
+     * @return The first {@code k} stations of the ranking (fewer if the network is smaller).
+     */
+    public synchronized List<ChargingStation> getTop(int k)
+    {
+        if (k < 0 || k > capacity) throw new IllegalArgumentException("Invalid k in getTop (StationLeaderboard): " + k);
+
+        List<ChargingStation> result = new ArrayList<>(Math.min(k, top.size()));
+        Iterator<Entry> ranking = top.iterator();
+        while (result.size() < k && ranking.hasNext()) {
+            result.add(ranking.next().station);
+        }
+        return result;
+    }
+
+    /**
+     * Adds a station of the network to the ranking, with the recharges it already has.
+     * @param station The new station.
+     */
+    synchronized void stationAdded(ChargingStation station)
+    {
+        if (entries.containsKey(station)) return;
+
+        Entry entry = new Entry(station, entries.size(), station.getNumerEVRecharged());
+        entries.put(station, entry);
+        offer(entry);
+    }
+
+    /**
+     * Accounts for new recharges of a station of the network, or for recharges removed from
+     * its history.
+     * @param station The station.
+     * @param count The number of new recharges, negative if some were removed.
+     */
+    synchronized void rechargesAdded(ChargingStation station, long count)
+    {
+        Entry entry = entries.get(station);
+        if (entry == null || count == 0) return;
+
+        // La posición en el árbol depende del contador: se saca antes de cambiarlo
+        boolean ranked = top.remove(entry);
+        entry.recharges += count;
+        if (count < 0) {
+            // Fuera del ranking sólo puede seguir fuera; dentro, otra estación puede adelantarla
+            if (ranked) {
+                rankAll();
+            }
+        }
+        else if (ranked) {
+            top.add(entry);
+        }
+        else {
+            offer(entry);
+        }
+    }
+
+    /**
+     * Ranks the whole network again.
+     */
+    private void rankAll()
+    {
+        top.clear();
+        for (Entry entry : entries.values()) {
+            offer(entry);
+        }
+    }
+
+    /**
+     * Puts a station that is not in the ranking into it if it beats the last one.
+     */
+    private void offer(Entry entry)
+    {
+        if (top.size() < capacity) {
+            top.add(entry);
+        }
+        else if (compare(entry, top.last()) < 0) {
+            top.pollLast();
+            top.add(entry);
+        }
+    }
+
+    /**
+     * Order of the ranking: the order of {@link ComparatorChargingStationNumberRecharged}
+     * on the recharges seen, and then the order in which the stations were added.
+     */
+    private int compare(Entry e1, Entry e2)
+    {
+        if (e1.recharges != e2.recharges) {
+            return e1.recharges > e2.recharges ? -1 : 1;
+        }
+        int byId = chain.compare(e1.station, e2.station);
+        if (byId != 0) return byId;
+
+        return Integer.compare(e1.order, e2.order);
+    }
+}
@@ -0,0 +1,205 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * Test implementation of the {@link StationLeaderboard} class.
+ * Checks the order of the ranking (more recharges first, then by ID, then in the order the
+ * stations were added), that it follows the recharges of the network while they happen, also
+ * when a restored history takes recharges away, and that it always matches a full sort of
+ * the network.
+ * @author DP classes
+ * @version 2025
+ */
+public class StationLeaderboardTest
+{
+    private EVCompany company;
+    private ElectricVehicle vehicle;
+
+    /**
+     * Default constructor for test class StationLeaderboardTest.
+     */
+    public StationLeaderboardTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        company = new EVCompany("Test");
+        company.setLog(SimulationLog.off());
+        vehicle = new ElectricVehicle("1111AAA", "EV", company, Location.of(0, 0), Location.of(5, 5), 100);
+        company.addElectricVehicle(vehicle);
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+    }
+
+    /**
+     * Test the order of the first K stations, ties by ID included.
+     */
+    @Test
+    public void testTopKOrderAndTies()
+    {
+        ChargingStation b = addStation("CC_B", 0);
+        ChargingStation a = addStation("CC_A", 1);
+        ChargingStation c = addStation("CC_C", 2);
+        ChargingStation d = addStation("CC_D", 3);
+        recharge(c, 3);
+        recharge(b, 1);
+        recharge(d, 1);
+        recharge(a, 1);
+
+        StationLeaderboard leaderboard = company.trackTopStations(3);
+        assertEquals(3, leaderboard.getCapacity());
+        assertEquals(Arrays.asList(c, a, b), leaderboard.getTop(3));
+        assertEquals(Arrays.asList(c, a), leaderboard.getTop(2));
+        assertEquals(Collections.emptyList(), leaderboard.getTop(0));
+        try {
+            leaderboard.getTop(4);
+            fail("More stations than the capacity cannot be asked for");
+        }
+        catch (IllegalArgumentException e) {
+            // Esperado
+        }
+    }
+
+    /**
+     * Test that stations with the same ID and recharges keep the order in which they were added.
+     */
+    @Test
+    public void testTiesWithTheSameId()
+    {
+        ChargingStation first = addStation("CC", 0);
+        ChargingStation second = addStation("CC", 1);
+        ChargingStation other = addStation("CA", 2);
+        StationLeaderboard leaderboard = company.trackTopStations(3);
+        assertEquals(Arrays.asList(other, first, second), leaderboard.getTop(3));
+
+        recharge(second, 1);
+        recharge(first, 1);
+        assertEquals(Arrays.asList(first, second, other), leaderboard.getTop(3));
+    }
+
+    /**
+     * Test that the ranking follows new recharges and new stations while the simulation runs.
+     */
+    @Test
+    public void testLiveUpdates()
+    {
+        ChargingStation a = addStation("CC_A", 0);
+        ChargingStation b = addStation("CC_B", 1);
+        StationLeaderboard leaderboard = company.trackTopStations(2);
+        assertEquals(Arrays.asList(a, b), leaderboard.getTop(2));
+
+        recharge(b, 1);
+        assertEquals(Arrays.asList(b, a), leaderboard.getTop(2));
+
+        // Una estación nueva con historia entra por delante; sin ella, sólo al adelantar a la última
+        ChargingStation c = new ChargingStation("Cáceres", "CC_C", Location.of(2, 0));
+        Charger charger = new Charger("CC_C_0", 20, 0.5f);
+        charger.recharge(vehicle, 10, 0);
+        charger.recharge(vehicle, 10, 1);
+        c.addCharger(charger);
+        company.addChargingStation(c);
+        assertEquals(Arrays.asList(c, b), leaderboard.getTop(2));
+        ChargingStation d = addStation("CC_D", 3);
+        assertEquals(Arrays.asList(c, b), leaderboard.getTop(2));
+        recharge(d, 2);
+        assertEquals(Arrays.asList(c, d), leaderboard.getTop(2));
+        recharge(d, 1);
+        assertEquals(Arrays.asList(d, c), leaderboard.getTop(2));
+
+        company.reset();
+        recharge(a, 5);
+        assertEquals(Arrays.asList(d, c), leaderboard.getTop(2));
+    }
+
+    /**
+     * Test that a station of the ranking whose history loses recharges, as when a checkpoint
+     * is restored, lets another station overtake it.
+     */
+    @Test
+    public void testRecomputesWhenRechargesDecrease()
+    {
+        ChargingStation a = addStation("CC_A", 0);
+        ChargingStation b = addStation("CC_B", 1);
+        ChargingStation c = addStation("CC_C", 2);
+        recharge(a, 3);
+        recharge(b, 2);
+        recharge(c, 1);
+        StationLeaderboard leaderboard = company.trackTopStations(2);
+        assertEquals(Arrays.asList(a, b), leaderboard.getTop(2));
+
+        a.getChargers().first().restoreState(0, new RechargeLog(), new VehicleRegistry());
+        assertEquals(0, a.getNumerEVRecharged());
+        assertEquals(Arrays.asList(b, c), leaderboard.getTop(2));
+
+        c.getChargers().first().restoreState(0, new RechargeLog(), new VehicleRegistry());
+        assertEquals(Arrays.asList(b, a), leaderboard.getTop(2));
+    }
+
+    /**
+     * Test that the ranking matches a full sort of the network after many random recharges
+     * and restored histories.
+     */
+    @Test
+    public void testMatchesFullSort()
+    {
+        List<ChargingStation> network = new ArrayList<>();
+        for (int s = 0; s < 30; s++) {
+            network.add(addStation("CC" + (s % 10), s));
+        }
+        StationLeaderboard leaderboard = company.trackTopStations(5);
+
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            ChargingStation station = network.get(random.nextInt(network.size()));
+            if (random.nextInt(20) == 0) {
+                station.getChargers().first().restoreState(0, new RechargeLog(), new VehicleRegistry());
+            }
+            else {
+                recharge(station, 1);
+            }
+
+            List<ChargingStation> sorted = new ArrayList<>(network);
+            // El orden estable de la lista conserva el orden de alta en los empates
+            sorted.sort(new ComparatorChargingStationNumberRecharged());
+            assertEquals("Update " + i, sorted.subList(0, 5), leaderboard.getTop(5));
+        }
+    }
+
+    /**
+     * Creates a station with one charger and adds it to the company.
+     */
+    private ChargingStation addStation(String id, int x)
+    {
+        ChargingStation station = new ChargingStation("Cáceres", id, Location.of(x, 0));
+        station.addCharger(new Charger(id + "_" + x, 20, 0.5f));
+        company.addChargingStation(station);
+        return station;
+    }
+
+    /**
+     * Recharges the vehicle some times at a station.
+     */
+    private void recharge(ChargingStation station, int times)
+    {
+        for (int i = 0; i < times; i++) {
+            station.getChargers().first().recharge(vehicle, 10, i);
+        }
+    }
+}
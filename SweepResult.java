@@ -0,0 +1,135 @@
+/**
+ * Key performance indicators of one simulation of a {@link ParameterSweep}, together with
+ * the parameters it was run with.
+ * @author DP classes
+ * @version 2025
+ */
+public class SweepResult
+{
+    private final int replica;
+    private final int chargersPerStation;
+    private final float feeScale;
+    private final float batteryScale;
+    private final int consumptionPerStep;
+
+    private final int vehicles;
+    private final int arrivals;
+    private final int deadBatteries;
+    private final int stranded;
+    private final long recharges;
+    private final long kwhDelivered;
+    private final double revenue;
+    private final int chargers;
+    private final int steps;
+    private final double chargerUtilization;
+
+    /**
+     * Constructor for objects of class SweepResult.
+     * @param replica The replica (scenario drawn with its own seed) of the run.
+     * @param chargersPerStation The number of chargers of every station.
+     * @param feeScale The factor applied to the fee of every charger.
+     * @param batteryScale The factor applied to the battery capacity of every vehicle.
+     * @param consumptionPerStep The kWh consumed per movement step.
+     * @param vehicles The number of vehicles.
+     * @param arrivals The vehicles that reached their target.
+     * @param deadBatteries The vehicles that ran out of battery.
+     * @param stranded The vehicles that stopped for another reason (no reachable station or no free charger).
+     * @param recharges The number of recharges.
+     * @param kwhDelivered The kWh delivered by the chargers.
+     * @param revenue The money collected by the chargers.
+     * @param chargers The number of chargers of the network.
+     * @param steps The number of simulated steps.
+     * @param chargerUtilization The fraction of the charger time that charging sessions kept
+     * the chargers busy, or NaN if the run used instantaneous recharges.
+     */
+    public SweepResult(int replica, int chargersPerStation, float feeScale, float batteryScale, int consumptionPerStep,
+                       int vehicles, int arrivals, int deadBatteries, int stranded, long recharges, long kwhDelivered,
+                       double revenue, int chargers, int steps, double chargerUtilization)
+    {
+        this.replica = replica;
+        this.chargersPerStation = chargersPerStation;
+        this.feeScale = feeScale;
+        this.batteryScale = batteryScale;
+        this.consumptionPerStep = consumptionPerStep;
+        this.vehicles = vehicles;
+        this.arrivals = arrivals;
+        this.deadBatteries = deadBatteries;
+        this.stranded = stranded;
+        this.recharges = recharges;
+        this.kwhDelivered = kwhDelivered;
+        this.revenue = revenue;
+        this.chargers = chargers;
+        this.steps = steps;
+        this.chargerUtilization = chargerUtilization;
+    }
+
+    /** @return The replica of the run. */
+    public int getReplica() { return replica; }
+
+    /** @return The number of chargers of every station. */
+    public int getChargersPerStation() { return chargersPerStation; }
+
+    /** @return The factor applied to the charger fees. */
+    public float getFeeScale() { return feeScale; }
+
+    /** @return The factor applied to the battery capacities. */
+    public float getBatteryScale() { return batteryScale; }
+
+    /** @return The kWh consumed per movement step. */
+    public int getConsumptionPerStep() { return consumptionPerStep; }
+
+    /** @return The number of vehicles. */
+    public int getVehicles() { return vehicles; }
+
+    /** @return The vehicles that reached their target. */
+    public int getArrivals() { return arrivals; }
+
+    /** @return The vehicles that ran out of battery. */
+    public int getDeadBatteries() { return deadBatteries; }
+
+    /** @return The vehicles that stopped without a reachable station or a free charger. */
+    public int getStranded() { return stranded; }
+
+    /** @return The number of recharges. */
+    public long getRecharges() { return recharges; }
+
+    /** @return The kWh delivered by the chargers. */
+    public long getKwhDelivered() { return kwhDelivered; }
+
+    /** @return The money collected by the chargers. */
+    public double getRevenue() { return revenue; }
+
+    /**
+     * @return The average number of recharges per charger and step, a measure of how loaded
+     * the network is. It is not the fraction of time the chargers were busy, which
+     * {@link #getChargerUtilization()} gives in charging-session mode.
+     */
+    public double getRechargesPerChargerStep()
+    {
+        long chargerSteps = (long) chargers * steps;
+
+        return chargerSteps == 0 ? 0.0 : (double) recharges / chargerSteps;
+    }
+
+    /**
+     * @return The fraction of the charger time that charging sessions, finished or still in
+     * progress, kept the chargers busy (see {@link ChargingStation#getChargerUtilization(int)}),
+     * or NaN if the run used instantaneous recharges, which take no time.
+     */
+    public double getChargerUtilization()
+    {
+        return chargerUtilization;
+    }
+
+    /**
+     * @return The row of this run in the table of {@link ParameterSweep#printTable}.
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%7d %8d %6.2f %8.2f %7d %8d %8d %6d %8d %9d %10d %12.1f %7.3f %5s",
+        replica, chargersPerStation, feeScale, batteryScale, consumptionPerStep, vehicles,
+        arrivals, deadBatteries, stranded, recharges, kwhDelivered, revenue, getRechargesPerChargerStep(),
+        Double.isNaN(chargerUtilization) ? "-" : String.format("%.3f", chargerUtilization));
+    }
+}
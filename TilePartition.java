@@ -0,0 +1,115 @@
+import java.util.List;
+
+/**
+ * Division of the {@link Location} grid into a rectangle of {@code columns x rows} tiles of
+ * (almost) the same size, used by {@link TiledSimulation} to decide which worker process owns
+ * every {@link ChargingStation} and every {@link ElectricVehicle}. Tiles are numbered row by
+ * row, from 0 to {@link #getTiles()} - 1. Positions outside the grid belong to the nearest
+ * tile of the border, so every location has an owner.
+ * @author DP classes
+ * @version 2025
+ */
+public class TilePartition
+{
+    private final int width;
+    private final int height;
+    private final int columns;
+    private final int rows;
+
+    /**
+     * Constructor for objects of class TilePartition.
+     * @param width The width of the grid (x from 0 to width - 1).
+     * @param height The height of the grid (y from 0 to height - 1).
+     * @param columns The number of tiles along x. At most {@code width}.
+     * @param rows The number of tiles along y. At most {@code height}.
+     */
+    public TilePartition(int width, int height, int columns, int rows)
+    {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("Invalid grid in TilePartition: " + width + "x" + height);
+        if (columns <= 0 || rows <= 0 || columns > width || rows > height) {
+            throw new IllegalArgumentException("Invalid tiles in TilePartition: " + columns + "x" + rows);
+        }
+
+        this.width = width;
+        this.height = height;
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    /**
+     * Creates the partition of the smallest grid that holds every station of a company and
+     * every position (current and target) of a fleet.
+     * @param company The company, with its charging network.
+     * @param fleet The vehicles.
+     * @param columns The number of tiles along x.
+     * @param rows The number of tiles along y.
+     * @return The partition.
+     */
+    public static TilePartition covering(EVCompany company, List<ElectricVehicle> fleet, int columns, int rows)
+    {
+        if (company == null || fleet == null) throw new IllegalArgumentException("null company or fleet in covering (TilePartition)");
+
+        int maxX = columns - 1;
+        int maxY = rows - 1;
+        for (ChargingStation station : company.getCityStations()) {
+            maxX = Math.max(maxX, station.getLocation().getX());
+            maxY = Math.max(maxY, station.getLocation().getY());
+        }
+        for (ElectricVehicle ev : fleet) {
+            maxX = Math.max(maxX, Math.max(Location.unpackX(ev.getPackedLocation()), Location.unpackX(ev.getPackedTargetLocation())));
+            maxY = Math.max(maxY, Math.max(Location.unpackY(ev.getPackedLocation()), Location.unpackY(ev.getPackedTargetLocation())));
+        }
+        return new TilePartition(maxX + 1, maxY + 1, columns, rows);
+    }
+
+    /** @return The width of the grid. */
+    public int getWidth() { return width; }
+
+    /** @return The height of the grid. */
+    public int getHeight() { return height; }
+
+    /** @return The number of tiles along x. */
+    public int getColumns() { return columns; }
+
+    /** @return The number of tiles along y. */
+    public int getRows() { return rows; }
+
+    /**
+     * @return The number of tiles.
+     */
+    public int getTiles()
+    {
+        return columns * rows;
+    }
+
+    /**
+     * @param x The x coordinate of a position.
+     * @param y The y coordinate of a position.
+     * @return The tile that owns the position.
+     */
+    public int tileOf(int x, int y)
+    {
+        int column = (int) Math.min(columns - 1, Math.max(0L, (long) x * columns / width));
+        int row = (int) Math.min(rows - 1, Math.max(0L, (long) y * rows / height));
+
+        return row * columns + column;
+    }
+
+    /**
+     * @param location A position packed with {@link Location#pack(int, int)}.
+     * @return The tile that owns the position.
+     */
+    public int tileOf(long location)
+    {
+        return tileOf(Location.unpackX(location), Location.unpackY(location));
+    }
+
+    /**
+     * @return A description of the partition.
+     */
+    @Override
+    public String toString()
+    {
+        return "(TilePartition: " + columns + "x" + rows + " tiles over " + width + "x" + height + ")";
+    }
+}
@@ -0,0 +1,652 @@
+import java.io.*;
+import java.net.Socket;
+import java.util.*;
+
+/**
+ * Worker process of a {@link TiledSimulation}. It owns one tile of a {@link TilePartition}:
+ * the {@link ChargingStation}s inside it and the {@link ElectricVehicle}s that are currently
+ * inside it. Every worker knows the position of every station of the network, so routing
+ * gives the same answer in every process, but only the owner of a station ever uses its chargers.
+ *
+ * The worker connects to the coordinator over a loopback socket and obeys its commands:
+ * <ul>
+ * <li>{@code MOVE step}: its vehicles move in fleet order; those that leave the tile are
+ * sent back to the coordinator, which hands them to the worker of their new tile.</li>
+ * <li>{@code CHARGE step}: it receives the vehicles that entered the tile, and the vehicles
+ * that reached a station take their chargers in fleet order.</li>
+ * <li>{@code REPORT}: it sends the final information of its vehicles and the complete
+ * information of its stations.</li>
+ * <li>{@code SESSIONS elapsedSteps}: it sends the session statistics of its stations.</li>
+ * <li>{@code STOP}: it ends.</li>
+ * </ul>
+ * The log events of both phases are sent to the coordinator with the fleet index of the
+ * vehicle involved, so it can write them in the order of a single-process run.
+ *
+ * The worker either generates its part of the scenario with the {@link ScenarioGenerator}
+ * configuration sent by the coordinator, keeping only the vehicles that start in its tile,
+ * or receives it already built. Its vehicles are numbered by their index in the fleet
+ * ({@link VehicleRegistry#number}), so the recharge histories of its chargers hold fleet
+ * numbers and a vehicle that leaves the tile is no longer referenced by the worker.
+ *
+ * Usage: {@code java TileWorker host port tile}
+ * @author DP classes
+ * @version 2025
+ */
+public class TileWorker
+{
+    /** Command: move the vehicles of the tile. */
+    static final int MOVE = 1;
+    /** Command: receive the vehicles handed off and use the chargers. */
+    static final int CHARGE = 2;
+    /** Command: send the final information of the vehicles and stations of the tile. */
+    static final int REPORT = 3;
+    /** Command: send the session statistics of the stations of the tile. */
+    static final int SESSIONS = 4;
+    /** Command: end the worker. */
+    static final int STOP = 5;
+
+    /** Size of the buffers of the socket streams. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int NONE = -1;
+
+    private final int tile;
+    private final TilePartition partition;
+    private final EVCompany company;
+    private final ChargingStation[] network;
+    private final Map<ChargingStation, Integer> stationIndex;
+    // Posiciones en la red de las estaciones del tile
+    private final int[] ownedStations;
+    private final EventRecorder events;
+
+    // Vehículos del tile en orden de flota: índice en la flota, vehículo y si ha llegado a su estación
+    private int[] indexes;
+    private ElectricVehicle[] vehicles;
+    private boolean[] arrived;
+    private int size;
+
+    // Numera los vehículos del tile por su índice en la flota, sin guardarlos
+    private final VehicleRegistry fleet;
+
+    private final ByteArrayOutputStream scratch;
+
+    /**
+     * Creates the worker of a tile from the setup sent by the coordinator.
+     * @param tile The tile of the worker.
+     * @param in The stream of the coordinator.
+     * @throws IOException If the setup cannot be read.
+     */
+    TileWorker(int tile, DataInputStream in) throws IOException
+    {
+        this.tile = tile;
+        this.partition = new TilePartition(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+        this.company = new EVCompany(readString(in));
+        company.setChargingSessionMode(in.readBoolean());
+        company.setConsumptionPerStep(in.readInt());
+        this.events = new EventRecorder(LogLevel.values()[in.readInt()]);
+        company.setLog(events);
+
+        // El escenario se genera aquí mismo o llega ya construido
+        ScenarioGenerator generator = null;
+        if (in.readBoolean()) {
+            generator = ScenarioGenerator.readConfiguration(in);
+            Location.ensureCacheExtent(partition.getWidth(), partition.getHeight());
+        }
+        this.network = generator != null ? generateNetwork(generator, in.readInt(), in.readInt(), company) : readNetwork(in, company);
+        this.stationIndex = indexOf(network);
+        int owned = 0;
+        for (ChargingStation station : network) {
+            if (partition.tileOf(station.getLocation().pack()) == tile) owned++;
+        }
+        this.ownedStations = new int[owned];
+        for (int s = 0, o = 0; s < network.length; s++) {
+            if (partition.tileOf(network[s].getLocation().pack()) == tile) ownedStations[o++] = s;
+        }
+
+        this.indexes = new int[16];
+        this.vehicles = new ElectricVehicle[16];
+        this.arrived = new boolean[16];
+        this.fleet = new VehicleRegistry();
+        this.scratch = new ByteArrayOutputStream();
+
+        if (generator != null) {
+            generateVehicles(generator, in.readInt());
+        }
+        else {
+            readState(in);
+        }
+    }
+
+    /**
+     * Generates the whole fleet, in fleet order, keeping only the vehicles that start in
+     * the tile, and plans their routes.
+     */
+    private void generateVehicles(ScenarioGenerator generator, int numVehicles)
+    {
+        int[] next = {0};
+        generator.generateVehicles(company, numVehicles, ev -> {
+            int index = next[0]++;
+            if (partition.tileOf(ev.getPackedLocation()) == tile) {
+                add(index, ev, false);
+            }
+        });
+        company.calculateRoutes(Arrays.asList(vehicles).subList(0, size));
+    }
+
+    /**
+     * Reads the vehicles of the tile and the state of its stations: queues, occupied
+     * chargers and recharge histories, which refer to the vehicles by their fleet index.
+     */
+    private void readState(DataInputStream in) throws IOException
+    {
+        for (int n = in.readInt(); n > 0; n--) {
+            int index = in.readInt();
+            add(index, readVehicle(in, company, network), false);
+        }
+
+        for (int n = in.readInt(); n > 0; n--) {
+            ChargingStation station = network[in.readInt()];
+            int maxQueueLength = in.readInt();
+            long sessionsStarted = in.readLong();
+            long totalWaitSteps = in.readLong();
+            long busyChargerSteps = in.readLong();
+            List<ElectricVehicle> queue = new ArrayList<>();
+            for (int q = in.readInt(); q > 0; q--) {
+                queue.add(vehicles[Arrays.binarySearch(indexes, 0, size, in.readInt())]);
+            }
+            station.restoreSessionState(queue, maxQueueLength, sessionsStarted, totalWaitSteps, busyChargerSteps);
+            for (Charger charger : station.getChargers()) {
+                long amount = in.readLong();
+                boolean free = in.readBoolean();
+                RechargeLog history = new RechargeLog();
+                for (int h = in.readInt(); h > 0; h--) {
+                    history.append(in.readInt(), in.readInt(), in.readInt(), in.readLong());
+                }
+                charger.restoreState(amount, history, fleet);
+                // Los cargadores en sesión ya están reservados para su vehículo
+                if (!free && charger.isFree()) {
+                    charger.tryReserve();
+                }
+            }
+        }
+    }
+
+    /**
+     * Connects to the coordinator and serves its commands until it sends {@code STOP}.
+     * @param args The host and port of the coordinator and the tile of the worker.
+     */
+    public static void main(String[] args)
+    {
+        if (args.length != 3) throw new IllegalArgumentException("Usage: java TileWorker host port tile");
+
+        int tile = Integer.parseInt(args[2]);
+        try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+            out.writeInt(tile);
+            out.flush();
+
+            new TileWorker(tile, in).serve(in, out);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Tile worker " + tile + " lost its coordinator", e);
+        }
+    }
+
+    /**
+     * Executes the commands of the coordinator until it sends {@code STOP} or closes the connection.
+     */
+    private void serve(DataInputStream in, DataOutputStream out) throws IOException
+    {
+        while (true) {
+            int command;
+            try {
+                command = in.readInt();
+            }
+            catch (EOFException e) {
+                // El coordinador terminó sin mandar STOP: no queda nada que simular
+                return;
+            }
+            switch (command) {
+                case MOVE:
+                    move(in.readInt(), out);
+                    break;
+                case CHARGE:
+                    charge(in.readInt(), in, out);
+                    break;
+                case REPORT:
+                    report(out);
+                    break;
+                case SESSIONS:
+                    sessions(in.readInt(), out);
+                    break;
+                case STOP:
+                    return;
+                default:
+                    throw new IOException("Unknown command for tile worker " + tile + ": " + command);
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * First phase of a step: the vehicles move and those that leave the tile are sent out.
+     */
+    private void move(int step, DataOutputStream out) throws IOException
+    {
+        events.clear();
+        int leaving = 0;
+        for (int k = 0; k < size; k++) {
+            events.vehicle = indexes[k];
+            arrived[k] = vehicles[k].move(step);
+            if (partition.tileOf(vehicles[k].getPackedLocation()) != tile) {
+                leaving++;
+            }
+        }
+        events.write(out);
+
+        // Los que salen del tile se envían y se compactan los que se quedan
+        out.writeInt(leaving);
+        int kept = 0;
+        for (int k = 0; k < size; k++) {
+            int destination = partition.tileOf(vehicles[k].getPackedLocation());
+            if (destination != tile) {
+                out.writeInt(destination);
+                out.writeInt(indexes[k]);
+                out.writeBoolean(arrived[k]);
+                writeVehicle(out, vehicles[k], stationIndex, scratch);
+            }
+            else {
+                indexes[kept] = indexes[k];
+                vehicles[kept] = vehicles[k];
+                arrived[kept] = arrived[k];
+                kept++;
+            }
+        }
+        Arrays.fill(vehicles, kept, size, null);
+        size = kept;
+    }
+
+    /**
+     * Second phase of a step: the vehicles that entered the tile are added and those that
+     * reached their station take their chargers in fleet order.
+     */
+    private void charge(int step, DataInputStream in, DataOutputStream out) throws IOException
+    {
+        int previous = size;
+        for (int n = in.readInt(); n > 0; n--) {
+            int index = in.readInt();
+            boolean hasArrived = in.readBoolean();
+            add(index, readVehicle(in, company, network), hasArrived);
+        }
+        if (size > previous) {
+            restoreFleetOrder(previous);
+        }
+
+        events.clear();
+        for (int k = 0; k < size; k++) {
+            if (arrived[k]) {
+                arrived[k] = false;
+                events.vehicle = indexes[k];
+                vehicles[k].chargeAtStation(step);
+            }
+        }
+        events.write(out);
+    }
+
+    /**
+     * Sends the final information of the vehicles of the tile, in fleet order, and the
+     * complete information of its stations, in network order. The vehicles recharged by every
+     * charger are sent as fleet indexes: the coordinator writes their information.
+     */
+    private void report(DataOutputStream out) throws IOException
+    {
+        out.writeInt(size);
+        for (int k = 0; k < size; k++) {
+            out.writeInt(indexes[k]);
+            out.writeUTF(vehicles[k].getInitialFinalInfo());
+        }
+
+        out.writeInt(ownedStations.length);
+        for (int s : ownedStations) {
+            ChargingStation station = network[s];
+            out.writeInt(s);
+            out.writeUTF(station.toString());
+            out.writeInt(station.getChargers().size());
+            for (Charger charger : station.getChargers()) {
+                out.writeUTF(charger.toString());
+                RechargeLog history = charger.getRechargeHistory();
+                int[] recharged = history.copyVehicles(history.size());
+                out.writeInt(recharged.length);
+                for (int vehicle : recharged) {
+                    out.writeInt(vehicle);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the session statistics of the stations of the tile, in network order.
+     */
+    private void sessions(int elapsedSteps, DataOutputStream out) throws IOException
+    {
+        out.writeInt(ownedStations.length);
+        for (int s : ownedStations) {
+            out.writeInt(s);
+            out.writeUTF(network[s].getSessionInfo(elapsedSteps));
+        }
+    }
+
+    /**
+     * Adds a vehicle at the end of the vehicles of the tile.
+     */
+    private void add(int index, ElectricVehicle vehicle, boolean hasArrived)
+    {
+        if (size == indexes.length) {
+            int capacity = size * 2;
+            indexes = Arrays.copyOf(indexes, capacity);
+            vehicles = Arrays.copyOf(vehicles, capacity);
+            arrived = Arrays.copyOf(arrived, capacity);
+        }
+        indexes[size] = index;
+        vehicles[size] = vehicle;
+        arrived[size] = hasArrived;
+        size++;
+        fleet.number(vehicle, index);
+    }
+
+    /**
+     * Merges the vehicles added from position {@code from} on with the previous ones, which
+     * are already in fleet order.
+     */
+    private void restoreFleetOrder(int from)
+    {
+        Integer[] order = new Integer[size - from];
+        for (int k = from; k < size; k++) {
+            order[k - from] = k;
+        }
+        Arrays.sort(order, (k1, k2) -> Integer.compare(indexes[k1], indexes[k2]));
+
+        int[] mergedIndexes = new int[indexes.length];
+        ElectricVehicle[] mergedVehicles = new ElectricVehicle[vehicles.length];
+        boolean[] mergedArrived = new boolean[arrived.length];
+        int old = 0;
+        int added = 0;
+        for (int k = 0; k < size; k++) {
+            int source;
+            if (added == order.length || (old < from && indexes[old] < indexes[order[added]])) {
+                source = old++;
+            }
+            else {
+                source = order[added++];
+            }
+            mergedIndexes[k] = indexes[source];
+            mergedVehicles[k] = vehicles[source];
+            mergedArrived[k] = arrived[source];
+        }
+        indexes = mergedIndexes;
+        vehicles = mergedVehicles;
+        arrived = mergedArrived;
+    }
+
+    /**
+     * Writes the positions of the stations of a network and their chargers.
+     * @param out Where the network is written.
+     * @param network The stations, in the order of {@link EVCompany#getCityStations()}.
+     * @throws IOException If the stream fails.
+     */
+    static void writeNetwork(DataOutputStream out, List<ChargingStation> network) throws IOException
+    {
+        out.writeInt(network.size());
+        for (ChargingStation station : network) {
+            writeString(out, station.getCity());
+            writeString(out, station.getId());
+            out.writeLong(station.getLocation().pack());
+            out.writeInt(station.getChargers().size());
+            for (Charger charger : station.getChargers()) {
+                writeString(out, charger.getId());
+                out.writeInt(charger.getChargingSpeed());
+                out.writeFloat(charger.getChargingFee());
+            }
+        }
+    }
+
+    /**
+     * Creates the stations written by {@link #writeNetwork}, with new chargers, and adds
+     * them to a company.
+     * @param in Where the network is read from.
+     * @param company The company of the new stations.
+     * @return The stations, in the order they were written.
+     * @throws IOException If the stream fails.
+     */
+    static ChargingStation[] readNetwork(DataInputStream in, EVCompany company) throws IOException
+    {
+        ChargingStation[] stations = new ChargingStation[in.readInt()];
+        for (int s = 0; s < stations.length; s++) {
+            String city = readString(in);
+            String id = readString(in);
+            stations[s] = new ChargingStation(city, id, Location.unpack(in.readLong()));
+            for (int c = in.readInt(); c > 0; c--) {
+                stations[s].addCharger(new Charger(readString(in), in.readInt(), in.readFloat()));
+            }
+            company.addChargingStation(stations[s]);
+        }
+        return stations;
+    }
+
+    /**
+     * Generates the stations of a scenario, with their chargers, and adds them to a company.
+     * @param generator The generator of the scenario.
+     * @param numStations The number of stations.
+     * @param chargersPerStation The number of chargers of every station.
+     * @param company The company of the new stations.
+     * @return The stations, in the order they were generated.
+     */
+    private static ChargingStation[] generateNetwork(ScenarioGenerator generator, int numStations, int chargersPerStation, EVCompany company)
+    {
+        List<ChargingStation> stations = new ArrayList<>(numStations);
+        generator.generateStations(numStations, chargersPerStation, station -> {
+            stations.add(station);
+            company.addChargingStation(station);
+        });
+        return stations.toArray(new ChargingStation[0]);
+    }
+
+    /**
+     * Writes the whole state of a vehicle, preceded by its length in bytes so that the
+     * coordinator can forward it without decoding it.
+     * @param out Where the vehicle is written.
+     * @param ev The vehicle.
+     * @param stationIndex The position of every station in the network.
+     * @param scratch A buffer for the record.
+     * @throws IOException If the stream fails.
+     */
+    static void writeVehicle(DataOutputStream out, ElectricVehicle ev, Map<ChargingStation, Integer> stationIndex,
+                             ByteArrayOutputStream scratch) throws IOException
+    {
+        scratch.reset();
+        DataOutputStream record = new DataOutputStream(scratch);
+        writeString(record, ev.getPlate());
+        writeString(record, ev.getName());
+        record.writeInt(ev.getBatteryCapacity());
+        record.writeLong(ev.getPackedLocation());
+        record.writeLong(ev.getPackedTargetLocation());
+        record.writeLong(ev.getPackedDestination());
+        record.writeInt(ev.getBatteryLevel());
+        record.writeInt(ev.getIdleCount());
+        record.writeInt(ev.getChargesCount());
+        record.writeLong(ev.getChargesCostUnits());
+        record.writeInt(stationIndex.getOrDefault(ev.getTargetChargingStation(), NONE));
+        record.writeBoolean(ev.hasFinishedSimulation());
+        record.writeInt(ev.getArrivingStep());
+
+        Charger charger = ev.getSelectedCharger();
+        record.writeInt(charger == null ? NONE : stationIndex.getOrDefault(charger.getStation(), NONE));
+        record.writeInt(charger == null ? NONE : new ArrayList<>(charger.getStation().getChargers()).indexOf(charger));
+        record.writeBoolean(ev.isWaitingForCharger());
+        record.writeInt(ev.getWaitingSince());
+        record.writeInt(ev.getSessionStartStep());
+        record.writeInt(ev.getSessionEndStep());
+        record.flush();
+
+        out.writeInt(scratch.size());
+        scratch.writeTo(out);
+    }
+
+    /**
+     * Creates a vehicle from a record written by {@link #writeVehicle}.
+     * @param in Where the record is read from.
+     * @param company The company the vehicle subscribes to.
+     * @param network The stations of the company, in network order.
+     * @return The vehicle.
+     * @throws IOException If the stream fails.
+     */
+    static ElectricVehicle readVehicle(DataInputStream in, EVCompany company, ChargingStation[] network) throws IOException
+    {
+        in.readInt();
+        String plate = readString(in);
+        String name = readString(in);
+        int batteryCapacity = in.readInt();
+        long location = in.readLong();
+        long target = in.readLong();
+        long destination = in.readLong();
+        int batteryLevel = in.readInt();
+        int idleCount = in.readInt();
+        int chargesCount = in.readInt();
+        long chargesCost = in.readLong();
+        int targetStation = in.readInt();
+        boolean finished = in.readBoolean();
+        int arrivingStep = in.readInt();
+        int sessionStation = in.readInt();
+        int sessionCharger = in.readInt();
+        boolean waiting = in.readBoolean();
+        int waitingSince = in.readInt();
+        int sessionStart = in.readInt();
+        int sessionEnd = in.readInt();
+
+        ElectricVehicle ev = new ElectricVehicle(plate, name, company, Location.unpack(location), Location.unpack(target), batteryCapacity);
+        ev.restoreState(location, destination, batteryLevel, idleCount, chargesCount, chargesCost,
+                        targetStation == NONE ? null : network[targetStation], finished, arrivingStep);
+        Charger charger = sessionStation == NONE ? null : new ArrayList<>(network[sessionStation].getChargers()).get(sessionCharger);
+        ev.restoreSession(charger, waiting, waitingSince, sessionStart, sessionEnd);
+        return ev;
+    }
+
+    /**
+     * Maps every station to its position in the network.
+     * @param network The stations.
+     * @return The positions.
+     */
+    static Map<ChargingStation, Integer> indexOf(ChargingStation[] network)
+    {
+        Map<ChargingStation, Integer> index = new IdentityHashMap<>(network.length * 2);
+        for (int s = 0; s < network.length; s++) {
+            index.put(network[s], s);
+        }
+        return index;
+    }
+
+    /**
+     * Writes a nullable string.
+     */
+    static void writeString(DataOutputStream out, String text) throws IOException
+    {
+        out.writeBoolean(text != null);
+        if (text != null) {
+            out.writeUTF(text);
+        }
+    }
+
+    /**
+     * Reads a string written with {@link #writeString}.
+     */
+    static String readString(DataInputStream in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Log of a worker: instead of writing its events, it keeps their text together with the
+     * fleet index of the vehicle that was acting, and sends them to the coordinator.
+     */
+    private static final class EventRecorder extends SimulationLog
+    {
+        // Vehículo que está actuando (índice en la flota)
+        private int vehicle;
+
+        private int[] vehicles;
+        private final List<String> texts;
+        private final StringBuilder text;
+
+        EventRecorder(LogLevel level)
+        {
+            super(level, null, 1);
+            this.vehicles = new int[16];
+            this.texts = new ArrayList<>();
+            this.text = new StringBuilder();
+        }
+
+        @Override
+        public void recharge(ElectricVehicle ev, Charger charger, int kwh, long cost, int step)
+        {
+            if (isEnabled(LogLevel.INFO)) {
+                record(ElectricVehicle.rechargeMessage(ev.getPlate(), kwh, charger.getId(), cost, step));
+            }
+        }
+
+        @Override
+        public void arrival(ElectricVehicle ev, long location, int step)
+        {
+            if (isEnabled(LogLevel.DEBUG)) {
+                text.setLength(0);
+                appendLocationMessage(text, ev.getPlate(), true, location, step);
+                record(text.toString());
+            }
+        }
+
+        @Override
+        public void batteryDead(ElectricVehicle ev, long location, int step)
+        {
+            if (isEnabled(LogLevel.DEBUG)) {
+                text.setLength(0);
+                appendLocationMessage(text, ev.getPlate(), false, location, step);
+                record(text.toString());
+            }
+        }
+
+        @Override
+        public void noFreeCharger(ElectricVehicle ev, ChargingStation station, int step)
+        {
+            if (isEnabled(LogLevel.DEBUG)) {
+                text.setLength(0);
+                appendNoFreeChargerMessage(text, ev.getPlate(), station.getId(), step);
+                record(text.toString());
+            }
+        }
+
+        private void record(String message)
+        {
+            int n = texts.size();
+            if (n == vehicles.length) {
+                vehicles = Arrays.copyOf(vehicles, n * 2);
+            }
+            vehicles[n] = vehicle;
+            texts.add(message);
+        }
+
+        private void clear()
+        {
+            texts.clear();
+        }
+
+        private void write(DataOutputStream out) throws IOException
+        {
+            out.writeInt(texts.size());
+            for (int i = 0; i < texts.size(); i++) {
+                out.writeInt(vehicles[i]);
+                out.writeUTF(texts.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,636 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Executes the steps of a simulation split among several processes. The grid is divided by a
+ * {@link TilePartition} and every tile is simulated by a {@link TileWorker} process, which owns
+ * the {@link ChargingStation}s inside it and the {@link ElectricVehicle}s that are currently
+ * inside it. The processes run on this machine and talk to this coordinator over loopback sockets.
+ * Each step runs in two phases:
+ * <ol>
+ * <li>Every worker moves its vehicles. The vehicles that leave their tile are sent to the
+ * coordinator, which hands them to the worker of their new tile.</li>
+ * <li>Every worker receives the vehicles that entered its tile, and the vehicles that reached
+ * a station take their chargers in fleet order.</li>
+ * </ol>
+ * A vehicle only takes a charger at the station it is standing on, which belongs to the tile
+ * of the vehicle, so no two workers ever touch the same charger; routing only needs the
+ * positions of the stations, which every worker knows. The log events of every worker are
+ * merged by fleet index, so a run gives exactly the same output as {@link SimulationMode#SEQUENTIAL}.
+ *
+ * The simulated objects live in the workers, and this process never holds the whole fleet:
+ * given a {@link ScenarioGenerator}, every worker generates the scenario itself and keeps the
+ * vehicles that start in its tile. A fleet that already exists in this process (a small demo,
+ * or a simulation restored from a {@link SimulationCheckpoint}) can also be handed out.
+ * The results are streamed from the workers: {@link #writeReport(Appendable)} merges the
+ * final information of every vehicle and station, and {@link #writeSessionInfo(Appendable, int)}
+ * the session statistics of every station.
+ * @author DP classes
+ * @version 2025
+ */
+public class TiledSimulation implements AutoCloseable
+{
+    /** Milliseconds a worker has to start and connect. */
+    private static final int CONNECT_TIMEOUT_MILLIS = 60_000;
+
+    private final TilePartition partition;
+    private final SimulationLog log;
+    private final int numVehicles;
+
+    private final Process[] workers;
+    private final Socket[] sockets;
+    private final DataInputStream[] ins;
+    private final DataOutputStream[] outs;
+    private final ByteArrayOutputStream[] incoming;
+    private final int[] incomingCounts;
+    private final List<Event> events;
+
+    private Appendable logOutput;
+    private int nextStep;
+    private boolean closed;
+
+    /**
+     * Constructor for objects of class TiledSimulation. The first simulated step is 0.
+     * @param company The company, with its charging network.
+     * @param fleet The vehicles to simulate, in the order a sequential step would use.
+     * @param partition The tiles, one worker process each.
+     * @throws IOException If the workers cannot be started.
+     */
+    public TiledSimulation(EVCompany company, List<ElectricVehicle> fleet, TilePartition partition) throws IOException
+    {
+        this(company, fleet, partition, 0, Collections.emptyList());
+    }
+
+    /**
+     * Constructor for objects of class TiledSimulation starting at a later step, e.g. to
+     * continue a simulation restored from a {@link SimulationCheckpoint}. The worker processes
+     * are started and receive the current state of their tile.
+     * @param company The company, with its charging network.
+     * @param fleet The vehicles to simulate, in the order a sequential step would use.
+     * @param partition The tiles, one worker process each.
+     * @param firstStep The first step to simulate.
+     * @param jvmOptions Options for the Java virtual machine of every worker (e.g. {@code -Xmx1g}).
+     * @throws IOException If the workers cannot be started.
+     */
+    public TiledSimulation(EVCompany company, List<ElectricVehicle> fleet, TilePartition partition,
+                           int firstStep, List<String> jvmOptions) throws IOException
+    {
+        this(company, sizeOf(fleet), partition, firstStep, jvmOptions);
+
+        try {
+            List<ChargingStation> stations = company.getCityStations();
+            ChargingStation[] stationArray = stations.toArray(new ChargingStation[0]);
+            Map<ChargingStation, Integer> stationIndex = TileWorker.indexOf(stationArray);
+            Map<ElectricVehicle, Integer> fleetIndex = new IdentityHashMap<>(numVehicles * 2);
+            for (int i = 0; i < numVehicles; i++) {
+                fleetIndex.put(fleet.get(i), i);
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream networkOut = new DataOutputStream(bytes);
+            TileWorker.writeNetwork(networkOut, stations);
+            networkOut.flush();
+            byte[] network = bytes.toByteArray();
+
+            for (int t = 0; t < workers.length; t++) {
+                sendSettings(t, company, false);
+                outs[t].write(network);
+                sendState(t, fleet, stationArray, stationIndex, fleetIndex);
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Constructor for objects of class TiledSimulation whose workers generate the scenario
+     * themselves: every worker creates the whole charging network, which routing needs, and
+     * streams the fleet keeping only the vehicles that start in its tile. Neither the stations
+     * nor the vehicles are created in this process. The first simulated step is 0.
+     * @param company The company whose name, charging-session mode, consumption and log the
+     * workers use. Its stations and vehicles are ignored.
+     * @param generator The generator of the scenario.
+     * @param numVehicles The number of vehicles.
+     * @param numStations The number of stations.
+     * @param chargersPerStation The number of chargers of every station.
+     * @param partition The tiles, one worker process each.
+     * @param jvmOptions Options for the Java virtual machine of every worker (e.g. {@code -Xmx1g}).
+     * @throws IOException If the workers cannot be started.
+     */
+    public TiledSimulation(EVCompany company, ScenarioGenerator generator, int numVehicles, int numStations,
+                           int chargersPerStation, TilePartition partition, List<String> jvmOptions) throws IOException
+    {
+        this(company, numVehicles, partition, 0, jvmOptions);
+
+        try {
+            if (generator == null) throw new IllegalArgumentException("null generator in TiledSimulation");
+            if (numStations < 0 || chargersPerStation < 0) throw new IllegalArgumentException("Negative count in TiledSimulation");
+
+            for (int t = 0; t < workers.length; t++) {
+                DataOutputStream out = outs[t];
+                sendSettings(t, company, true);
+                generator.writeConfiguration(out);
+                out.writeInt(numStations);
+                out.writeInt(chargersPerStation);
+                out.writeInt(numVehicles);
+                out.flush();
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts the worker processes, before they receive their part of the scenario.
+     */
+    private TiledSimulation(EVCompany company, int numVehicles, TilePartition partition,
+                            int firstStep, List<String> jvmOptions) throws IOException
+    {
+        if (company == null) throw new IllegalArgumentException("null company in TiledSimulation");
+        if (numVehicles < 0) throw new IllegalArgumentException("Negative count in TiledSimulation");
+        if (partition == null) throw new IllegalArgumentException("null partition in TiledSimulation");
+        if (jvmOptions == null) throw new IllegalArgumentException("null options in TiledSimulation");
+        if (firstStep < 0) throw new IllegalArgumentException("Invalid first step in TiledSimulation: " + firstStep);
+
+        this.partition = partition;
+        this.log = company.getLog();
+        this.numVehicles = numVehicles;
+        this.nextStep = firstStep;
+        this.logOutput = System.out;
+        this.events = new ArrayList<>();
+
+        int tiles = partition.getTiles();
+        this.workers = new Process[tiles];
+        this.sockets = new Socket[tiles];
+        this.ins = new DataInputStream[tiles];
+        this.outs = new DataOutputStream[tiles];
+        this.incoming = new ByteArrayOutputStream[tiles];
+        this.incomingCounts = new int[tiles];
+        for (int t = 0; t < tiles; t++) {
+            incoming[t] = new ByteArrayOutputStream();
+        }
+
+        try {
+            startWorkers(jvmOptions);
+        }
+        catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The size of a fleet, which must not be null.
+     */
+    private static int sizeOf(List<ElectricVehicle> fleet)
+    {
+        if (fleet == null) throw new IllegalArgumentException("null fleet in TiledSimulation");
+        return fleet.size();
+    }
+
+    /**
+     * Changes where the log events of the workers are written (by default, the standard output).
+     * They are written at the level of the company's log.
+     * @param out The destination of the events.
+     */
+    public void setLogOutput(Appendable out)
+    {
+        if (out == null) throw new IllegalArgumentException("null output in setLogOutput (TiledSimulation)");
+        this.logOutput = out;
+    }
+
+    /**
+     * @return The partition of the grid among the workers.
+     */
+    public TilePartition getPartition()
+    {
+        return partition;
+    }
+
+    /**
+     * Carries out a single step of the simulation in every worker. When it returns, every
+     * worker has finished the step and its log events have been written.
+     * @param step The current step of the simulation; steps must be requested in order.
+     * @throws IOException If a worker cannot be reached.
+     */
+    public void step(int step) throws IOException
+    {
+        if (closed) throw new IllegalStateException("TiledSimulation already closed");
+        if (step != nextStep) throw new IllegalArgumentException("Step out of order in step (TiledSimulation): " + step + " instead of " + nextStep);
+
+        // Fase 1: todos los trabajadores mueven sus vehículos a la vez
+        for (DataOutputStream out : outs) {
+            out.writeInt(TileWorker.MOVE);
+            out.writeInt(step);
+            out.flush();
+        }
+        events.clear();
+        for (int t = 0; t < ins.length; t++) {
+            DataInputStream in = ins[t];
+            readEvents(in, 0);
+            for (int n = in.readInt(); n > 0; n--) {
+                int destination = in.readInt();
+                DataOutputStream handoff = new DataOutputStream(incoming[destination]);
+                handoff.writeInt(in.readInt());
+                handoff.writeBoolean(in.readBoolean());
+                int length = in.readInt();
+                handoff.writeInt(length);
+                byte[] record = new byte[length];
+                in.readFully(record);
+                handoff.write(record);
+                incomingCounts[destination]++;
+            }
+        }
+
+        // Fase 2: cada trabajador recibe los vehículos que entran en su tile y se usan los cargadores
+        for (int t = 0; t < outs.length; t++) {
+            DataOutputStream out = outs[t];
+            out.writeInt(TileWorker.CHARGE);
+            out.writeInt(step);
+            out.writeInt(incomingCounts[t]);
+            incoming[t].writeTo(out);
+            out.flush();
+            incoming[t].reset();
+            incomingCounts[t] = 0;
+        }
+        for (DataInputStream in : ins) {
+            readEvents(in, 1);
+        }
+
+        writeEvents();
+        nextStep++;
+    }
+
+    /**
+     * Writes the final information of every vehicle, in fleet order, followed by the complete
+     * information of every station, with the recharge history of its chargers, in network
+     * order: the same text as {@link ElectricVehicle#appendInitialFinalInfo(Appendable)} and
+     * {@link ChargingStation#appendCompleteInfo(Appendable)}, one object per line. The workers
+     * stream their vehicles and stations and this process merges them as they arrive; the
+     * vehicle information needed by the histories is kept in a temporary file meanwhile, so
+     * only the position of every vehicle in that file is held in memory.
+     * @param out Where the report is written.
+     * @throws IOException If a worker cannot be reached or {@code out} cannot be written.
+     */
+    public void writeReport(Appendable out) throws IOException
+    {
+        if (closed) throw new IllegalStateException("TiledSimulation already closed");
+        if (out == null) throw new IllegalArgumentException("null output in writeReport (TiledSimulation)");
+
+        for (DataOutputStream command : outs) {
+            command.writeInt(TileWorker.REPORT);
+            command.flush();
+        }
+
+        String separator = System.lineSeparator();
+        Path texts = Files.createTempFile("TiledSimulation", ".report");
+        try {
+            // Vehículos: cada trabajador los envía en orden de flota y se mezclan por índice
+            long[] offsets = new long[numVehicles];
+            int[] remaining = new int[ins.length];
+            int[] heads = new int[ins.length];
+            try (DataOutputStream spill = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(texts), TileWorker.BUFFER_SIZE))) {
+                for (int t = 0; t < ins.length; t++) {
+                    remaining[t] = ins[t].readInt();
+                    heads[t] = nextHead(ins[t], remaining[t]);
+                }
+                long offset = 0;
+                for (int i = 0; i < numVehicles; i++) {
+                    int t = smallest(heads);
+                    if (t < 0 || heads[t] != i) throw new IllegalStateException("Vehicle " + i + " is not in any tile (TiledSimulation)");
+
+                    String text = ins[t].readUTF();
+                    out.append(text).append(separator);
+                    byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+                    offsets[i] = offset;
+                    spill.writeInt(encoded.length);
+                    spill.write(encoded);
+                    offset += 4 + encoded.length;
+                    heads[t] = nextHead(ins[t], --remaining[t]);
+                }
+            }
+
+            // Estaciones: cada una la envía su propietario, en orden de red
+            try (RandomAccessFile spilled = new RandomAccessFile(texts.toFile(), "r")) {
+                for (int t = 0; t < ins.length; t++) {
+                    remaining[t] = ins[t].readInt();
+                    heads[t] = nextHead(ins[t], remaining[t]);
+                }
+                for (int t = smallest(heads); t >= 0; t = smallest(heads)) {
+                    DataInputStream in = ins[t];
+                    out.append(in.readUTF());
+                    for (int c = in.readInt(); c > 0; c--) {
+                        out.append('\n').append(in.readUTF());
+                        for (int h = in.readInt(); h > 0; h--) {
+                            spilled.seek(offsets[in.readInt()]);
+                            byte[] encoded = new byte[spilled.readInt()];
+                            spilled.readFully(encoded);
+                            out.append('\n').append(new String(encoded, StandardCharsets.UTF_8));
+                        }
+                    }
+                    out.append(separator);
+                    heads[t] = nextHead(in, --remaining[t]);
+                }
+            }
+        }
+        finally {
+            Files.deleteIfExists(texts);
+        }
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+
+    /**
+     * Writes the session statistics of every station ({@link ChargingStation#getSessionInfo(int)}),
+     * one per line, in network order.
+     * @param out Where the statistics are written.
+     * @param elapsedSteps The number of simulated steps.
+     * @throws IOException If a worker cannot be reached or {@code out} cannot be written.
+     */
+    public void writeSessionInfo(Appendable out, int elapsedSteps) throws IOException
+    {
+        if (closed) throw new IllegalStateException("TiledSimulation already closed");
+        if (out == null) throw new IllegalArgumentException("null output in writeSessionInfo (TiledSimulation)");
+
+        for (DataOutputStream command : outs) {
+            command.writeInt(TileWorker.SESSIONS);
+            command.writeInt(elapsedSteps);
+            command.flush();
+        }
+
+        String separator = System.lineSeparator();
+        int[] remaining = new int[ins.length];
+        int[] heads = new int[ins.length];
+        for (int t = 0; t < ins.length; t++) {
+            remaining[t] = ins[t].readInt();
+            heads[t] = nextHead(ins[t], remaining[t]);
+        }
+        for (int t = smallest(heads); t >= 0; t = smallest(heads)) {
+            out.append(ins[t].readUTF()).append(separator);
+            heads[t] = nextHead(ins[t], --remaining[t]);
+        }
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+
+    /**
+     * Stops the worker processes. The simulation cannot be used afterwards.
+     */
+    @Override
+    public void close()
+    {
+        if (closed) return;
+        closed = true;
+
+        for (int t = 0; t < workers.length; t++) {
+            try {
+                if (outs[t] != null) {
+                    outs[t].writeInt(TileWorker.STOP);
+                    outs[t].flush();
+                }
+            }
+            catch (IOException e) {
+                // El trabajador ya no está: se destruye su proceso más abajo
+            }
+            try {
+                if (sockets[t] != null) {
+                    sockets[t].close();
+                }
+            }
+            catch (IOException e) {
+                // Nada que hacer: el socket queda cerrado igualmente
+            }
+        }
+        for (Process worker : workers) {
+            if (worker == null) continue;
+            try {
+                if (!worker.waitFor(5, java.util.concurrent.TimeUnit.SECONDS)) {
+                    worker.destroyForcibly();
+                }
+            }
+            catch (InterruptedException e) {
+                worker.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Starts one worker process per tile, with the classpath of this process, and accepts
+     * their connections.
+     */
+    private void startWorkers(List<String> jvmOptions) throws IOException
+    {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        try (ServerSocket server = new ServerSocket(0, workers.length, loopback)) {
+            server.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            for (int t = 0; t < workers.length; t++) {
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                command.addAll(jvmOptions);
+                command.add("-cp");
+                command.add(System.getProperty("java.class.path"));
+                command.add("TileWorker");
+                command.add(loopback.getHostAddress());
+                command.add(Integer.toString(server.getLocalPort()));
+                command.add(Integer.toString(t));
+                workers[t] = new ProcessBuilder(command)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            }
+
+            for (int n = 0; n < workers.length; n++) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                }
+                catch (SocketTimeoutException e) {
+                    throw new IOException("A tile worker did not connect in time (TiledSimulation)", e);
+                }
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), TileWorker.BUFFER_SIZE));
+                int tile = in.readInt();
+                if (tile < 0 || tile >= workers.length || sockets[tile] != null) {
+                    socket.close();
+                    throw new IOException("Unexpected tile worker " + tile + " (TiledSimulation)");
+                }
+                sockets[tile] = socket;
+                ins[tile] = in;
+                outs[tile] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), TileWorker.BUFFER_SIZE));
+            }
+        }
+    }
+
+    /**
+     * Sends a worker the partition, the company settings and whether it generates the scenario.
+     */
+    private void sendSettings(int tile, EVCompany company, boolean generated) throws IOException
+    {
+        DataOutputStream out = outs[tile];
+        out.writeInt(partition.getWidth());
+        out.writeInt(partition.getHeight());
+        out.writeInt(partition.getColumns());
+        out.writeInt(partition.getRows());
+        TileWorker.writeString(out, company.getName());
+        out.writeBoolean(company.isChargingSessionMode());
+        out.writeInt(company.getConsumptionPerStep());
+        out.writeInt(log.getLevel().ordinal());
+        out.writeBoolean(generated);
+    }
+
+    /**
+     * Sends a worker the vehicles of its tile and the state of its stations, with the recharge
+     * histories of their chargers referring to the vehicles by their fleet index.
+     */
+    private void sendState(int tile, List<ElectricVehicle> fleet, ChargingStation[] stations,
+                           Map<ChargingStation, Integer> stationIndex, Map<ElectricVehicle, Integer> fleetIndex) throws IOException
+    {
+        DataOutputStream out = outs[tile];
+        int owned = 0;
+        for (ElectricVehicle ev : fleet) {
+            if (partition.tileOf(ev.getPackedLocation()) == tile) owned++;
+        }
+        out.writeInt(owned);
+        ByteArrayOutputStream scratch = new ByteArrayOutputStream();
+        for (int i = 0; i < fleet.size(); i++) {
+            ElectricVehicle ev = fleet.get(i);
+            if (partition.tileOf(ev.getPackedLocation()) != tile) continue;
+            out.writeInt(i);
+            TileWorker.writeVehicle(out, ev, stationIndex, scratch);
+        }
+
+        owned = 0;
+        for (ChargingStation station : stations) {
+            if (partition.tileOf(station.getLocation().pack()) == tile) owned++;
+        }
+        out.writeInt(owned);
+        for (int s = 0; s < stations.length; s++) {
+            ChargingStation station = stations[s];
+            if (partition.tileOf(station.getLocation().pack()) != tile) continue;
+
+            out.writeInt(s);
+            out.writeInt(station.getMaxQueueLength());
+            out.writeLong(station.getSessionsStarted());
+            out.writeLong(station.getTotalWaitSteps());
+            out.writeLong(station.getBusyChargerSteps());
+            List<ElectricVehicle> queue = station.getWaitingVehicles();
+            out.writeInt(queue.size());
+            for (ElectricVehicle ev : queue) {
+                Integer index = fleetIndex.get(ev);
+                if (index == null) throw new IllegalArgumentException("Vehicle " + ev.getPlate() + " is queued but is not in the fleet (TiledSimulation)");
+                out.writeInt(index);
+            }
+            for (Charger charger : station.getChargers()) {
+                out.writeLong(charger.getAmountCollectedUnits());
+                out.writeBoolean(charger.isFree());
+                RechargeLog history = charger.getRechargeHistory();
+                int records = history.size();
+                out.writeInt(records);
+                for (int h = 0; h < records; h++) {
+                    ElectricVehicle ev = charger.getRechargedVehicle(h);
+                    Integer index = fleetIndex.get(ev);
+                    if (index == null) throw new IllegalArgumentException("Vehicle " + ev.getPlate() + " recharged but is not in the fleet (TiledSimulation)");
+                    out.writeInt(index);
+                    out.writeInt(history.getStep(h));
+                    out.writeInt(history.getKwh(h));
+                    out.writeLong(history.getCostUnits(h));
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads the key of the next record a worker streams (a fleet or network index), or
+     * returns {@code Integer.MAX_VALUE} if it has no more records.
+     */
+    private static int nextHead(DataInputStream in, int remaining) throws IOException
+    {
+        return remaining > 0 ? in.readInt() : Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return The worker whose next record has the smallest key, or -1 if no worker has records left.
+     */
+    private static int smallest(int[] heads)
+    {
+        int best = -1;
+        for (int t = 0; t < heads.length; t++) {
+            if (heads[t] != Integer.MAX_VALUE && (best < 0 || heads[t] < heads[best])) {
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Reads the log events of a phase sent by a worker.
+     */
+    private void readEvents(DataInputStream in, int phase) throws IOException
+    {
+        for (int n = in.readInt(); n > 0; n--) {
+            events.add(new Event(in.readInt(), phase, events.size(), in.readUTF()));
+        }
+    }
+
+    /**
+     * Writes the events of the step in the order of a sequential step: by vehicle, and the
+     * events of a vehicle in the order they happened.
+     */
+    private void writeEvents() throws IOException
+    {
+        if (events.isEmpty()) return;
+
+        events.sort(null);
+        String separator = System.lineSeparator();
+        for (Event event : events) {
+            logOutput.append(event.text).append(separator);
+        }
+        if (logOutput instanceof Flushable) {
+            ((Flushable) logOutput).flush();
+        }
+    }
+
+    /**
+     * A log event of a worker.
+     */
+    private static final class Event implements Comparable<Event>
+    {
+        private final int vehicle;
+        private final int phase;
+        private final int order;
+        private final String text;
+
+        Event(int vehicle, int phase, int order, String text)
+        {
+            this.vehicle = vehicle;
+            this.phase = phase;
+            this.order = order;
+            this.text = text;
+        }
+
+        @Override
+        public int compareTo(Event other)
+        {
+            if (vehicle != other.vehicle) return Integer.compare(vehicle, other.vehicle);
+            if (phase != other.phase) return Integer.compare(phase, other.phase);
+            return Integer.compare(order, other.order);
+        }
+    }
+}
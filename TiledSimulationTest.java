@@ -0,0 +1,270 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.*;
+
+/**
+ * Test implementation of the {@link TiledSimulation} class.
+ * Checks that a simulation split among worker processes, one per tile, is interchangeable
+ * with a sequential run in a single process: the workers must write, event by event and at
+ * {@link LogLevel#DEBUG}, the same log, and {@link TiledSimulation#writeReport(Appendable)}
+ * and {@link TiledSimulation#writeSessionInfo(Appendable, int)} the same final state, both
+ * when the scenario is sent to the workers and when they generate it themselves.
+ * @author DP classes
+ * @version 2025
+ */
+public class TiledSimulationTest
+{
+    private static final int VEHICLES = 2_000;
+    private static final int STATIONS = 20;
+    private static final int GRID_SIZE = 60;
+    private static final int STEPS = 80;
+    private static final long SEED = 42L;
+
+    // Escenario generado: red y flota creadas por ScenarioGenerator
+    private static final int GENERATED_VEHICLES = 3_000;
+    private static final int GENERATED_STATIONS = 60;
+    private static final int CHARGERS_PER_STATION = 4;
+    private static final int GENERATED_GRID_SIZE = 200;
+
+    private StringWriter logText;
+    private SimulationLog log;
+    private EVCompany company;
+    private List<ElectricVehicle> fleet;
+
+    /**
+     * Default constructor for test class TiledSimulationTest.
+     */
+    public TiledSimulationTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        newCompany(false);
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+        log.close();
+    }
+
+    /**
+     * Test that a tiled run of a scenario created in this process matches a sequential run,
+     * with instantaneous recharges.
+     */
+    @Test
+    public void testInMemoryMatchesSequential() throws IOException
+    {
+        assertInMemoryMatches(false, 3, 2);
+    }
+
+    /**
+     * Test the same equivalence in charging-session mode, where vehicles wait in the queues
+     * of the stations.
+     */
+    @Test
+    public void testInMemoryMatchesSequentialWithSessions() throws IOException
+    {
+        assertInMemoryMatches(true, 2, 2);
+    }
+
+    /**
+     * Test that a tiled run whose workers generate the scenario matches a sequential run of
+     * the scenario generated in this process, with and without charging sessions.
+     */
+    @Test
+    public void testGeneratedMatchesSequential() throws IOException
+    {
+        for (boolean sessions : new boolean[] {false, true}) {
+            newCompany(sessions);
+            Location.ensureCacheExtent(GENERATED_GRID_SIZE, GENERATED_GRID_SIZE);
+            ScenarioGenerator generator = createGenerator();
+            generator.generateStations(GENERATED_STATIONS, CHARGERS_PER_STATION, company::addChargingStation);
+            generator.generateVehicles(company, GENERATED_VEHICLES, ev -> {
+                fleet.add(ev);
+                company.addElectricVehicle(ev);
+            });
+            company.calculateRoutes(fleet);
+            String expected = sequentialRun(sessions);
+
+            newCompany(sessions);
+            StringBuilder report = new StringBuilder();
+            TilePartition partition = new TilePartition(GENERATED_GRID_SIZE, GENERATED_GRID_SIZE, 3, 3);
+            try (TiledSimulation tiled = new TiledSimulation(company, createGenerator(), GENERATED_VEHICLES, GENERATED_STATIONS,
+                                                             CHARGERS_PER_STATION, partition, List.of("-Xmx256m"))) {
+                tiledRun(tiled, sessions, report);
+            }
+            assertEquals(sessions ? "With sessions" : "Without sessions", expected, result(report));
+        }
+    }
+
+    /**
+     * Test that the steps must be simulated in order, and not after closing.
+     */
+    @Test
+    public void testStepsInOrder() throws IOException
+    {
+        createScenario();
+        TiledSimulation tiled = new TiledSimulation(company, fleet, TilePartition.covering(company, fleet, 2, 1));
+        tiled.setLogOutput(logText);
+        tiled.step(0);
+        try {
+            tiled.step(2);
+            fail("A step out of order must be rejected");
+        }
+        catch (IllegalArgumentException e) {
+            // Esperado
+        }
+        tiled.step(1);
+        tiled.close();
+        try {
+            tiled.step(2);
+            fail("A closed simulation must reject new steps");
+        }
+        catch (IllegalStateException e) {
+            // Esperado
+        }
+    }
+
+    /**
+     * Asserts that a tiled run of the random scenario matches a sequential one.
+     * @param columns The columns of the partition.
+     * @param rows The rows of the partition.
+     */
+    private void assertInMemoryMatches(boolean sessions, int columns, int rows) throws IOException
+    {
+        newCompany(sessions);
+        createScenario();
+        String expected = sequentialRun(sessions);
+
+        newCompany(sessions);
+        createScenario();
+        StringBuilder report = new StringBuilder();
+        try (TiledSimulation tiled = new TiledSimulation(company, fleet, TilePartition.covering(company, fleet, columns, rows))) {
+            assertEquals(columns * rows, tiled.getPartition().getTiles());
+            tiledRun(tiled, sessions, report);
+        }
+        assertEquals(expected, result(report));
+    }
+
+    /**
+     * Replaces the company with an empty one with a fresh DEBUG log.
+     */
+    private void newCompany(boolean sessions)
+    {
+        if (log != null) {
+            log.close();
+        }
+        logText = new StringWriter();
+        log = new SimulationLog(LogLevel.DEBUG, logText, 1024);
+        company = new EVCompany("Test");
+        company.setChargingSessionMode(sessions);
+        company.setLog(log);
+        fleet = new ArrayList<>();
+    }
+
+    /**
+     * Adds a random scenario, always the same, to the company.
+     */
+    private void createScenario()
+    {
+        Random random = new Random(SEED);
+        for (int s = 0; s < STATIONS; s++) {
+            ChargingStation station = new ChargingStation("Cáceres", "CC" + s, Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)));
+            for (int c = 0, n = 1 + random.nextInt(3); c < n; c++) {
+                station.addCharger(new Charger(station.getId() + "_" + c, (c + 1) * 20, (c + 1) * 0.2f));
+            }
+            company.addChargingStation(station);
+        }
+        for (int i = 0; i < VEHICLES; i++) {
+            ElectricVehicle ev = new ElectricVehicle(String.format("EV%06d", i), "EV" + i, company,
+                                                     Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)),
+                                                     Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)),
+                                                     15 * (1 + random.nextInt(8)));
+            fleet.add(ev);
+            company.addElectricVehicle(ev);
+        }
+        company.calculateRoutes(fleet);
+    }
+
+    /**
+     * @return A generator of a scenario with corridors and mixed batteries and chargers, always the same.
+     */
+    private static ScenarioGenerator createGenerator()
+    {
+        ScenarioGenerator generator = new ScenarioGenerator(7, GENERATED_GRID_SIZE, GENERATED_GRID_SIZE);
+        generator.setDistribution(SpatialDistribution.CORRIDORS, 5);
+        generator.setBatteryMix(new int[] {100, 250, 600}, new int[] {2, 3, 1});
+        generator.setChargerSpeedMix(new int[] {20, 50, 150}, new int[] {3, 2, 1});
+        return generator;
+    }
+
+    /**
+     * Simulates the scenario of the company sequentially in this process.
+     * @return The log of the run followed by the report a tiled run writes.
+     */
+    private String sequentialRun(boolean sessions) throws IOException
+    {
+        for (int step = 0; step < STEPS; step++) {
+            for (ElectricVehicle ev : fleet) {
+                ev.act(step);
+            }
+        }
+
+        StringBuilder report = new StringBuilder();
+        for (ElectricVehicle ev : fleet) {
+            ev.appendInitialFinalInfo(report);
+            report.append(System.lineSeparator());
+        }
+        for (ChargingStation station : company.getCityStations()) {
+            station.appendCompleteInfo(report);
+            report.append(System.lineSeparator());
+        }
+        if (sessions) {
+            for (ChargingStation station : company.getCityStations()) {
+                report.append(station.getSessionInfo(STEPS)).append(System.lineSeparator());
+            }
+        }
+        return result(report);
+    }
+
+    /**
+     * Simulates every step in the workers of a tiled simulation and collects its report.
+     */
+    private void tiledRun(TiledSimulation tiled, boolean sessions, StringBuilder report) throws IOException
+    {
+        tiled.setLogOutput(logText);
+        for (int step = 0; step < STEPS; step++) {
+            tiled.step(step);
+        }
+        tiled.writeReport(report);
+        if (sessions) {
+            tiled.writeSessionInfo(report, STEPS);
+        }
+    }
+
+    /**
+     * Closes the log.
+     * @return The log followed by a report.
+     */
+    private String result(StringBuilder report)
+    {
+        log.close();
+        return logText + report.toString();
+    }
+}
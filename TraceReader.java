@@ -0,0 +1,352 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the binary trace files written by {@link TraceWriter}.
+ * All the records of a step have the same size and follow each other, so {@link #seek(int)}
+ * computes the position of any step directly and maps only that part of the file.
+ * After seeking, the accessors return the state of every vehicle after that step, and
+ * {@link #getStepInfo(int)} rebuilds the text of {@link ElectricVehicle#getStepInfo(int)}.
+ *
+ * Usage as a converter: {@code java TraceReader <trace> [firstStep] [lastStep]} prints the
+ * step information of every vehicle for the given steps.
+ * @author DP classes
+ * @version 2025
+ */
+public class TraceReader implements AutoCloseable
+{
+    private static final int RECORD_SIZE = TraceWriter.RECORD_SIZE;
+
+    private final FileChannel channel;
+    private final int numVehicles;
+    private final long dataOffset;
+    private final int firstStep;
+    private final int stepCount;
+
+    // Datos estáticos de cada vehículo, leídos de la cabecera
+    private final String[] names;
+    private final String[] plates;
+    private final int[] batteryCapacities;
+
+    private MappedByteBuffer current;
+    private int currentStep;
+
+    /**
+     * Constructor for objects of class TraceReader. Reads the header of a trace file.
+     * @param file The trace file.
+     * @throws IOException If the file cannot be read or is not a trace.
+     */
+    public TraceReader(Path file) throws IOException
+    {
+        if (file == null) throw new IllegalArgumentException("null file in TraceReader");
+
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+
+        ByteBuffer fixed = channel.map(FileChannel.MapMode.READ_ONLY, 0, TraceWriter.FIXED_HEADER_SIZE);
+        if (fixed.getInt() != TraceWriter.MAGIC) throw new IOException("Not a trace file: " + file);
+        if (fixed.getInt() != TraceWriter.VERSION) throw new IOException("Unsupported trace version: " + file);
+        this.numVehicles = fixed.getInt();
+        if (fixed.getInt() != RECORD_SIZE) throw new IOException("Unsupported record size: " + file);
+        this.dataOffset = fixed.getLong();
+        this.firstStep = fixed.getInt();
+
+        // Un fichero sin cerrar puede contener pasos a medias: sólo cuentan los completos
+        long stepBytes = (long) numVehicles * RECORD_SIZE;
+        long completeSteps = stepBytes == 0 ? 0 : (channel.size() - dataOffset) / stepBytes;
+        this.stepCount = (int) Math.min(fixed.getInt(), completeSteps);
+
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, TraceWriter.FIXED_HEADER_SIZE,
+                                        dataOffset - TraceWriter.FIXED_HEADER_SIZE);
+        this.names = new String[numVehicles];
+        this.plates = new String[numVehicles];
+        this.batteryCapacities = new int[numVehicles];
+        for (int i = 0; i < numVehicles; i++) {
+            batteryCapacities[i] = header.getInt();
+            names[i] = getString(header);
+            plates[i] = getString(header);
+        }
+        this.currentStep = -1;
+    }
+
+    /**
+     * @return The number of vehicles of the trace.
+     */
+    public int getNumVehicles()
+    {
+        return numVehicles;
+    }
+
+    /**
+     * @return The first recorded step, or -1 if the trace is empty.
+     */
+    public int getFirstStep()
+    {
+        return firstStep;
+    }
+
+    /**
+     * @return The number of recorded steps.
+     */
+    public int getStepCount()
+    {
+        return stepCount;
+    }
+
+    /**
+     * @param vehicle The index of a vehicle in the trace.
+     * @return Its plate.
+     */
+    public String getPlate(int vehicle)
+    {
+        return plates[vehicle];
+    }
+
+    /**
+     * @param vehicle The index of a vehicle in the trace.
+     * @return Its name.
+     */
+    public String getName(int vehicle)
+    {
+        return names[vehicle];
+    }
+
+    /**
+     * @param vehicle The index of a vehicle in the trace.
+     * @return Its battery capacity.
+     */
+    public int getBatteryCapacity(int vehicle)
+    {
+        return batteryCapacities[vehicle];
+    }
+
+    /**
+     * Moves to a recorded step, so that the accessors return the state after it.
+     * @param step The step.
+     * @throws IllegalArgumentException If the step is not in the trace.
+     */
+    public void seek(int step)
+    {
+        if (stepCount == 0 || step < firstStep || step >= firstStep + stepCount) {
+            throw new IllegalArgumentException("Step not in trace in seek (TraceReader): " + step);
+        }
+        if (step == currentStep) return;
+
+        long stepBytes = (long) numVehicles * RECORD_SIZE;
+        try {
+            current = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + (step - firstStep) * stepBytes, stepBytes);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the trace file", e);
+        }
+        currentStep = step;
+    }
+
+    /**
+     * @return The step selected by {@link #seek(int)}, or -1 if none.
+     */
+    public int getCurrentStep()
+    {
+        return currentStep;
+    }
+
+    /**
+     * @param vehicle The index of a vehicle in the trace.
+     * @return Its packed location after the current step.
+     */
+    public long getLocation(int vehicle)
+    {
+        return record(vehicle).getLong(base(vehicle) + 8);
+    }
+
+    /**
+     * @param vehicle The index of a vehicle in the trace.
+     * @return The packed location of its planned recharge after the current step, or -1 if none.
+     */
+    public long getRechargingLocation(int vehicle)
+    {
+        return record(vehicle).getLong(base(vehicle) + 16);
+    }
+
+    /**
+     * @param vehicle The index of a vehicle in the trace.
+     * @return Its packed target location.
+     */
+    public long getTargetLocation(int vehicle)
+    {
+        return record(vehicle).getLong(base(vehicle) + 24);
+    }
+
+    /**
+     * @param vehicle The index of a vehicle in the trace.
+     * @return Its battery level after the current step.
+     */
+    public int getBatteryLevel(int vehicle)
+    {
+        return record(vehicle).getInt(base(vehicle) + 32);
+    }
+
+    /**
+     * @param vehicle The index of a vehicle in the trace.
+     * @return Its number of recharges after the current step.
+     */
+    public int getChargesCount(int vehicle)
+    {
+        return record(vehicle).getInt(base(vehicle) + 36);
+    }
+
+    /**
+     * @param vehicle The index of a vehicle in the trace.
+     * @return Its idle count after the current step.
+     */
+    public int getIdleCount(int vehicle)
+    {
+        return record(vehicle).getInt(base(vehicle) + 40);
+    }
+
+    /**
+     * @param vehicle The index of a vehicle in the trace.
+     * @return The total cost of its recharges after the current step.
+     */
+    public float getChargesCost(int vehicle)
+    {
+        return Money.toFloat(getChargesCostUnits(vehicle));
+    }
+
+    /**
+     * @param vehicle The index of a vehicle in the trace.
+     * @return The exact total cost of its recharges after the current step, in units of {@link Money}.
+     */
+    public long getChargesCostUnits(int vehicle)
+    {
+        return record(vehicle).getLong(base(vehicle) + 44);
+    }
+
+    /**
+     * Rebuilds the text {@link ElectricVehicle#getStepInfo(int)} returned for a vehicle after the current step.
+     * @param vehicle The index of a vehicle in the trace.
+     * @return The step information of the vehicle.
+     */
+    public String getStepInfo(int vehicle)
+    {
+        String evInfo = names[vehicle] + ", "
+                      + plates[vehicle] + ", "
+                      + batteryCapacities[vehicle] + "kwh, "
+                      + getBatteryLevel(vehicle) + "kwh, "
+                      + getChargesCount(vehicle) + ", "
+                      + eurosText(getChargesCostUnits(vehicle)) + ", "
+                      + getIdleCount(vehicle) + ", "
+                      + locationText(getLocation(vehicle));
+
+        long rechargingLocation = getRechargingLocation(vehicle);
+        if (rechargingLocation != -1L) {
+            evInfo += ", " + locationText(rechargingLocation);
+        }
+
+        evInfo += ", " + locationText(getTargetLocation(vehicle));
+
+        return "(step: " + currentStep + " - ElectricVehicle: " + evInfo + ")";
+    }
+
+    /**
+     * Prints the step information of every vehicle for a range of steps.
+     * @param from The first step.
+     * @param to The last step (included).
+     * @param out Where the text is printed.
+     */
+    public void printStepInfo(int from, int to, PrintStream out)
+    {
+        for (int step = from; step <= to; step++) {
+            seek(step);
+            for (int vehicle = 0; vehicle < numVehicles; vehicle++) {
+                out.println(getStepInfo(vehicle));
+            }
+        }
+    }
+
+    /**
+     * Closes the trace file.
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        current = null;
+        channel.close();
+    }
+
+    /**
+     * Converts a trace file back to text.
+     * @param args The trace file and, optionally, the first and last steps to print.
+     * @throws IOException If the file cannot be read.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length == 0) throw new IllegalArgumentException("Usage: java TraceReader <trace> [firstStep] [lastStep]");
+
+        try (TraceReader reader = new TraceReader(Paths.get(args[0]))) {
+            if (reader.getStepCount() == 0) return;
+
+            int last = reader.getFirstStep() + reader.getStepCount() - 1;
+            int from = args.length > 1 ? Integer.parseInt(args[1]) : reader.getFirstStep();
+            int to = args.length > 2 ? Integer.parseInt(args[2]) : last;
+            reader.printStepInfo(from, Math.min(to, last), System.out);
+        }
+    }
+
+    /**
+     * @return The mapped records of the current step, checking that a step has been selected.
+     */
+    private MappedByteBuffer record(int vehicle)
+    {
+        if (current == null) throw new IllegalStateException("No step selected in TraceReader");
+        if (vehicle < 0 || vehicle >= numVehicles) throw new IllegalArgumentException("Vehicle not in trace in TraceReader: " + vehicle);
+        return current;
+    }
+
+    /**
+     * @return The offset of a vehicle's record inside the current step.
+     */
+    private static int base(int vehicle)
+    {
+        return vehicle * RECORD_SIZE;
+    }
+
+    /**
+     * @return The text of a packed location, as {@link Location#toString()} writes it.
+     */
+    private static String locationText(long location)
+    {
+        return Location.unpackX(location) + "-" + Location.unpackY(location);
+    }
+
+    /**
+     * Formats an amount of money as {@code String.format("%.1f€", ...)} does.
+     */
+    private static String eurosText(long amount)
+    {
+        StringBuilder text = new StringBuilder(12);
+        Money.appendEuros(text, amount, 1);
+        return text.append('€').toString();
+    }
+
+    /**
+     * Reads a string written as its length (-1 for null) followed by its UTF-8 bytes.
+     */
+    private static String getString(ByteBuffer buffer)
+    {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
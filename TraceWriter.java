@@ -0,0 +1,298 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes the state of a fleet after every step to a compact binary trace file that
+ * {@link TraceReader} can seek and convert back to the text of
+ * {@link ElectricVehicle#getStepInfo(int)}.
+ *
+ * The file starts with a header holding the static data of every vehicle (name, plate and
+ * battery capacity), followed by one fixed-width record of {@link #RECORD_SIZE} bytes per
+ * vehicle and step, in fleet order and for consecutive steps:
+ * <pre>
+ *   int step, int vehicle, long location, long rechargeLocation, long targetLocation,
+ *   int batteryLevel, int chargesCount, int idleCount, long chargesCost
+ * </pre>
+ * Locations are packed with {@link Location#pack(int, int)}, and a vehicle without a planned
+ * recharge stores -1. Costs are exact amounts in units of {@link Money}. {@link #recordStep(int)} only copies the primitives of the step into one
+ * of two preallocated staging buffers; a background thread appends them to the file through
+ * memory-mapped regions (taking the page faults of the new pages) and the operating system
+ * writes the dirty pages back on its own, so the step loop never waits for the disk. It only
+ * waits if it gets a whole step ahead of the background copy.
+ * @author DP classes
+ * @version 2025
+ */
+public class TraceWriter implements AutoCloseable
+{
+    /** First four bytes of every trace file ("EVTR"). */
+    public static final int MAGIC = 0x45565452;
+    /** Version of the format written by this class. */
+    public static final int VERSION = 2;
+    /** Size in bytes of every record. */
+    public static final int RECORD_SIZE = 52;
+
+    // Cabecera fija: magic, versión, vehículos, tamaño de registro, inicio de los datos, primer paso, pasos
+    static final int FIRST_STEP_OFFSET = 24;
+    static final int STEP_COUNT_OFFSET = 28;
+    static final int FIXED_HEADER_SIZE = 32;
+
+    /** Records mapped at a time; every region holds a whole number of records. */
+    private static final int RECORDS_PER_REGION = 1 << 20;
+    private static final int STAGING_BUFFERS = 2;
+
+    /** Marks the end of the trace in the queue of the copying thread. */
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final ElectricVehicle[] vehicles;
+    private final long dataOffset;
+    private final MappedByteBuffer header;
+
+    // Buffers de preparación: libres para el bucle de pasos y llenos para el hilo de copia
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    private final BlockingQueue<ByteBuffer> fullBuffers;
+    private final Thread copier;
+    private volatile RuntimeException failure;
+
+    // Estado del hilo de copia
+    private MappedByteBuffer region;
+    private long records;
+    private int copiedSteps;
+
+    // Estado del bucle de pasos
+    private int firstStep;
+    private int stepCount;
+    private boolean closed;
+
+    /**
+     * Constructor for objects of class TraceWriter. Creates (or replaces) the trace file
+     * and writes the header of the given fleet.
+     * @param file The trace file.
+     * @param fleet The vehicles to trace, in the order their records are written.
+     * @throws IOException If the file cannot be created.
+     */
+    public TraceWriter(Path file, List<ElectricVehicle> fleet) throws IOException
+    {
+        if (file == null || fleet == null) throw new IllegalArgumentException("null file or fleet in TraceWriter");
+
+        this.vehicles = fleet.toArray(new ElectricVehicle[0]);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        int size = FIXED_HEADER_SIZE;
+        byte[][] names = new byte[vehicles.length][];
+        byte[][] plates = new byte[vehicles.length][];
+        for (int i = 0; i < vehicles.length; i++) {
+            names[i] = encode(vehicles[i].getName());
+            plates[i] = encode(vehicles[i].getPlate());
+            size += 4 + 4 + length(names[i]) + 4 + length(plates[i]);
+        }
+        // Los registros empiezan alineados a 8 bytes
+        this.dataOffset = (size + 7) & ~7L;
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) dataOffset);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(vehicles.length).putInt(RECORD_SIZE)
+              .putLong(dataOffset).putInt(-1).putInt(0);
+        for (int i = 0; i < vehicles.length; i++) {
+            buffer.putInt(vehicles[i].getBatteryCapacity());
+            putString(buffer, names[i]);
+            putString(buffer, plates[i]);
+        }
+        buffer.position(0);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, FIXED_HEADER_SIZE);
+
+        this.freeBuffers = new ArrayBlockingQueue<>(STAGING_BUFFERS);
+        this.fullBuffers = new ArrayBlockingQueue<>(STAGING_BUFFERS + 1);
+        for (int i = 0; i < STAGING_BUFFERS; i++) {
+            freeBuffers.add(ByteBuffer.allocate(vehicles.length * RECORD_SIZE));
+        }
+        this.copier = new Thread(this::copy, "TraceWriter copier");
+        this.copier.setDaemon(true);
+        this.copier.start();
+        this.firstStep = -1;
+    }
+
+    /**
+     * @return The number of steps recorded so far.
+     */
+    public int getStepCount()
+    {
+        return stepCount;
+    }
+
+    /**
+     * Appends the current state of every vehicle as the state after a step.
+     * Steps must be recorded consecutively.
+     * @param step The step that has just been simulated.
+     * @throws IllegalArgumentException If the step does not follow the last recorded one.
+     * @throws UncheckedIOException If writing an earlier step failed.
+     */
+    public void recordStep(int step)
+    {
+        if (closed) throw new IllegalStateException("recordStep on a closed TraceWriter");
+        if (firstStep != -1 && step != firstStep + stepCount) {
+            throw new IllegalArgumentException("Non-consecutive step in recordStep (TraceWriter): " + step);
+        }
+        checkFailure();
+
+        ByteBuffer buffer = take(freeBuffers);
+        buffer.clear();
+        for (int i = 0; i < vehicles.length; i++) {
+            ElectricVehicle ev = vehicles[i];
+            ChargingStation station = ev.getTargetChargingStation();
+
+            buffer.putInt(step);
+            buffer.putInt(i);
+            buffer.putLong(ev.getPackedLocation());
+            buffer.putLong(station == null ? -1L : station.getLocation().pack());
+            buffer.putLong(ev.getPackedTargetLocation());
+            buffer.putInt(ev.getBatteryLevel());
+            buffer.putInt(ev.getChargesCount());
+            buffer.putInt(ev.getIdleCount());
+            buffer.putLong(ev.getChargesCostUnits());
+        }
+        buffer.flip();
+
+        if (firstStep == -1) {
+            firstStep = step;
+            header.putInt(FIRST_STEP_OFFSET, step);
+        }
+        stepCount++;
+        fullBuffers.add(buffer);
+    }
+
+    /**
+     * Waits for the pending steps, trims the file to the recorded data and closes it.
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (closed) return;
+        closed = true;
+
+        fullBuffers.add(END);
+        try {
+            copier.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        region = null;
+        channel.truncate(dataOffset + records * RECORD_SIZE);
+        channel.close();
+        checkFailure();
+    }
+
+    /**
+     * Body of the copying thread: appends every staged step to the file and then updates
+     * the step count of the header, so a trace that is read while it is being written
+     * only shows complete steps.
+     */
+    private void copy()
+    {
+        while (true) {
+            ByteBuffer buffer = take(fullBuffers);
+            if (buffer == END) return;
+
+            if (failure == null) {
+                try {
+                    append(buffer);
+                    header.putInt(STEP_COUNT_OFFSET, ++copiedSteps);
+                }
+                catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            freeBuffers.add(buffer);
+        }
+    }
+
+    /**
+     * Copies whole records to the end of the file, mapping the next region of the file
+     * whenever the current one is full.
+     */
+    private void append(ByteBuffer data)
+    {
+        while (data.hasRemaining()) {
+            if (region == null || !region.hasRemaining()) {
+                try {
+                    region = channel.map(FileChannel.MapMode.READ_WRITE, dataOffset + records * RECORD_SIZE,
+                                         (long) RECORDS_PER_REGION * RECORD_SIZE);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException("Cannot extend the trace file", e);
+                }
+            }
+            int length = Math.min(data.remaining(), region.remaining());
+            region.put(region.position(), data, data.position(), length);
+            region.position(region.position() + length);
+            data.position(data.position() + length);
+            records += length / RECORD_SIZE;
+        }
+    }
+
+    /**
+     * Takes a buffer from a queue, waiting if it is empty.
+     */
+    private static ByteBuffer take(BlockingQueue<ByteBuffer> queue)
+    {
+        try {
+            return queue.take();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing the trace", e);
+        }
+    }
+
+    /**
+     * Rethrows a failure of the copying thread in the calling thread.
+     */
+    private void checkFailure()
+    {
+        RuntimeException e = failure;
+        if (e != null) throw e;
+    }
+
+    /**
+     * @return The UTF-8 bytes of a string, or null for a null string.
+     */
+    private static byte[] encode(String text)
+    {
+        return text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The number of bytes of an encoded string (0 for null).
+     */
+    private static int length(byte[] bytes)
+    {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    /**
+     * Writes a string as its length (-1 for null) followed by its bytes.
+     */
+    private static void putString(ByteBuffer buffer, byte[] bytes)
+    {
+        if (bytes == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(bytes.length).put(bytes);
+    }
+}
@@ -0,0 +1,278 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Test implementation of the {@link TraceWriter} and {@link TraceReader} classes.
+ * Checks that a trace read back, step by step and in any order, gives the same text as
+ * {@link ElectricVehicle#getStepInfo(int)} gave during the run, also when the trace starts at
+ * a later step or spans several mapped regions of the file.
+ * @author DP classes
+ * @version 2025
+ */
+public class TraceWriterTest
+{
+    private static final int STATIONS = 40;
+    private static final int GRID_SIZE = 120;
+    private static final long SEED = 42L;
+
+    private EVCompany company;
+    private List<ElectricVehicle> fleet;
+    private Random random;
+    private Path file;
+
+    /**
+     * Default constructor for test class TraceWriterTest.
+     */
+    public TraceWriterTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        random = new Random(SEED);
+        file = Files.createTempFile("TraceWriterTest", ".trace");
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Test that every recorded step reads back as it was written, seeking backwards and
+     * at random, and that the header keeps the static data of the vehicles.
+     */
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        createScenario(500);
+        Map<Integer, List<String>> expected = run(0, 0, 80, 1);
+
+        try (TraceReader reader = new TraceReader(file)) {
+            assertEquals(fleet.size(), reader.getNumVehicles());
+            assertEquals(0, reader.getFirstStep());
+            assertEquals(80, reader.getStepCount());
+            assertEquals(-1, reader.getCurrentStep());
+            for (int i = 0; i < fleet.size(); i++) {
+                assertEquals(fleet.get(i).getName(), reader.getName(i));
+                assertEquals(fleet.get(i).getPlate(), reader.getPlate(i));
+                assertEquals(fleet.get(i).getBatteryCapacity(), reader.getBatteryCapacity(i));
+            }
+
+            for (int step = 79; step >= 0; step--) {
+                assertStep(expected.get(step), reader, step);
+            }
+            for (int k = 0; k < 40; k++) {
+                int step = random.nextInt(80);
+                assertStep(expected.get(step), reader, step);
+            }
+
+            // El último paso coincide, campo a campo, con el estado final de los vehículos
+            reader.seek(79);
+            for (int i = 0; i < fleet.size(); i++) {
+                ElectricVehicle ev = fleet.get(i);
+                ChargingStation station = ev.getTargetChargingStation();
+                assertEquals(ev.getPackedLocation(), reader.getLocation(i));
+                assertEquals(station == null ? -1L : station.getLocation().pack(), reader.getRechargingLocation(i));
+                assertEquals(ev.getPackedTargetLocation(), reader.getTargetLocation(i));
+                assertEquals(ev.getBatteryLevel(), reader.getBatteryLevel(i));
+                assertEquals(ev.getChargesCount(), reader.getChargesCount(i));
+                assertEquals(ev.getIdleCount(), reader.getIdleCount(i));
+                assertEquals(ev.getChargesCostUnits(), reader.getChargesCostUnits(i));
+            }
+        }
+    }
+
+    /**
+     * Test a trace that starts after the first step of the run, and its conversion back
+     * to text with {@link TraceReader#printStepInfo(int, int, PrintStream)}.
+     */
+    @Test
+    public void testLaterFirstStep() throws IOException
+    {
+        createScenario(300);
+        Map<Integer, List<String>> expected = run(0, 20, 50, 1);
+
+        try (TraceReader reader = new TraceReader(file)) {
+            assertEquals(20, reader.getFirstStep());
+            assertEquals(30, reader.getStepCount());
+            assertNotInTrace(reader, 19);
+            assertNotInTrace(reader, 50);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+            reader.printStepInfo(25, 27, out);
+            StringBuilder text = new StringBuilder();
+            for (int step = 25; step <= 27; step++) {
+                for (String line : expected.get(step)) {
+                    text.append(line).append(System.lineSeparator());
+                }
+            }
+            assertEquals(text.toString(), bytes.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Test a trace with more records than fit in a mapped region of the file, reading the
+     * steps on both sides of the boundary.
+     */
+    @Test
+    public void testSpansSeveralRegions() throws IOException
+    {
+        // 9.000 vehículos x 120 pasos superan los 2^20 registros de una región: el paso 116 queda a caballo
+        createScenario(9_000);
+        Map<Integer, List<String>> expected = run(0, 0, 120, 29);
+
+        try (TraceReader reader = new TraceReader(file)) {
+            assertEquals(120, reader.getStepCount());
+            for (int step : expected.keySet()) {
+                assertStep(expected.get(step), reader, step);
+            }
+        }
+    }
+
+    /**
+     * Test an empty trace, and that the writer rejects steps out of order or after closing.
+     */
+    @Test
+    public void testEmptyTraceAndMisuse() throws IOException
+    {
+        createScenario(10);
+        try (TraceWriter writer = new TraceWriter(file, fleet)) {
+            assertEquals(0, writer.getStepCount());
+        }
+        try (TraceReader reader = new TraceReader(file)) {
+            assertEquals(10, reader.getNumVehicles());
+            assertEquals(-1, reader.getFirstStep());
+            assertEquals(0, reader.getStepCount());
+            assertNotInTrace(reader, 0);
+        }
+
+        TraceWriter writer = new TraceWriter(file, fleet);
+        writer.recordStep(3);
+        try {
+            writer.recordStep(5);
+            fail("A non-consecutive step must be rejected");
+        }
+        catch (IllegalArgumentException e) {
+            // Esperado
+        }
+        writer.recordStep(4);
+        assertEquals(2, writer.getStepCount());
+        writer.close();
+        try {
+            writer.recordStep(5);
+            fail("A closed writer must reject new steps");
+        }
+        catch (IllegalStateException e) {
+            // Esperado
+        }
+        try (TraceReader reader = new TraceReader(file)) {
+            assertEquals(3, reader.getFirstStep());
+            assertEquals(2, reader.getStepCount());
+        }
+    }
+
+    /**
+     * Creates a random scenario with a number of vehicles, without log.
+     */
+    private void createScenario(int vehicles)
+    {
+        company = new EVCompany("Test");
+        company.setLog(SimulationLog.off());
+        for (int s = 0; s < STATIONS; s++) {
+            ChargingStation station = new ChargingStation("Cáceres", "CC" + s, Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)));
+            for (int c = 0, n = 1 + random.nextInt(3); c < n; c++) {
+                station.addCharger(new Charger(station.getId() + "_" + c, (c + 1) * 20, (c + 1) * 0.2f));
+            }
+            company.addChargingStation(station);
+        }
+        fleet = new ArrayList<>();
+        for (int i = 0; i < vehicles; i++) {
+            ElectricVehicle ev = new ElectricVehicle(String.format("EV%06d", i), "Vehículo " + i, company,
+                                                     Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)),
+                                                     Location.of(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)),
+                                                     15 * (1 + random.nextInt(8)));
+            fleet.add(ev);
+            company.addElectricVehicle(ev);
+        }
+        company.calculateRoutes(fleet);
+    }
+
+    /**
+     * Simulates the scenario and traces part of the run.
+     * @param firstStep The first simulated step.
+     * @param firstTraced The first step written to the trace.
+     * @param endStep The first step that is not simulated.
+     * @param every Keeps the step information of one in this many traced steps, and of the last one.
+     * @return The step information of every vehicle for the kept steps.
+     */
+    private Map<Integer, List<String>> run(int firstStep, int firstTraced, int endStep, int every) throws IOException
+    {
+        Map<Integer, List<String>> expected = new TreeMap<>();
+        try (TraceWriter writer = new TraceWriter(file, fleet)) {
+            for (int step = firstStep; step < endStep; step++) {
+                for (ElectricVehicle ev : fleet) {
+                    ev.act(step);
+                }
+                if (step < firstTraced) continue;
+
+                writer.recordStep(step);
+                if ((step - firstTraced) % every == 0 || step == endStep - 1) {
+                    List<String> lines = new ArrayList<>(fleet.size());
+                    for (ElectricVehicle ev : fleet) {
+                        lines.add(ev.getStepInfo(step));
+                    }
+                    expected.put(step, lines);
+                }
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Asserts that the trace gives the expected step information for a step.
+     */
+    private static void assertStep(List<String> expected, TraceReader reader, int step)
+    {
+        reader.seek(step);
+        assertEquals(step, reader.getCurrentStep());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("Step " + step + ", vehicle " + i, expected.get(i), reader.getStepInfo(i));
+        }
+    }
+
+    /**
+     * Asserts that seeking a step outside the trace is rejected.
+     */
+    private static void assertNotInTrace(TraceReader reader, int step)
+    {
+        try {
+            reader.seek(step);
+            fail("Step " + step + " is not in the trace");
+        }
+        catch (IllegalArgumentException e) {
+            // Esperado
+        }
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.Arrays;
+
+/**
+ * Numbers the {@link ElectricVehicle}s of the fleet an {@link EVCompany} is simulating, in the
+ * order they are added to it. {@link Charger}s record the vehicles they recharge by that
+ * number (see {@link RechargeLog}) instead of keeping a reference per recharge.
+ * A company starts a new registry every time it is {@link EVCompany#reset() reset}, so the
+ * registry of an old fleet is only kept alive by the chargers whose histories refer to it.
+ * Vehicles are only ever appended: {@link #get(int)} can be called from any thread, without
+ * locking, while others are being added.
+ * @author DP classes
+ * @version 2025
+ */
+public class VehicleRegistry
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    private ElectricVehicle[] vehicles;
+    // Publica los vehículos añadidos: se escribe después de guardarlos en el array
+    private volatile int size;
+
+    /**
+     * Constructor for objects of class VehicleRegistry.
+     */
+    public VehicleRegistry()
+    {
+        this.vehicles = new ElectricVehicle[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Numbers a vehicle of the fleet. Called by {@link EVCompany#addElectricVehicle(ElectricVehicle)}.
+     * @param vehicle The vehicle added to the fleet.
+     * @return Its number in this registry.
+     */
+    synchronized int add(ElectricVehicle vehicle)
+    {
+        if (vehicle == null) throw new IllegalArgumentException("null vehicle in add (VehicleRegistry)");
+
+        int index = size;
+        if (index == vehicles.length) {
+            vehicles = Arrays.copyOf(vehicles, index * 2);
+        }
+        vehicles[index] = vehicle;
+        size = index + 1;
+        return index;
+    }
+
+    /**
+     * Gives a vehicle a number of this registry without keeping it. A {@link TileWorker} only
+     * holds the vehicles of its tile, so it numbers them by their position in the whole fleet:
+     * the recharge histories of its chargers then refer to the fleet and keep no vehicle alive
+     * once it leaves the tile. {@link #get(int)} cannot resolve these numbers.
+     * @param vehicle The vehicle.
+     * @param index Its position in the fleet.
+     */
+    void number(ElectricVehicle vehicle, int index)
+    {
+        if (vehicle == null) throw new IllegalArgumentException("null vehicle in number (VehicleRegistry)");
+        if (index < 0) throw new IllegalArgumentException("Invalid index in number (VehicleRegistry): " + index);
+
+        vehicle.register(this, index);
+    }
+
+    /**
+     * @return The number of vehicles in this registry.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Retrieves a vehicle by its number.
+     * @param index The number of the vehicle.
+     * @return The vehicle.
+     * @throws IndexOutOfBoundsException If no vehicle has that number.
+     */
+    public ElectricVehicle get(int index)
+    {
+        // Leer size primero garantiza ver el array en el que se guardó el vehículo
+        int n = size;
+        if (index < 0 || index >= n) throw new IndexOutOfBoundsException("Invalid index in get (VehicleRegistry): " + index);
+        return vehicles[index];
+    }
+}
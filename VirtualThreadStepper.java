@@ -0,0 +1,324 @@
+import java.util.*;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Executes the steps of a fleet of {@link ElectricVehicle}s giving every vehicle its own
+ * virtual thread, which runs the vehicle's {@code act} loop and waits for the next step on a
+ * barrier driven by {@link #step(int)}. Agent code on those threads may simply block: a thread
+ * that waits costs a couple of kilobytes of heap and no carrier thread. Switching threads is
+ * still far more expensive than a method call, so this mode is slower than a plain loop
+ * (see {@code SimulationStepBenchmark} in the {@code jmh} module); it is meant for agents
+ * whose behaviour is easier to write as blocking code.
+ * Each step runs in two phases, separated by the barrier:
+ * <ol>
+ * <li>Every vehicle moves, spends battery and re-plans ({@code ElectricVehicle.moveQuietly})
+ * on its own thread, all of them at the same time.</li>
+ * <li>The vehicles that reached a {@link ChargingStation} take their {@link Charger}
+ * ({@code ElectricVehicle.chargeAtStation}), and those that arrived or ran out of battery log
+ * it, on their own threads but one at a time: a turn is passed from each of them to the next
+ * one in fleet order, and the others stay parked.</li>
+ * </ol>
+ * Since chargers are taken, and events logged, in the same order a sequential step would
+ * use, a run produces exactly the same output as {@link SimulationMode#SEQUENTIAL}.
+ *
+ * In charging-session mode ({@link EVCompany#isChargingSessionMode()}) a vehicle that finds
+ * its station busy joins the station's queue and its thread parks, leaving the barrier, until
+ * the station hands it a {@link Charger}; it is not woken in the steps it spends waiting.
+ * The barrier is a tree of {@link Phaser}s with at most {@value #VEHICLES_PER_PHASER} vehicles
+ * each (vehicles woken from a queue rejoin it in new ones), so fleets of millions of vehicles
+ * neither exceed the parties of a phaser nor contend on a single one. Vehicles that finish their simulation leave the barrier and their thread ends.
+ * @author DP classes
+ * @version 2025
+ */
+public class VirtualThreadStepper implements AutoCloseable
+{
+    /** Maximum number of vehicles synchronized by each phaser of the tree. */
+    private static final int VEHICLES_PER_PHASER = 1024;
+
+    /** Value of {@code turn} when no vehicle holds it. */
+    private static final int NO_TURN = -1;
+
+    private final ElectricVehicle[] fleet;
+    private final Thread[] threads;
+    private final byte[] outcomes;      // Resultado del movimiento de cada vehículo en el paso
+
+    // Barrera: la raíz la mueve el hilo que llama a step; la hoja de cada vehículo agrupa un bloque de la flota
+    private final Phaser root;
+    private final Phaser[] barriers;
+
+    // Índice en la flota del vehículo que puede tomar cargador, y el hilo que espera al último
+    private volatile int turn;
+    private volatile Thread driver;
+
+    // Vehículos en la cola de cada estación, con el hilo aparcado, y los que ya tienen cargador
+    // (sólo se usan con el turno y desde el hilo que llama a step); wakeUp guarda el paso en el
+    // que vuelve a actuar cada vehículo despertado (0 mientras duerme)
+    private final Map<ChargingStation, List<Integer>> parked;
+    private final List<Integer> served;
+    private final AtomicIntegerArray wakeUp;
+
+    private final AtomicReference<Throwable> failure;
+    private int nextStep;
+    private boolean started;
+
+    /**
+     * Constructor for objects of class VirtualThreadStepper. The first simulated step is 0.
+     * @param fleet The vehicles to simulate, in the order a sequential step would use.
+     */
+    public VirtualThreadStepper(List<ElectricVehicle> fleet)
+    {
+        this(fleet, 0);
+    }
+
+    /**
+     * Constructor for objects of class VirtualThreadStepper starting at a later step, e.g. to
+     * continue a simulation restored from a {@link SimulationCheckpoint}.
+     * The threads are started by the first call to {@link #step(int)}.
+     * @param fleet The vehicles to simulate, in the order a sequential step would use.
+     * @param firstStep The first step to simulate.
+     */
+    public VirtualThreadStepper(List<ElectricVehicle> fleet, int firstStep)
+    {
+        if (fleet == null) throw new IllegalArgumentException("null fleet in VirtualThreadStepper");
+
+        int n = fleet.size();
+        this.fleet = fleet.toArray(new ElectricVehicle[0]);
+        this.threads = new Thread[n];
+        this.outcomes = new byte[n];
+        this.root = new Phaser(1);
+        this.barriers = new Phaser[n];
+        for (int first = 0; first < n; first += VEHICLES_PER_PHASER) {
+            int last = Math.min(n, first + VEHICLES_PER_PHASER);
+            Arrays.fill(barriers, first, last, new Phaser(root, last - first));
+        }
+        this.turn = NO_TURN;
+        this.parked = new IdentityHashMap<>();
+        this.served = new ArrayList<>();
+        this.wakeUp = new AtomicIntegerArray(n);
+        this.failure = new AtomicReference<>();
+        this.nextStep = firstStep;
+    }
+
+    /**
+     * @return The number of vehicles in the stepper.
+     */
+    public int size()
+    {
+        return fleet.length;
+    }
+
+    /**
+     * Carries out a single step of the simulation for the whole fleet. When it returns, every
+     * vehicle has finished the step and the state of the fleet can be read safely.
+     * @param step The current step of the simulation; steps must be requested in order.
+     */
+    public void step(int step)
+    {
+        if (root.isTerminated()) throw new IllegalStateException("VirtualThreadStepper already closed");
+        if (step != nextStep) throw new IllegalArgumentException("Step out of order in step (VirtualThreadStepper): " + step + " instead of " + nextStep);
+
+        if (!started) {
+            start();
+        }
+
+        // Fase 1: todos los vehículos se mueven a la vez
+        root.arriveAndAwaitAdvance();
+        root.arriveAndAwaitAdvance();
+
+        // Fase 2: el turno recorre en orden de flota los que llegaron a su estación o tienen un evento
+        int first = nextInTurn(0);
+        if (first != NO_TURN) {
+            driver = Thread.currentThread();
+            turn = first;
+            LockSupport.unpark(threads[first]);
+            while (turn != NO_TURN) {
+                LockSupport.park(this);
+            }
+            rejoinServed(step + 1);
+        }
+        nextStep++;
+
+        Throwable cause = failure.get();
+        if (cause != null) {
+            close();
+            throw new IllegalStateException("A vehicle failed in step " + step + " (VirtualThreadStepper)", cause);
+        }
+    }
+
+    /**
+     * Stops the threads of every vehicle. The stepper cannot be used afterwards.
+     */
+    @Override
+    public void close()
+    {
+        root.forceTermination();
+        for (Thread thread : threads) {
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    /**
+     * Starts a virtual thread for every vehicle.
+     */
+    private void start()
+    {
+        started = true;
+        for (int i = 0; i < fleet.length; i++) {
+            int index = i;
+            threads[i] = Thread.ofVirtual().name("EV " + fleet[i].getPlate()).unstarted(() -> live(index));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+    }
+
+    /**
+     * Loop of the thread of a vehicle: one iteration per step, until the vehicle finishes
+     * its simulation or the stepper is closed.
+     * @param index The position of the vehicle in the fleet.
+     */
+    private void live(int index)
+    {
+        ElectricVehicle vehicle = fleet[index];
+        Phaser barrier = barriers[index];
+        boolean registered = true;
+
+        try {
+            for (int step = nextStep; ; step++) {
+
+                if (vehicle.hasFinishedSimulation()) {
+                    registered = false;
+                    barrier.arriveAndDeregister();
+                    return;
+                }
+                if (barrier.arriveAndAwaitAdvance() < 0) return;
+
+                int outcome = vehicle.moveQuietly(step);
+                outcomes[index] = (byte) outcome;
+                if (barrier.arriveAndAwaitAdvance() < 0) return;
+
+                if (outcome != ElectricVehicle.MOVED) {
+                    registered = actInTurn(index, outcome, step, barrier);
+                    if (!registered) {
+                        // En la cola de la estación: el hilo duerme hasta que le den un cargador
+                        int resume;
+                        while ((resume = wakeUp.get(index)) == 0) {
+                            if (root.isTerminated()) return;
+                            LockSupport.park(this);
+                        }
+                        wakeUp.set(index, 0);
+                        step = resume - 1;
+                        barrier = barriers[index];
+                        registered = true;
+                    }
+                }
+            }
+        }
+        catch (Throwable e) {
+            failure.compareAndSet(null, e);
+            if (registered) {
+                barrier.arriveAndDeregister();
+            }
+        }
+    }
+
+    /**
+     * Second phase of a step for a vehicle that reached its station, arrived at its target or
+     * ran out of battery: waits for its turn, takes its charger or logs the event, and passes
+     * the turn on.
+     * @param index The position of the vehicle in the fleet.
+     * @param outcome What is left to do in the step (see {@code ElectricVehicle.moveQuietly}).
+     * @param step The current step of the simulation.
+     * @param barrier The phaser of the vehicle.
+     * @return {@code false} if the vehicle is now waiting in the station's queue and has left the barrier.
+     */
+    private boolean actInTurn(int index, int outcome, int step, Phaser barrier)
+    {
+        while (turn != index) {
+            LockSupport.park(this);
+        }
+
+        try {
+            ElectricVehicle vehicle = fleet[index];
+            if (outcome != ElectricVehicle.AT_STATION) {
+                vehicle.logMovement(outcome, step);
+                return true;
+            }
+
+            ChargingStation station = vehicle.getTargetChargingStation();
+            vehicle.chargeAtStation(step);
+            wakeServed(station);
+
+            if (vehicle.isWaitingForCharger()) {
+                // Sale de la barrera antes de ceder el turno, mientras el paso no puede avanzar
+                parked.computeIfAbsent(station, s -> new ArrayList<>()).add(index);
+                barrier.arriveAndDeregister();
+                return false;
+            }
+            return true;
+        }
+        finally {
+            outcomes[index] = ElectricVehicle.MOVED;
+            int next = nextInTurn(index + 1);
+            turn = next;
+            LockSupport.unpark(next == NO_TURN ? driver : threads[next]);
+        }
+    }
+
+    /**
+     * Takes note of the parked vehicles of a station that have just been given a {@link Charger}.
+     * @param station The station.
+     */
+    private void wakeServed(ChargingStation station)
+    {
+        List<Integer> waiting = parked.get(station);
+        if (waiting == null) return;
+
+        Iterator<Integer> vehicles = waiting.iterator();
+        while (vehicles.hasNext()) {
+            int index = vehicles.next();
+            if (!fleet[index].isWaitingForCharger()) {
+                vehicles.remove();
+                served.add(index);
+            }
+        }
+    }
+
+    /**
+     * Wakes the vehicles served in this step, which rejoin the barrier for the next one.
+     * They are registered in new phasers: a phaser whose parties have all arrived cannot
+     * take new ones until it advances, but the root never advances before this thread arrives.
+     * @param resumeStep The step in which they act again.
+     */
+    private void rejoinServed(int resumeStep)
+    {
+        for (int first = 0; first < served.size(); first += VEHICLES_PER_PHASER) {
+            int last = Math.min(served.size(), first + VEHICLES_PER_PHASER);
+            Phaser barrier = new Phaser(root, last - first);
+            for (int i = first; i < last; i++) {
+                int index = served.get(i);
+                barriers[index] = barrier;
+                wakeUp.set(index, resumeStep);
+                LockSupport.unpark(threads[index]);
+            }
+        }
+        served.clear();
+    }
+
+    /**
+     * @return The position of the first vehicle from {@code from} on that has something to do
+     * in the second phase of the current step, or {@link #NO_TURN} if there is none.
+     */
+    private int nextInTurn(int from)
+    {
+        for (int i = from; i < outcomes.length; i++) {
+            if (outcomes[i] != ElectricVehicle.MOVED) return i;
+        }
+        return NO_TURN;
+    }
+}
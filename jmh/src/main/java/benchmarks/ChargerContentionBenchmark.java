@@ -0,0 +1,41 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Several threads competing for the four chargers of one station: every operation tries to
+ * reserve a charger and releases it if it got one. Change the number of threads with
+ * {@code -t}.
+ * @author DP classes
+ * @version 2025
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ChargerContentionBenchmark
+{
+    /** Operations performed by every call to the benchmark. */
+    static final int OPERATIONS = 64;
+
+    private IntToLongFunction workload;
+
+    @Setup
+    public void setUp()
+    {
+        workload = Workloads.create("chargerContention");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public long reserveAndRelease()
+    {
+        return workload.applyAsLong(OPERATIONS);
+    }
+}
@@ -0,0 +1,77 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * {@code Location.nextLocation} and {@code Location.distance}, with objects and with packed
+ * coordinates, and the allocation a moving fleet saves by using the canonical locations of
+ * the grid instead of creating a new one per move.
+ * @author DP classes
+ * @version 2025
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocationBenchmark
+{
+    /** Operations performed by every call to a micro-benchmark. */
+    static final int OPERATIONS = 1024;
+
+    /**
+     * A kernel of {@code Location}.
+     */
+    @State(Scope.Benchmark)
+    public static class Kernel
+    {
+        @Param({"nextLocation", "nextLocationPacked", "distance", "distancePacked"})
+        public String operation;
+
+        IntToLongFunction workload;
+
+        @Setup
+        public void setUp()
+        {
+            workload = Workloads.create("location", operation);
+        }
+    }
+
+    /**
+     * A fleet that moves one step per operation.
+     */
+    @State(Scope.Benchmark)
+    public static class Fleet
+    {
+        @Param({"true", "false"})
+        public boolean canonical;
+
+        @Param({"100000"})
+        public int vehicles;
+
+        IntToLongFunction workload;
+
+        @Setup
+        public void setUp()
+        {
+            workload = Workloads.create("locationMoves", canonical, vehicles);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public long kernel(Kernel state)
+    {
+        return state.workload.applyAsLong(OPERATIONS);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long fleetMove(Fleet state)
+    {
+        return state.workload.applyAsLong(1);
+    }
+}
@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Full simulation steps ({@code EVDemo.step}) with every engine of the simulation, at several
+ * fleet, network and station sizes. Every measurement simulates {@code steps} steps of a new
+ * scenario, built outside the measurement, so the result is the time of {@code steps} steps.
+ * The {@code SEQUENTIAL} mode is the baseline of the others: {@code VIRTUAL_THREADS} adds the
+ * step barrier and the thread switches, and {@code EVENT_DRIVEN} pays off on long horizons
+ * of long trips, e.g. {@code -p longTrips=true -p steps=4000}.
+ * @author DP classes
+ * @version 2025
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimulationStepBenchmark
+{
+    @Param({"SEQUENTIAL", "COLUMNAR", "PARALLEL", "EVENT_DRIVEN", "VIRTUAL_THREADS"})
+    public String mode;
+
+    /** Whether the vehicles cross the grid without recharging instead of recharging on the way. */
+    @Param({"false"})
+    public boolean longTrips;
+
+    @Param({"1000", "100000"})
+    public int vehicles;
+
+    @Param({"16", "1024"})
+    public int stations;
+
+    @Param({"4", "64"})
+    public int chargers;
+
+    /** Steps of every measurement. */
+    @Param({"20"})
+    public int steps;
+
+    private IntToLongFunction simulation;
+
+    @Setup(Level.Invocation)
+    public void setUp()
+    {
+        simulation = Workloads.create("simulation", mode, longTrips, vehicles, stations, chargers);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws Exception
+    {
+        Workloads.close(simulation);
+        simulation = null;
+    }
+
+    @Benchmark
+    public long step()
+    {
+        return simulation.applyAsLong(steps);
+    }
+}
@@ -0,0 +1,92 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The queries the vehicles make to the charging network: {@code EVCompany.getChargingStation}
+ * by location and by ID and {@code ElectricVehicle.calculateRechargingPosition}, at several
+ * network sizes, and {@code ChargingStation.getFreeCharger} at several station sizes.
+ * @author DP classes
+ * @version 2025
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StationBenchmark
+{
+    /** Operations performed by every call to a benchmark. */
+    static final int OPERATIONS = 1024;
+
+    /**
+     * A network of stations with one charger each.
+     */
+    @State(Scope.Benchmark)
+    public static class Network
+    {
+        @Param({"16", "1024"})
+        public int stations;
+
+        IntToLongFunction byLocation;
+        IntToLongFunction byId;
+        IntToLongFunction rechargingPosition;
+
+        @Setup
+        public void setUp()
+        {
+            byLocation = Workloads.create("stationLookup", "location", stations);
+            byId = Workloads.create("stationLookup", "id", stations);
+            rechargingPosition = Workloads.create("rechargingPosition", stations);
+        }
+    }
+
+    /**
+     * A station where every other charger is busy.
+     */
+    @State(Scope.Benchmark)
+    public static class Station
+    {
+        @Param({"4", "64"})
+        public int chargers;
+
+        IntToLongFunction freeCharger;
+
+        @Setup
+        public void setUp()
+        {
+            freeCharger = Workloads.create("freeCharger", chargers);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public long getChargingStationByLocation(Network state)
+    {
+        return state.byLocation.applyAsLong(OPERATIONS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public long getChargingStationById(Network state)
+    {
+        return state.byId.applyAsLong(OPERATIONS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public long calculateRechargingPosition(Network state)
+    {
+        return state.rechargingPosition.applyAsLong(OPERATIONS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public long getFreeCharger(Station state)
+    {
+        return state.freeCharger.applyAsLong(OPERATIONS);
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Access to the workloads of the simulation. JMH needs its benchmarks in a named package,
+ * and classes in a named package cannot refer to the classes of the simulation, which are
+ * in the unnamed one, so the workloads are created by reflection from the factory methods
+ * of {@code BenchmarkWorkloads}. Only the setup goes through reflection: the measured code
+ * calls the returned {@link IntToLongFunction} directly.
+ * @author DP classes
+ * @version 2025
+ */
+final class Workloads
+{
+    private static final String FACTORY = "BenchmarkWorkloads";
+
+    private Workloads()
+    {
+    }
+
+    /**
+     * Creates a workload.
+     * @param name The name of the factory method of {@code BenchmarkWorkloads}.
+     * @param args The arguments of the factory method.
+     * @return The workload.
+     */
+    static IntToLongFunction create(String name, Object... args)
+    {
+        try {
+            for (Method method : Class.forName(FACTORY).getMethods()) {
+                if (method.getName().equals(name) && method.getParameterCount() == args.length) {
+                    return (IntToLongFunction) method.invoke(null, args);
+                }
+            }
+            throw new IllegalArgumentException("No workload " + name + " with " + args.length + " arguments in " + FACTORY);
+        }
+        catch (InvocationTargetException e) {
+            throw new IllegalStateException("Workload " + name + " could not be created", e.getCause());
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Workload " + name + " could not be created", e);
+        }
+    }
+
+    /**
+     * Releases the resources of a workload, if it has any (e.g. the threads of a simulation).
+     * @param workload The workload, or null.
+     */
+    static void close(IntToLongFunction workload) throws Exception
+    {
+        if (workload instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}